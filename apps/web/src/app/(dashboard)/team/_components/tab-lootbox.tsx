@@ -165,14 +165,32 @@ export function TabLootbox() {
     router.replace(`?${params.toString()}`, { scroll: false });
   };
 
-  const openedToday = useMemo(() => {
-    const entries = historyQuery.data ?? [];
-    const todayStart = new Date();
-    todayStart.setHours(0, 0, 0, 0);
-    return entries.filter(
-      (e) => e.kind === "PLAY" && new Date(e.at).getTime() >= todayStart.getTime()
-    ).length;
-  }, [historyQuery.data]);
+  const historyEntries = useMemo(
+    () => historyQuery.data?.pages.flat() ?? [],
+    [historyQuery.data]
+  );
+  const todayStart = new Date();
+  todayStart.setHours(0, 0, 0, 0);
+  const todayStartMs = todayStart.getTime();
+
+  const openedToday = useMemo(
+    () =>
+      historyEntries.filter(
+        (e) => e.kind === "PLAY" && new Date(e.at).getTime() >= todayStartMs
+      ).length,
+    [historyEntries, todayStartMs]
+  );
+
+  // One page normally covers today; only a very busy day pulls the next one
+  const oldestLoaded = historyEntries[historyEntries.length - 1];
+  const needsOlderHistory =
+    oldestLoaded !== undefined && new Date(oldestLoaded.at).getTime() >= todayStartMs;
+  const { hasNextPage, isFetchingNextPage, fetchNextPage } = historyQuery;
+  useEffect(() => {
+    if (needsOlderHistory && hasNextPage && !isFetchingNextPage) {
+      void fetchNextPage();
+    }
+  }, [needsOlderHistory, hasNextPage, isFetchingNextPage, fetchNextPage]);
 
   const cost = selectedCrate?.cost ?? 1;
 
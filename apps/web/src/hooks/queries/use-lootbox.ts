@@ -1,6 +1,6 @@
 "use client";
 
-import { useQuery } from "@tanstack/react-query";
+import { useInfiniteQuery, useQuery } from "@tanstack/react-query";
 import {
   getAdminCatalog,
   getAdminCoinActivity,
@@ -16,7 +16,9 @@ import {
   getUserProfile,
   getWalletBreakdown,
   listCrates,
+  nextHistoryCursor,
 } from "@/lib/api/lootbox";
+import type { CoinHistoryCursor } from "@/lib/api/lootbox";
 
 export const lootboxKeys = {
   balance: ["lootbox", "balance"] as const,
@@ -85,10 +87,16 @@ export function useMyPrizes() {
   });
 }
 
+/**
+ * Coin history, newest first, one page at a time. Only the first page loads up front;
+ * call fetchNextPage for older entries.
+ */
 export function useMyCoinHistory() {
-  return useQuery({
+  return useInfiniteQuery({
     queryKey: lootboxKeys.myHistory,
-    queryFn: getMyHistory,
+    queryFn: ({ pageParam }) => getMyHistory(pageParam),
+    initialPageParam: undefined as CoinHistoryCursor | undefined,
+    getNextPageParam: (lastPage) => nextHistoryCursor(lastPage),
     staleTime: 60 * 1000,
   });
 }
@@ -48,11 +48,31 @@ export async function getActiveKujiBox(
   }
 }
 
+/** Largest page the history endpoint serves. */
+const HISTORY_PAGE_SIZE = 200;
+
 /**
- * Get the full kuji box history for a product (most-recent first).
+ * Get the full kuji box history for a product (most-recent first). The endpoint is
+ * paged on (openedAt, id), so keep requesting the page after the last box until a
+ * short page comes back.
  */
 export async function getKujiBoxHistory(productId: string): Promise<KujiBox[]> {
-  return apiGet<KujiBox[]>(`${BASE_PATH}/by-product/${productId}/history`);
+  const boxes: KujiBox[] = [];
+  for (;;) {
+    const search = new URLSearchParams({ limit: String(HISTORY_PAGE_SIZE) });
+    const last = boxes[boxes.length - 1];
+    if (last) {
+      search.set("before", last.openedAt);
+      search.set("beforeId", last.id);
+    }
+    const page = await apiGet<KujiBox[]>(
+      `${BASE_PATH}/by-product/${productId}/history?${search.toString()}`
+    );
+    boxes.push(...page);
+    if (page.length < HISTORY_PAGE_SIZE) {
+      return boxes;
+    }
+  }
 }
 
 /**
@@ -59,8 +59,40 @@ export function getMyPrizes(): Promise<LootboxPlay[]> {
   return apiGet<LootboxPlay[]>(`${BASE}/my-prizes`);
 }
 
-export function getMyHistory(): Promise<CoinHistoryEntry[]> {
-  return apiGet<CoinHistoryEntry[]>(`${BASE}/my-history`);
+export const HISTORY_PAGE_SIZE = 50;
+
+/** Position after which the next history page starts: the last entry's (at, kind, refId). */
+export interface CoinHistoryCursor {
+  before: string;
+  beforeKind: string;
+  beforeRef: string;
+}
+
+/**
+ * One page of the caller's coin history, newest first. Pass the cursor returned by
+ * {@link nextHistoryCursor} for the page after it.
+ */
+export function getMyHistory(
+  cursor?: CoinHistoryCursor,
+  limit = HISTORY_PAGE_SIZE
+): Promise<CoinHistoryEntry[]> {
+  const search = new URLSearchParams({ limit: String(limit) });
+  if (cursor) {
+    search.set("before", cursor.before);
+    search.set("beforeKind", cursor.beforeKind);
+    search.set("beforeRef", cursor.beforeRef);
+  }
+  return apiGet<CoinHistoryEntry[]>(`${BASE}/my-history?${search.toString()}`);
+}
+
+/** Cursor for the page after `page`, or undefined once a short page says there is none. */
+export function nextHistoryCursor(
+  page: CoinHistoryEntry[],
+  limit = HISTORY_PAGE_SIZE
+): CoinHistoryCursor | undefined {
+  const last = page[page.length - 1];
+  if (page.length < limit || !last?.refId) return undefined;
+  return { before: last.at, beforeKind: last.kind, beforeRef: last.refId };
 }
 
 export function getRecentPlays(
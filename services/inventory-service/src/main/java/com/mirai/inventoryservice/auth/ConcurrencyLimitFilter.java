@@ -0,0 +1,131 @@
+package com.mirai.inventoryservice.auth;
+
+import com.mirai.inventoryservice.http.AdaptiveConcurrencyLimit;
+import com.mirai.inventoryservice.http.AdaptiveConcurrencyLimit.Priority;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Load-shedding filter backed by an {@link AdaptiveConcurrencyLimit}.
+ *
+ * Keeps concurrent API requests near what the service (and its 15-connection Hikari
+ * pool) can actually serve. Excess requests get an immediate 503 with Retry-After
+ * instead of queueing for a connection. Mutating requests may use the whole limit,
+ * plain reads a share of it and analytics reads a smaller share, so dashboard spikes
+ * are shed before inventory writes.
+ *
+ * Runs ahead of rate limiting and JWT authentication so shed requests cost nothing.
+ */
+@Slf4j
+@Component
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private final AdaptiveConcurrencyLimit limit;
+    private final boolean enabled;
+    private final int retryAfterSeconds;
+    private final Map<Priority, Counter> shedCounters = new EnumMap<>(Priority.class);
+
+    @Autowired
+    public ConcurrencyLimitFilter(
+            ObjectProvider<MeterRegistry> meterRegistry,
+            @Value("${concurrency.limit.enabled:true}") boolean enabled,
+            @Value("${concurrency.limit.initial:20}") int initialLimit,
+            @Value("${concurrency.limit.min:5}") int minLimit,
+            @Value("${concurrency.limit.max:100}") int maxLimit,
+            @Value("${concurrency.limit.read-share:0.8}") double readShare,
+            @Value("${concurrency.limit.analytics-share:0.5}") double analyticsShare,
+            @Value("${concurrency.limit.retry-after-seconds:1}") int retryAfterSeconds) {
+        this(meterRegistry.getIfAvailable(SimpleMeterRegistry::new), enabled,
+                new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, readShare, analyticsShare),
+                retryAfterSeconds);
+    }
+
+    ConcurrencyLimitFilter(MeterRegistry registry, boolean enabled, AdaptiveConcurrencyLimit limit,
+                           int retryAfterSeconds) {
+        this.limit = limit;
+        this.enabled = enabled;
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        Gauge.builder("http.server.concurrency.limit", limit, AdaptiveConcurrencyLimit::getLimit)
+                .register(registry);
+        Gauge.builder("http.server.concurrency.in_flight", limit, AdaptiveConcurrencyLimit::getInFlight)
+                .register(registry);
+        for (Priority priority : Priority.values()) {
+            shedCounters.put(priority, Counter.builder("http.server.concurrency.shed")
+                    .tag("priority", priority.name().toLowerCase())
+                    .register(registry));
+        }
+    }
+
+    /**
+     * CORS preflights are answered before any controller runs, so they are not limited;
+     * shedding them would only fail the write that follows in the browser.
+     */
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        return !enabled || uri == null || !uri.startsWith("/api/")
+                || "OPTIONS".equalsIgnoreCase(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain) throws ServletException, IOException {
+
+        Priority priority = classify(request.getMethod(), request.getRequestURI());
+        if (!limit.tryAcquire(priority)) {
+            shedCounters.get(priority).increment();
+            log.debug("Shedding {} request {} (limit {}, in flight {})",
+                    priority, request.getRequestURI(), limit.getLimit(), limit.getInFlight());
+            sendOverloadedResponse(response);
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                // Long-lived async responses say nothing about request latency
+                limit.releaseWithoutSample();
+            } else {
+                limit.release(System.nanoTime() - start);
+            }
+        }
+    }
+
+    static Priority classify(String method, String requestUri) {
+        if (method != null && !"GET".equalsIgnoreCase(method) && !"HEAD".equalsIgnoreCase(method)) {
+            return Priority.WRITE;
+        }
+        return RateLimitingFilter.classify(method, requestUri) == RateLimitingFilter.Tier.ANALYTICS
+                ? Priority.ANALYTICS
+                : Priority.READ;
+    }
+
+    private void sendOverloadedResponse(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType("application/json");
+        response.getWriter().write("{\"error\":\"Server is busy. Please retry shortly.\"}");
+    }
+}
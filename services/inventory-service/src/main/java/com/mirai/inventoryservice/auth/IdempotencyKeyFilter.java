@@ -0,0 +1,450 @@
+package com.mirai.inventoryservice.auth;
+
+import com.mirai.inventoryservice.services.IdempotencyService;
+import com.mirai.inventoryservice.services.IdempotencyService.Claim;
+import com.mirai.inventoryservice.services.IdempotencyService.StoredResponse;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Makes every mutating API request that carries an {@code Idempotency-Key} header safe
+ * to retry. The first request with a key executes and its response is stored by
+ * {@link IdempotencyService}; retries with the same key and request get that response
+ * back (marked {@code Idempotent-Replayed: true}) without touching any controller.
+ *
+ * A duplicate that arrives while the first request is still running waits for it
+ * (up to {@code idempotency.wait-timeout-ms}) and then replays, rather than executing a
+ * second time. Duplicates on this replica are woken as soon as the original finishes;
+ * duplicates on other replicas poll the shared table.
+ *
+ * The body is buffered to fingerprint it, so it is capped at
+ * {@code idempotency.max-body-bytes}: a keyed request over the cap is rejected with 413
+ * before anything is claimed. Multipart uploads are not covered at all and pass through
+ * unbuffered.
+ *
+ * Keys are scoped to the authenticated person, so it runs after JWT authentication.
+ * Async handlers are supported: the response is stored when the last async dispatch
+ * completes, not when the initial dispatch returns.
+ */
+@Slf4j
+@Component
+public class IdempotencyKeyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final Set<String> MUTATING_METHODS = Set.of("POST", "PUT", "PATCH", "DELETE");
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final String EXECUTION_ATTRIBUTE = IdempotencyKeyFilter.class.getName() + ".execution";
+
+    /** Transient rejections the client should be able to retry with the same key. */
+    private static final Set<Integer> RETRYABLE_STATUSES = Set.of(401, 403, 408, 409, 429);
+
+    private final IdempotencyService idempotencyService;
+    private final long waitTimeoutMs;
+    private final long pollMs;
+    private final int maxBodyBytes;
+    private final Map<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyKeyFilter(
+            IdempotencyService idempotencyService,
+            @Value("${idempotency.wait-timeout-ms:10000}") long waitTimeoutMs,
+            @Value("${idempotency.poll-ms:100}") long pollMs,
+            @Value("${idempotency.max-body-bytes:1048576}") int maxBodyBytes) {
+        this.idempotencyService = idempotencyService;
+        this.waitTimeoutMs = waitTimeoutMs;
+        this.pollMs = pollMs;
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        String key = request.getHeader(HEADER);
+        return key == null || key.isBlank()
+                || !MUTATING_METHODS.contains(request.getMethod())
+                || uri == null || !uri.startsWith("/api/")
+                // Webhooks dedupe on the provider's event id
+                || uri.startsWith("/api/webhooks/")
+                || isMultipart(request);
+    }
+
+    private static boolean isMultipart(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        return contentType != null && contentType.regionMatches(true, 0, "multipart/", 0, "multipart/".length());
+    }
+
+    /** Async dispatches carry on the execution their initial dispatch started. */
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain) throws ServletException, IOException {
+
+        if (isAsyncDispatch(request)) {
+            Execution execution = (Execution) request.getAttribute(EXECUTION_ATTRIBUTE);
+            if (execution == null) {
+                filterChain.doFilter(request, response);
+            } else {
+                run(request, execution, filterChain);
+            }
+            return;
+        }
+
+        String key = request.getHeader(HEADER).trim();
+        if (key.length() > MAX_KEY_LENGTH) {
+            sendError(response, HttpServletResponse.SC_BAD_REQUEST,
+                    "Idempotency-Key must be at most " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+        String scope = currentScope();
+        if (scope == null) {
+            // Unauthenticated; let security reject it without claiming the key
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        // Read one byte past the cap, so a body without a Content-Length is bounded too
+        byte[] body = request.getContentLengthLong() > maxBodyBytes
+                ? null
+                : request.getInputStream().readNBytes(maxBodyBytes + 1);
+        if (body == null || body.length > maxBodyBytes) {
+            sendError(response, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE,
+                    "Requests with an Idempotency-Key must be at most " + maxBodyBytes + " bytes");
+            return;
+        }
+        CachedBodyRequest cachedRequest = new CachedBodyRequest(request, body);
+        String fingerprint = fingerprint(request, cachedRequest.body);
+        String localKey = scope + ":" + key;
+        long deadline = System.currentTimeMillis() + waitTimeoutMs;
+
+        while (true) {
+            Claim claim = idempotencyService.claim(scope, key, fingerprint);
+            switch (claim.outcome()) {
+                case ACQUIRED -> {
+                    execute(cachedRequest, response, filterChain, scope, key, fingerprint, localKey, claim);
+                    return;
+                }
+                case REPLAY -> {
+                    replay(response, claim.response());
+                    return;
+                }
+                case MISMATCH -> {
+                    sendError(response, 422, "Idempotency-Key was already used for a different request");
+                    return;
+                }
+                case IN_PROGRESS -> {
+                    if (!awaitInFlight(localKey, deadline)) {
+                        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+                        sendError(response, HttpServletResponse.SC_CONFLICT,
+                                "A request with this Idempotency-Key is still being processed");
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * State of a request executing under a key, kept as a request attribute across
+     * async dispatches so the response is stored once the last one finishes.
+     */
+    private static final class Execution {
+        final String scope;
+        final String key;
+        final String fingerprint;
+        final String localKey;
+        final Claim claim;
+        final ContentCachingResponseWrapper response;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        final AtomicBoolean finished = new AtomicBoolean();
+        boolean listening;
+
+        Execution(String scope, String key, String fingerprint, String localKey, Claim claim,
+                  ContentCachingResponseWrapper response) {
+            this.scope = scope;
+            this.key = key;
+            this.fingerprint = fingerprint;
+            this.localKey = localKey;
+            this.claim = claim;
+            this.response = response;
+        }
+    }
+
+    private void execute(CachedBodyRequest request, HttpServletResponse response, FilterChain filterChain,
+                         String scope, String key, String fingerprint, String localKey, Claim claim)
+            throws ServletException, IOException {
+        Execution execution = new Execution(scope, key, fingerprint, localKey, claim,
+                new ContentCachingResponseWrapper(response));
+        inFlight.put(localKey, execution.done);
+        run(request, execution, filterChain);
+    }
+
+    /**
+     * Run the chain for an execution. If the handler went async, the response is not
+     * there yet: the execution rides along to the async dispatch, which finishes it.
+     */
+    private void run(HttpServletRequest request, Execution execution, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, execution.response);
+            failed = false;
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.setAttribute(EXECUTION_ATTRIBUTE, execution);
+                watchAsync(request, execution);
+            } else {
+                request.removeAttribute(EXECUTION_ATTRIBUTE);
+                finish(execution, failed);
+            }
+        }
+    }
+
+    /**
+     * If the async request ends without dispatching back (client gone, container error),
+     * give the key up so the heartbeat stops renewing it.
+     */
+    private void watchAsync(HttpServletRequest request, Execution execution) {
+        if (execution.listening) {
+            return;
+        }
+        execution.listening = true;
+        request.getAsyncContext().addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+                if (execution.finished.compareAndSet(false, true)) {
+                    release(execution);
+                    settle(execution);
+                }
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+    }
+
+    private void release(Execution execution) {
+        try {
+            idempotencyService.release(execution.claim);
+        } catch (RuntimeException e) {
+            // The lease expires on its own; the client still gets its response
+            log.warn("Failed to release idempotency key {}: {}", execution.key, e.getMessage());
+        }
+    }
+
+    /** Wake duplicates waiting on this replica; they re-check the claim. */
+    private void settle(Execution execution) {
+        inFlight.remove(execution.localKey, execution.done);
+        execution.done.complete(null);
+    }
+
+    private void finish(Execution execution, boolean failed) throws IOException {
+        if (!execution.finished.compareAndSet(false, true)) {
+            return;
+        }
+        ContentCachingResponseWrapper wrapper = execution.response;
+        boolean stored = false;
+        try {
+            int status = wrapper.getStatus();
+            if (!failed && status < 500 && !RETRYABLE_STATUSES.contains(status)) {
+                stored = store(execution.scope, execution.key, execution.fingerprint, execution.claim,
+                        new StoredResponse(status, wrapper.getContentType(), wrapper.getContentAsByteArray()));
+            }
+        } finally {
+            if (!stored) {
+                release(execution);
+            }
+            settle(execution);
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    private boolean store(String scope, String key, String fingerprint, Claim claim, StoredResponse stored) {
+        try {
+            idempotencyService.complete(scope, key, fingerprint, claim, stored);
+            return true;
+        } catch (RuntimeException e) {
+            // The request itself succeeded; a retry will simply execute again
+            log.warn("Failed to store response for idempotency key {}: {}", key, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Wait for the in-flight request to finish, or one poll interval if it runs on
+     * another replica. Returns false once the deadline has passed.
+     */
+    private boolean awaitInFlight(String localKey, long deadline) {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+            return false;
+        }
+        CompletableFuture<Void> local = inFlight.get(localKey);
+        try {
+            if (local != null) {
+                local.get(remaining, TimeUnit.MILLISECONDS);
+            } else {
+                Thread.sleep(Math.min(pollMs, remaining));
+            }
+        } catch (TimeoutException | ExecutionException e) {
+            // Re-check the claim either way
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
+    }
+
+    private void replay(HttpServletResponse response, StoredResponse stored) throws IOException {
+        response.setStatus(stored.status());
+        response.setHeader(REPLAYED_HEADER, "true");
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        if (stored.body() != null) {
+            response.getOutputStream().write(stored.body());
+        }
+    }
+
+    private void sendError(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType("application/json");
+        response.getWriter().write("{\"error\":\"" + message + "\"}");
+    }
+
+    private static String currentScope() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.getPrincipal() instanceof Map<?, ?> principal
+                && principal.get("personId") instanceof String personId) {
+            return "person:" + personId;
+        }
+        return null;
+    }
+
+    static String fingerprint(HttpServletRequest request, byte[] body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(request.getMethod().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) ' ');
+            digest.update(request.getRequestURI().getBytes(StandardCharsets.UTF_8));
+            if (request.getQueryString() != null) {
+                digest.update((byte) '?');
+                digest.update(request.getQueryString().getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update((byte) '\n');
+            digest.update(body);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Reads the body up front so it can be fingerprinted and still be read by the controller.
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                /** The body is already in memory, so it is all available at once. */
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    try {
+                        if (!isFinished()) {
+                            readListener.onDataAvailable();
+                        }
+                        if (isFinished()) {
+                            readListener.onAllDataRead();
+                        }
+                    } catch (IOException e) {
+                        readListener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(new ByteArrayInputStream(body),
+                    encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -27,38 +27,28 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                                   FilterChain filterChain) throws ServletException, IOException {
         
         String authHeader = request.getHeader("Authorization");
-        String token = null;
-        String personRole = null;
-        String personId = null;
-        String personName = null;
-        String personEmail = null;
 
         // Extract JWT token from Authorization header
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            token = authHeader.substring(7);
+        if (authHeader != null && authHeader.startsWith("Bearer ")
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            VerifiedToken verified;
             try {
-                personRole = jwtService.extractRole(token);
-                personId = jwtService.extractPersonId(token);
-                personName = jwtService.extractName(token);
-                personEmail = jwtService.extractEmail(token);
+                // Verified claims are cached per token, so repeat requests skip the signature check
+                verified = jwtService.verify(authHeader.substring(7));
             } catch (Exception e) {
-                // Invalid token
-                filterChain.doFilter(request, response);
-                return;
+                // Invalid or expired token
+                verified = null;
             }
-        }
 
-        // Validate token and set authentication (role can be null for unauthenticated users)
-        if (personId != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            Map<String, String> principal = new java.util.HashMap<>();
-            principal.put("personId", personId);
-            principal.put("personName", personName != null ? personName : "Unknown");
-            principal.put("email", personEmail);
-            principal.put("role", personRole);
+            if (verified != null && verified.personId() != null) {
+                Map<String, String> principal = new java.util.HashMap<>();
+                principal.put("personId", verified.personId());
+                principal.put("personName", verified.name() != null ? verified.name() : "Unknown");
+                principal.put("email", verified.email());
+                principal.put("role", verified.role());
 
-            if (jwtService.validateToken(token)) {
                 // Create authentication object with role (default to USER if no role)
-                String role = personRole != null ? personRole.toUpperCase() : "USER";
+                String role = verified.role() != null ? verified.role().toUpperCase() : "USER";
                 UsernamePasswordAuthenticationToken authToken =
                     new UsernamePasswordAuthenticationToken(
                         principal,
@@ -72,4 +62,4 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,10 @@
 package com.mirai.inventoryservice.auth;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import lombok.NoArgsConstructor;
@@ -10,6 +14,11 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.function.Function;
@@ -23,34 +32,69 @@ public class JwtService {
     @Value("${supabase.jwt.secret}")
     private String jwtSecret;
 
+    @Value("${supabase.jwt.cache.max-size:10000}")
+    private long cacheMaxSize = 10_000;
+
+    @Value("${supabase.jwt.cache.max-ttl-seconds:300}")
+    private long cacheMaxTtlSeconds = 300;
+
+    private volatile SecretKey signKey;
+    private volatile Cache<String, VerifiedToken> verifiedTokens;
+
     @jakarta.annotation.PostConstruct
     public void init() {
         log.info("JwtService initialized with secret: {}", (jwtSecret != null ? "LOADED" : "NULL"));
     }
-    
-    
+
+    /**
+     * Verify a token and return its claims, parsing it at most once per cache lifetime.
+     *
+     * Entries are keyed by a SHA-256 of the token so raw bearer tokens are not retained,
+     * and expire after supabase.jwt.cache.max-ttl-seconds or at the token's exp,
+     * whichever comes first.
+     *
+     * @throws JwtException if the signature is invalid, the token is malformed or it has expired
+     */
+    public VerifiedToken verify(String token) {
+        Cache<String, VerifiedToken> cache = verifiedTokens();
+        String key = cacheKey(token);
+
+        VerifiedToken cached = cache.getIfPresent(key);
+        if (cached != null && !cached.isExpired(Instant.now())) {
+            return cached;
+        }
+
+        Claims claims = extractAllClaims(token);
+        if (claims.getExpiration() == null) {
+            throw new JwtException("Token has no expiration");
+        }
+        VerifiedToken verified = new VerifiedToken(
+                claims.getSubject(),
+                nameOf(claims),
+                claims.get("email", String.class),
+                roleOf(claims),
+                claims.getExpiration().toInstant());
+        cache.put(key, verified);
+        return verified;
+    }
+
+    /**
+     * Return the claims of a token already verified by {@link #verify}, without parsing it.
+     * Returns null if the token is not cached or has expired.
+     */
+    public VerifiedToken peekVerified(String token) {
+        VerifiedToken cached = verifiedTokens().getIfPresent(cacheKey(token));
+        return cached != null && !cached.isExpired(Instant.now()) ? cached : null;
+    }
+
     public String extractName(String token){
-        return extractClaim(token, claims -> {
-            HashMap<?, ?> userMetadata = claims.get("user_metadata", HashMap.class);
-            if (userMetadata != null && userMetadata.get("name") != null) {
-                return userMetadata.get("name").toString();
-            }
-            // Fallback to email if name not set
-            String email = claims.get("email", String.class);
-            return email != null ? email.split("@")[0] : null;
-        });
+        return extractClaim(token, JwtService::nameOf);
     }
 
     public String extractRole(String token){
-        return extractClaim(token, claims -> {
-            HashMap<?, ?> userMetadata = claims.get("user_metadata", HashMap.class);
-            if (userMetadata != null && userMetadata.get("role") != null) {
-                return userMetadata.get("role").toString();
-            }
-            return null;
-        });
+        return extractClaim(token, JwtService::roleOf);
     }
-    
+
     public String extractPersonId(String token) {
         return extractClaim(token, Claims::getSubject);
     }
@@ -62,12 +106,30 @@ public class JwtService {
     public Date extractExpiration(String token) {
         return extractClaim(token, Claims::getExpiration);
     }
-    
+
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
         final Claims claims = extractAllClaims(token);
         return claimsResolver.apply(claims);
     }
-    
+
+    private static String nameOf(Claims claims) {
+        HashMap<?, ?> userMetadata = claims.get("user_metadata", HashMap.class);
+        if (userMetadata != null && userMetadata.get("name") != null) {
+            return userMetadata.get("name").toString();
+        }
+        // Fallback to email if name not set
+        String email = claims.get("email", String.class);
+        return email != null ? email.split("@")[0] : null;
+    }
+
+    private static String roleOf(Claims claims) {
+        HashMap<?, ?> userMetadata = claims.get("user_metadata", HashMap.class);
+        if (userMetadata != null && userMetadata.get("role") != null) {
+            return userMetadata.get("role").toString();
+        }
+        return null;
+    }
+
     private Claims extractAllClaims(String token) {
         Claims claims = Jwts.parser()
                 .verifyWith(getSignKey())
@@ -76,11 +138,11 @@ public class JwtService {
                 .getPayload();
         return claims;
     }
-    
+
     private Boolean isTokenExpired(String token) {
         return extractExpiration(token).before(new Date());
     }
-    
+
     public Boolean validateToken(String token) {
         try {
             boolean result = !isTokenExpired(token);
@@ -91,9 +153,60 @@ public class JwtService {
             return false;
         }
     }
-    
+
     private SecretKey getSignKey() {
-        byte[] keyBytes = jwtSecret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+        SecretKey key = signKey;
+        if (key == null) {
+            byte[] keyBytes = jwtSecret.getBytes(StandardCharsets.UTF_8);
+            key = Keys.hmacShaKeyFor(keyBytes);
+            signKey = key;
+        }
+        return key;
+    }
+
+    private Cache<String, VerifiedToken> verifiedTokens() {
+        Cache<String, VerifiedToken> cache = verifiedTokens;
+        if (cache == null) {
+            synchronized (this) {
+                cache = verifiedTokens;
+                if (cache == null) {
+                    Duration maxTtl = Duration.ofSeconds(cacheMaxTtlSeconds);
+                    cache = Caffeine.newBuilder()
+                            .maximumSize(cacheMaxSize)
+                            .expireAfter(new Expiry<String, VerifiedToken>() {
+                                @Override
+                                public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+                                    Duration untilExp = Duration.between(Instant.now(), value.expiresAt());
+                                    Duration ttl = untilExp.compareTo(maxTtl) < 0 ? untilExp : maxTtl;
+                                    return Math.max(0, ttl.toNanos());
+                                }
+
+                                @Override
+                                public long expireAfterUpdate(String key, VerifiedToken value,
+                                                              long currentTime, long currentDuration) {
+                                    return expireAfterCreate(key, value, currentTime);
+                                }
+
+                                @Override
+                                public long expireAfterRead(String key, VerifiedToken value,
+                                                            long currentTime, long currentDuration) {
+                                    return currentDuration;
+                                }
+                            })
+                            .build();
+                    verifiedTokens = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    private static String cacheKey(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
-}
\ No newline at end of file
+}
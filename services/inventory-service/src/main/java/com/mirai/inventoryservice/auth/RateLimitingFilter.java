@@ -1,28 +1,38 @@
 package com.mirai.inventoryservice.auth;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.github.bucket4j.Bandwidth;
 import io.github.bucket4j.Bucket;
 import io.github.bucket4j.Refill;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Rate limiting filter using Bucket4j token bucket algorithm.
  *
  * Features:
- * - Configurable requests per minute via environment variable
- * - Per-IP rate limiting using ConcurrentHashMap
+ * - Per-client buckets keyed by authenticated personId, falling back to IP
+ * - Separate per-minute limits for standard requests, analytics reads and batch writes
+ * - Buckets held in a size-bounded Caffeine cache that drops idle clients
+ * - Allowed/rejected counters per tier (rate.limit.requests)
  * - Supports X-Forwarded-For header for reverse proxy deployments
  * - Excludes /health endpoint from rate limiting
  * - Returns HTTP 429 (Too Many Requests) when limit exceeded
@@ -31,13 +41,73 @@ import java.util.concurrent.ConcurrentHashMap;
 @Component
 public class RateLimitingFilter extends OncePerRequestFilter {
 
-    private final Map<String, Bucket> bucketCache = new ConcurrentHashMap<>();
-    private final int requestsPerMinute;
+    /**
+     * Endpoint classes with their own bandwidth, so heavy endpoints are throttled
+     * without eating into the budget for normal browsing.
+     */
+    public enum Tier {
+        STANDARD,
+        ANALYTICS,
+        BATCH_WRITE
+    }
+
+    private static final List<String> ANALYTICS_PREFIXES = List.of(
+            "/api/analytics", "/api/forecasts", "/api/audit-logs");
+
+    private final Cache<String, Bucket> bucketCache;
+    private final JwtService jwtService;
+    private final Map<Tier, Integer> limitsPerMinute = new EnumMap<>(Tier.class);
+    private final Map<Tier, Counter> allowedCounters = new EnumMap<>(Tier.class);
+    private final Map<Tier, Counter> rejectedCounters = new EnumMap<>(Tier.class);
 
+    @Autowired
     public RateLimitingFilter(
-            @Value("${rate.limit.requests.per.minute:100}") int requestsPerMinute) {
-        this.requestsPerMinute = requestsPerMinute;
-        log.info("Rate limiting initialized: {} requests per minute per IP", requestsPerMinute);
+            JwtService jwtService,
+            ObjectProvider<MeterRegistry> meterRegistry,
+            @Value("${rate.limit.requests.per.minute:100}") int requestsPerMinute,
+            @Value("${rate.limit.analytics.per.minute:30}") int analyticsPerMinute,
+            @Value("${rate.limit.batch.per.minute:20}") int batchWritesPerMinute,
+            @Value("${rate.limit.max-tracked-clients:10000}") long maxTrackedClients,
+            @Value("${rate.limit.idle-expiry-minutes:10}") long idleExpiryMinutes) {
+        this(jwtService, meterRegistry.getIfAvailable(SimpleMeterRegistry::new), requestsPerMinute,
+                analyticsPerMinute, batchWritesPerMinute, maxTrackedClients, idleExpiryMinutes);
+    }
+
+    RateLimitingFilter(
+            JwtService jwtService,
+            MeterRegistry registry,
+            int requestsPerMinute,
+            int analyticsPerMinute,
+            int batchWritesPerMinute,
+            long maxTrackedClients,
+            long idleExpiryMinutes) {
+        this.jwtService = jwtService;
+        this.bucketCache = Caffeine.newBuilder()
+                .maximumSize(maxTrackedClients)
+                .expireAfterAccess(Duration.ofMinutes(idleExpiryMinutes))
+                .build();
+
+        limitsPerMinute.put(Tier.STANDARD, requestsPerMinute);
+        limitsPerMinute.put(Tier.ANALYTICS, analyticsPerMinute);
+        limitsPerMinute.put(Tier.BATCH_WRITE, batchWritesPerMinute);
+
+        for (Tier tier : Tier.values()) {
+            String tag = tier.name().toLowerCase();
+            allowedCounters.put(tier, Counter.builder("rate.limit.requests")
+                    .tag("tier", tag).tag("outcome", "allowed").register(registry));
+            rejectedCounters.put(tier, Counter.builder("rate.limit.requests")
+                    .tag("tier", tag).tag("outcome", "rejected").register(registry));
+        }
+
+        log.info("Rate limiting initialized: {} standard, {} analytics, {} batch requests per minute per client",
+                requestsPerMinute, analyticsPerMinute, batchWritesPerMinute);
+    }
+
+    /**
+     * Single flat limit for every tier, keyed by IP only.
+     */
+    RateLimitingFilter(int requestsPerMinute) {
+        this(null, new SimpleMeterRegistry(), requestsPerMinute, requestsPerMinute, requestsPerMinute, 10_000, 10);
     }
 
     @Override
@@ -54,17 +124,57 @@ public class RateLimitingFilter extends OncePerRequestFilter {
             return;
         }
 
-        String clientIp = getClientIp(request);
-        Bucket bucket = getBucketForIp(clientIp);
+        Tier tier = classify(request.getMethod(), requestUri);
+        String clientKey = getClientKey(request);
+        Bucket bucket = bucketCache.get(tier.name() + "|" + clientKey, key -> createNewBucket(tier));
 
         if (bucket.tryConsume(1)) {
+            allowedCounters.get(tier).increment();
             filterChain.doFilter(request, response);
         } else {
-            log.warn("Rate limit exceeded for IP: {} on endpoint: {}", clientIp, requestUri);
+            rejectedCounters.get(tier).increment();
+            log.warn("Rate limit exceeded for {} on {} endpoint: {}", clientKey, tier, requestUri);
             sendRateLimitExceededResponse(response);
         }
     }
 
+    /**
+     * Map a request to its rate limit tier.
+     */
+    static Tier classify(String method, String requestUri) {
+        if (requestUri == null) {
+            return Tier.STANDARD;
+        }
+        if (method != null && !"GET".equalsIgnoreCase(method)
+                && (requestUri.contains("/batch") || requestUri.contains("/bulk"))) {
+            return Tier.BATCH_WRITE;
+        }
+        for (String prefix : ANALYTICS_PREFIXES) {
+            if (requestUri.startsWith(prefix)) {
+                return Tier.ANALYTICS;
+            }
+        }
+        return Tier.STANDARD;
+    }
+
+    /**
+     * Identify the client: the personId of a bearer token that has already been verified,
+     * otherwise the client IP. Only the verified-token cache is consulted, so this filter
+     * never pays for signature verification ahead of the limit check.
+     */
+    private String getClientKey(HttpServletRequest request) {
+        if (jwtService != null) {
+            String authHeader = request.getHeader("Authorization");
+            if (authHeader != null && authHeader.startsWith("Bearer ")) {
+                VerifiedToken verified = jwtService.peekVerified(authHeader.substring(7));
+                if (verified != null && verified.personId() != null) {
+                    return "person:" + verified.personId();
+                }
+            }
+        }
+        return "ip:" + getClientIp(request);
+    }
+
     /**
      * Check if the request is for the health endpoint.
      *
@@ -141,21 +251,13 @@ public class RateLimitingFilter extends OncePerRequestFilter {
     }
 
     /**
-     * Get or create a rate limit bucket for the given IP address.
-     *
-     * @param clientIp The client IP address
-     * @return The bucket for this IP
-     */
-    private Bucket getBucketForIp(String clientIp) {
-        return bucketCache.computeIfAbsent(clientIp, ip -> createNewBucket());
-    }
-
-    /**
-     * Create a new rate limit bucket with the configured limit.
+     * Create a new rate limit bucket with the tier's configured limit.
      *
+     * @param tier The endpoint tier
      * @return A new bucket configured with the rate limit
      */
-    private Bucket createNewBucket() {
+    private Bucket createNewBucket(Tier tier) {
+        int requestsPerMinute = limitsPerMinute.get(tier);
         Bandwidth limit = Bandwidth.classic(
                 requestsPerMinute,
                 Refill.greedy(requestsPerMinute, Duration.ofMinutes(1))
@@ -182,16 +284,18 @@ public class RateLimitingFilter extends OncePerRequestFilter {
      * Primarily used for testing to ensure test isolation.
      */
     public void clearBuckets() {
-        bucketCache.clear();
+        bucketCache.invalidateAll();
+        bucketCache.cleanUp();
     }
 
     /**
-     * Get the current number of tracked IPs.
+     * Get the current number of tracked client/tier buckets.
      * Useful for monitoring and debugging.
      *
-     * @return The number of IPs being tracked
+     * @return The number of buckets being tracked
      */
-    public int getTrackedIpCount() {
-        return bucketCache.size();
+    public long getTrackedClientCount() {
+        bucketCache.cleanUp();
+        return bucketCache.estimatedSize();
     }
 }
@@ -23,6 +23,8 @@ import java.util.Arrays;
 public class SecurityConfig {
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
     private final RateLimitingFilter rateLimitingFilter;
+    private final ConcurrencyLimitFilter concurrencyLimitFilter;
+    private final IdempotencyKeyFilter idempotencyKeyFilter;
     private final Environment environment;
 
     @Bean
@@ -75,6 +77,12 @@ public class SecurityConfig {
         http.addFilterBefore(rateLimitingFilter, UsernamePasswordAuthenticationFilter.class);
         http.addFilterAfter(jwtAuthenticationFilter, RateLimitingFilter.class);
 
+        // Replay or await retried writes once the caller is known (keys are per person)
+        http.addFilterAfter(idempotencyKeyFilter, JwtAuthenticationFilter.class);
+
+        // Shed load before doing any other work when the service is saturated
+        http.addFilterBefore(concurrencyLimitFilter, RateLimitingFilter.class);
+
         return http.build();
     }
     
@@ -106,6 +114,7 @@ public class SecurityConfig {
 
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS"));
         configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "Idempotency-Key"));
+        configuration.setExposedHeaders(Arrays.asList(IdempotencyKeyFilter.REPLAYED_HEADER, "Retry-After"));
         configuration.setAllowCredentials(true);
         configuration.setMaxAge(3600L);
 
@@ -0,0 +1,19 @@
+package com.mirai.inventoryservice.auth;
+
+import java.time.Instant;
+
+/**
+ * Claims of a signature-verified access token, extracted once and safe to share
+ * between requests presenting the same token.
+ */
+public record VerifiedToken(
+        String personId,
+        String name,
+        String email,
+        String role,
+        Instant expiresAt
+) {
+    public boolean isExpired(Instant now) {
+        return !now.isBefore(expiresAt);
+    }
+}
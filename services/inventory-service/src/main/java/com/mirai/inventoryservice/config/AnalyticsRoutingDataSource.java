@@ -0,0 +1,103 @@
+package com.mirai.inventoryservice.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Sends read-only transactions opened by the analytics services to the analytics pool and
+ * everything else to the primary pool. The decision is made per physical connection, so it
+ * must sit behind a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}:
+ * the transaction's name and read-only flag are only bound after the transaction manager
+ * has asked for a connection.
+ *
+ * <p>Analytics connections get their statement timeout with {@code SET LOCAL} at the start
+ * of each transaction. A session setting or startup option would be lost behind a
+ * transaction-mode pooler, which hands every transaction a different server connection.
+ */
+class AnalyticsRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Route { PRIMARY, ANALYTICS }
+
+    private final List<String> analyticsPrefixes;
+    private final long analyticsStatementTimeoutMs;
+
+    AnalyticsRoutingDataSource(Collection<Class<?>> analyticsServices) {
+        this(analyticsServices, 0);
+    }
+
+    /**
+     * @param analyticsServices classes whose read-only transactions go to the analytics
+     *                          pool; Spring names transactions {@code <class>.<method>}
+     * @param analyticsStatementTimeoutMs Postgres statement timeout for analytics
+     *                                    transactions, or 0 for none
+     */
+    AnalyticsRoutingDataSource(Collection<Class<?>> analyticsServices, long analyticsStatementTimeoutMs) {
+        this.analyticsPrefixes = analyticsServices.stream()
+                .map(type -> type.getName() + ".")
+                .toList();
+        this.analyticsStatementTimeoutMs = analyticsStatementTimeoutMs;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return prepare(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return prepare(super.getConnection(username, password));
+    }
+
+    /**
+     * Analytics connections are only handed out inside a transaction, so auto-commit is
+     * switched off here (the transaction manager would do it next anyway) and the
+     * {@code SET LOCAL} becomes the transaction's first statement. It ends with the
+     * transaction and never reaches a write borrowing the same server connection later.
+     */
+    private Connection prepare(Connection connection) throws SQLException {
+        if (analyticsStatementTimeoutMs <= 0 || determineCurrentLookupKey() != Route.ANALYTICS) {
+            return connection;
+        }
+        try {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET LOCAL statement_timeout = " + analyticsStatementTimeoutMs);
+            }
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        return connection;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return route(
+                TransactionSynchronizationManager.isActualTransactionActive(),
+                TransactionSynchronizationManager.isCurrentTransactionReadOnly(),
+                TransactionSynchronizationManager.getCurrentTransactionName());
+    }
+
+    /**
+     * Writes, non-transactional access and read-only transactions started anywhere else
+     * (including an analytics method joining a caller's write transaction, which keeps
+     * the caller's name) stay on the primary pool.
+     */
+    Route route(boolean transactionActive, boolean readOnly, String transactionName) {
+        if (!transactionActive || !readOnly || transactionName == null) {
+            return Route.PRIMARY;
+        }
+        for (String prefix : analyticsPrefixes) {
+            if (transactionName.startsWith(prefix)) {
+                return Route.ANALYTICS;
+            }
+        }
+        return Route.PRIMARY;
+    }
+}
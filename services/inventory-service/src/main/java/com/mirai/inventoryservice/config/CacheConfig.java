@@ -1,6 +1,9 @@
 package com.mirai.inventoryservice.config;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.mirai.inventoryservice.dtos.easypost.EasyPostTrackerResult;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.caffeine.CaffeineCache;
@@ -8,6 +11,7 @@ import org.springframework.cache.support.SimpleCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -21,9 +25,12 @@ public class CacheConfig {
     public static final String SALES_SUMMARY_CACHE = "analytics-sales-summary";
     public static final String PERFORMANCE_METRICS_CACHE = "analytics-performance-metrics";
     public static final String FORECAST_ACCURACY_CACHE = "analytics-forecast-accuracy";
+    public static final String EASYPOST_TRACKER_CACHE = "easypost-trackers";
 
     @Bean
-    public CacheManager cacheManager() {
+    public CacheManager cacheManager(
+            @Value("${easypost.tracker-cache.ttl-minutes:10}") long trackerTtlMinutes,
+            @Value("${easypost.tracker-cache.max-size:5000}") long trackerMaxSize) {
         SimpleCacheManager manager = new SimpleCacheManager();
         manager.setCaches(List.of(
             buildCache(PREDICTIONS_CACHE, 10, TimeUnit.MINUTES, 10),
@@ -31,7 +38,8 @@ public class CacheConfig {
             buildCache(DEMAND_LEADERS_CACHE, 60, TimeUnit.MINUTES, 20),
             buildCache(SALES_SUMMARY_CACHE, 60, TimeUnit.MINUTES, 10),
             buildCache(PERFORMANCE_METRICS_CACHE, 5, TimeUnit.MINUTES, 5),
-            buildCache(FORECAST_ACCURACY_CACHE, 10, TimeUnit.MINUTES, 4)
+            buildCache(FORECAST_ACCURACY_CACHE, 10, TimeUnit.MINUTES, 4),
+            buildTrackerCache(Duration.ofMinutes(trackerTtlMinutes), trackerMaxSize)
         ));
         return manager;
     }
@@ -44,4 +52,40 @@ public class CacheConfig {
                 .recordStats()
                 .build());
     }
+
+    /**
+     * Tracker lookups keyed by tracking code. Delivered/failed trackers never change
+     * again, so they are kept until evicted by size; in-flight ones expire after the
+     * TTL unless a webhook refreshes them first.
+     */
+    private CaffeineCache buildTrackerCache(Duration ttl, long maxSize) {
+        long ttlNanos = ttl.toNanos();
+        return new CaffeineCache(EASYPOST_TRACKER_CACHE,
+            Caffeine.newBuilder()
+                .expireAfter(new Expiry<Object, Object>() {
+                    @Override
+                    public long expireAfterCreate(Object key, Object value, long currentTime) {
+                        return lifetime(value);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+                        return lifetime(value);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    private long lifetime(Object value) {
+                        return value instanceof EasyPostTrackerResult tracker && tracker.isTerminal()
+                                ? Long.MAX_VALUE
+                                : ttlNanos;
+                    }
+                })
+                .maximumSize(maxSize)
+                .recordStats()
+                .build());
+    }
 }
@@ -0,0 +1,97 @@
+package com.mirai.inventoryservice.config;
+
+import com.mirai.inventoryservice.services.AnalyticsService;
+import com.mirai.inventoryservice.services.CoinAdminDashboardService;
+import com.mirai.inventoryservice.services.ForecastAccuracyService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Two independently sized Hikari pools behind one routing {@link DataSource}. Stock
+ * movements and every other write keep the primary pool ({@code spring.datasource.*});
+ * read-only transactions of the analytics services run on the analytics pool
+ * ({@code analytics.datasource.*}), which has its own size and statement timeout and can
+ * point at a read replica. A burst of dashboard queries can exhaust only its own pool.
+ *
+ * <p>Both pools are beans so the actuator publishes {@code hikaricp.connections.*}
+ * (including {@code hikaricp.connections.acquire} and {@code .pending}) tagged by
+ * {@code pool}.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    public static final String PRIMARY_POOL = "primary";
+    public static final String ANALYTICS_POOL = "analytics";
+
+    /** Services whose {@code @Transactional(readOnly = true)} methods use the analytics pool. */
+    static final List<Class<?>> ANALYTICS_SERVICES = List.of(
+            AnalyticsService.class,
+            CoinAdminDashboardService.class,
+            ForecastAccuracyService.class);
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryPool(DataSourceProperties properties) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        pool.setPoolName(PRIMARY_POOL);
+        return pool;
+    }
+
+    /**
+     * Falls back to the primary database (and credentials) when no replica URL is set.
+     */
+    @Bean
+    @ConfigurationProperties("analytics.datasource.hikari")
+    public HikariDataSource analyticsPool(
+            DataSourceProperties primary,
+            @Value("${analytics.datasource.url:}") String url,
+            @Value("${analytics.datasource.username:}") String username,
+            @Value("${analytics.datasource.password:}") String password) {
+        boolean replica = !url.isBlank();
+        HikariDataSource pool = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(primary.determineDriverClassName())
+                .url(replica ? url : primary.determineUrl())
+                .username(replica && !username.isBlank() ? username : primary.determineUsername())
+                .password(replica && !password.isBlank() ? password : primary.determinePassword())
+                .build();
+        pool.setPoolName(ANALYTICS_POOL);
+        pool.setReadOnly(true);
+        return pool;
+    }
+
+    /**
+     * The analytics statement timeout is applied per transaction by the router, so it also
+     * holds behind a transaction-mode pooler. It is Postgres syntax and skipped elsewhere.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(
+            @Qualifier("primaryPool") DataSource primaryPool,
+            @Qualifier("analyticsPool") HikariDataSource analyticsPool,
+            @Value("${analytics.datasource.statement-timeout-ms:30000}") long statementTimeoutMs) {
+        boolean postgres = analyticsPool.getJdbcUrl().startsWith("jdbc:postgresql:");
+        AnalyticsRoutingDataSource routing =
+                new AnalyticsRoutingDataSource(ANALYTICS_SERVICES, postgres ? statementTimeoutMs : 0);
+        routing.setTargetDataSources(Map.of(
+                AnalyticsRoutingDataSource.Route.PRIMARY, primaryPool,
+                AnalyticsRoutingDataSource.Route.ANALYTICS, analyticsPool));
+        routing.setDefaultTargetDataSource(primaryPool);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
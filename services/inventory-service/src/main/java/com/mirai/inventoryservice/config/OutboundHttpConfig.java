@@ -0,0 +1,50 @@
+package com.mirai.inventoryservice.config;
+
+import com.mirai.inventoryservice.http.OutboundHttpClient;
+import com.mirai.inventoryservice.http.OutboundHttpSettings;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * One guarded HTTP client per outbound integration, so a slow Supabase never eats
+ * into EasyPost's connections or concurrency and vice versa. Limits come from
+ * {@code outbound.<name>.*} (see {@link OutboundHttpSettings}).
+ */
+@Configuration
+public class OutboundHttpConfig {
+
+    public static final String SUPABASE_REALTIME = "supabase-realtime";
+    public static final String SUPABASE_ADMIN = "supabase-admin";
+    public static final String EASYPOST = "easypost";
+
+    private final Environment env;
+    private final MeterRegistry meterRegistry;
+
+    public OutboundHttpConfig(Environment env, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.env = env;
+        this.meterRegistry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+    }
+
+    @Bean
+    public OutboundHttpClient supabaseRealtimeClient() {
+        return build(SUPABASE_REALTIME);
+    }
+
+    @Bean
+    public OutboundHttpClient supabaseAdminClient() {
+        return build(SUPABASE_ADMIN);
+    }
+
+    @Bean
+    public OutboundHttpClient easyPostClient() {
+        return build(EASYPOST);
+    }
+
+    private OutboundHttpClient build(String name) {
+        return new OutboundHttpClient(name, OutboundHttpSettings.from(env, name), meterRegistry);
+    }
+}
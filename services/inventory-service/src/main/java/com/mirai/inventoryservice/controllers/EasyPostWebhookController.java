@@ -36,8 +36,6 @@ public class EasyPostWebhookController {
             @RequestBody String rawPayload,
             @RequestHeader(value = "X-Hmac-Signature", required = false) String signature) {
 
-        log.info("Received EasyPost webhook");
-
         // Validate signature
         if (!webhookService.validateSignature(rawPayload, signature)) {
             log.warn("Invalid webhook signature");
@@ -48,21 +46,22 @@ public class EasyPostWebhookController {
             EasyPostWebhookPayload payload = objectMapper.readValue(
                     rawPayload, EasyPostWebhookPayload.class);
 
-            log.info("Processing webhook: id={}, type={}",
-                    payload.getId(), payload.getDescription());
+            if (payload.getId() == null) {
+                log.warn("Webhook payload has no event id");
+                return ResponseEntity.badRequest().build();
+            }
 
-            webhookService.processWebhook(payload);
+            if (webhookService.enqueue(payload, rawPayload)) {
+                log.info("Queued webhook: id={}, type={}", payload.getId(), payload.getDescription());
+            } else {
+                log.info("Webhook event {} already received, skipping", payload.getId());
+            }
 
             return ResponseEntity.ok().build();
 
         } catch (JsonProcessingException e) {
             log.error("Failed to parse webhook payload: {}", e.getMessage());
             return ResponseEntity.badRequest().build();
-        } catch (Exception e) {
-            log.error("Error processing webhook: {}", e.getMessage(), e);
-            // Return 200 to prevent EasyPost retries for processing errors
-            // The error is logged for investigation
-            return ResponseEntity.ok().build();
         }
     }
 }
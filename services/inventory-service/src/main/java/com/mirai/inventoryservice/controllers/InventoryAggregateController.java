@@ -1,14 +1,17 @@
 package com.mirai.inventoryservice.controllers;
 
+import com.mirai.inventoryservice.dtos.responses.InventoryChangesResponseDTO;
 import com.mirai.inventoryservice.dtos.responses.InventoryTotalDTO;
 import com.mirai.inventoryservice.dtos.responses.ProductInventoryResponseDTO;
 import com.mirai.inventoryservice.repositories.InventoryTotalsRepository;
 import com.mirai.inventoryservice.services.InventoryAggregateService;
+import com.mirai.inventoryservice.services.InventoryChangeService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
@@ -24,12 +27,15 @@ public class InventoryAggregateController {
 
     private final InventoryAggregateService inventoryAggregateService;
     private final InventoryTotalsRepository inventoryTotalsRepository;
+    private final InventoryChangeService inventoryChangeService;
 
     public InventoryAggregateController(
             InventoryAggregateService inventoryAggregateService,
-            InventoryTotalsRepository inventoryTotalsRepository) {
+            InventoryTotalsRepository inventoryTotalsRepository,
+            InventoryChangeService inventoryChangeService) {
         this.inventoryAggregateService = inventoryAggregateService;
         this.inventoryTotalsRepository = inventoryTotalsRepository;
+        this.inventoryChangeService = inventoryChangeService;
     }
 
     /**
@@ -60,4 +66,22 @@ public class InventoryAggregateController {
         ProductInventoryResponseDTO response = inventoryAggregateService.getInventoryByProduct(productId);
         return ResponseEntity.ok(response);
     }
+
+    /**
+     * Get inventory changes recorded after a cursor.
+     * Clients patch local state from realtime inventory_delta events and call this
+     * when they may have missed some, e.g. after reconnecting. Without {@code after}
+     * only the current cursor is returned; take it before loading lists.
+     *
+     * @param after The cursor returned by the previous call
+     * @param limit Maximum number of changes to return
+     * @return Changes after {@code after} and the cursor to resume from
+     */
+    @GetMapping("/changes")
+    @PreAuthorize("hasAnyRole('ADMIN', 'ASSISTANT_MANAGER', 'EMPLOYEE')")
+    public ResponseEntity<InventoryChangesResponseDTO> getChangesAfter(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "500") int limit) {
+        return ResponseEntity.ok(inventoryChangeService.getChangesAfter(after, limit));
+    }
 }
@@ -2,6 +2,7 @@ package com.mirai.inventoryservice.controllers;
 
 import com.mirai.inventoryservice.dtos.requests.kuji.AddKujiTierRequestDTO;
 import com.mirai.inventoryservice.dtos.requests.kuji.AddSlipRequestDTO;
+import com.mirai.inventoryservice.dtos.requests.kuji.BulkRecordDrawRequestDTO;
 import com.mirai.inventoryservice.dtos.requests.kuji.CloseKujiBoxRequestDTO;
 import com.mirai.inventoryservice.dtos.requests.kuji.DeletePrizeRequestDTO;
 import com.mirai.inventoryservice.dtos.requests.kuji.MoveSlipsRequestDTO;
@@ -16,11 +17,13 @@ import com.mirai.inventoryservice.dtos.responses.kuji.KujiBoxTierResponseDTO;
 import com.mirai.inventoryservice.dtos.responses.kuji.KujiDailyPayoutsResponseDTO;
 import com.mirai.inventoryservice.services.KujiBoxService;
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.UUID;
 
@@ -53,9 +56,17 @@ public class KujiBoxController {
         return ResponseEntity.ok(box);
     }
 
+    /**
+     * Box history, newest first. Pass the {@code openedAt} and {@code id} of the last box
+     * returned as {@code before} and {@code beforeId} to fetch the next page.
+     */
     @GetMapping("/by-product/{productId}/history")
-    public ResponseEntity<List<KujiBoxResponseDTO>> getBoxHistory(@PathVariable UUID productId) {
-        return ResponseEntity.ok(kujiBoxService.getBoxHistory(productId));
+    public ResponseEntity<List<KujiBoxResponseDTO>> getBoxHistory(
+            @PathVariable UUID productId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime before,
+            @RequestParam(required = false) UUID beforeId,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(kujiBoxService.getBoxHistory(productId, before, beforeId, limit));
     }
 
     @GetMapping("/by-product/{productId}/last-tiers")
@@ -84,6 +95,16 @@ public class KujiBoxController {
         return ResponseEntity.ok(kujiBoxService.getDailyPayouts(boxId, from, to, tz));
     }
 
+    /**
+     * Recompute the box's payout buckets from the stock movement ledger.
+     */
+    @PostMapping("/{boxId}/daily-payouts/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> rebuildDailyPayouts(@PathVariable UUID boxId) {
+        kujiBoxService.rebuildDailyPayouts(boxId);
+        return ResponseEntity.noContent().build();
+    }
+
     @GetMapping("/allocations/by-location/{locationId}")
     public ResponseEntity<List<KujiAllocationByLocationDTO>> getAllocationsByLocation(
             @PathVariable UUID locationId) {
@@ -195,6 +216,13 @@ public class KujiBoxController {
         return ResponseEntity.ok(kujiBoxService.recordDraw(boxId, request));
     }
 
+    @PostMapping("/draws/bulk")
+    @PreAuthorize("hasAnyRole('ADMIN', 'ASSISTANT_MANAGER', 'EMPLOYEE')")
+    public ResponseEntity<List<KujiBoxResponseDTO>> recordDraws(
+            @Valid @RequestBody BulkRecordDrawRequestDTO request) {
+        return ResponseEntity.ok(kujiBoxService.recordDraws(request));
+    }
+
     @PostMapping("/{boxId}/draws/{auditLogId}/undo")
     @PreAuthorize("hasAnyRole('ADMIN', 'ASSISTANT_MANAGER', 'EMPLOYEE')")
     public ResponseEntity<KujiBoxResponseDTO> undoDraw(
@@ -9,6 +9,7 @@ import com.mirai.inventoryservice.dtos.requests.lootbox.UpsertTierRequestDTO;
 import com.mirai.inventoryservice.dtos.responses.AdminCoinActivityDTO;
 import com.mirai.inventoryservice.dtos.responses.CoinAdjustmentResponseDTO;
 import com.mirai.inventoryservice.dtos.responses.CoinEconomyConfigResponseDTO;
+import com.mirai.inventoryservice.dtos.responses.CoinDailyFlowDTO;
 import com.mirai.inventoryservice.dtos.responses.CoinStatsResponseDTO;
 import com.mirai.inventoryservice.dtos.responses.LootboxAdminResponseDTO;
 import com.mirai.inventoryservice.dtos.responses.LootboxPlayResponseDTO;
@@ -205,6 +206,12 @@ public class LootboxAdminController {
         return ResponseEntity.ok(coinAdminDashboardService.getStats());
     }
 
+    @GetMapping("/coin-flows")
+    public ResponseEntity<List<CoinDailyFlowDTO>> getCoinFlows(
+            @RequestParam(defaultValue = "30") int days) {
+        return ResponseEntity.ok(coinAdminDashboardService.getDailyFlows(days));
+    }
+
     @GetMapping("/players")
     public ResponseEntity<List<PlayerCoinRowDTO>> getPlayers(
             @RequestParam(required = false) String search,
@@ -12,11 +12,15 @@ import com.mirai.inventoryservice.exceptions.UserNotFoundException;
 import com.mirai.inventoryservice.models.audit.User;
 import com.mirai.inventoryservice.models.enums.UserRole;
 import com.mirai.inventoryservice.repositories.UserRepository;
-import com.mirai.inventoryservice.services.IdempotencyService;
+import com.mirai.inventoryservice.services.LootboxCatalogCache;
 import com.mirai.inventoryservice.services.LootboxService;
+import com.mirai.inventoryservice.services.RecentLootboxPlayFeed;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
@@ -27,7 +31,9 @@ import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -40,7 +46,8 @@ import java.util.UUID;
 public class LootboxController {
 
     private final LootboxService lootboxService;
-    private final IdempotencyService idempotencyService;
+    private final LootboxCatalogCache catalogCache;
+    private final RecentLootboxPlayFeed recentPlayFeed;
     private final UserRepository userRepository;
 
     @GetMapping("/balance")
@@ -64,7 +71,12 @@ public class LootboxController {
 
     @GetMapping("/catalog")
     public ResponseEntity<List<LootboxResponseDTO>> getCatalog() {
-        return ResponseEntity.ok(lootboxService.getCatalog());
+        // Cache hits open no transaction; a matching If-None-Match is answered 304
+        LootboxCatalogCache.Catalog catalog = catalogCache.get(lootboxService::loadCatalog);
+        return ResponseEntity.ok()
+                .eTag(catalog.etag())
+                .cacheControl(CacheControl.noCache())
+                .body(catalog.crates());
     }
 
     @PostMapping("/play")
@@ -72,19 +84,13 @@ public class LootboxController {
             Authentication auth,
             @Valid @RequestBody PlayLootboxRequestDTO body,
             @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        // Replays are answered by IdempotencyKeyFilter; the key is also kept on the play row
         UUID userId = resolveUserId(auth);
-
-        var cached = idempotencyService.get(userId, idempotencyKey, PlayLootboxResponseDTO.class);
-        if (cached.isPresent()) {
-            return ResponseEntity.ok(cached.get());
-        }
-
         LootboxService.PlayResult result = lootboxService.play(userId, body.crateId(), idempotencyKey);
         PlayLootboxResponseDTO response = PlayLootboxResponseDTO.builder()
                 .play(LootboxService.toPlayDto(result.play()))
                 .newBalance(result.newBalance())
                 .build();
-        idempotencyService.put(userId, idempotencyKey, response);
         return ResponseEntity.ok(response);
     }
 
@@ -94,10 +100,27 @@ public class LootboxController {
         return ResponseEntity.ok(lootboxService.getUserPrizes(userId));
     }
 
+    /**
+     * Coin history, newest first. Pass the {@code at}, {@code kind} and {@code refId} of
+     * the last entry returned as {@code before}, {@code beforeKind} and {@code beforeRef}
+     * to fetch the next page.
+     */
     @GetMapping("/my-history")
-    public ResponseEntity<List<CoinHistoryEntryDTO>> getMyHistory(Authentication auth) {
+    public ResponseEntity<List<CoinHistoryEntryDTO>> getMyHistory(
+            Authentication auth,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime before,
+            @RequestParam(required = false) String beforeKind,
+            @RequestParam(required = false) UUID beforeRef,
+            @RequestParam(defaultValue = "50") int limit) {
         UUID userId = resolveUserId(auth);
-        return ResponseEntity.ok(lootboxService.getUserHistory(userId));
+        LootboxService.HistoryCursor after = null;
+        if (before != null || beforeKind != null || beforeRef != null) {
+            if (before == null || beforeKind == null || beforeRef == null) {
+                throw new IllegalArgumentException("before, beforeKind and beforeRef must be given together");
+            }
+            after = new LootboxService.HistoryCursor(before, beforeKind, beforeRef);
+        }
+        return ResponseEntity.ok(lootboxService.getUserHistory(userId, after, limit));
     }
 
     @GetMapping("/recent")
@@ -107,6 +130,15 @@ public class LootboxController {
         return ResponseEntity.ok(lootboxService.listRecentPlays(limit, crateId));
     }
 
+    /**
+     * Live variant of {@code /recent}: a server-sent event stream that emits a
+     * {@code play} event for each new play, optionally for one crate.
+     */
+    @GetMapping(value = "/recent/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamRecentPlays(@RequestParam(required = false) UUID crateId) {
+        return recentPlayFeed.subscribe(crateId);
+    }
+
     private UUID resolveUserId(Authentication auth) {
         String email = extractEmail(auth);
         if (email == null) {
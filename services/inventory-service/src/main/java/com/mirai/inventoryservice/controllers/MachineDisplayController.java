@@ -2,6 +2,7 @@ package com.mirai.inventoryservice.controllers;
 
 import com.mirai.inventoryservice.dtos.requests.BatchClearDisplaysRequestDTO;
 import com.mirai.inventoryservice.dtos.requests.BatchDisplaySwapRequestDTO;
+import com.mirai.inventoryservice.dtos.requests.DisplayRotationRequestDTO;
 import com.mirai.inventoryservice.dtos.requests.RenewDisplayRequestDTO;
 import com.mirai.inventoryservice.dtos.requests.SetMachineDisplayBatchRequestDTO;
 import com.mirai.inventoryservice.dtos.requests.SetMachineDisplayRequestDTO;
@@ -10,6 +11,7 @@ import com.mirai.inventoryservice.dtos.responses.MachineDisplayDTO;
 import com.mirai.inventoryservice.models.MachineDisplay;
 import com.mirai.inventoryservice.models.enums.LocationType;
 import com.mirai.inventoryservice.services.MachineDisplayService;
+import com.mirai.inventoryservice.services.StaleDisplayScanner;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -28,9 +30,12 @@ import java.util.UUID;
 @PreAuthorize("hasAnyRole('ADMIN', 'ASSISTANT_MANAGER', 'EMPLOYEE')")
 public class MachineDisplayController {
     private final MachineDisplayService machineDisplayService;
+    private final StaleDisplayScanner staleDisplayScanner;
 
-    public MachineDisplayController(MachineDisplayService machineDisplayService) {
+    public MachineDisplayController(MachineDisplayService machineDisplayService,
+                                    StaleDisplayScanner staleDisplayScanner) {
         this.machineDisplayService = machineDisplayService;
+        this.staleDisplayScanner = staleDisplayScanner;
     }
 
     /**
@@ -81,6 +86,17 @@ public class MachineDisplayController {
         return ResponseEntity.ok(updatedDisplays);
     }
 
+    /**
+     * Floor-wide display rotation: every machine's remove / add / swap in one transaction,
+     * with a single audit log entry and one notification. Returns the active displays of
+     * every machine in the plan.
+     */
+    @PostMapping("/rotate")
+    public ResponseEntity<List<MachineDisplayDTO>> rotateDisplays(
+            @Valid @RequestBody DisplayRotationRequestDTO request) {
+        return ResponseEntity.ok(machineDisplayService.rotateDisplays(request));
+    }
+
     /**
      * Batch-clear multiple displays on the same machine in one transaction.
      * Single audit log + single notification, regardless of how many displays are cleared.
@@ -174,15 +190,15 @@ public class MachineDisplayController {
     }
 
     /**
-     * Get stale displays (active longer than threshold)
+     * Get stale displays (active longer than threshold), from the last stale-display scan
      */
     @GetMapping("/stale")
     public ResponseEntity<List<MachineDisplayDTO>> getStaleDisplays(
             @RequestParam(required = false) Integer thresholdDays) {
         if (thresholdDays != null) {
-            return ResponseEntity.ok(machineDisplayService.getStaleDisplays(thresholdDays));
+            return ResponseEntity.ok(staleDisplayScanner.getStaleDisplays(thresholdDays));
         }
-        return ResponseEntity.ok(machineDisplayService.getStaleDisplays());
+        return ResponseEntity.ok(staleDisplayScanner.getStaleDisplays());
     }
 
     /**
@@ -191,7 +207,7 @@ public class MachineDisplayController {
     @GetMapping("/stale/{locationType}")
     public ResponseEntity<List<MachineDisplayDTO>> getStaleDisplaysByType(
             @PathVariable LocationType locationType) {
-        return ResponseEntity.ok(machineDisplayService.getStaleDisplaysByLocationType(locationType));
+        return ResponseEntity.ok(staleDisplayScanner.getStaleDisplaysByLocationType(locationType));
     }
 
     /**
@@ -1,5 +1,6 @@
 package com.mirai.inventoryservice.dtos.easypost;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
@@ -26,6 +27,20 @@ public class EasyPostTrackerResult {
     @JsonProperty("tracking_details")
     private List<EasyPostTrackingDetail> trackingDetails;
 
+    /**
+     * Delivered or failed trackers receive no further carrier updates.
+     */
+    @JsonIgnore
+    public boolean isTerminal() {
+        if (status == null) {
+            return false;
+        }
+        return switch (status.toLowerCase()) {
+            case "delivered", "cancelled", "return_to_sender", "failure", "error" -> true;
+            default -> false;
+        };
+    }
+
     @Data
     @JsonIgnoreProperties(ignoreUnknown = true)
     public static class EasyPostTrackingDetail {
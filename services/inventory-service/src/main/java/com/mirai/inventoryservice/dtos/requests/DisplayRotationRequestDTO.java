@@ -0,0 +1,31 @@
+package com.mirai.inventoryservice.dtos.requests;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Request DTO for a floor-wide display rotation applied in one transaction.
+ * Each entry is one machine's part of the plan, with the same remove / add / swap-with-
+ * another-machine fields as a batch swap; entries are applied in order, so a later entry
+ * sees the displays an earlier one moved. The entries' own actorId is ignored.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DisplayRotationRequestDTO {
+
+    @NotNull(message = "Machines list is required")
+    @Size(min = 1, max = 200, message = "Rotation must cover 1-200 machines")
+    private List<@Valid BatchDisplaySwapRequestDTO> machines;
+
+    private UUID actorId;
+}
@@ -0,0 +1,46 @@
+package com.mirai.inventoryservice.dtos.requests.kuji;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Draws for many kuji boxes recorded at once (e.g. logging a whole shift). Each box
+ * appears once; its lines use the same shape as {@link RecordDrawRequestDTO}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkRecordDrawRequestDTO {
+    @NotNull
+    private UUID actorId;
+
+    @NotEmpty
+    @Size(max = 500)
+    @Valid
+    private List<BoxDraws> boxes;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BoxDraws {
+        @NotNull
+        private UUID boxId;
+
+        private String notes;
+
+        @NotEmpty
+        @Valid
+        private List<RecordDrawRequestDTO.DrawLine> draws;
+    }
+}
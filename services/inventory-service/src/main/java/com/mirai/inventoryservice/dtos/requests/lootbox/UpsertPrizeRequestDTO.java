@@ -1,5 +1,8 @@
 package com.mirai.inventoryservice.dtos.requests.lootbox;
 
+import com.mirai.inventoryservice.services.LootboxPrizeStock;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.PositiveOrZero;
@@ -12,5 +15,6 @@ public record UpsertPrizeRequestDTO(
         String description,
         String imageUrl,
         Boolean active,
-        @PositiveOrZero Integer quantity
+        @PositiveOrZero Integer quantity,
+        @Min(1) @Max(LootboxPrizeStock.MAX_SHARDS) Integer stockShards
 ) {}
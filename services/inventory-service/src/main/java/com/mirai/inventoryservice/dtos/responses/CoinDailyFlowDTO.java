@@ -0,0 +1,18 @@
+package com.mirai.inventoryservice.dtos.responses;
+
+import lombok.Builder;
+
+import java.time.LocalDate;
+
+/**
+ * One day of the admin Coins-tab issuance chart.
+ *
+ * `granted` = review credits dated that day + positive admin adjustments made that day.
+ * `spent`   = cost of lootbox plays made that day.
+ */
+@Builder
+public record CoinDailyFlowDTO(
+        LocalDate day,
+        long granted,
+        long spent
+) {}
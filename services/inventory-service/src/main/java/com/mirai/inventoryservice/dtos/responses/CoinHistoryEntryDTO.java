@@ -7,7 +7,8 @@ import java.util.UUID;
 
 /**
  * Unified row for the user-facing Coin History panel. `kind` is one of
- * REVIEW_CREDIT, PLAY, ADJUSTMENT.
+ * REVIEW_CREDIT, PLAY, ADJUSTMENT. (`at`, `kind`, `refId`) identifies the row's
+ * position in the timeline and is the cursor for the next page.
  */
 @Builder
 public record CoinHistoryEntryDTO(
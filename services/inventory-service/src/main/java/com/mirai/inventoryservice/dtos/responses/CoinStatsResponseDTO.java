@@ -3,12 +3,14 @@ package com.mirai.inventoryservice.dtos.responses;
 import lombok.Builder;
 
 /**
- * Admin Coins-tab top-of-screen KPIs.
+ * Admin Coins-tab top-of-screen KPIs, read from the coin_economy_totals and
+ * coin_daily_flows counters (see V56).
  *
  * `circulation` = sum across users of MAX(0, earned − MAX(spent, expired)) using the
- *   same per-user balance formula as LootboxService.computeBalance.
+ *   same per-user balance formula as LootboxService.computeBalance, as of the last
+ *   coin-wallet expiry sweep.
  * `holders`     = count of users whose balance > 0.
- * `granted7d`   = positive coin issuance over the trailing 7 days:
+ * `granted7d`   = positive coin issuance over the trailing 7 calendar days:
  *                 SUM(coin_adjustments.delta WHERE delta > 0)
  *                 + SUM(review_daily_counts.coins_awarded).
  *                 Excludes spend (plays).
@@ -0,0 +1,28 @@
+package com.mirai.inventoryservice.dtos.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * One row-level inventory change. {@code seq} is the originating stock movement id,
+ * which identifies the change; {@code quantity} is the new quantity at the location
+ * and {@code total} the product's new total across all locations.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryChangeDTO {
+    private long seq;
+    private UUID productId;
+    private UUID locationId;
+    private String locationType;
+    private Integer quantity;
+    private Integer total;
+    private OffsetDateTime at;
+}
@@ -0,0 +1,25 @@
+package com.mirai.inventoryservice.dtos.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Catch-up page for clients that missed realtime inventory deltas.
+ * The client applies {@code changes} and resumes from {@code cursor}. When
+ * {@code truncated} is true more changes are waiting; a client that is far behind
+ * should refetch its lists instead of paging through them.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryChangesResponseDTO {
+    private int version;
+    private String cursor;
+    private boolean truncated;
+    private List<InventoryChangeDTO> changes;
+}
@@ -14,5 +14,6 @@ public record LootboxPrizeResponseDTO(
         String tierName,
         String tierColor,
         boolean active,
-        Integer quantity
+        Integer quantity,
+        int stockShards
 ) {}
@@ -0,0 +1,11 @@
+package com.mirai.inventoryservice.exceptions;
+
+/**
+ * Thrown without touching the network when an outbound integration is shedding
+ * calls, either because its circuit is open or its concurrency bulkhead is full.
+ */
+public class OutboundUnavailableException extends RuntimeException {
+    public OutboundUnavailableException(String message) {
+        super(message);
+    }
+}
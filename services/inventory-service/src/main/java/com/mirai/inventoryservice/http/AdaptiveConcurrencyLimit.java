@@ -0,0 +1,122 @@
+package com.mirai.inventoryservice.http;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gradient-style adaptive concurrency limit with priority shares.
+ *
+ * Each completed request feeds its latency into a short-term and a long-term
+ * exponential average. While the short-term latency stays near the long-term
+ * baseline the limit grows by roughly sqrt(limit) per sample; once requests start
+ * queueing (short-term latency above {@code tolerance} times the baseline) the limit
+ * shrinks in proportion, down to at most half per sample. Samples taken while less
+ * than half the limit is in use say nothing about capacity and are ignored.
+ *
+ * A priority may only be admitted while total in-flight requests are below its share
+ * of the limit, so lower priorities are shed first and the remaining headroom is
+ * always available to {@link Priority#WRITE}.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    public enum Priority { WRITE, READ, ANALYTICS }
+
+    private static final double SHORT_ALPHA = 0.2;
+    private static final double LONG_ALPHA = 0.02;
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double readShare;
+    private final double analyticsShare;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+    private double shortRtt;
+    private double longRtt;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit,
+                                    double readShare, double analyticsShare) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.readShare = readShare;
+        this.analyticsShare = analyticsShare;
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+    }
+
+    /**
+     * @return true if the request may proceed; the caller must then call {@link #release}
+     */
+    public boolean tryAcquire(Priority priority) {
+        int allowed = Math.max(1, (int) (limit * share(priority)));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Release a permit and record the request's latency.
+     */
+    public void release(long rttNanos) {
+        int inFlightAtCompletion = inFlight.getAndDecrement();
+        onSample(rttNanos, inFlightAtCompletion);
+    }
+
+    /**
+     * Release a permit without a latency sample, e.g. for requests that went async.
+     */
+    public void releaseWithoutSample() {
+        inFlight.decrementAndGet();
+    }
+
+    synchronized void onSample(long rttNanos, int inFlightAtCompletion) {
+        if (rttNanos <= 0) {
+            return;
+        }
+        if (longRtt == 0) {
+            shortRtt = rttNanos;
+            longRtt = rttNanos;
+            return;
+        }
+
+        shortRtt = shortRtt + SHORT_ALPHA * (rttNanos - shortRtt);
+        longRtt = longRtt + LONG_ALPHA * (rttNanos - longRtt);
+
+        // Let the baseline recover quickly after a sustained slowdown ends
+        if (longRtt > shortRtt * 2) {
+            longRtt = longRtt * 0.95;
+        }
+
+        double current = limit;
+        if (inFlightAtCompletion < current / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+        double target = current * gradient + Math.sqrt(current);
+        double next = current * (1 - SMOOTHING) + target * SMOOTHING;
+        limit = Math.min(maxLimit, Math.max(minLimit, next));
+    }
+
+    private double share(Priority priority) {
+        return switch (priority) {
+            case WRITE -> 1.0;
+            case READ -> readShare;
+            case ANALYTICS -> analyticsShare;
+        };
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
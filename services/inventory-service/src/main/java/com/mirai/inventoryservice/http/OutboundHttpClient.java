@@ -0,0 +1,146 @@
+package com.mirai.inventoryservice.http;
+
+import com.mirai.inventoryservice.exceptions.OutboundUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Guarded RestTemplate for one outbound integration (Supabase, EasyPost, ...).
+ *
+ * Each client owns a JDK HttpClient, which keeps a pool of keep-alive connections,
+ * and applies the integration's connect/read timeouts. Calls pass through a
+ * semaphore bulkhead and a {@link CircuitBreaker}; when either refuses, the call
+ * fails fast with {@link OutboundUnavailableException} instead of pinning the caller's
+ * thread on a slow upstream. Every call is timed under {@code outbound.http.requests}
+ * tagged with target, operation and outcome.
+ */
+public class OutboundHttpClient {
+
+    private final String name;
+    private final RestTemplate restTemplate;
+    private final OutboundHttpSettings settings;
+    private final Semaphore bulkhead;
+    private final CircuitBreaker circuitBreaker;
+    private final MeterRegistry meterRegistry;
+
+    public OutboundHttpClient(String name, OutboundHttpSettings settings, MeterRegistry meterRegistry) {
+        this(name, newRestTemplate(settings), settings, meterRegistry);
+    }
+
+    public OutboundHttpClient(String name, RestTemplate restTemplate, OutboundHttpSettings settings,
+                              MeterRegistry meterRegistry) {
+        this.name = name;
+        this.restTemplate = restTemplate;
+        this.settings = settings;
+        this.bulkhead = new Semaphore(settings.maxConcurrent());
+        this.circuitBreaker = new CircuitBreaker(settings.failureThreshold(), settings.openDuration());
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("outbound.http.in_flight", bulkhead, b -> settings.maxConcurrent() - b.availablePermits())
+                .tag("target", name)
+                .register(meterRegistry);
+        Gauge.builder("outbound.http.circuit.open", circuitBreaker,
+                        cb -> cb.getState() == CircuitBreaker.State.CLOSED ? 0 : 1)
+                .tag("target", name)
+                .register(meterRegistry);
+    }
+
+    private static RestTemplate newRestTemplate(OutboundHttpSettings settings) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(settings.connectTimeout())
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(settings.readTimeout());
+        return new RestTemplate(requestFactory);
+    }
+
+    /**
+     * Run one call against this integration.
+     *
+     * @param operation short label for metrics, e.g. "get_tracker"
+     * @param call      the RestTemplate exchange to perform
+     * @throws OutboundUnavailableException if the bulkhead is full or the circuit is open
+     */
+    public <T> T execute(String operation, Function<RestTemplate, T> call) {
+        if (!acquireBulkhead()) {
+            reject(operation, "bulkhead_full");
+            throw new OutboundUnavailableException(name + " is at its concurrency limit");
+        }
+        try {
+            // Bulkhead first: a HALF_OPEN trial that then failed to get a slot would never finish
+            if (!circuitBreaker.tryAcquire()) {
+                reject(operation, "circuit_open");
+                throw new OutboundUnavailableException(name + " is unavailable (circuit open)");
+            }
+
+            long start = System.nanoTime();
+            String outcome = "error";
+            try {
+                T result = call.apply(restTemplate);
+                outcome = "success";
+                return result;
+            } catch (HttpClientErrorException e) {
+                // A 4xx means the upstream is answering; only the request was wrong
+                outcome = "client_error";
+                throw e;
+            } finally {
+                // In finally so an Error also settles the call; otherwise a HALF_OPEN
+                // trial would never finish and the circuit would reject calls for good
+                if ("error".equals(outcome)) {
+                    circuitBreaker.recordFailure();
+                } else {
+                    circuitBreaker.recordSuccess();
+                }
+                Timer.builder("outbound.http.requests")
+                        .tag("target", name)
+                        .tag("operation", operation)
+                        .tag("outcome", outcome)
+                        .publishPercentiles(0.5, 0.99)
+                        .register(meterRegistry)
+                        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    private boolean acquireBulkhead() {
+        try {
+            if (settings.maxWait().isZero()) {
+                return bulkhead.tryAcquire();
+            }
+            return bulkhead.tryAcquire(settings.maxWait().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void reject(String operation, String reason) {
+        Counter.builder("outbound.http.rejected")
+                .tag("target", name)
+                .tag("operation", operation)
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+}
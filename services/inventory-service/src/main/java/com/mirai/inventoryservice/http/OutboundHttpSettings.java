@@ -0,0 +1,38 @@
+package com.mirai.inventoryservice.http;
+
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+
+/**
+ * Per-integration limits for an {@link OutboundHttpClient}, read from
+ * {@code outbound.<name>.*} properties.
+ *
+ * @param connectTimeout   TCP connect timeout
+ * @param readTimeout      time allowed for the upstream to answer
+ * @param maxConcurrent    bulkhead size: calls in flight at once
+ * @param maxWait          how long a caller may wait for a bulkhead slot before fast-failing
+ * @param failureThreshold consecutive failures that open the circuit
+ * @param openDuration     how long the circuit stays open before a trial call
+ */
+public record OutboundHttpSettings(
+        Duration connectTimeout,
+        Duration readTimeout,
+        int maxConcurrent,
+        Duration maxWait,
+        int failureThreshold,
+        Duration openDuration
+) {
+
+    public static OutboundHttpSettings from(Environment env, String name) {
+        String prefix = "outbound." + name + ".";
+        return new OutboundHttpSettings(
+                Duration.ofMillis(env.getProperty(prefix + "connect-timeout-ms", Long.class, 2000L)),
+                Duration.ofMillis(env.getProperty(prefix + "read-timeout-ms", Long.class, 5000L)),
+                env.getProperty(prefix + "max-concurrent", Integer.class, 8),
+                Duration.ofMillis(env.getProperty(prefix + "max-wait-ms", Long.class, 0L)),
+                env.getProperty(prefix + "failure-threshold", Integer.class, 5),
+                Duration.ofMillis(env.getProperty(prefix + "open-duration-ms", Long.class, 30000L))
+        );
+    }
+}
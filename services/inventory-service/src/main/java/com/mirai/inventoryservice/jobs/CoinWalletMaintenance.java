@@ -0,0 +1,90 @@
+package com.mirai.inventoryservice.jobs;
+
+import com.mirai.inventoryservice.repositories.CoinWalletRepository;
+import com.mirai.inventoryservice.services.CoinWalletService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Scheduled upkeep of the coin_wallets running totals (see V54 and CoinWalletService).
+ *
+ * Every wallet write also updates the wallet's economy stripe (V56). A statement that
+ * touched many wallets would hold stripe rows while waiting on wallets a play already
+ * holds, and the play then waits on those stripes, so wallets are swept and rebuilt one
+ * at a time, in user_id order, each in its own short transaction.
+ */
+@Component
+@Slf4j
+public class CoinWalletMaintenance {
+
+    private static final UUID FIRST = new UUID(0L, 0L);
+
+    private final CoinWalletRepository coinWalletRepository;
+    private final CoinWalletService coinWalletService;
+    private final int batchSize;
+
+    public CoinWalletMaintenance(
+            CoinWalletRepository coinWalletRepository,
+            CoinWalletService coinWalletService,
+            @Value("${coin-wallet.sweep-batch-size:500}") int batchSize) {
+        this.coinWalletRepository = coinWalletRepository;
+        this.coinWalletService = coinWalletService;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Runs every 15 minutes by default. Only wallets whose next expiry has been reached
+     * are touched.
+     */
+    @Scheduled(fixedDelayString = "${coin-wallet.sweep-interval-ms:900000}",
+            initialDelayString = "${coin-wallet.sweep-initial-delay-ms:60000}")
+    public void sweepExpired() {
+        int swept = sweepExpired(LocalDate.now(), OffsetDateTime.now());
+        if (swept > 0) {
+            log.info("Rolled lapsed coins into {} wallets", swept);
+        }
+    }
+
+    /**
+     * Verify every wallet against the full formula and rebuild the ones that disagree.
+     * Runs every 6 hours by default.
+     */
+    @Scheduled(fixedDelayString = "${coin-wallet.reconcile-interval-ms:21600000}",
+            initialDelayString = "${coin-wallet.reconcile-initial-delay-ms:300000}")
+    public void reconcile() {
+        LocalDate today = LocalDate.now();
+        OffsetDateTime now = OffsetDateTime.now();
+        sweepExpired(today, now);
+
+        List<UUID> drifted = coinWalletRepository.findDriftedUserIds(today, now);
+        for (UUID userId : drifted) {
+            log.warn("Coin wallet for user {} disagreed with the ledger; rebuilding", userId);
+            coinWalletService.rebuildWallet(userId, today, now);
+        }
+        log.info("Coin wallet reconcile: {} wallets rebuilt", drifted.size());
+    }
+
+    private int sweepExpired(LocalDate today, OffsetDateTime now) {
+        int swept = 0;
+        UUID after = FIRST;
+        while (true) {
+            List<UUID> due = coinWalletRepository.findDueForSweep(today, now, after, batchSize);
+            for (UUID userId : due) {
+                if (coinWalletService.sweepWallet(userId, today, now)) {
+                    swept++;
+                }
+            }
+            if (due.size() < batchSize) {
+                return swept;
+            }
+            after = due.get(due.size() - 1);
+        }
+    }
+}
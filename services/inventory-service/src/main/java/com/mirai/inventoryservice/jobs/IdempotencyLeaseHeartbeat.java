@@ -0,0 +1,61 @@
+package com.mirai.inventoryservice.jobs;
+
+import com.mirai.inventoryservice.services.IdempotencyService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renews the leases of idempotency keys whose requests are still executing on this
+ * replica, every {@code idempotency.heartbeat-ms}.
+ *
+ * Runs on a thread of its own instead of the shared @Scheduled thread. A job holding
+ * that thread for longer than {@code idempotency.lease-seconds} would otherwise let the
+ * leases run out, and another replica would take the key over and execute the same
+ * write a second time.
+ */
+@Component
+@Slf4j
+public class IdempotencyLeaseHeartbeat {
+
+    private final IdempotencyService idempotencyService;
+    private final long heartbeatMs;
+    private final ScheduledExecutorService executor;
+
+    public IdempotencyLeaseHeartbeat(
+            IdempotencyService idempotencyService,
+            @Value("${idempotency.heartbeat-ms:30000}") long heartbeatMs) {
+        this.idempotencyService = idempotencyService;
+        this.heartbeatMs = heartbeatMs;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "idempotency-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    void start() {
+        executor.scheduleWithFixedDelay(this::renew, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void renew() {
+        // An exception escaping here would cancel every later run
+        try {
+            idempotencyService.renewLeases();
+        } catch (RuntimeException e) {
+            log.warn("Failed to renew idempotency leases: {}", e.getMessage());
+        }
+    }
+}
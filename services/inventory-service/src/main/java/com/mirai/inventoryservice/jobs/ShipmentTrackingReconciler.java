@@ -0,0 +1,213 @@
+package com.mirai.inventoryservice.jobs;
+
+import com.mirai.inventoryservice.dtos.easypost.EasyPostTrackerResult;
+import com.mirai.inventoryservice.repositories.projections.TrackedShipmentView;
+import com.mirai.inventoryservice.services.EasyPostWebhookService;
+import com.mirai.inventoryservice.services.TrackingService;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scheduled job that polls EasyPost for shipments whose carrier status can still change.
+ *
+ * Webhooks remain the primary update path; this catches shipments whose webhooks were
+ * missed. Tracking codes are resolved in batch list calls, following each batch's
+ * pages until EasyPost reports no more, at most
+ * {@code tracking.reconcile.max-concurrent} at a time and no faster than
+ * {@code tracking.reconcile.requests-per-second}, so a cycle over hundreds of shipments
+ * costs a handful of API calls. Results are applied in one transaction with coalesced
+ * notifications and a single broadcast.
+ *
+ * Each run claims the shipments nobody polled within the interval
+ * ({@link EasyPostWebhookService#claimShipmentsToPoll}), so every shipment is polled
+ * once per interval however many instances run. The run itself happens on a thread of
+ * its own and the batches on a bounded pool shared by all runs: the scheduler thread is
+ * released at once, and a run still going when the next one is due skips that one.
+ */
+@Component
+@Slf4j
+public class ShipmentTrackingReconciler {
+
+    private final TrackingService trackingService;
+    private final EasyPostWebhookService webhookService;
+    private final boolean enabled;
+    private final Duration interval;
+    private final int batchSize;
+    private final Bucket rateLimit;
+    private final Executor runner;
+    private final ExecutorService fetchPool;
+
+    @Autowired
+    public ShipmentTrackingReconciler(
+            TrackingService trackingService,
+            EasyPostWebhookService webhookService,
+            @Value("${tracking.reconcile.enabled:true}") boolean enabled,
+            @Value("${tracking.reconcile.interval-ms:900000}") long intervalMs,
+            @Value("${tracking.reconcile.batch-size:50}") int batchSize,
+            @Value("${tracking.reconcile.max-concurrent:2}") int maxConcurrent,
+            @Value("${tracking.reconcile.requests-per-second:4}") int requestsPerSecond) {
+        this(trackingService, webhookService, enabled, intervalMs, batchSize, requestsPerSecond,
+                newRunner(), newFetchPool(maxConcurrent));
+    }
+
+    ShipmentTrackingReconciler(TrackingService trackingService, EasyPostWebhookService webhookService,
+                               boolean enabled, long intervalMs, int batchSize, int requestsPerSecond,
+                               Executor runner, ExecutorService fetchPool) {
+        this.trackingService = trackingService;
+        this.webhookService = webhookService;
+        this.enabled = enabled;
+        this.interval = Duration.ofMillis(intervalMs);
+        this.batchSize = Math.min(batchSize, TrackingService.LIST_PAGE_SIZE);
+        this.rateLimit = Bucket.builder()
+                .addLimit(Bandwidth.builder()
+                        .capacity(requestsPerSecond)
+                        .refillGreedy(requestsPerSecond, Duration.ofSeconds(1))
+                        .build())
+                .build();
+        this.runner = runner;
+        this.fetchPool = fetchPool;
+    }
+
+    /** One thread and no queue: a run due while the last one is still going is dropped. */
+    private static ThreadPoolExecutor newRunner() {
+        return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "tracking-reconcile");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    private static ExecutorService newFetchPool(int maxConcurrent) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        return Executors.newFixedThreadPool(maxConcurrent, runnable -> {
+            Thread thread = new Thread(runnable, "tracking-reconcile-fetch-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (runner instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+        fetchPool.shutdownNow();
+    }
+
+    /**
+     * Runs every 15 minutes by default, starting a minute after startup. Only hands the
+     * run to the reconcile thread.
+     */
+    @Scheduled(fixedDelayString = "${tracking.reconcile.interval-ms:900000}",
+            initialDelayString = "${tracking.reconcile.initial-delay-ms:60000}")
+    public void reconcile() {
+        if (!enabled) {
+            return;
+        }
+        runner.execute(this::runOnce);
+    }
+
+    void runOnce() {
+        List<TrackedShipmentView> open;
+        try {
+            open = webhookService.claimShipmentsToPoll(interval);
+        } catch (RuntimeException e) {
+            log.warn("Tracking reconcile could not claim shipments: {}", e.getMessage());
+            return;
+        }
+        if (open.isEmpty()) {
+            return;
+        }
+
+        // Several shipments may share a tracking number
+        Map<String, List<UUID>> shipmentsByCode = new LinkedHashMap<>();
+        for (TrackedShipmentView shipment : open) {
+            shipmentsByCode.computeIfAbsent(shipment.getTrackingId().trim(), code -> new ArrayList<>())
+                    .add(shipment.getId());
+        }
+
+        Map<String, EasyPostTrackerResult> trackers = fetchAll(new ArrayList<>(shipmentsByCode.keySet()));
+
+        Map<UUID, EasyPostTrackerResult> trackersByShipmentId = new HashMap<>();
+        trackers.forEach((code, tracker) -> {
+            List<UUID> ids = shipmentsByCode.get(code);
+            if (ids != null) {
+                ids.forEach(id -> trackersByShipmentId.put(id, tracker));
+            }
+        });
+
+        int changed = trackersByShipmentId.isEmpty() ? 0 : webhookService.applyPolledTrackers(trackersByShipmentId);
+        log.info("Tracking reconcile: {} open shipments, {} trackers resolved, {} carrier status changes",
+                open.size(), trackers.size(), changed);
+    }
+
+    private Map<String, EasyPostTrackerResult> fetchAll(List<String> codes) {
+        List<List<String>> batches = new ArrayList<>();
+        for (int i = 0; i < codes.size(); i += batchSize) {
+            batches.add(codes.subList(i, Math.min(i + batchSize, codes.size())));
+        }
+
+        Map<String, EasyPostTrackerResult> trackers = new HashMap<>();
+        try {
+            List<Future<Map<String, EasyPostTrackerResult>>> futures = new ArrayList<>();
+            for (List<String> batch : batches) {
+                futures.add(fetchPool.submit(() -> fetchBatch(batch)));
+            }
+            for (Future<Map<String, EasyPostTrackerResult>> future : futures) {
+                try {
+                    trackers.putAll(future.get());
+                } catch (ExecutionException e) {
+                    // Skip the batch; its shipments are retried next cycle
+                    log.warn("Tracking reconcile batch failed: {}", e.getCause().getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return trackers;
+    }
+
+    /**
+     * All trackers for one batch of codes, following {@code has_more} with
+     * {@code before_id}. Every page waits for the rate limit. Pages run newest first, so
+     * a code already resolved on an earlier page keeps that tracker.
+     */
+    private Map<String, EasyPostTrackerResult> fetchBatch(List<String> codes) throws InterruptedException {
+        Map<String, EasyPostTrackerResult> trackers = new HashMap<>();
+        String beforeId = null;
+        while (true) {
+            rateLimit.asBlocking().consume(1);
+            TrackingService.TrackerPage page = trackingService.fetchTrackerPage(codes, beforeId);
+            page.trackersByCode().forEach(trackers::putIfAbsent);
+            if (!page.hasMore() || page.lastTrackerId() == null || page.lastTrackerId().equals(beforeId)) {
+                return trackers;
+            }
+            beforeId = page.lastTrackerId();
+        }
+    }
+}
@@ -63,6 +63,10 @@ public class MachineDisplay {
     @Column(name = "actor_id")
     private UUID actorId;
 
+    /** When this display was last reported stale (V62); cleared once it is reported fresh. */
+    @Column(name = "stale_reported_at")
+    private OffsetDateTime staleReportedAt;
+
     @PrePersist
     private void prePersist() {
         if (startedAt == null) {
@@ -0,0 +1,70 @@
+package com.mirai.inventoryservice.models.audit;
+
+import com.mirai.inventoryservice.models.enums.IdempotencyStatus;
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * The outcome of a mutating request sent with an {@code Idempotency-Key}, scoped to the
+ * caller. Claimed as IN_PROGRESS by whichever replica executes the request first.
+ */
+@Entity
+@Table(name = "idempotency_keys",
+        uniqueConstraints = @UniqueConstraint(name = "uk_idempotency_keys_scope_key",
+                columnNames = {"scope", "idempotency_key"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+
+    @Id
+    private UUID id;
+
+    @NotBlank
+    @Column(nullable = false)
+    private String scope;
+
+    @NotBlank
+    @Column(name = "idempotency_key", nullable = false)
+    private String idempotencyKey;
+
+    @NotBlank
+    @Column(name = "request_fingerprint", nullable = false, length = 64)
+    private String requestFingerprint;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private IdempotencyStatus status;
+
+    @Column(name = "response_status")
+    private Integer responseStatus;
+
+    @Column(name = "response_content_type")
+    private String responseContentType;
+
+    @Column(name = "response_body")
+    private byte[] responseBody;
+
+    @NotNull
+    @Column(name = "locked_until", nullable = false)
+    private OffsetDateTime lockedUntil;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private OffsetDateTime createdAt;
+
+    @NotNull
+    @Column(name = "expires_at", nullable = false)
+    private OffsetDateTime expiresAt;
+}
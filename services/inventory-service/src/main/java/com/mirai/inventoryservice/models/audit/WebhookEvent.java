@@ -3,6 +3,7 @@ package com.mirai.inventoryservice.models.audit;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import com.mirai.inventoryservice.models.enums.WebhookEventStatus;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -45,7 +46,30 @@ public class WebhookEvent {
     @Column(nullable = false)
     private Map<String, Object> payload;
 
+    @Column(name = "tracker_id")
+    private String trackerId;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private WebhookEventStatus status = WebhookEventStatus.PENDING;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer attempts = 0;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
     @CreationTimestamp
-    @Column(name = "processed_at", nullable = false, updatable = false)
+    @Column(name = "received_at", nullable = false, updatable = false)
+    private OffsetDateTime receivedAt;
+
+    /** When a worker moved the event to PROCESSING; its claim lease runs from here. */
+    @Column(name = "claimed_at")
+    private OffsetDateTime claimedAt;
+
+    @Column(name = "processed_at")
     private OffsetDateTime processedAt;
 }
@@ -0,0 +1,6 @@
+package com.mirai.inventoryservice.models.enums;
+
+public enum IdempotencyStatus {
+    IN_PROGRESS,
+    COMPLETED
+}
@@ -0,0 +1,8 @@
+package com.mirai.inventoryservice.models.enums;
+
+public enum WebhookEventStatus {
+    PENDING,
+    PROCESSING,
+    PROCESSED,
+    FAILED
+}
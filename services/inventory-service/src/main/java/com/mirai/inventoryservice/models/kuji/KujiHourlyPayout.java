@@ -0,0 +1,60 @@
+package com.mirai.inventoryservice.models.kuji;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Net kuji payouts (draws minus undos) for one tier of a box in one UTC hour.
+ * Maintained incrementally by draw/undo and rebuildable from the stock_movements
+ * ledger. Buckets are hourly rather than daily so the payout chart can be assembled
+ * into calendar days in whatever timezone the viewer asks for.
+ */
+@Entity
+@Table(
+    name = "kuji_hourly_payouts",
+    uniqueConstraints = @UniqueConstraint(
+        name = "uq_kuji_hourly_payouts_box_bucket_tier",
+        columnNames = {"box_id", "bucket_start", "tier_id"}
+    )
+)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class KujiHourlyPayout {
+    @Id
+    private UUID id;
+
+    @NotNull
+    @Column(name = "box_id", nullable = false)
+    private UUID boxId;
+
+    /** Start of the UTC hour. */
+    @NotNull
+    @Column(name = "bucket_start", nullable = false)
+    private OffsetDateTime bucketStart;
+
+    /** No foreign key: a tier's payouts outlive the tier being deleted. */
+    @NotNull
+    @Column(name = "tier_id", nullable = false)
+    private UUID tierId;
+
+    @NotNull
+    @Column(name = "slip_count", nullable = false)
+    private Integer slipCount;
+
+    @NotNull
+    @Column(name = "value_won", nullable = false, precision = 12, scale = 2)
+    private BigDecimal valueWon;
+
+    @Column(name = "updated_at", nullable = false)
+    private OffsetDateTime updatedAt;
+}
@@ -0,0 +1,59 @@
+package com.mirai.inventoryservice.models.lootbox;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Running coin totals for one user, maintained by database triggers on
+ * review_daily_counts, coin_adjustments and lootbox_plays (see V54). Read-only from
+ * Java apart from the expiry sweep and reconciliation in CoinWalletService.
+ *
+ * {@code expired} only includes credits that lapsed on or before the two
+ * {@code *ExpiredThrough} watermarks; the {@code next*Expiry} columns say when the
+ * next unswept credit lapses.
+ */
+@Entity
+@Table(name = "coin_wallets")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CoinWallet {
+    @Id
+    @Column(name = "user_id")
+    private UUID userId;
+
+    @Column(name = "review_credits", nullable = false)
+    private long reviewCredits;
+
+    @Column(nullable = false)
+    private long adjustments;
+
+    @Column(nullable = false)
+    private long spent;
+
+    @Column(nullable = false)
+    private long expired;
+
+    @Column(name = "reviews_expired_through", nullable = false)
+    private LocalDate reviewsExpiredThrough;
+
+    @Column(name = "adjustments_expired_through", nullable = false)
+    private OffsetDateTime adjustmentsExpiredThrough;
+
+    @Column(name = "next_review_expiry")
+    private LocalDate nextReviewExpiry;
+
+    @Column(name = "next_adjustment_expiry")
+    private OffsetDateTime nextAdjustmentExpiry;
+
+    @Column(name = "updated_at", nullable = false)
+    private OffsetDateTime updatedAt;
+}
@@ -62,6 +62,12 @@ public class LootboxPrize {
     @Column(name = "quantity")
     private Integer quantity;
 
+    // > 1 splits the remaining stock across LootboxPrizeStockSlice rows; quantity then
+    // lags and is refreshed whenever a slice empties (see LootboxPrizeStock).
+    @Column(name = "stock_shards", nullable = false)
+    @Builder.Default
+    private Integer stockShards = 1;
+
     @CreationTimestamp
     @Column(name = "created_at", updatable = false)
     private OffsetDateTime createdAt;
@@ -0,0 +1,40 @@
+package com.mirai.inventoryservice.models.lootbox;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * One slice of a sharded prize's remaining stock. Written by admin edits and
+ * decremented by native claims in LootboxPrizeStockSliceRepository.
+ */
+@Entity
+@Table(
+    name = "lootbox_prize_stock_slices",
+    uniqueConstraints = @UniqueConstraint(
+        name = "uq_lootbox_prize_stock_slices_prize_slice",
+        columnNames = {"prize_id", "slice_no"}
+    )
+)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LootboxPrizeStockSlice {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "prize_id", nullable = false)
+    private UUID prizeId;
+
+    @Column(name = "slice_no", nullable = false)
+    private Short sliceNo;
+
+    @Column(nullable = false)
+    private Integer remaining;
+}
@@ -87,6 +87,10 @@ public class Shipment {
     @Column(name = "easypost_tracker_id")
     private String easypostTrackerId;
 
+    /** When the tracking reconcile last claimed this shipment for polling (V63). */
+    @Column(name = "tracking_polled_at")
+    private OffsetDateTime trackingPolledAt;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "created_by")
     private User createdBy;
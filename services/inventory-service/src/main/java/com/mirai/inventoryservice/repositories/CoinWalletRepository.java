@@ -0,0 +1,173 @@
+package com.mirai.inventoryservice.repositories;
+
+import com.mirai.inventoryservice.models.lootbox.CoinWallet;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface CoinWalletRepository extends JpaRepository<CoinWallet, UUID> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM CoinWallet w WHERE w.userId = :userId")
+    Optional<CoinWallet> findByIdForUpdate(@Param("userId") UUID userId);
+
+    /**
+     * Credits of one user that lapsed after the wallet's watermarks and are not yet in
+     * {@code expired}. One row: [review coins, adjustment delta]. Both are range scans
+     * on the (user_id, expires_at) indexes.
+     */
+    @Query(value = """
+        SELECT
+          COALESCE((SELECT SUM(coins_awarded) FROM review_daily_counts
+                    WHERE user_id = :userId AND expires_at > :reviewsAfter AND expires_at <= :today), 0),
+          COALESCE((SELECT SUM(delta) FROM coin_adjustments
+                    WHERE user_id = :userId AND expires_at > :adjustmentsAfter AND expires_at <= :now), 0)
+        """, nativeQuery = true)
+    List<Object[]> sumLapsedSince(@Param("userId") UUID userId,
+                                  @Param("reviewsAfter") LocalDate reviewsAfter,
+                                  @Param("today") LocalDate today,
+                                  @Param("adjustmentsAfter") OffsetDateTime adjustmentsAfter,
+                                  @Param("now") OffsetDateTime now);
+
+    /**
+     * Wallets whose next expiry has been reached, in user_id order, after {@code after}.
+     */
+    @Query(value = """
+        SELECT w.user_id FROM coin_wallets w
+        WHERE (w.next_review_expiry <= :today OR w.next_adjustment_expiry <= :now)
+          AND w.user_id > :after
+        ORDER BY w.user_id
+        LIMIT :limit
+        """, nativeQuery = true)
+    List<UUID> findDueForSweep(@Param("today") LocalDate today,
+                               @Param("now") OffsetDateTime now,
+                               @Param("after") UUID after,
+                               @Param("limit") int limit);
+
+    /**
+     * Roll every credit of one wallet that lapsed by {@code today} / {@code now} into
+     * {@code expired} and advance its watermarks, if its next expiry has been reached.
+     * The next-expiry columns keep any value a concurrent trigger set after this
+     * statement's snapshot was taken.
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE coin_wallets w SET
+            expired = w.expired
+                + COALESCE((SELECT SUM(r.coins_awarded) FROM review_daily_counts r
+                            WHERE r.user_id = w.user_id
+                              AND r.expires_at > w.reviews_expired_through
+                              AND r.expires_at <= :today), 0)
+                + COALESCE((SELECT SUM(a.delta) FROM coin_adjustments a
+                            WHERE a.user_id = w.user_id
+                              AND a.expires_at > w.adjustments_expired_through
+                              AND a.expires_at <= :now), 0),
+            reviews_expired_through = GREATEST(w.reviews_expired_through, :today),
+            adjustments_expired_through = GREATEST(w.adjustments_expired_through, :now),
+            next_review_expiry = LEAST(
+                (SELECT MIN(r.expires_at) FROM review_daily_counts r
+                 WHERE r.user_id = w.user_id AND r.expires_at > GREATEST(w.reviews_expired_through, :today)),
+                CASE WHEN w.next_review_expiry > :today THEN w.next_review_expiry END),
+            next_adjustment_expiry = LEAST(
+                (SELECT MIN(a.expires_at) FROM coin_adjustments a
+                 WHERE a.user_id = w.user_id AND a.expires_at > GREATEST(w.adjustments_expired_through, :now)),
+                CASE WHEN w.next_adjustment_expiry > :now THEN w.next_adjustment_expiry END),
+            updated_at = :now
+        WHERE w.user_id = :userId
+          AND (w.next_review_expiry <= :today OR w.next_adjustment_expiry <= :now)
+        """, nativeQuery = true)
+    int sweepWallet(@Param("userId") UUID userId, @Param("today") LocalDate today, @Param("now") OffsetDateTime now);
+
+    /**
+     * Users whose wallet disagrees with the full balance formula evaluated at
+     * {@code today} / {@code now}, including users with activity but no wallet.
+     * Only meaningful right after every due wallet was swept ({@link #sweepWallet}) with
+     * the same arguments.
+     */
+    @Query(value = """
+        SELECT COALESCE(w.user_id, f.user_id)
+        FROM coin_wallets w
+        FULL JOIN (
+            SELECT u.user_id,
+                   COALESCE(r.total, 0) AS review_credits,
+                   COALESCE(a.total, 0) AS adjustments,
+                   COALESCE(p.total, 0) AS spent,
+                   COALESCE(r.expired, 0) + COALESCE(a.expired, 0) AS expired
+            FROM (
+                SELECT user_id FROM review_daily_counts
+                UNION SELECT user_id FROM coin_adjustments
+                UNION SELECT user_id FROM lootbox_plays
+            ) u
+            LEFT JOIN (
+                SELECT user_id, SUM(coins_awarded) AS total,
+                       SUM(coins_awarded) FILTER (WHERE expires_at <= :today) AS expired
+                FROM review_daily_counts GROUP BY user_id
+            ) r ON r.user_id = u.user_id
+            LEFT JOIN (
+                SELECT user_id, SUM(delta) AS total,
+                       SUM(delta) FILTER (WHERE expires_at <= :now) AS expired
+                FROM coin_adjustments GROUP BY user_id
+            ) a ON a.user_id = u.user_id
+            LEFT JOIN (
+                SELECT user_id, SUM(cost) AS total FROM lootbox_plays GROUP BY user_id
+            ) p ON p.user_id = u.user_id
+        ) f ON f.user_id = w.user_id
+        WHERE (f.user_id IS NULL AND (w.review_credits <> 0 OR w.adjustments <> 0
+                                      OR w.spent <> 0 OR w.expired <> 0))
+           OR (w.user_id IS NULL)
+           OR w.review_credits <> f.review_credits
+           OR w.adjustments <> f.adjustments
+           OR w.spent <> f.spent
+           OR w.expired <> f.expired
+        """, nativeQuery = true)
+    List<UUID> findDriftedUserIds(@Param("today") LocalDate today, @Param("now") OffsetDateTime now);
+
+    /**
+     * Recompute one wallet from the full formula, swept up to {@code today} / {@code now}.
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO coin_wallets (user_id, review_credits, adjustments, spent, expired,
+                                  reviews_expired_through, adjustments_expired_through,
+                                  next_review_expiry, next_adjustment_expiry, updated_at)
+        SELECT :userId, r.total, a.total, p.total, r.expired + a.expired,
+               :today, :now, r.next_expiry, a.next_expiry, :now
+        FROM (
+            SELECT COALESCE(SUM(coins_awarded), 0) AS total,
+                   COALESCE(SUM(coins_awarded) FILTER (WHERE expires_at <= :today), 0) AS expired,
+                   MIN(expires_at) FILTER (WHERE expires_at > :today) AS next_expiry
+            FROM review_daily_counts WHERE user_id = :userId
+        ) r
+        CROSS JOIN (
+            SELECT COALESCE(SUM(delta), 0) AS total,
+                   COALESCE(SUM(delta) FILTER (WHERE expires_at <= :now), 0) AS expired,
+                   MIN(expires_at) FILTER (WHERE expires_at > :now) AS next_expiry
+            FROM coin_adjustments WHERE user_id = :userId
+        ) a
+        CROSS JOIN (
+            SELECT COALESCE(SUM(cost), 0) AS total FROM lootbox_plays WHERE user_id = :userId
+        ) p
+        ON CONFLICT (user_id) DO UPDATE SET
+            review_credits              = EXCLUDED.review_credits,
+            adjustments                 = EXCLUDED.adjustments,
+            spent                       = EXCLUDED.spent,
+            expired                     = EXCLUDED.expired,
+            reviews_expired_through     = EXCLUDED.reviews_expired_through,
+            adjustments_expired_through = EXCLUDED.adjustments_expired_through,
+            next_review_expiry          = EXCLUDED.next_review_expiry,
+            next_adjustment_expiry      = EXCLUDED.next_adjustment_expiry,
+            updated_at                  = EXCLUDED.updated_at
+        """, nativeQuery = true)
+    int rebuild(@Param("userId") UUID userId, @Param("today") LocalDate today, @Param("now") OffsetDateTime now);
+}
@@ -0,0 +1,92 @@
+package com.mirai.inventoryservice.repositories;
+
+import com.mirai.inventoryservice.models.audit.IdempotencyRecord;
+import com.mirai.inventoryservice.models.enums.IdempotencyStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, UUID> {
+
+    Optional<IdempotencyRecord> findByScopeAndIdempotencyKey(String scope, String idempotencyKey);
+
+    /**
+     * Claim a key, relying on uk_idempotency_keys_scope_key so only one replica wins.
+     * Returns 1 when this caller now owns the key, 0 when a row already existed.
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO idempotency_keys (id, scope, idempotency_key, request_fingerprint, status,
+                                      locked_until, created_at, expires_at)
+        VALUES (:id, :scope, :key, :fingerprint, 'IN_PROGRESS', :lockedUntil, clock_timestamp(), :expiresAt)
+        ON CONFLICT (scope, idempotency_key) DO NOTHING
+        """, nativeQuery = true)
+    int insertIfAbsent(@Param("id") UUID id,
+                       @Param("scope") String scope,
+                       @Param("key") String key,
+                       @Param("fingerprint") String fingerprint,
+                       @Param("lockedUntil") OffsetDateTime lockedUntil,
+                       @Param("expiresAt") OffsetDateTime expiresAt);
+
+    /**
+     * Take over a key whose response has expired or whose owner stopped renewing it
+     * (e.g. the replica died mid-request). Returns 0 if someone else got there first.
+     */
+    @Modifying
+    @Query("""
+        UPDATE IdempotencyRecord r
+        SET r.status = com.mirai.inventoryservice.models.enums.IdempotencyStatus.IN_PROGRESS,
+            r.requestFingerprint = :fingerprint, r.lockedUntil = :lockedUntil, r.expiresAt = :expiresAt,
+            r.responseStatus = null, r.responseContentType = null, r.responseBody = null
+        WHERE r.id = :id
+          AND (r.expiresAt < :now
+               OR (r.status = com.mirai.inventoryservice.models.enums.IdempotencyStatus.IN_PROGRESS
+                   AND r.lockedUntil < :now))
+        """)
+    int takeOver(@Param("id") UUID id,
+                 @Param("fingerprint") String fingerprint,
+                 @Param("lockedUntil") OffsetDateTime lockedUntil,
+                 @Param("expiresAt") OffsetDateTime expiresAt,
+                 @Param("now") OffsetDateTime now);
+
+    @Modifying
+    @Query("""
+        UPDATE IdempotencyRecord r
+        SET r.status = com.mirai.inventoryservice.models.enums.IdempotencyStatus.COMPLETED,
+            r.responseStatus = :responseStatus, r.responseContentType = :contentType,
+            r.responseBody = :body, r.expiresAt = :expiresAt
+        WHERE r.id = :id AND r.status = com.mirai.inventoryservice.models.enums.IdempotencyStatus.IN_PROGRESS
+        """)
+    int complete(@Param("id") UUID id,
+                 @Param("responseStatus") int responseStatus,
+                 @Param("contentType") String contentType,
+                 @Param("body") byte[] body,
+                 @Param("expiresAt") OffsetDateTime expiresAt);
+
+    /**
+     * Extend the lease of keys this replica is still executing, so a long request is
+     * not taken over while its owner is alive.
+     */
+    @Modifying
+    @Query("""
+        UPDATE IdempotencyRecord r SET r.lockedUntil = :lockedUntil
+        WHERE r.id IN :ids AND r.status = com.mirai.inventoryservice.models.enums.IdempotencyStatus.IN_PROGRESS
+        """)
+    int renewLeases(@Param("ids") Collection<UUID> ids, @Param("lockedUntil") OffsetDateTime lockedUntil);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.id = :id AND r.status = :status")
+    int deleteByIdAndStatus(@Param("id") UUID id, @Param("status") IdempotencyStatus status);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") OffsetDateTime now);
+}
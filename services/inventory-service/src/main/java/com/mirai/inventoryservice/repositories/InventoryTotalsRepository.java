@@ -6,6 +6,7 @@ import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -94,4 +95,32 @@ public class InventoryTotalsRepository {
         }
         return stockMap;
     }
+
+    private static final String STOCK_TOTALS_BY_PRODUCT_SQL = """
+        SELECT product_id, COALESCE(SUM(quantity), 0) as total_quantity
+        FROM location_inventory
+        WHERE product_id IN (:productIds)
+        GROUP BY product_id
+        """;
+
+    /**
+     * Get stock totals for the given products only. Products without inventory
+     * rows are absent from the map.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<UUID, Integer> findStockTotalsMap(Collection<UUID> productIds) {
+        if (productIds == null || productIds.isEmpty()) {
+            return Map.of();
+        }
+        List<Object[]> results = entityManager
+                .createNativeQuery(STOCK_TOTALS_BY_PRODUCT_SQL)
+                .setParameter("productIds", productIds)
+                .getResultList();
+
+        Map<UUID, Integer> stockMap = new HashMap<>();
+        for (Object[] row : results) {
+            stockMap.put((UUID) row[0], ((Number) row[1]).intValue());
+        }
+        return stockMap;
+    }
 }
@@ -2,11 +2,14 @@ package com.mirai.inventoryservice.repositories;
 
 import com.mirai.inventoryservice.models.enums.KujiBoxStatus;
 import com.mirai.inventoryservice.models.kuji.KujiBox;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -25,8 +28,41 @@ public interface KujiBoxRepository extends JpaRepository<KujiBox, UUID> {
             "WHERE b.id = :id")
     Optional<KujiBox> findByIdWithTiers(@Param("id") UUID id);
 
-    @Query("SELECT b FROM KujiBox b WHERE b.product.id = :productId ORDER BY b.openedAt DESC")
-    List<KujiBox> findByProductIdOrderByOpenedAtDesc(@Param("productId") UUID productId);
+    @Query("SELECT DISTINCT b FROM KujiBox b LEFT JOIN FETCH b.tiers t LEFT JOIN FETCH t.linkedProduct " +
+            "WHERE b.id IN :ids")
+    List<KujiBox> findAllByIdWithTiers(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * One page of a product's box history, newest first, ordered on (opened_at, id) so
+     * boxes opened at the same instant still page deterministically (V52). Ids only, so
+     * the page can be limited in SQL; {@link #findHistoryByIds} then loads the boxes with
+     * everything the response needs.
+     */
+    @Query("SELECT b.id FROM KujiBox b WHERE b.product.id = :productId ORDER BY b.openedAt DESC, b.id DESC")
+    List<UUID> findHistoryIds(@Param("productId") UUID productId, Pageable pageable);
+
+    /**
+     * The page after the box ({@code before}, {@code beforeId}). With a null
+     * {@code beforeId} only boxes opened strictly before {@code before} are returned.
+     */
+    @Query("SELECT b.id FROM KujiBox b WHERE b.product.id = :productId " +
+            "AND (b.openedAt < :before OR (b.openedAt = :before AND b.id < :beforeId)) " +
+            "ORDER BY b.openedAt DESC, b.id DESC")
+    List<UUID> findHistoryIdsBefore(@Param("productId") UUID productId,
+                                    @Param("before") OffsetDateTime before,
+                                    @Param("beforeId") UUID beforeId,
+                                    Pageable pageable);
+
+    @Query("SELECT DISTINCT b FROM KujiBox b JOIN FETCH b.product JOIN FETCH b.location l " +
+            "LEFT JOIN FETCH l.storageLocation LEFT JOIN FETCH b.tiers t LEFT JOIN FETCH t.linkedProduct " +
+            "WHERE b.id IN :ids ORDER BY b.openedAt DESC, b.id DESC")
+    List<KujiBox> findHistoryByIds(@Param("ids") Collection<UUID> ids);
+
+    @Query("SELECT b.id FROM KujiBox b WHERE b.product.id = :productId AND b.status = :status " +
+            "ORDER BY b.openedAt DESC")
+    List<UUID> findLatestIdsByProductIdAndStatus(@Param("productId") UUID productId,
+                                                 @Param("status") KujiBoxStatus status,
+                                                 Pageable pageable);
 
     @Query("SELECT b FROM KujiBox b WHERE b.machineDisplay.id = :machineDisplayId AND b.status = :status")
     Optional<KujiBox> findByMachineDisplayIdAndStatus(@Param("machineDisplayId") UUID machineDisplayId,
@@ -20,6 +20,27 @@ public interface KujiBoxTierRepository extends JpaRepository<KujiBoxTier, UUID>
     @Query("SELECT t FROM KujiBoxTier t WHERE t.id = :id")
     Optional<KujiBoxTier> findByIdForUpdate(@Param("id") UUID id);
 
+    /**
+     * Draw {@code quantity} slips in one statement instead of lock-then-save: moves them
+     * from active_count to drawn_count only while the box is OPEN and enough slips remain.
+     * Returns 1, or 0 when the guard rejected the draw. Pending changes are flushed first;
+     * callers refresh the tier to see the new counts.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            UPDATE kuji_box_tiers t
+            SET active_count = t.active_count - :quantity,
+                drawn_count = t.drawn_count + :quantity,
+                updated_at = clock_timestamp()
+            WHERE t.id = :tierId
+              AND t.box_id = :boxId
+              AND t.active_count >= :quantity
+              AND EXISTS (SELECT 1 FROM kuji_boxes b WHERE b.id = :boxId AND b.status = 'OPEN')
+            """, nativeQuery = true)
+    int drawSlips(@Param("tierId") UUID tierId,
+                  @Param("boxId") UUID boxId,
+                  @Param("quantity") int quantity);
+
     @Modifying
     @Query("DELETE FROM KujiBoxTier t WHERE t.box.product.id = :productId")
     int deleteByBoxProductId(@Param("productId") UUID productId);
@@ -0,0 +1,97 @@
+package com.mirai.inventoryservice.repositories;
+
+import com.mirai.inventoryservice.models.kuji.KujiHourlyPayout;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface KujiHourlyPayoutRepository extends JpaRepository<KujiHourlyPayout, UUID> {
+
+    /**
+     * Add a draw (positive) or undo (negative) to the bucket for (box, hour, tier),
+     * creating it on first use.
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO kuji_hourly_payouts (id, box_id, bucket_start, tier_id, slip_count, value_won, updated_at)
+        VALUES (:id, :boxId, :bucketStart, :tierId, :slips, :value, clock_timestamp())
+        ON CONFLICT (box_id, bucket_start, tier_id) DO UPDATE
+        SET slip_count = kuji_hourly_payouts.slip_count + EXCLUDED.slip_count,
+            value_won = kuji_hourly_payouts.value_won + EXCLUDED.value_won,
+            updated_at = EXCLUDED.updated_at
+        """, nativeQuery = true)
+    int addPayout(@Param("id") UUID id,
+                  @Param("boxId") UUID boxId,
+                  @Param("bucketStart") OffsetDateTime bucketStart,
+                  @Param("tierId") UUID tierId,
+                  @Param("slips") int slips,
+                  @Param("value") BigDecimal value);
+
+    /**
+     * Calendar-day totals for a box in {@code tz}, over buckets in [start, end).
+     * Same columns as {@link StockMovementRepository#aggregateKujiDailyPayouts}:
+     * bucket_date (date), slip_count (int), value_won (numeric).
+     */
+    @Query(value = """
+        SELECT
+            (h.bucket_start AT TIME ZONE :tz)::date AS bucket_date,
+            SUM(h.slip_count) AS slip_count,
+            SUM(h.value_won) AS value_won
+        FROM kuji_hourly_payouts h
+        WHERE h.box_id = :boxId
+          AND h.bucket_start >= :start
+          AND h.bucket_start < :end
+        GROUP BY bucket_date
+        ORDER BY bucket_date
+        """, nativeQuery = true)
+    List<Object[]> sumDailyPayouts(@Param("boxId") UUID boxId,
+                                   @Param("start") OffsetDateTime start,
+                                   @Param("end") OffsetDateTime end,
+                                   @Param("tz") String tz);
+
+    @Modifying
+    @Query("DELETE FROM KujiHourlyPayout h WHERE h.boxId = :boxId")
+    int deleteByBoxId(@Param("boxId") UUID boxId);
+
+    /**
+     * Recompute a box's buckets from the ledger with the same valuation as
+     * {@link StockMovementRepository#aggregateKujiDailyPayouts}. Undos made before
+     * reversals carried their own slip_quantity take it from the reversed movement.
+     * Call {@link #deleteByBoxId} first.
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO kuji_hourly_payouts (id, box_id, bucket_start, tier_id, slip_count, value_won, updated_at)
+        SELECT gen_random_uuid(), :boxId, x.bucket_start, x.tier_id,
+               SUM(x.slips), SUM(x.slips * x.unit_value), clock_timestamp()
+        FROM (
+            SELECT
+                date_trunc('hour', sm.at AT TIME ZONE 'UTC') AT TIME ZONE 'UTC' AS bucket_start,
+                COALESCE(sm.metadata->>'kuji_box_tier_id', orig.metadata->>'kuji_box_tier_id')::uuid AS tier_id,
+                CASE WHEN sm.reason = 'KUJI_PRIZE_WON' THEN 1 ELSE -1 END
+                    * COALESCE((sm.metadata->>'slip_quantity')::int,
+                               (orig.metadata->>'slip_quantity')::int, 0) AS slips,
+                COALESCE((sm.metadata->>'unit_value')::numeric, t.price, p.msrp, 0) AS unit_value
+            FROM stock_movements sm
+            LEFT JOIN stock_movements orig
+                   ON sm.reason = 'KUJI_DRAW_REVERSED'
+                  AND orig.id = CAST(NULLIF(sm.metadata->>'reverses_movement_id', 'null') AS bigint)
+            LEFT JOIN kuji_box_tiers t
+                   ON t.id = COALESCE(sm.metadata->>'kuji_box_tier_id', orig.metadata->>'kuji_box_tier_id')::uuid
+            LEFT JOIN products p ON p.id = t.linked_product_id
+            WHERE sm.reason IN ('KUJI_PRIZE_WON', 'KUJI_DRAW_REVERSED')
+              AND (sm.metadata->>'kuji_box_id')::uuid = :boxId
+        ) x
+        WHERE x.tier_id IS NOT NULL
+        GROUP BY x.bucket_start, x.tier_id
+        """, nativeQuery = true)
+    int rebuildFromLedger(@Param("boxId") UUID boxId);
+}
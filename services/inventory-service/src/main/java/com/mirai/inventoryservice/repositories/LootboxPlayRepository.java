@@ -9,6 +9,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -49,4 +50,48 @@ public interface LootboxPlayRepository extends JpaRepository<LootboxPlay, UUID>
             """)
     List<LootboxPlay> findRecentPlaysByCrateWithAssociations(
             @Param("crateId") UUID crateId, Pageable pageable);
+
+    /**
+     * [id, feed_xid] of plays after the (xid, id) cursor whose transaction is below
+     * {@code horizon}, in cursor order (V61). Range scan on idx_lootbox_plays_feed_xid.
+     */
+    @Query(value = """
+            SELECT p.id, CAST(CAST(p.feed_xid AS text) AS bigint)
+            FROM lootbox_plays p
+            WHERE p.feed_xid IS NOT NULL
+              AND (p.feed_xid, p.id) > (CAST(CAST(:afterXid AS text) AS xid8), :afterId)
+              AND p.feed_xid < CAST(CAST(:horizon AS text) AS xid8)
+            ORDER BY p.feed_xid, p.id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Object[]> findFeedAfter(@Param("afterXid") long afterXid,
+                                 @Param("afterId") UUID afterId,
+                                 @Param("horizon") long horizon,
+                                 @Param("limit") int limit);
+
+    /**
+     * Oldest transaction id still running, or the next one to be assigned if none is.
+     * Every play written below it has committed or rolled back.
+     */
+    @Query(value = "SELECT CAST(CAST(pg_snapshot_xmin(pg_current_snapshot()) AS text) AS bigint)",
+            nativeQuery = true)
+    long findFeedHorizon();
+
+    @Query("""
+            SELECT p FROM LootboxPlay p
+            JOIN FETCH p.user
+            JOIN FETCH p.prize pr
+            JOIN FETCH pr.tier
+            WHERE p.id IN :ids
+            """)
+    List<LootboxPlay> findAllByIdWithAssociations(@Param("ids") Collection<UUID> ids);
+
+    @Query("""
+            SELECT p FROM LootboxPlay p
+            JOIN FETCH p.user
+            JOIN FETCH p.prize pr
+            JOIN FETCH pr.tier
+            WHERE p.id = :id
+            """)
+    Optional<LootboxPlay> findByIdWithAssociations(@Param("id") UUID id);
 }
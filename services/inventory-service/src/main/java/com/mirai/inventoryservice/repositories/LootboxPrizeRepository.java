@@ -78,7 +78,8 @@ public interface LootboxPrizeRepository extends JpaRepository<LootboxPrize, UUID
      * Atomic stock decrement. Returns affected-row count: 1 on success, 0 if the prize
      * is already depleted or inactive (caller should re-roll). The same UPDATE flips
      * active = false when the last copy is taken, so subsequent rolls skip it via
-     * findActiveByTierId.
+     * findActiveByTierId. The row stays locked until commit, so a following
+     * {@link #findQuantityById} reads what this update left.
      */
     @Modifying
     @Query(value = """
@@ -92,4 +93,26 @@ public interface LootboxPrizeRepository extends JpaRepository<LootboxPrize, UUID
                AND quantity > 0
             """, nativeQuery = true)
     int decrementQuantity(@Param("id") UUID id);
+
+    /**
+     * Refresh a sharded prize's quantity from its slices, retiring it once they are all
+     * empty. Only called when a slice runs out, so the prize row stays off the hot path.
+     * Returns affected-row count: 0 if the prize is not sharded.
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE lootbox_prizes p
+               SET quantity   = s.total,
+                   active     = CASE WHEN s.total = 0 THEN false ELSE p.active END,
+                   updated_at = NOW()
+              FROM (SELECT COALESCE(SUM(remaining), 0) AS total
+                      FROM lootbox_prize_stock_slices WHERE prize_id = :id) s
+             WHERE p.id = :id
+               AND p.stock_shards > 1
+            """, nativeQuery = true)
+    int syncShardedQuantity(@Param("id") UUID id);
+
+    /** Current stock of a prize, read from the database rather than the session. */
+    @Query("SELECT p.quantity FROM LootboxPrize p WHERE p.id = :id")
+    Integer findQuantityById(@Param("id") UUID id);
 }
@@ -0,0 +1,69 @@
+package com.mirai.inventoryservice.repositories;
+
+import com.mirai.inventoryservice.models.lootbox.LootboxPrizeStockSlice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface LootboxPrizeStockSliceRepository extends JpaRepository<LootboxPrizeStockSlice, UUID> {
+
+    /**
+     * Lock a non-empty slice of an active prize, starting the search at slice
+     * {@code start} and skipping slices other claims hold. Returns [id, remaining] of the
+     * locked slice, or nothing when every non-empty slice is busy or none is left.
+     */
+    @Query(value = """
+            SELECT c.id, c.remaining FROM lootbox_prize_stock_slices c
+            WHERE c.prize_id = :prizeId AND c.remaining > 0
+              AND EXISTS (SELECT 1 FROM lootbox_prizes p WHERE p.id = :prizeId AND p.active = true)
+            ORDER BY (c.slice_no - :start + :shards) % :shards
+            LIMIT 1
+            FOR UPDATE OF c SKIP LOCKED
+            """, nativeQuery = true)
+    List<Object[]> lockFreeSlice(@Param("prizeId") UUID prizeId,
+                                 @Param("start") int start,
+                                 @Param("shards") int shards);
+
+    /**
+     * Same as {@link #lockFreeSlice} but waits for a busy slice instead of skipping it.
+     * Used when every slice was busy, so contention alone never reads as sold out. Can
+     * come back empty if the slice it waited for was emptied meanwhile.
+     */
+    @Query(value = """
+            SELECT c.id, c.remaining FROM lootbox_prize_stock_slices c
+            WHERE c.prize_id = :prizeId AND c.remaining > 0
+              AND EXISTS (SELECT 1 FROM lootbox_prizes p WHERE p.id = :prizeId AND p.active = true)
+            ORDER BY (c.slice_no - :start + :shards) % :shards
+            LIMIT 1
+            FOR UPDATE OF c
+            """, nativeQuery = true)
+    List<Object[]> lockAnySlice(@Param("prizeId") UUID prizeId,
+                                @Param("start") int start,
+                                @Param("shards") int shards);
+
+    /** Take one unit from a slice locked by {@link #lockFreeSlice} or {@link #lockAnySlice}. */
+    @Modifying
+    @Query("UPDATE LootboxPrizeStockSlice s SET s.remaining = s.remaining - 1 WHERE s.id = :id AND s.remaining > 0")
+    int takeOne(@Param("id") UUID id);
+
+    /** Whether an active prize still has stock in any slice, busy or not. */
+    @Query("""
+            SELECT COUNT(s) > 0 FROM LootboxPrizeStockSlice s
+            WHERE s.prizeId = :prizeId AND s.remaining > 0
+              AND EXISTS (SELECT 1 FROM LootboxPrize p WHERE p.id = :prizeId AND p.active = true)
+            """)
+    boolean hasStock(@Param("prizeId") UUID prizeId);
+
+    @Query("SELECT COALESCE(SUM(s.remaining), 0) FROM LootboxPrizeStockSlice s WHERE s.prizeId = :prizeId")
+    long sumRemaining(@Param("prizeId") UUID prizeId);
+
+    @Modifying
+    @Query("DELETE FROM LootboxPrizeStockSlice s WHERE s.prizeId = :prizeId")
+    int deleteByPrizeId(@Param("prizeId") UUID prizeId);
+}
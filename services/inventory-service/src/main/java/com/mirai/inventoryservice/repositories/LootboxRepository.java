@@ -26,6 +26,18 @@ public interface LootboxRepository extends JpaRepository<Lootbox, UUID> {
             """)
     List<Lootbox> findOpen(@Param("now") OffsetDateTime now);
 
+    /**
+     * The next time after {@code now} an active crate opens or closes, i.e. when the
+     * result of {@link #findOpen} next changes on its own. Null if none is scheduled.
+     */
+    @Query("""
+            SELECT MIN(CASE WHEN l.startsAt > :now THEN l.startsAt ELSE l.endsAt END)
+            FROM Lootbox l
+            WHERE l.active = true
+              AND (l.startsAt > :now OR l.endsAt > :now)
+            """)
+    OffsetDateTime findNextWindowBoundary(@Param("now") OffsetDateTime now);
+
     /** A single crate, only if it's currently open. Returned for the play guard. */
     @Query("""
             SELECT l FROM Lootbox l
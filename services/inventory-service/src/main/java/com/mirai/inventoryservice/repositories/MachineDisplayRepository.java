@@ -52,6 +52,16 @@ public interface MachineDisplayRepository extends JpaRepository<MachineDisplay,
             @Param("locationType") LocationType locationType,
             @Param("machineId") UUID machineId);
 
+    /**
+     * Batch variant of findActiveByLocationTypeAndMachineId - active displays of many
+     * machines in one query. Callers match (locationType, machineId) pairs themselves.
+     */
+    @EntityGraph(value = "MachineDisplay.withProduct")
+    @Query("SELECT md FROM MachineDisplay md WHERE md.locationType IN :locationTypes AND md.machineId IN :machineIds AND md.endedAt IS NULL ORDER BY md.startedAt ASC")
+    List<MachineDisplay> findActiveByLocationTypeInAndMachineIdIn(
+            @Param("locationTypes") Collection<LocationType> locationTypes,
+            @Param("machineIds") Collection<UUID> machineIds);
+
     /**
      * Find all active displays (current state across all machines)
      */
@@ -100,20 +110,35 @@ public interface MachineDisplayRepository extends JpaRepository<MachineDisplay,
     List<MachineDisplay> findActiveByProduct_Id(@Param("productId") UUID productId);
 
     /**
-     * Find stale displays (active for longer than threshold)
+     * Find stale displays (active for longer than threshold), across every machine.
+     * Served by the partial index on active displays' started_at (V57).
      */
     @EntityGraph(value = "MachineDisplay.withProduct")
     @Query("SELECT md FROM MachineDisplay md WHERE md.endedAt IS NULL AND md.startedAt < :threshold ORDER BY md.startedAt ASC")
     List<MachineDisplay> findStaleDisplays(@Param("threshold") OffsetDateTime threshold);
 
     /**
-     * Find stale displays for a specific location type
+     * Displays currently marked as reported stale, active or not. Served by the partial
+     * index on stale_reported_at (V62).
      */
     @EntityGraph(value = "MachineDisplay.withProduct")
-    @Query("SELECT md FROM MachineDisplay md WHERE md.locationType = :locationType AND md.endedAt IS NULL AND md.startedAt < :threshold ORDER BY md.startedAt ASC")
-    List<MachineDisplay> findStaleDisplaysByLocationType(
-            @Param("locationType") LocationType locationType,
-            @Param("threshold") OffsetDateTime threshold);
+    @Query("SELECT md FROM MachineDisplay md WHERE md.staleReportedAt IS NOT NULL")
+    List<MachineDisplay> findStaleReported();
+
+    @Modifying
+    @Query("UPDATE MachineDisplay md SET md.staleReportedAt = :at WHERE md.id IN :ids")
+    int markStaleReported(@Param("ids") Collection<UUID> ids, @Param("at") OffsetDateTime at);
+
+    @Modifying
+    @Query("UPDATE MachineDisplay md SET md.staleReportedAt = NULL WHERE md.id IN :ids")
+    int clearStaleReported(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Take the stale-display report lock for the current transaction, if no other
+     * instance holds it.
+     */
+    @Query(value = "SELECT pg_try_advisory_xact_lock(hashtext('machine_display_stale_report'))", nativeQuery = true)
+    boolean tryLockStaleReport();
 
     /**
      * Count active displays by location type
@@ -59,17 +59,6 @@ public interface ReviewDailyCountRepository extends JpaRepository<ReviewDailyCou
     List<Object[]> sumCoinTotalsByUserId(@Param("userId") UUID userId,
                                          @Param("today") LocalDate today);
 
-    /**
-     * Daily review credit rows for the user's history view (newest first), every row
-     * included. Returns [date, reviewCount, coinsAwarded, expiresAt] so the UI can
-     * label the row with both the review count and the coins they earned.
-     */
-    @Query("SELECT c.date, c.reviewCount, c.coinsAwarded, c.expiresAt " +
-            "FROM ReviewDailyCount c " +
-            "WHERE c.user.id = :userId " +
-            "ORDER BY c.date DESC")
-    List<Object[]> findDailyCreditsByUser(@Param("userId") UUID userId);
-
     /** Rows whose expires_at is between (today, today + windowDays] for the "expiring soon" UI. */
     @Query("SELECT c FROM ReviewDailyCount c " +
             "WHERE c.user.id = :userId " +
@@ -2,15 +2,19 @@ package com.mirai.inventoryservice.repositories;
 
 import com.mirai.inventoryservice.models.enums.ShipmentStatus;
 import com.mirai.inventoryservice.models.shipment.Shipment;
+import com.mirai.inventoryservice.repositories.projections.TrackedShipmentView;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.stereotype.Repository;
 
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -127,6 +131,27 @@ public interface ShipmentRepository extends JpaRepository<Shipment, UUID> {
             "AND (LOWER(s.shipmentNumber) LIKE :searchPattern OR LOWER(s.supplierName) LIKE :searchPattern)")
     Page<Shipment> findActiveShipmentsWithSearch(@Param("searchPattern") String searchPattern, Pageable pageable);
 
+    // Pending shipments with a tracking number whose carrier status can still change,
+    // and which no reconcile run has polled since polledBefore
+    @Query("SELECT s.id AS id, s.trackingId AS trackingId FROM Shipment s " +
+            "WHERE s.status = com.mirai.inventoryservice.models.enums.ShipmentStatus.PENDING " +
+            "AND s.trackingId IS NOT NULL AND s.trackingId <> '' " +
+            "AND (s.carrierStatus IS NULL " +
+            "     OR s.carrierStatus NOT IN (com.mirai.inventoryservice.models.enums.CarrierStatus.DELIVERED, com.mirai.inventoryservice.models.enums.CarrierStatus.FAILED)) " +
+            "AND (s.trackingPolledAt IS NULL OR s.trackingPolledAt < :polledBefore)")
+    List<TrackedShipmentView> findOpenTrackedShipmentsDue(@Param("polledBefore") OffsetDateTime polledBefore);
+
+    @Modifying
+    @Query("UPDATE Shipment s SET s.trackingPolledAt = :at WHERE s.id IN :ids")
+    int markTrackingPolled(@Param("ids") Collection<UUID> ids, @Param("at") OffsetDateTime at);
+
+    /**
+     * Serializes tracking reconcile claims across instances until the end of the
+     * current transaction; false if another instance is claiming right now.
+     */
+    @Query(value = "SELECT pg_try_advisory_xact_lock(hashtext('shipment_tracking_reconcile'))", nativeQuery = true)
+    boolean tryLockTrackingReconcile();
+
     // AWAITING_RECEIPT: PENDING with no receipts and carrier_status = DELIVERED
     @Query(value = "SELECT s FROM Shipment s " +
             "LEFT JOIN FETCH s.createdBy " +
@@ -90,6 +90,54 @@ public interface StockMovementRepository extends JpaRepository<StockMovement, Lo
             @Param("reasons") List<StockMovementReason> reasons,
             org.springframework.data.domain.Pageable pageable);
 
+    /**
+     * Inventory change feed: quantity-changing movements after the (xid, id) cursor whose
+     * transaction is below {@code horizon}, in cursor order (V58). Kuji prize children
+     * are skipped because they have no location_inventory rows to patch (V39). Returns
+     * [id, xid, item_id, location_type, location_id, location quantity now, at]; the
+     * location quantity is read from location_inventory rather than the movement,
+     * because cursor order is not commit order. Range scan on idx_stock_movements_change_xid.
+     */
+    @Query(value = """
+        SELECT sm.id,
+               CAST(CAST(sm.change_xid AS text) AS bigint),
+               sm.item_id,
+               sm.location_type,
+               loc.location_id,
+               COALESCE(li.quantity, 0),
+               sm.at
+        FROM stock_movements sm
+        CROSS JOIN LATERAL (
+            SELECT CASE WHEN sm.quantity_change < 0
+                        THEN COALESCE(sm.from_location_id, sm.to_location_id)
+                        ELSE COALESCE(sm.to_location_id, sm.from_location_id)
+                   END AS location_id
+        ) loc
+        JOIN products p ON p.id = sm.item_id
+        LEFT JOIN products parent ON parent.id = p.parent_id
+        LEFT JOIN location_inventory li
+               ON li.location_id = loc.location_id AND li.product_id = sm.item_id
+        WHERE sm.change_xid IS NOT NULL
+          AND (sm.change_xid, sm.id) > (CAST(CAST(:afterXid AS text) AS xid8), :afterId)
+          AND sm.change_xid < CAST(CAST(:horizon AS text) AS xid8)
+          AND sm.quantity_change <> 0
+          AND parent.kuji_type IS NULL
+        ORDER BY sm.change_xid, sm.id
+        LIMIT :limit
+        """, nativeQuery = true)
+    List<Object[]> findChangesAfter(@Param("afterXid") long afterXid,
+                                    @Param("afterId") long afterId,
+                                    @Param("horizon") long horizon,
+                                    @Param("limit") int limit);
+
+    /**
+     * Oldest transaction id still running, or the next one to be assigned if none is.
+     * Every transaction below it has finished, so its movements are final.
+     */
+    @Query(value = "SELECT CAST(CAST(pg_snapshot_xmin(pg_current_snapshot()) AS text) AS bigint)",
+            nativeQuery = true)
+    long findChangeHorizon();
+
     /**
      * Aggregate sales movements by item and date for rollup computation.
      * Does the aggregation in SQL to avoid loading all entities into memory.
@@ -121,33 +169,31 @@ public interface StockMovementRepository extends JpaRepository<StockMovement, Lo
      * carry quantity_change = 0). Value is slip count multiplied by the per-slip price,
      * preferring the snapshot stamped into metadata at draw time (metadata.unit_value)
      * and falling back to the live tier.price → linked-product.msrp join for legacy
-     * rows. Reversals subtract on the day the reversal occurred. Returns rows only for
-     * days with activity; the service pads zeros for the dense series.
+     * rows. Reversals subtract on the day the reversal occurred; older reversals that
+     * did not record slip_quantity take it from the movement they reversed. Returns rows
+     * only for days with activity; the service pads zeros for the dense series.
      * Columns: bucket_date (date), slip_count (int), value_won (numeric).
      */
     @Query(value = """
         SELECT
             (sm.at AT TIME ZONE :tz)::date AS bucket_date,
             SUM(
-                CASE
-                    WHEN sm.reason = 'KUJI_PRIZE_WON'     THEN COALESCE((sm.metadata->>'slip_quantity')::int, 0)
-                    WHEN sm.reason = 'KUJI_DRAW_REVERSED' THEN -COALESCE((sm.metadata->>'slip_quantity')::int, 0)
-                    ELSE 0
-                END
+                CASE WHEN sm.reason = 'KUJI_PRIZE_WON' THEN 1 ELSE -1 END
+                    * COALESCE((sm.metadata->>'slip_quantity')::int,
+                               (orig.metadata->>'slip_quantity')::int, 0)
             ) AS slip_count,
             SUM(
-                CASE
-                    WHEN sm.reason = 'KUJI_PRIZE_WON'
-                        THEN COALESCE((sm.metadata->>'slip_quantity')::int, 0)
-                            * COALESCE((sm.metadata->>'unit_value')::numeric, t.price, p.msrp, 0)
-                    WHEN sm.reason = 'KUJI_DRAW_REVERSED'
-                        THEN -COALESCE((sm.metadata->>'slip_quantity')::int, 0)
-                            * COALESCE((sm.metadata->>'unit_value')::numeric, t.price, p.msrp, 0)
-                    ELSE 0
-                END
+                CASE WHEN sm.reason = 'KUJI_PRIZE_WON' THEN 1 ELSE -1 END
+                    * COALESCE((sm.metadata->>'slip_quantity')::int,
+                               (orig.metadata->>'slip_quantity')::int, 0)
+                    * COALESCE((sm.metadata->>'unit_value')::numeric, t.price, p.msrp, 0)
             ) AS value_won
         FROM stock_movements sm
-        LEFT JOIN kuji_box_tiers t ON t.id = (sm.metadata->>'kuji_box_tier_id')::uuid
+        LEFT JOIN stock_movements orig
+               ON sm.reason = 'KUJI_DRAW_REVERSED'
+              AND orig.id = CAST(NULLIF(sm.metadata->>'reverses_movement_id', 'null') AS bigint)
+        LEFT JOIN kuji_box_tiers t
+               ON t.id = COALESCE(sm.metadata->>'kuji_box_tier_id', orig.metadata->>'kuji_box_tier_id')::uuid
         LEFT JOIN products p ON p.id = t.linked_product_id
         WHERE sm.reason IN ('KUJI_PRIZE_WON', 'KUJI_DRAW_REVERSED')
           AND (sm.metadata->>'kuji_box_id')::uuid = :boxId
@@ -2,11 +2,74 @@ package com.mirai.inventoryservice.repositories;
 
 import com.mirai.inventoryservice.models.audit.WebhookEvent;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface WebhookEventRepository extends JpaRepository<WebhookEvent, UUID> {
     boolean existsByEventIdAndSource(String eventId, String source);
+
+    /**
+     * Queue a webhook event, relying on uk_webhook_event_id for dedupe.
+     * Returns 1 when the event was new, 0 when it was a redelivery.
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO webhook_events (id, event_id, event_type, source, payload, tracker_id, status, attempts, received_at)
+        VALUES (gen_random_uuid(), :eventId, :eventType, :source, CAST(:payload AS jsonb), :trackerId,
+                'PENDING', 0, clock_timestamp())
+        ON CONFLICT (event_id, source) DO NOTHING
+        """, nativeQuery = true)
+    int insertIfAbsent(@Param("eventId") String eventId,
+                       @Param("eventType") String eventType,
+                       @Param("source") String source,
+                       @Param("payload") String payload,
+                       @Param("trackerId") String trackerId);
+
+    /**
+     * Lock up to {@code limit} claimable events, oldest first. An event is claimable when
+     * no earlier event of the same tracker is still pending or in flight, so a tracker's
+     * updates run one at a time in received order, on any instance, and a retried event
+     * stays ahead of newer ones. SKIP LOCKED lets instances polling together claim
+     * disjoint rows. Must run in the transaction that then claims the ids.
+     */
+    @Query(value = """
+        SELECT e.id FROM webhook_events e
+        WHERE e.status = 'PENDING'
+          AND NOT EXISTS (
+              SELECT 1 FROM webhook_events earlier
+              WHERE earlier.tracker_id = e.tracker_id
+                AND earlier.status IN ('PENDING', 'PROCESSING')
+                AND (earlier.received_at, earlier.id) < (e.received_at, e.id))
+        ORDER BY e.received_at
+        LIMIT :limit
+        FOR UPDATE OF e SKIP LOCKED
+        """, nativeQuery = true)
+    List<UUID> lockClaimableIds(@Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE WebhookEvent e SET e.status = com.mirai.inventoryservice.models.enums.WebhookEventStatus.PROCESSING, " +
+            "e.claimedAt = :claimedAt " +
+            "WHERE e.id IN :ids AND e.status = com.mirai.inventoryservice.models.enums.WebhookEventStatus.PENDING")
+    int claim(@Param("ids") Collection<UUID> ids, @Param("claimedAt") OffsetDateTime claimedAt);
+
+    List<WebhookEvent> findByIdInOrderByReceivedAtAsc(Collection<UUID> ids);
+
+    /**
+     * Return events whose claim lease has run out to the queue: their worker died or
+     * was shut down mid-event.
+     */
+    @Modifying
+    @Query("UPDATE WebhookEvent e SET e.status = com.mirai.inventoryservice.models.enums.WebhookEventStatus.PENDING, " +
+            "e.claimedAt = NULL " +
+            "WHERE e.status = com.mirai.inventoryservice.models.enums.WebhookEventStatus.PROCESSING " +
+            "AND e.claimedAt < :cutoff")
+    int requeueClaimedBefore(@Param("cutoff") OffsetDateTime cutoff);
 }
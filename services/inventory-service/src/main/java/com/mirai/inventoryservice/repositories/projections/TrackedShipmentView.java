@@ -0,0 +1,12 @@
+package com.mirai.inventoryservice.repositories.projections;
+
+import java.util.UUID;
+
+/**
+ * Shipment id and tracking number for the carrier reconciler, which only needs
+ * the codes to poll and the ids to apply results to.
+ */
+public interface TrackedShipmentView {
+    UUID getId();
+    String getTrackingId();
+}
@@ -1,6 +1,7 @@
 package com.mirai.inventoryservice.services;
 
 import com.mirai.inventoryservice.dtos.responses.AdminCoinActivityDTO;
+import com.mirai.inventoryservice.dtos.responses.CoinDailyFlowDTO;
 import com.mirai.inventoryservice.dtos.responses.CoinStatsResponseDTO;
 import com.mirai.inventoryservice.dtos.responses.PlayerCoinRowDTO;
 import jakarta.persistence.EntityManager;
@@ -19,88 +20,49 @@ import java.util.UUID;
 
 /**
  * Read-only aggregate queries that back the admin Coins-tab dashboard:
- * top-of-screen KPIs, the player-balances table, and the cross-user recent
- * activity feed.
+ * top-of-screen KPIs, the daily issuance chart, the player-balances table, and
+ * the cross-user recent activity feed.
  *
- * Per-user balance is derived (no materialized table) using the same formula as
- * LootboxService.computeBalance — MAX(0, earned − MAX(spent, expired)). These
- * queries scale that formula across all users in a single round trip via
- * grouped sub-aggregates joined to `users`. See V44__coin_time_axis_indexes.sql
- * for the time-axis indexes the activity feed relies on.
- *
- * If user count grows beyond a few hundred, replace the derived per-user balance
- * with a materialized `coin_balances` table refreshed on every adjust/play/credit
- * + a daily expiry-decrement job. Until then, derived is cheaper to maintain.
+ * KPIs and the chart read the counters kept by triggers on the ledger writes
+ * (coin_economy_totals, coin_daily_flows — see V56); per-user balances come from
+ * coin_wallets (V54). None of these queries scan play or credit history, so their
+ * cost does not grow with it. Balances are as of the last coin-wallet expiry sweep
+ * (CoinWalletMaintenance.sweepExpired), so coins that lapsed since then still count
+ * until it runs. See V44__coin_time_axis_indexes.sql for the time-axis indexes the
+ * activity feed relies on.
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class CoinAdminDashboardService {
 
+    /** Longest issuance chart served, in days. */
+    static final int MAX_FLOW_DAYS = 366;
+
     @PersistenceContext
     private EntityManager em;
 
     /**
-     * Three top-of-screen KPIs. `circulation` and `holders` come from the same
-     * grouped balance query; `granted7d` is a separate two-source SUM (positive
-     * admin grants + review credits in the last 7 days, excluding spend).
+     * Three top-of-screen KPIs. `circulation` and `holders` sum the striped
+     * economy totals; `granted7d` sums the last 7 days of daily flows.
      */
     @Transactional(readOnly = true)
     public CoinStatsResponseDTO getStats() {
-        LocalDate today = LocalDate.now();
-        OffsetDateTime now = OffsetDateTime.now();
-        OffsetDateTime sevenDaysAgo = now.minusDays(7);
-        LocalDate sevenDaysAgoDate = today.minusDays(7);
+        LocalDate sevenDaysAgo = LocalDate.now().minusDays(7);
 
         Object[] circRow = (Object[]) em.createNativeQuery("""
-                WITH per_user AS (
-                  SELECT
-                    u.id AS user_id,
-                    COALESCE(rdc.s, 0) + COALESCE(adj.s, 0) AS earned,
-                    COALESCE(rdc_exp.s, 0) + COALESCE(adj_exp.s, 0) AS expired,
-                    COALESCE(plays.s, 0) AS spent
-                  FROM users u
-                  LEFT JOIN (SELECT user_id, SUM(coins_awarded) AS s
-                             FROM review_daily_counts GROUP BY user_id) rdc
-                    ON rdc.user_id = u.id
-                  LEFT JOIN (SELECT user_id, SUM(coins_awarded) AS s
-                             FROM review_daily_counts
-                             WHERE expires_at <= :today
-                             GROUP BY user_id) rdc_exp
-                    ON rdc_exp.user_id = u.id
-                  LEFT JOIN (SELECT user_id, SUM(delta) AS s
-                             FROM coin_adjustments GROUP BY user_id) adj
-                    ON adj.user_id = u.id
-                  LEFT JOIN (SELECT user_id, SUM(delta) AS s
-                             FROM coin_adjustments
-                             WHERE expires_at <= :now
-                             GROUP BY user_id) adj_exp
-                    ON adj_exp.user_id = u.id
-                  LEFT JOIN (SELECT user_id, SUM(cost) AS s
-                             FROM lootbox_plays GROUP BY user_id) plays
-                    ON plays.user_id = u.id
-                )
-                SELECT
-                  COALESCE(SUM(GREATEST(0, earned - GREATEST(spent, expired))), 0) AS circulation,
-                  COUNT(*) FILTER (WHERE GREATEST(0, earned - GREATEST(spent, expired)) > 0) AS holders
-                FROM per_user
+                SELECT COALESCE(SUM(circulation), 0), COALESCE(SUM(holders), 0)
+                FROM coin_economy_totals
                 """)
-                .setParameter("today", today)
-                .setParameter("now", now)
                 .getSingleResult();
 
         long circulation = ((Number) circRow[0]).longValue();
         int holders = ((Number) circRow[1]).intValue();
 
         Object grantedRow = em.createNativeQuery("""
-                SELECT
-                  COALESCE((SELECT SUM(delta) FROM coin_adjustments
-                            WHERE delta > 0 AND created_at >= :since), 0)
-                  + COALESCE((SELECT SUM(coins_awarded) FROM review_daily_counts
-                              WHERE date >= :sinceDate), 0) AS granted
+                SELECT COALESCE(SUM(granted), 0) FROM coin_daily_flows WHERE day >= :since
                 """)
                 .setParameter("since", sevenDaysAgo)
-                .setParameter("sinceDate", sevenDaysAgoDate)
                 .getSingleResult();
 
         long granted7d = ((Number) grantedRow).longValue();
@@ -113,89 +75,97 @@ public class CoinAdminDashboardService {
     }
 
     /**
-     * Player rows: one per user who has ever participated in the coin economy
-     * (has any earning, spend, or adjustment row). Sorted by balance desc, then
-     * name asc as a stable tiebreaker. `lastChange*` describes the most recent
-     * coin movement of any kind.
-     *
-     * `search`, `limit`, `offset` are accepted but only `limit`/`offset` are
-     * honored today — search filters client-side (employee count is bounded by
-     * org size, ~tens). When user count crosses ~300, switch on the WHERE clause
-     * below; the contract doesn't change.
+     * Coins granted and spent per day over the last `days` days (today included),
+     * oldest first. Days without any movement are returned as zeros so the chart
+     * has no gaps.
      */
     @Transactional(readOnly = true)
-    public List<PlayerCoinRowDTO> getPlayers(String search, Integer limit, Integer offset) {
+    public List<CoinDailyFlowDTO> getDailyFlows(int days) {
+        int span = Math.max(1, Math.min(days, MAX_FLOW_DAYS));
         LocalDate today = LocalDate.now();
-        OffsetDateTime now = OffsetDateTime.now();
 
-        StringBuilder sql = new StringBuilder("""
-                WITH per_user AS (
-                  SELECT
-                    u.id        AS user_id,
-                    u.full_name AS full_name,
-                    u.email     AS email,
-                    COALESCE(rdc.s, 0) + COALESCE(adj.s, 0) AS earned,
-                    COALESCE(rdc_exp.s, 0) + COALESCE(adj_exp.s, 0) AS expired,
-                    COALESCE(plays.s, 0) AS spent,
-                    (rdc.s IS NOT NULL OR adj.s IS NOT NULL OR plays.s IS NOT NULL) AS has_history
-                  FROM users u
-                  LEFT JOIN (SELECT user_id, SUM(coins_awarded) AS s
-                             FROM review_daily_counts GROUP BY user_id) rdc
-                    ON rdc.user_id = u.id
-                  LEFT JOIN (SELECT user_id, SUM(coins_awarded) AS s
-                             FROM review_daily_counts
-                             WHERE expires_at <= :today
-                             GROUP BY user_id) rdc_exp
-                    ON rdc_exp.user_id = u.id
-                  LEFT JOIN (SELECT user_id, SUM(delta) AS s
-                             FROM coin_adjustments GROUP BY user_id) adj
-                    ON adj.user_id = u.id
-                  LEFT JOIN (SELECT user_id, SUM(delta) AS s
-                             FROM coin_adjustments
-                             WHERE expires_at <= :now
-                             GROUP BY user_id) adj_exp
-                    ON adj_exp.user_id = u.id
-                  LEFT JOIN (SELECT user_id, SUM(cost) AS s
-                             FROM lootbox_plays GROUP BY user_id) plays
-                    ON plays.user_id = u.id
-                ),
-                last_change AS (
-                  SELECT DISTINCT ON (user_id) user_id, delta, at
-                  FROM (
-                    SELECT user_id, delta, created_at AS at FROM coin_adjustments
-                    UNION ALL
-                    SELECT user_id, -cost AS delta, played_at AS at FROM lootbox_plays
-                    UNION ALL
-                    SELECT user_id, coins_awarded AS delta,
-                           date::timestamptz AS at
-                      FROM review_daily_counts WHERE coins_awarded > 0
-                  ) ev
-                  ORDER BY user_id, at DESC
-                )
-                SELECT pu.user_id, pu.full_name, pu.email,
-                  GREATEST(0, pu.earned - GREATEST(pu.spent, pu.expired)) AS balance,
-                  lc.delta AS last_change_delta,
-                  lc.at    AS last_change_at
-                FROM per_user pu
-                LEFT JOIN last_change lc ON lc.user_id = pu.user_id
-                WHERE pu.has_history
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = em.createNativeQuery("""
+                SELECT d.day::date,
+                       COALESCE(SUM(f.granted), 0),
+                       COALESCE(SUM(f.spent), 0)
+                FROM generate_series(CAST(:since AS date), CAST(:today AS date), INTERVAL '1 day') AS d(day)
+                LEFT JOIN coin_daily_flows f ON f.day = d.day::date
+                GROUP BY d.day
+                ORDER BY d.day
+                """)
+                .setParameter("since", today.minusDays(span - 1L))
+                .setParameter("today", today)
+                .getResultList();
+
+        List<CoinDailyFlowDTO> out = new ArrayList<>(rows.size());
+        for (Object[] r : rows) {
+            out.add(CoinDailyFlowDTO.builder()
+                    .day(toLocalDate(r[0]))
+                    .granted(((Number) r[1]).longValue())
+                    .spent(((Number) r[2]).longValue())
+                    .build());
+        }
+        return out;
+    }
+
+    /**
+     * Player rows: one per user who has a coin wallet, i.e. has ever participated
+     * in the coin economy. Sorted by balance desc, then name asc as a stable
+     * tiebreaker. `lastChange*` describes the most recent coin movement of any
+     * kind, looked up only for the rows on the requested page (one indexed
+     * probe per ledger each).
+     *
+     * `search`, `limit`, `offset` are all optional.
+     */
+    @Transactional(readOnly = true)
+    public List<PlayerCoinRowDTO> getPlayers(String search, Integer limit, Integer offset) {
+        StringBuilder page = new StringBuilder("""
+                SELECT w.user_id, u.full_name, u.email, w.balance
+                FROM coin_wallets w
+                JOIN users u ON u.id = w.user_id
                 """);
 
         boolean hasSearch = search != null && !search.isBlank();
         if (hasSearch) {
-            sql.append(" AND (LOWER(pu.full_name) LIKE :q OR LOWER(pu.email) LIKE :q)");
+            page.append(" WHERE (LOWER(u.full_name) LIKE :q OR LOWER(u.email) LIKE :q)");
         }
-        sql.append(" ORDER BY balance DESC, pu.full_name ASC");
+        page.append(" ORDER BY w.balance DESC, u.full_name ASC");
         if (limit != null && limit > 0) {
-            sql.append(" LIMIT :lim");
+            page.append(" LIMIT :lim");
         }
         if (offset != null && offset > 0) {
-            sql.append(" OFFSET :off");
+            page.append(" OFFSET :off");
         }
 
-        var query = em.createNativeQuery(sql.toString())
-                .setParameter("today", today)
-                .setParameter("now", now);
+        String sql = """
+                SELECT pg.user_id, pg.full_name, pg.email, pg.balance,
+                  lc.delta AS last_change_delta,
+                  lc.at    AS last_change_at
+                FROM (%s) pg
+                LEFT JOIN LATERAL (
+                  SELECT ev.delta, ev.at
+                  FROM (
+                    ( SELECT delta, created_at AS at FROM coin_adjustments
+                      WHERE user_id = pg.user_id
+                      ORDER BY created_at DESC LIMIT 1 )
+                    UNION ALL
+                    ( SELECT -cost AS delta, played_at AS at FROM lootbox_plays
+                      WHERE user_id = pg.user_id
+                      ORDER BY played_at DESC LIMIT 1 )
+                    UNION ALL
+                    ( SELECT coins_awarded AS delta, date::timestamptz AS at
+                      FROM review_daily_counts
+                      WHERE user_id = pg.user_id AND coins_awarded > 0
+                      ORDER BY expires_at DESC LIMIT 1 )
+                  ) ev
+                  ORDER BY ev.at DESC
+                  LIMIT 1
+                ) lc ON true
+                ORDER BY pg.balance DESC, pg.full_name ASC
+                """.formatted(page);
+
+        var query = em.createNativeQuery(sql);
         if (hasSearch) {
             query.setParameter("q", "%" + search.toLowerCase() + "%");
         }
@@ -282,6 +252,12 @@ public class CoinAdminDashboardService {
         return out;
     }
 
+    private static LocalDate toLocalDate(Object value) {
+        if (value instanceof LocalDate date) return date;
+        if (value instanceof java.sql.Date date) return date.toLocalDate();
+        throw new IllegalStateException("Unexpected date type: " + value.getClass());
+    }
+
     private static OffsetDateTime toOffsetDateTime(Object value) {
         if (value instanceof OffsetDateTime odt) return odt;
         if (value instanceof java.sql.Timestamp ts) {
@@ -0,0 +1,97 @@
+package com.mirai.inventoryservice.services;
+
+import com.mirai.inventoryservice.models.lootbox.CoinWallet;
+import com.mirai.inventoryservice.repositories.CoinWalletRepository;
+import com.mirai.inventoryservice.services.LootboxService.BalanceBreakdown;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Coin balances from the coin_wallets running totals (see V54).
+ *
+ * Earned and spent totals are kept exact by triggers on the ledger tables. Expiry is
+ * time-driven, so CoinWalletMaintenance rolls lapsed credits into {@code expired} on a
+ * schedule, one wallet per {@link #sweepWallet} call, and a read that lands between a
+ * credit lapsing and the next sweep adds the pending amount itself with one indexed
+ * range query. The same job periodically checks every wallet against the full formula
+ * and rebuilds any that drifted ({@link #rebuildWallet}).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CoinWalletService {
+
+    private final CoinWalletRepository coinWalletRepository;
+
+    /**
+     * Balance formula with 90-day expiry support:
+     *
+     *   balance = MAX(0, total_earned - MAX(total_spent, total_expired))
+     *
+     * Why MAX(spent, expired): spending and expiry both consume earnings, but the same
+     * earning can only be consumed once. Whichever is larger dictates how much is gone;
+     * the remainder is still spendable. This makes fresh earnings spendable even after
+     * old coins lapsed unspent — solves the "phantom debt" trap a naive subtraction has.
+     */
+    @Transactional(readOnly = true)
+    public BalanceBreakdown balance(UUID userId) {
+        return balance(userId, LocalDate.now(), OffsetDateTime.now());
+    }
+
+    BalanceBreakdown balance(UUID userId, LocalDate today, OffsetDateTime now) {
+        CoinWallet wallet = coinWalletRepository.findById(userId).orElse(null);
+        if (wallet == null) {
+            // No wallet means the user never earned or spent anything
+            return toBreakdown(0, 0, 0, 0);
+        }
+
+        long expired = wallet.getExpired();
+        if (hasUnsweptExpiry(wallet, today, now)) {
+            Object[] lapsed = coinWalletRepository.sumLapsedSince(userId,
+                    wallet.getReviewsExpiredThrough(), today,
+                    wallet.getAdjustmentsExpiredThrough(), now).get(0);
+            expired += ((Number) lapsed[0]).longValue() + ((Number) lapsed[1]).longValue();
+        }
+        return toBreakdown(wallet.getReviewCredits(), wallet.getAdjustments(), wallet.getSpent(), expired);
+    }
+
+    static boolean hasUnsweptExpiry(CoinWallet wallet, LocalDate today, OffsetDateTime now) {
+        return (wallet.getNextReviewExpiry() != null && !wallet.getNextReviewExpiry().isAfter(today))
+                || (wallet.getNextAdjustmentExpiry() != null && !wallet.getNextAdjustmentExpiry().isAfter(now));
+    }
+
+    static BalanceBreakdown toBreakdown(long reviewCredits, long adjustments, long spent, long expired) {
+        long earned = reviewCredits + adjustments;
+        long balance = Math.max(0L, earned - Math.max(spent, expired));
+        return new BalanceBreakdown(balance, reviewCredits, adjustments, spent, expired);
+    }
+
+    /**
+     * Roll one wallet's lapsed credits into {@code expired}, in its own transaction.
+     * Each sweep locks a single wallet and then its economy stripe (V56), the same order
+     * a play or credit takes them, so sweeps cannot deadlock with ledger writes.
+     *
+     * @return whether the wallet had anything due
+     */
+    @Transactional
+    public boolean sweepWallet(UUID userId, LocalDate today, OffsetDateTime now) {
+        return coinWalletRepository.sweepWallet(userId, today, now) > 0;
+    }
+
+    /**
+     * Recompute one wallet from the full formula, in its own transaction. The wallet row
+     * is locked before it is rebuilt, so a ledger write racing the rebuild either lands
+     * before it (and is counted) or waits for it (and is applied on top by its trigger).
+     */
+    @Transactional
+    public void rebuildWallet(UUID userId, LocalDate today, OffsetDateTime now) {
+        coinWalletRepository.findByIdForUpdate(userId);
+        coinWalletRepository.rebuild(userId, today, now);
+    }
+}
@@ -0,0 +1,57 @@
+package com.mirai.inventoryservice.services;
+
+import com.mirai.inventoryservice.config.CacheConfig;
+import com.mirai.inventoryservice.dtos.easypost.EasyPostTrackerResult;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * In-process cache of EasyPost trackers keyed by tracking code.
+ *
+ * Filled from API responses in {@link TrackingService} and kept current by
+ * {@link EasyPostWebhookService} tracker events, so repeat lookups for a shipment
+ * list never leave the JVM. Expiry policy lives in {@link CacheConfig}.
+ */
+@Component
+public class EasyPostTrackerCache {
+
+    private final Cache cache;
+
+    public EasyPostTrackerCache(CacheManager cacheManager) {
+        this.cache = cacheManager.getCache(CacheConfig.EASYPOST_TRACKER_CACHE);
+    }
+
+    /**
+     * Return the cached tracker or load it. Concurrent misses for the same code share
+     * one load, so a burst of badge renders makes at most one EasyPost call per code.
+     * Exceptions thrown by the loader propagate unwrapped and nothing is cached.
+     */
+    public EasyPostTrackerResult getOrLoad(String trackingCode, Supplier<EasyPostTrackerResult> loader) {
+        String key = normalize(trackingCode);
+        try {
+            return cache.get(key, loader::get);
+        } catch (Cache.ValueRetrievalException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Store the latest tracker state, e.g. from a webhook.
+     */
+    public void put(EasyPostTrackerResult tracker) {
+        if (tracker == null || tracker.getTrackingCode() == null) {
+            return;
+        }
+        cache.put(normalize(tracker.getTrackingCode()), tracker);
+    }
+
+    private static String normalize(String trackingCode) {
+        return trackingCode.trim();
+    }
+}
@@ -8,9 +8,11 @@ import com.mirai.inventoryservice.models.audit.WebhookEvent;
 import com.mirai.inventoryservice.models.enums.CarrierStatus;
 import com.mirai.inventoryservice.models.enums.NotificationSeverity;
 import com.mirai.inventoryservice.models.enums.NotificationType;
+import com.mirai.inventoryservice.models.enums.WebhookEventStatus;
 import com.mirai.inventoryservice.models.shipment.Shipment;
 import com.mirai.inventoryservice.repositories.ShipmentRepository;
 import com.mirai.inventoryservice.repositories.WebhookEventRepository;
+import com.mirai.inventoryservice.repositories.projections.TrackedShipmentView;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -20,22 +22,30 @@ import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 public class EasyPostWebhookService {
 
+    private static final String SOURCE = "easypost";
+    private static final int MAX_PROCESS_ATTEMPTS = 5;
+
     private final ShipmentRepository shipmentRepository;
     private final WebhookEventRepository webhookEventRepository;
     private final NotificationService notificationService;
     private final SupabaseBroadcastService broadcastService;
+    private final EasyPostTrackerCache trackerCache;
     private final ObjectMapper objectMapper;
 
     @Value("${easypost.webhook.secret:}")
@@ -46,11 +56,13 @@ public class EasyPostWebhookService {
             WebhookEventRepository webhookEventRepository,
             NotificationService notificationService,
             SupabaseBroadcastService broadcastService,
+            EasyPostTrackerCache trackerCache,
             ObjectMapper objectMapper) {
         this.shipmentRepository = shipmentRepository;
         this.webhookEventRepository = webhookEventRepository;
         this.notificationService = notificationService;
         this.broadcastService = broadcastService;
+        this.trackerCache = trackerCache;
         this.objectMapper = objectMapper;
     }
 
@@ -86,29 +98,88 @@ public class EasyPostWebhookService {
     }
 
     /**
-     * Process a webhook event idempotently
+     * Queue a webhook event for asynchronous processing.
+     * Redeliveries hit the unique (event_id, source) constraint and are dropped by the insert
+     * itself, so concurrent deliveries of the same event cannot both be queued.
+     *
+     * @return true if the event was new
      */
     @Transactional
-    @SuppressWarnings("unchecked")
-    public void processWebhook(EasyPostWebhookPayload webhook) {
-        String eventId = webhook.getId();
+    public boolean enqueue(EasyPostWebhookPayload webhook, String rawPayload) {
+        String eventType = webhook.getDescription() != null ? webhook.getDescription() : "unknown";
+        String trackerId = webhook.getResult() != null ? webhook.getResult().getId() : null;
+        return webhookEventRepository.insertIfAbsent(
+                webhook.getId(), eventType, SOURCE, rawPayload, trackerId) > 0;
+    }
+
+    /**
+     * Claim up to {@code limit} pending events, oldest first, by moving them to PROCESSING.
+     * Only each tracker's oldest unfinished event is claimable, and rows are locked with
+     * SKIP LOCKED, so concurrent instances never claim the same event and never run two
+     * events of one tracker at once.
+     */
+    @Transactional
+    public List<WebhookEvent> claimPendingEvents(int limit) {
+        List<UUID> ids = webhookEventRepository.lockClaimableIds(limit);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        webhookEventRepository.claim(ids, OffsetDateTime.now());
+        return webhookEventRepository.findByIdInOrderByReceivedAtAsc(ids);
+    }
+
+    /**
+     * Return events whose claim is older than {@code lease} to the queue. A live worker
+     * finishes well within the lease, so only events of a dead or stopped instance move.
+     */
+    @Transactional
+    public int requeueExpiredClaims(Duration lease) {
+        return webhookEventRepository.requeueClaimedBefore(OffsetDateTime.now().minus(lease));
+    }
 
-        // Idempotency check
-        if (webhookEventRepository.existsByEventIdAndSource(eventId, "easypost")) {
-            log.info("Webhook event {} already processed, skipping", eventId);
+    /**
+     * Process a claimed event and mark it PROCESSED in the same transaction.
+     */
+    @Transactional
+    public void processQueuedEvent(UUID eventId) {
+        WebhookEvent event = webhookEventRepository.findById(eventId).orElse(null);
+        if (event == null || event.getStatus() != WebhookEventStatus.PROCESSING) {
             return;
         }
 
-        // Record event for idempotency
-        WebhookEvent event = WebhookEvent.builder()
-                .eventId(eventId)
-                .eventType(webhook.getDescription())
-                .source("easypost")
-                .payload(objectMapper.convertValue(webhook, Map.class))
-                .build();
+        processWebhook(objectMapper.convertValue(event.getPayload(), EasyPostWebhookPayload.class));
+
+        event.setStatus(WebhookEventStatus.PROCESSED);
+        event.setProcessedAt(OffsetDateTime.now());
         webhookEventRepository.save(event);
+    }
 
-        // Route based on event type
+    /**
+     * Record a processing failure. The event is retried on a later poll until
+     * MAX_PROCESS_ATTEMPTS is reached, then parked as FAILED.
+     */
+    @Transactional
+    public void recordProcessingFailure(UUID eventId, String errorMessage) {
+        webhookEventRepository.findById(eventId).ifPresent(event -> {
+            event.setAttempts(event.getAttempts() + 1);
+            event.setLastError(errorMessage);
+            if (event.getAttempts() >= MAX_PROCESS_ATTEMPTS) {
+                event.setStatus(WebhookEventStatus.FAILED);
+                log.error("Webhook event {} failed after {} attempts: {}",
+                        event.getEventId(), event.getAttempts(), errorMessage);
+            } else {
+                // Keeps its received_at, so it is retried before the tracker's newer events
+                event.setStatus(WebhookEventStatus.PENDING);
+                event.setClaimedAt(null);
+            }
+            webhookEventRepository.save(event);
+        });
+    }
+
+    /**
+     * Route a webhook event to its handler.
+     */
+    public void processWebhook(EasyPostWebhookPayload webhook) {
         String eventType = webhook.getDescription();
         if ("tracker.created".equals(eventType) || "tracker.updated".equals(eventType)) {
             processTrackerEvent(webhook.getResult());
@@ -127,6 +198,9 @@ public class EasyPostWebhookService {
             return;
         }
 
+        // Webhook payloads are the freshest view of a tracker; refresh lookups from them
+        trackerCache.put(tracker);
+
         String trackerId = tracker.getId();
         String trackingCode = tracker.getTrackingCode();
         String easyPostStatus = tracker.getStatus();
@@ -145,13 +219,103 @@ public class EasyPostWebhookService {
             return;
         }
 
-        Shipment shipment = shipmentOpt.get();
+        CarrierTransition transition = applyTracker(shipmentOpt.get(), tracker);
+        if (transition == null) {
+            return;
+        }
+
+        Shipment shipment = transition.shipment();
+        shipmentRepository.save(shipment);
+
+        createTrackingNotification(shipment, transition.oldStatus(), transition.newStatus(), easyPostStatus);
+
+        broadcastService.broadcastShipmentUpdated(List.of(shipment.getId().toString()));
+
+        log.info("Updated shipment {} carrier_status: {} -> {} (EasyPost: {})",
+                shipment.getId(), transition.oldStatus(), transition.newStatus(), easyPostStatus);
+    }
+
+    /**
+     * Claim the open tracked shipments no reconcile run has polled within
+     * {@code interval}, and stamp them as polled now. Claims are serialized across
+     * instances by an advisory lock; an instance that does not get it claims nothing,
+     * since the holder is claiming the same shipments.
+     */
+    @Transactional
+    public List<TrackedShipmentView> claimShipmentsToPoll(Duration interval) {
+        if (!shipmentRepository.tryLockTrackingReconcile()) {
+            return List.of();
+        }
+        OffsetDateTime now = OffsetDateTime.now();
+        List<TrackedShipmentView> due = shipmentRepository.findOpenTrackedShipmentsDue(now.minus(interval));
+        if (!due.isEmpty()) {
+            shipmentRepository.markTrackingPolled(due.stream().map(TrackedShipmentView::getId).toList(), now);
+        }
+        return due;
+    }
+
+    /**
+     * Apply polled tracker state to many shipments in one transaction.
+     * Uses the same transition rules as webhook events, but raises at most one
+     * notification per outcome and a single broadcast for the whole batch.
+     *
+     * @return number of shipments whose carrier status changed
+     */
+    @Transactional
+    public int applyPolledTrackers(Map<UUID, EasyPostTrackerResult> trackersByShipmentId) {
+        List<CarrierTransition> transitions = new ArrayList<>();
+        for (Shipment shipment : shipmentRepository.findAllById(trackersByShipmentId.keySet())) {
+            EasyPostTrackerResult tracker = trackersByShipmentId.get(shipment.getId());
+            trackerCache.put(tracker);
+            CarrierTransition transition = applyTracker(shipment, tracker);
+            if (transition != null) {
+                transitions.add(transition);
+            }
+        }
+
+        if (transitions.isEmpty()) {
+            return 0;
+        }
+
+        List<Shipment> changed = transitions.stream().map(CarrierTransition::shipment).toList();
+        shipmentRepository.saveAll(changed);
+
+        Map<CarrierStatus, List<CarrierTransition>> byOutcome = transitions.stream()
+                .collect(Collectors.groupingBy(CarrierTransition::newStatus));
+        for (List<CarrierTransition> group : byOutcome.values()) {
+            if (group.size() == 1) {
+                CarrierTransition t = group.get(0);
+                createTrackingNotification(t.shipment(), t.oldStatus(), t.newStatus(), t.easyPostStatus());
+            } else {
+                createBatchTrackingNotification(group);
+            }
+        }
+
+        broadcastService.broadcastShipmentUpdated(
+                changed.stream().map(shipment -> shipment.getId().toString()).toList());
+
+        return transitions.size();
+    }
+
+    /**
+     * Carrier status change applied to a shipment, kept for notification.
+     */
+    private record CarrierTransition(
+            Shipment shipment, CarrierStatus oldStatus, CarrierStatus newStatus, String easyPostStatus) {
+    }
+
+    /**
+     * Copy tracker state onto the shipment. Returns null, leaving the shipment untouched,
+     * when the carrier status has not changed.
+     */
+    private CarrierTransition applyTracker(Shipment shipment, EasyPostTrackerResult tracker) {
+        String easyPostStatus = tracker.getStatus();
         CarrierStatus newCarrierStatus = mapToCarrierStatus(easyPostStatus);
         CarrierStatus oldCarrierStatus = shipment.getCarrierStatus();
 
         if (oldCarrierStatus == newCarrierStatus) {
             log.debug("Shipment {} carrier status unchanged: {}", shipment.getId(), easyPostStatus);
-            return;
+            return null;
         }
 
         shipment.setCarrierStatus(newCarrierStatus);
@@ -161,7 +325,7 @@ public class EasyPostWebhookService {
         }
 
         if (shipment.getEasypostTrackerId() == null) {
-            shipment.setEasypostTrackerId(trackerId);
+            shipment.setEasypostTrackerId(tracker.getId());
         }
 
         if (tracker.getEstDeliveryDate() != null) {
@@ -173,14 +337,7 @@ public class EasyPostWebhookService {
             }
         }
 
-        shipmentRepository.save(shipment);
-
-        createTrackingNotification(shipment, oldCarrierStatus, newCarrierStatus, easyPostStatus);
-
-        broadcastService.broadcastShipmentUpdated(List.of(shipment.getId().toString()));
-
-        log.info("Updated shipment {} carrier_status: {} -> {} (EasyPost: {})",
-                shipment.getId(), oldCarrierStatus, newCarrierStatus, easyPostStatus);
+        return new CarrierTransition(shipment, oldCarrierStatus, newCarrierStatus, easyPostStatus);
     }
 
     /**
@@ -250,6 +407,54 @@ public class EasyPostWebhookService {
         notificationService.createNotification(notification);
     }
 
+    /**
+     * Summarize several carrier changes with the same outcome in one notification.
+     */
+    private void createBatchTrackingNotification(List<CarrierTransition> transitions) {
+        CarrierStatus outcome = transitions.get(0).newStatus();
+        List<String> shipmentNames = transitions.stream()
+                .map(t -> t.shipment().getShipmentNumber())
+                .toList();
+
+        NotificationType type;
+        NotificationSeverity severity;
+        String message;
+
+        if (outcome == CarrierStatus.DELIVERED) {
+            type = NotificationType.PACKAGE_ARRIVED;
+            severity = NotificationSeverity.INFO;
+            message = String.format(
+                    "%d packages have arrived (%s). Please verify and receive items.",
+                    transitions.size(), String.join(", ", shipmentNames));
+        } else if (outcome == CarrierStatus.FAILED) {
+            type = NotificationType.SHIPMENT_DELIVERY_FAILED;
+            severity = NotificationSeverity.WARNING;
+            message = String.format("%d shipment deliveries failed (%s)",
+                    transitions.size(), String.join(", ", shipmentNames));
+        } else {
+            return;
+        }
+
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("shipment_names", shipmentNames);
+        metadata.put("shipment_ids", transitions.stream()
+                .map(t -> t.shipment().getId().toString())
+                .toList());
+        metadata.put("new_carrier_status", outcome.name());
+        metadata.put("count", transitions.size());
+        metadata.put("category", "tracking");
+
+        Notification notification = Notification.builder()
+                .type(type)
+                .severity(severity)
+                .message(message)
+                .metadata(metadata)
+                .via(List.of("slack", "app"))
+                .build();
+
+        notificationService.createNotification(notification);
+    }
+
     private String bytesToHex(byte[] bytes) {
         StringBuilder sb = new StringBuilder();
         for (byte b : bytes) {
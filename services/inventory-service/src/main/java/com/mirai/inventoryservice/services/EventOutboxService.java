@@ -32,6 +32,7 @@ public class EventOutboxService {
     private final KafkaProducer kafkaProducer;
     private final StockMovementService stockMovementService;
     private final EventDeadLetterRepository eventDeadLetterRepository;
+    private final SupabaseBroadcastService broadcastService;
 
     @Value("${kafka.topic.inventory-changes:inventory-changes}")
     private String inventoryChangesTopic;
@@ -40,12 +41,14 @@ public class EventOutboxService {
             EventOutboxRepository eventOutboxRepository,
             KafkaProducer kafkaProducer,
             @Lazy StockMovementService stockMovementService,
-            EventDeadLetterRepository eventDeadLetterRepository)
+            EventDeadLetterRepository eventDeadLetterRepository,
+            SupabaseBroadcastService broadcastService)
     {
         this.eventOutboxRepository = eventOutboxRepository;
         this.kafkaProducer = kafkaProducer;
         this.stockMovementService = stockMovementService;
         this.eventDeadLetterRepository = eventDeadLetterRepository;
+        this.broadcastService = broadcastService;
     }
 
     /**
@@ -120,6 +123,11 @@ public class EventOutboxService {
         payload.put("previous_total_qty", previousTotal);
         payload.put("current_total_qty", currentTotal);
 
+        // Same numbers go to connected clients as a row-level delta (sent after commit)
+        if (movement.getQuantityChange() != 0) {
+            broadcastService.broadcastInventoryDelta(InventoryChangeService.toChange(movement, currentTotal));
+        }
+
         // Product config for threshold comparison
         payload.put("reorder_point", movement.getItem().getReorderPoint());
 
@@ -2,44 +2,183 @@ package com.mirai.inventoryservice.services;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mirai.inventoryservice.models.audit.IdempotencyRecord;
+import com.mirai.inventoryservice.models.enums.IdempotencyStatus;
+import com.mirai.inventoryservice.repositories.IdempotencyRecordRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Duration;
-import java.util.Optional;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Per-(user, key) idempotency cache. Single-replica deployment assumption — if you
- * scale horizontally, swap this for a Redis-backed implementation.
+ * Stored responses for requests carrying an {@code Idempotency-Key}, scoped per caller.
  *
- * The lootbox_plays table also has UNIQUE(user_id, idempotency_key) as a database-level
- * safety net for replays that miss the cache (e.g. after a restart within 5 minutes).
+ * The idempotency_keys table is the source of truth, so a retry that lands on another
+ * replica still sees the first attempt: a unique (scope, key) insert decides which request
+ * executes, and the others either replay its stored response or wait for it. Completed
+ * responses never change, so they are also kept in a local Caffeine cache and hot
+ * replays never touch the database.
+ *
+ * An executing request holds its key for {@code idempotency.lease-seconds}. Keys this
+ * replica still owns are renewed every {@code idempotency.heartbeat-ms} by
+ * {@link com.mirai.inventoryservice.jobs.IdempotencyLeaseHeartbeat}, so only a key whose
+ * replica died mid-request, and stopped renewing, can be taken over.
  */
+@Slf4j
 @Service
 public class IdempotencyService {
 
-    private static final Duration TTL = Duration.ofMinutes(5);
-    private static final long MAX_ENTRIES = 10_000;
+    public enum Outcome {
+        /** The caller owns the key and must execute the request. */
+        ACQUIRED,
+        /** A response is stored for this key and request. */
+        REPLAY,
+        /** Another request with this key is still executing. */
+        IN_PROGRESS,
+        /** The key was already used for a different request. */
+        MISMATCH
+    }
+
+    /** A response as it went out: status, content type and the raw body bytes. */
+    public record StoredResponse(int status, String contentType, byte[] body) {
+    }
+
+    public record Claim(Outcome outcome, UUID recordId, StoredResponse response) {
+        public static Claim of(Outcome outcome) {
+            return new Claim(outcome, null, null);
+        }
+    }
+
+    private record CachedResponse(String fingerprint, StoredResponse response) {
+    }
 
-    private final Cache<String, Object> cache = Caffeine.newBuilder()
-            .expireAfterWrite(TTL)
-            .maximumSize(MAX_ENTRIES)
-            .build();
+    private final IdempotencyRecordRepository repository;
+    private final Duration ttl;
+    private final Duration lease;
+    private final Cache<String, CachedResponse> cache;
+    /** Keys acquired by requests still executing on this replica. */
+    private final Set<UUID> owned = ConcurrentHashMap.newKeySet();
+
+    public IdempotencyService(
+            IdempotencyRecordRepository repository,
+            @Value("${idempotency.ttl-hours:24}") long ttlHours,
+            @Value("${idempotency.lease-seconds:120}") long leaseSeconds,
+            @Value("${idempotency.cache.ttl-minutes:10}") long cacheTtlMinutes,
+            @Value("${idempotency.cache.max-size:10000}") long cacheMaxSize) {
+        this.repository = repository;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMinutes(Math.min(cacheTtlMinutes, this.ttl.toMinutes())))
+                .maximumSize(cacheMaxSize)
+                .build();
+    }
+
+    /**
+     * Decide what to do with a request carrying {@code key}. The fingerprint identifies
+     * the request (method, path and body) so a reused key cannot replay an unrelated
+     * response.
+     */
+    @Transactional
+    public Claim claim(String scope, String key, String fingerprint) {
+        CachedResponse cached = cache.getIfPresent(cacheKey(scope, key));
+        if (cached != null) {
+            return cached.fingerprint().equals(fingerprint)
+                    ? new Claim(Outcome.REPLAY, null, cached.response())
+                    : Claim.of(Outcome.MISMATCH);
+        }
+
+        OffsetDateTime now = OffsetDateTime.now();
+        UUID id = UUID.randomUUID();
+        if (repository.insertIfAbsent(id, scope, key, fingerprint, now.plus(lease), now.plus(ttl)) == 1) {
+            owned.add(id);
+            return new Claim(Outcome.ACQUIRED, id, null);
+        }
+
+        IdempotencyRecord existing = repository.findByScopeAndIdempotencyKey(scope, key).orElse(null);
+        if (existing == null) {
+            // Purged between the insert and the read; the caller simply tries again
+            return Claim.of(Outcome.IN_PROGRESS);
+        }
+        boolean abandoned = existing.getExpiresAt().isBefore(now)
+                || (existing.getStatus() == IdempotencyStatus.IN_PROGRESS && existing.getLockedUntil().isBefore(now));
+        if (abandoned) {
+            int taken = repository.takeOver(existing.getId(), fingerprint, now.plus(lease), now.plus(ttl), now);
+            if (taken == 0) {
+                return Claim.of(Outcome.IN_PROGRESS);
+            }
+            owned.add(existing.getId());
+            return new Claim(Outcome.ACQUIRED, existing.getId(), null);
+        }
+        if (!existing.getRequestFingerprint().equals(fingerprint)) {
+            return Claim.of(Outcome.MISMATCH);
+        }
+        if (existing.getStatus() == IdempotencyStatus.IN_PROGRESS) {
+            return Claim.of(Outcome.IN_PROGRESS);
+        }
+
+        StoredResponse response = new StoredResponse(existing.getResponseStatus(),
+                existing.getResponseContentType(), existing.getResponseBody());
+        cache.put(cacheKey(scope, key), new CachedResponse(fingerprint, response));
+        return new Claim(Outcome.REPLAY, null, response);
+    }
+
+    /**
+     * Store the response of a request that was executed under {@code claim}.
+     */
+    @Transactional
+    public void complete(String scope, String key, String fingerprint, Claim claim, StoredResponse response) {
+        owned.remove(claim.recordId());
+        int updated = repository.complete(claim.recordId(), response.status(), response.contentType(),
+                response.body(), OffsetDateTime.now().plus(ttl));
+        if (updated == 0) {
+            // Our lease ran out and another request took the key over; its response wins
+            log.warn("Idempotency key {} was taken over before its response was stored", key);
+            return;
+        }
+        cache.put(cacheKey(scope, key), new CachedResponse(fingerprint, response));
+    }
+
+    /**
+     * Give the key up without storing a response (server error, or a response the
+     * client should be able to retry), so the next attempt executes again.
+     */
+    @Transactional
+    public void release(Claim claim) {
+        owned.remove(claim.recordId());
+        repository.deleteByIdAndStatus(claim.recordId(), IdempotencyStatus.IN_PROGRESS);
+    }
 
-    @SuppressWarnings("unchecked")
-    public <T> Optional<T> get(UUID userId, String key, Class<T> type) {
-        if (key == null || key.isBlank()) return Optional.empty();
-        Object cached = cache.getIfPresent(cacheKey(userId, key));
-        if (cached == null || !type.isInstance(cached)) return Optional.empty();
-        return Optional.of((T) cached);
+    /**
+     * Heartbeat for keys whose requests are still executing here. Runs well inside the
+     * lease, so a request may take any time without another replica executing it again.
+     */
+    @Transactional
+    public void renewLeases() {
+        if (owned.isEmpty()) {
+            return;
+        }
+        repository.renewLeases(List.copyOf(owned), OffsetDateTime.now().plus(lease));
     }
 
-    public void put(UUID userId, String key, Object value) {
-        if (key == null || key.isBlank() || value == null) return;
-        cache.put(cacheKey(userId, key), value);
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval-ms:3600000}")
+    @Transactional
+    public void purgeExpired() {
+        int purged = repository.deleteExpired(OffsetDateTime.now());
+        if (purged > 0) {
+            log.info("Purged {} expired idempotency keys", purged);
+        }
     }
 
-    private String cacheKey(UUID userId, String key) {
-        return userId + ":" + key;
+    private static String cacheKey(String scope, String key) {
+        return scope + ":" + key;
     }
 }
@@ -0,0 +1,168 @@
+package com.mirai.inventoryservice.services;
+
+import com.mirai.inventoryservice.dtos.responses.InventoryChangeDTO;
+import com.mirai.inventoryservice.dtos.responses.InventoryChangesResponseDTO;
+import com.mirai.inventoryservice.models.audit.StockMovement;
+import com.mirai.inventoryservice.models.enums.LocationType;
+import com.mirai.inventoryservice.repositories.InventoryTotalsRepository;
+import com.mirai.inventoryservice.repositories.StockMovementRepository;
+import com.mirai.inventoryservice.utils.TimestampUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Row-level inventory change feed built on the stock_movements ledger.
+ *
+ * Each quantity-changing movement becomes one {@link InventoryChangeDTO} whose
+ * {@code seq} is the movement id. The same shape is pushed live through
+ * {@link SupabaseBroadcastService#broadcastInventoryDelta} and served here for
+ * catch-up, so clients patch their cached lists and only call
+ * {@code GET /api/inventory/changes?after=} when they may have missed deltas, e.g.
+ * after reconnecting to Realtime.
+ *
+ * The catch-up cursor is the writing transaction's id plus the movement id (V58).
+ * A page only holds movements of transactions below the reader's snapshot xmin, which
+ * have all finished, so a movement committing after the page was read still sorts
+ * after its cursor and writers take no lock for it. Cursor order is not commit order,
+ * so each change carries the location's current quantity and the product's current
+ * total: a page is safe to apply over whatever the client already has.
+ */
+@Service
+public class InventoryChangeService {
+
+    /**
+     * Bumped when the delta shape changes incompatibly; clients resync on mismatch.
+     * 3: catch-up pages on an opaque cursor and carries current quantities.
+     */
+    public static final int DELTA_VERSION = 3;
+
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private final StockMovementRepository stockMovementRepository;
+    private final InventoryTotalsRepository inventoryTotalsRepository;
+
+    public InventoryChangeService(
+            StockMovementRepository stockMovementRepository,
+            InventoryTotalsRepository inventoryTotalsRepository) {
+        this.stockMovementRepository = stockMovementRepository;
+        this.inventoryTotalsRepository = inventoryTotalsRepository;
+    }
+
+    /**
+     * Changes after {@code after}, in cursor order. Without a cursor no changes are
+     * returned, only the cursor to start from: clients take it before loading their
+     * lists, so anything committed in between comes back on the next call.
+     *
+     * @param after a cursor returned by an earlier call, or null
+     */
+    @Transactional(readOnly = true)
+    public InventoryChangesResponseDTO getChangesAfter(String after, int limit) {
+        // Read before the page: every transaction below it has finished, so its rows are
+        // visible to the page query's later snapshot
+        long horizon = stockMovementRepository.findChangeHorizon();
+        if (after == null || after.isBlank()) {
+            return InventoryChangesResponseDTO.builder()
+                    .version(DELTA_VERSION)
+                    .cursor(formatCursor(horizon, 0L))
+                    .truncated(false)
+                    .changes(List.of())
+                    .build();
+        }
+        long[] cursor = parseCursor(after);
+
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        // Fetch one extra row to learn whether the page was truncated
+        List<Object[]> rows = stockMovementRepository.findChangesAfter(cursor[0], cursor[1], horizon, pageSize + 1);
+        boolean truncated = rows.size() > pageSize;
+        if (truncated) {
+            rows = rows.subList(0, pageSize);
+        }
+
+        Set<UUID> productIds = rows.stream().map(row -> (UUID) row[2]).collect(Collectors.toSet());
+        Map<UUID, Integer> totals = inventoryTotalsRepository.findStockTotalsMap(productIds);
+
+        List<InventoryChangeDTO> changes = rows.stream()
+                .map(row -> InventoryChangeDTO.builder()
+                        .seq(((Number) row[0]).longValue())
+                        .productId((UUID) row[2])
+                        .locationType((String) row[3])
+                        .locationId((UUID) row[4])
+                        .quantity(((Number) row[5]).intValue())
+                        .total(totals.getOrDefault((UUID) row[2], 0))
+                        .at(TimestampUtils.toOffsetDateTime(row[6]))
+                        .build())
+                .toList();
+
+        String next;
+        if (truncated) {
+            Object[] last = rows.get(rows.size() - 1);
+            next = formatCursor(((Number) last[1]).longValue(), ((Number) last[0]).longValue());
+        } else if (horizon > cursor[0]) {
+            next = formatCursor(horizon, 0L);
+        } else {
+            next = after;
+        }
+
+        return InventoryChangesResponseDTO.builder()
+                .version(DELTA_VERSION)
+                .cursor(next)
+                .truncated(truncated)
+                .changes(changes)
+                .build();
+    }
+
+    static String formatCursor(long xid, long id) {
+        return xid + "." + id;
+    }
+
+    static long[] parseCursor(String cursor) {
+        int dot = cursor.indexOf('.');
+        try {
+            if (dot > 0) {
+                return new long[] {
+                        Long.parseLong(cursor.substring(0, dot)),
+                        Long.parseLong(cursor.substring(dot + 1))
+                };
+            }
+        } catch (NumberFormatException ignored) {
+            // fall through
+        }
+        throw new IllegalArgumentException("Invalid inventory change cursor: " + cursor);
+    }
+
+    /**
+     * Build the live delta for a just-saved movement. Sent after commit with the
+     * movement id as its seq.
+     *
+     * @param currentTotal the product's total after the movement
+     */
+    public static InventoryChangeDTO toChange(StockMovement movement, int currentTotal) {
+        LocationType locationType = movement.getLocationType();
+        return InventoryChangeDTO.builder()
+                .seq(movement.getId())
+                .productId(movement.getItem().getId())
+                .locationId(resolveLocationId(movement.getQuantityChange(), movement.getFromLocationId(), movement.getToLocationId()))
+                .locationType(locationType != null ? locationType.name() : null)
+                .quantity(movement.getCurrentQuantity())
+                .total(currentTotal)
+                .at(movement.getAt())
+                .build();
+    }
+
+    /**
+     * Transfer legs carry both location ids; the sign of the change says which side
+     * the movement's current_quantity belongs to. findChangesAfter resolves it the same way.
+     */
+    static UUID resolveLocationId(Integer quantityChange, UUID fromLocationId, UUID toLocationId) {
+        if (quantityChange != null && quantityChange < 0) {
+            return fromLocationId != null ? fromLocationId : toLocationId;
+        }
+        return toLocationId != null ? toLocationId : fromLocationId;
+    }
+}
@@ -7,6 +7,7 @@ import com.mirai.inventoryservice.dtos.requests.kuji.MoveSlipsRequestDTO;
 import com.mirai.inventoryservice.dtos.requests.kuji.NewKujiBoxTierDTO;
 import com.mirai.inventoryservice.dtos.requests.kuji.OpenKujiBoxRequestDTO;
 import com.mirai.inventoryservice.dtos.requests.kuji.AddKujiTierRequestDTO;
+import com.mirai.inventoryservice.dtos.requests.kuji.BulkRecordDrawRequestDTO;
 import com.mirai.inventoryservice.dtos.requests.kuji.PatchKujiTierRequestDTO;
 import com.mirai.inventoryservice.dtos.requests.kuji.RecordDrawRequestDTO;
 import com.mirai.inventoryservice.dtos.requests.kuji.TransferInMoreRequestDTO;
@@ -38,6 +39,7 @@ import com.mirai.inventoryservice.models.storage.Location;
 import com.mirai.inventoryservice.repositories.AuditLogRepository;
 import com.mirai.inventoryservice.repositories.KujiBoxRepository;
 import com.mirai.inventoryservice.repositories.KujiBoxTierRepository;
+import com.mirai.inventoryservice.repositories.KujiHourlyPayoutRepository;
 import com.mirai.inventoryservice.repositories.LocationInventoryRepository;
 import com.mirai.inventoryservice.repositories.LocationRepository;
 import com.mirai.inventoryservice.repositories.MachineDisplayRepository;
@@ -46,22 +48,27 @@ import com.mirai.inventoryservice.repositories.StockMovementRepository;
 import com.mirai.inventoryservice.repositories.UserRepository;
 import jakarta.persistence.EntityManager;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -83,6 +90,8 @@ import java.util.stream.Collectors;
 @Slf4j
 public class KujiBoxService {
 
+    private static final int MAX_HISTORY_PAGE_SIZE = 200;
+
     /** Tier sort: highest price first, nulls (priceless tiers) last, label asc as tiebreak. */
     private static final Comparator<KujiBoxTier> TIER_ORDER = Comparator
             .comparing(KujiBoxTier::getPrice,
@@ -98,6 +107,7 @@ public class KujiBoxService {
     private final MachineDisplayRepository machineDisplayRepository;
     private final AuditLogRepository auditLogRepository;
     private final StockMovementRepository stockMovementRepository;
+    private final KujiHourlyPayoutRepository kujiHourlyPayoutRepository;
     private final UserRepository userRepository;
     private final NotificationService notificationService;
     private final SupabaseBroadcastService broadcastService;
@@ -116,6 +126,7 @@ public class KujiBoxService {
             MachineDisplayRepository machineDisplayRepository,
             AuditLogRepository auditLogRepository,
             StockMovementRepository stockMovementRepository,
+            KujiHourlyPayoutRepository kujiHourlyPayoutRepository,
             UserRepository userRepository,
             NotificationService notificationService,
             SupabaseBroadcastService broadcastService,
@@ -132,6 +143,7 @@ public class KujiBoxService {
         this.machineDisplayRepository = machineDisplayRepository;
         this.auditLogRepository = auditLogRepository;
         this.stockMovementRepository = stockMovementRepository;
+        this.kujiHourlyPayoutRepository = kujiHourlyPayoutRepository;
         this.userRepository = userRepository;
         this.notificationService = notificationService;
         this.broadcastService = broadcastService;
@@ -653,79 +665,172 @@ public class KujiBoxService {
 
     // ===================== Draws =====================
 
+    /**
+     * Record a draw without locking tiers up front. Movements and outbox rows are written
+     * first; each tier is then decremented by one guarded UPDATE (see
+     * {@link KujiBoxTierRepository#drawSlips}), so the row lock is only held from that
+     * statement to commit and concurrent clerks on a busy box no longer queue behind
+     * each other's whole draw. If a guard fails the transaction rolls back as before.
+     */
     @Transactional
     public KujiBoxResponseDTO recordDraw(UUID boxId, RecordDrawRequestDTO request) {
         KujiBox box = kujiBoxRepository.findByIdWithTiers(boxId)
                 .orElseThrow(() -> new IllegalArgumentException("Box not found: " + boxId));
+        PendingDraw draw = prepareDraw(box, request.getActorId(), request.getNotes(), request.getDraws());
+
+        OffsetDateTime now = OffsetDateTime.now();
+        writeDrawMovements(buildDrawMovements(draw, now));
+        applyDraws(List.of(draw), now);
+        notifyDraw(draw, now);
+
+        broadcastService.broadcastInventoryUpdated();
+        broadcastService.broadcastAuditLogCreated(box.getProduct().getId().toString());
+
+        entityManager.flush();
+        return toResponseDTO(box);
+    }
+
+    /**
+     * Record a shift's worth of draws across many boxes in one transaction. Every box is
+     * loaded in a single query and validated before anything is written, so one bad line
+     * rejects the whole request. Each box still gets its own parent audit log (undo works
+     * per box as before) and one summarized {@code KUJI_PRIZE_DRAWN} notification, but the
+     * movements are saved as one batch and the request broadcasts once.
+     */
+    @Transactional
+    public List<KujiBoxResponseDTO> recordDraws(BulkRecordDrawRequestDTO request) {
+        Set<UUID> boxIds = new LinkedHashSet<>();
+        for (BulkRecordDrawRequestDTO.BoxDraws entry : request.getBoxes()) {
+            if (!boxIds.add(entry.getBoxId())) {
+                throw new IllegalArgumentException(
+                        "Box " + entry.getBoxId() + " appears more than once; combine its draws into one entry");
+            }
+        }
+        Map<UUID, KujiBox> boxesById = new HashMap<>();
+        for (KujiBox box : kujiBoxRepository.findAllByIdWithTiers(boxIds)) {
+            boxesById.put(box.getId(), box);
+        }
+
+        List<PendingDraw> draws = new ArrayList<>();
+        for (BulkRecordDrawRequestDTO.BoxDraws entry : request.getBoxes()) {
+            KujiBox box = boxesById.get(entry.getBoxId());
+            if (box == null) {
+                throw new IllegalArgumentException("Box not found: " + entry.getBoxId());
+            }
+            try {
+                draws.add(prepareDraw(box, request.getActorId(), entry.getNotes(), entry.getDraws()));
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                // Tier labels repeat across boxes, so say which box the line belongs to
+                String message = "Box '" + box.getLabel() + "': " + e.getMessage();
+                throw e instanceof IllegalStateException
+                        ? new IllegalStateException(message, e)
+                        : new IllegalArgumentException(message, e);
+            }
+        }
+
+        OffsetDateTime now = OffsetDateTime.now();
+        List<StockMovement> movements = new ArrayList<>();
+        for (PendingDraw draw : draws) {
+            movements.addAll(buildDrawMovements(draw, now));
+        }
+        writeDrawMovements(movements);
+        applyDraws(draws, now);
+        for (PendingDraw draw : draws) {
+            notifyDraw(draw, now);
+        }
+
+        broadcastService.broadcastInventoryUpdated();
+        broadcastService.broadcastAuditLogCreated();
+
+        entityManager.flush();
+        return draws.stream().map(draw -> toResponseDTO(draw.box())).toList();
+    }
+
+    /**
+     * A validated draw against one box: the request lines, the tiers they name, and the
+     * total slips per tier.
+     */
+    private record PendingDraw(
+            KujiBox box,
+            UUID actorId,
+            String notes,
+            List<RecordDrawRequestDTO.DrawLine> lines,
+            Map<UUID, KujiBoxTier> tiersById,
+            Map<UUID, Integer> quantityByTier,
+            int totalQuantity
+    ) {
+    }
+
+    private PendingDraw prepareDraw(
+            KujiBox box,
+            UUID actorId,
+            String notes,
+            List<RecordDrawRequestDTO.DrawLine> lines
+    ) {
         if (box.getStatus() != KujiBoxStatus.OPEN) {
-            throw new IllegalStateException("Box is not OPEN: " + boxId);
+            throw new IllegalStateException("Box is not OPEN: " + box.getId());
         }
 
-        // Lock all draw tiers for update, in deterministic order
-        List<UUID> tierIds = request.getDraws().stream()
-                .map(RecordDrawRequestDTO.DrawLine::getTierId)
-                .sorted(UUID::compareTo)
-                .distinct()
-                .collect(Collectors.toList());
+        // Slips per tier. Several lines may name the same tier.
+        Map<UUID, Integer> quantityByTier = new TreeMap<>();
+        for (RecordDrawRequestDTO.DrawLine draw : lines) {
+            quantityByTier.merge(draw.getTierId(), draw.getQuantity(), Integer::sum);
+        }
 
         Map<UUID, KujiBoxTier> tiersById = new HashMap<>();
-        for (UUID tid : tierIds) {
-            KujiBoxTier locked = kujiBoxTierRepository.findByIdForUpdate(tid)
-                    .orElseThrow(() -> new IllegalArgumentException("Tier not found: " + tid));
-            if (locked.getBox() == null || !boxId.equals(locked.getBox().getId())) {
-                throw new IllegalArgumentException(
-                        "Tier " + tid + " does not belong to box " + boxId);
-            }
-            tiersById.put(tid, locked);
+        for (KujiBoxTier tier : box.getTiers()) {
+            tiersById.put(tier.getId(), tier);
         }
 
-        // Validate sufficient slip count and (for linked tiers) sufficient inventory at box location
+        // Validate against the loaded counts so an obviously short tier fails before any
+        // writes; the guarded update in applyDraws is what actually enforces it.
         int totalQuantity = 0;
-        for (RecordDrawRequestDTO.DrawLine draw : request.getDraws()) {
-            KujiBoxTier tier = tiersById.get(draw.getTierId());
-            if (tier.getActiveCount() == null || tier.getActiveCount() < draw.getQuantity()) {
+        for (Map.Entry<UUID, Integer> entry : quantityByTier.entrySet()) {
+            KujiBoxTier tier = tiersById.get(entry.getKey());
+            if (tier == null) {
+                throw new IllegalArgumentException(
+                        "Tier " + entry.getKey() + " does not belong to box " + box.getId());
+            }
+            if (tier.getActiveCount() == null || tier.getActiveCount() < entry.getValue()) {
                 throw new IllegalArgumentException(
                         "Tier '" + tier.getLabel() + "' has only "
                                 + (tier.getActiveCount() == null ? 0 : tier.getActiveCount())
-                                + " slips remaining; cannot draw " + draw.getQuantity());
+                                + " slips remaining; cannot draw " + entry.getValue());
             }
             // Active count is the only check needed — kuji prize stock lives on the tier,
             // not in LocationInventory at the machine.
-            totalQuantity += draw.getQuantity();
-        }
-
-        // Decrement counts (in-memory; saved when tier persists below)
-        for (RecordDrawRequestDTO.DrawLine draw : request.getDraws()) {
-            KujiBoxTier tier = tiersById.get(draw.getTierId());
-            tier.setActiveCount(tier.getActiveCount() - draw.getQuantity());
-            int currentDrawn = tier.getDrawnCount() != null ? tier.getDrawnCount() : 0;
-            tier.setDrawnCount(currentDrawn + draw.getQuantity());
+            totalQuantity += entry.getValue();
         }
+        return new PendingDraw(box, actorId, notes, lines, tiersById, quantityByTier, totalQuantity);
+    }
 
-        // Create one parent AuditLog of reason KUJI_PRIZE_WON. The summary lists the tiers
-        // and prizes so the activity feed shows what was drawn, not just the box name.
+    /**
+     * Create the parent AuditLog of reason KUJI_PRIZE_WON for one box and build (without
+     * saving) one movement per draw line under it.
+     */
+    private List<StockMovement> buildDrawMovements(PendingDraw draw, OffsetDateTime now) {
+        KujiBox box = draw.box();
+        // The summary lists the tiers and prizes so the activity feed shows what was
+        // drawn, not just the box name.
         Product parentProduct = box.getProduct();
-        String drawSummary = formatDrawSummary(request.getDraws(), tiersById);
+        String drawSummary = formatDrawSummary(draw.lines(), draw.tiersById());
         AuditLog parentLog = createAuditLog(
-                request.getActorId(),
+                draw.actorId(),
                 StockMovementReason.KUJI_PRIZE_WON,
                 box.getLocation().getId(),
                 box.getLocation().getLocationCode(),
                 null,
                 null,
-                request.getDraws().size(),
-                totalQuantity,
+                draw.lines().size(),
+                draw.totalQuantity(),
                 drawSummary,
-                request.getNotes(),
+                draw.notes(),
                 parentProduct.getId()
         );
 
-        OffsetDateTime now = OffsetDateTime.now();
-        List<Map<String, Object>> tierSummaries = new ArrayList<>();
-
-        for (RecordDrawRequestDTO.DrawLine draw : request.getDraws()) {
-            KujiBoxTier tier = tiersById.get(draw.getTierId());
-            int qty = draw.getQuantity();
+        List<StockMovement> movements = new ArrayList<>();
+        for (RecordDrawRequestDTO.DrawLine line : draw.lines()) {
+            KujiBoxTier tier = draw.tiersById().get(line.getTierId());
 
             Map<String, Object> metadata = baseDrawMetadata(box, tier, parentLog.getId());
             metadata.put("tier_label", tier.getLabel());
@@ -733,7 +838,7 @@ public class KujiBoxService {
                 metadata.put("tier_letter", tier.getLetter());
             }
             // Always store slip_quantity so undo can reliably restore tier counts.
-            metadata.put("slip_quantity", qty);
+            metadata.put("slip_quantity", line.getQuantity());
 
             // Linked and unlinked draws emit the same structural movement: a zero-quantity
             // KUJI_PRIZE_WON audit row with prize details in metadata. Kuji prize stock
@@ -746,7 +851,7 @@ public class KujiBoxService {
             // Snapshot the per-slip price so the daily-payout chart and activity log
             // stay fixed if a tier's price or its linked product's msrp is edited later.
             metadata.put("unit_value", resolveUnitValue(tier, linked));
-            StockMovement movement = StockMovement.builder()
+            movements.add(StockMovement.builder()
                     .auditLog(parentLog)
                     .item(linked != null ? linked : parentProduct)
                     .locationType(LocationType.NOT_ASSIGNED)
@@ -756,46 +861,92 @@ public class KujiBoxService {
                     .currentQuantity(0)
                     .quantityChange(0)
                     .reason(StockMovementReason.KUJI_PRIZE_WON)
-                    .actorId(request.getActorId())
+                    .actorId(draw.actorId())
                     .at(now)
                     .metadata(metadata)
-                    .build();
+                    .build());
+        }
+        return movements;
+    }
 
-            StockMovement saved = stockMovementRepository.save(movement);
-            eventOutboxService.createStockMovementEvent(saved);
+    private void writeDrawMovements(List<StockMovement> movements) {
+        List<StockMovement> saved = stockMovementRepository.saveAll(movements);
+        Set<UUID> itemIds = saved.stream().map(m -> m.getItem().getId()).collect(Collectors.toSet());
+        EventOutboxService.StockEventContext outboxCtx = new EventOutboxService.StockEventContext(
+                Map.of(), stockMovementService.sumCurrentTotalsByProductIds(itemIds));
+        for (StockMovement movement : saved) {
+            eventOutboxService.createStockMovementEvent(movement, outboxCtx);
+        }
+    }
 
-            // Persist the decremented tier count
-            kujiBoxTierRepository.save(tier);
+    /**
+     * Decrement every drawn tier with one guarded UPDATE each (see
+     * {@link KujiBoxTierRepository#drawSlips}). Tiers are updated in id order across all
+     * boxes, so concurrent multi-tier draws lock rows in the same order and cannot
+     * deadlock. The pending inserts flush ahead of the first update, so the tier rows
+     * are locked only for the rest of the commit. Each tier's slips and value are also
+     * added to its hourly payout bucket.
+     */
+    private void applyDraws(List<PendingDraw> draws, OffsetDateTime now) {
+        Map<UUID, PendingDraw> drawByTier = new TreeMap<>();
+        for (PendingDraw draw : draws) {
+            for (UUID tierId : draw.quantityByTier().keySet()) {
+                drawByTier.put(tierId, draw);
+            }
+        }
+        for (Map.Entry<UUID, PendingDraw> entry : drawByTier.entrySet()) {
+            PendingDraw draw = entry.getValue();
+            KujiBoxTier tier = draw.tiersById().get(entry.getKey());
+            int quantity = draw.quantityByTier().get(entry.getKey());
+            if (kujiBoxTierRepository.drawSlips(tier.getId(), draw.box().getId(), quantity) == 0) {
+                throw new IllegalStateException(
+                        "Tier '" + tier.getLabel() + "' no longer has " + quantity
+                                + " slips remaining, or the box was closed; draw not recorded");
+            }
+            // Reload the counts the update wrote so the response is current and the
+            // managed tier has nothing stale to write back
+            entityManager.refresh(tier);
+            BigDecimal value = resolveUnitValue(tier, tier.getLinkedProduct()).multiply(BigDecimal.valueOf(quantity));
+            addPayout(draw.box().getId(), tier.getId(), now, quantity, value);
+        }
+    }
+
+    private void addPayout(UUID boxId, UUID tierId, OffsetDateTime at, int slips, BigDecimal value) {
+        kujiHourlyPayoutRepository.addPayout(UUID.randomUUID(), boxId, payoutBucket(at), tierId, slips, value);
+    }
+
+    /** Start of the UTC hour containing {@code at}. */
+    static OffsetDateTime payoutBucket(OffsetDateTime at) {
+        return at.withOffsetSameInstant(java.time.ZoneOffset.UTC).truncatedTo(java.time.temporal.ChronoUnit.HOURS);
+    }
 
+    private void notifyDraw(PendingDraw draw, OffsetDateTime now) {
+        List<Map<String, Object>> tierSummaries = new ArrayList<>();
+        for (RecordDrawRequestDTO.DrawLine line : draw.lines()) {
+            KujiBoxTier tier = draw.tiersById().get(line.getTierId());
             // Notification tier line
-            Map<String, Object> line = new HashMap<>();
-            line.put("tier_id", tier.getId().toString());
-            line.put("label", tier.getLabel());
-            line.put("letter", tier.getLetter());
-            line.put("linked_product_name",
+            Map<String, Object> summary = new HashMap<>();
+            summary.put("tier_id", tier.getId().toString());
+            summary.put("label", tier.getLabel());
+            summary.put("letter", tier.getLetter());
+            summary.put("linked_product_name",
                     tier.getLinkedProduct() != null ? tier.getLinkedProduct().getName() : null);
-            line.put("price", tier.getPrice());
-            line.put("quantity", qty);
-            line.put("count_after", tier.getActiveCount());
-            tierSummaries.add(line);
+            summary.put("price", tier.getPrice());
+            summary.put("quantity", line.getQuantity());
+            summary.put("count_after", tier.getActiveCount());
+            tierSummaries.add(summary);
         }
 
         // Notification — wrap in try/catch
         emitDrawNotification(
                 NotificationType.KUJI_PRIZE_DRAWN,
                 "Kuji prize drawn",
-                box,
-                request.getActorId(),
-                request.getNotes(),
+                draw.box(),
+                draw.actorId(),
+                draw.notes(),
                 tierSummaries,
                 now
         );
-
-        broadcastService.broadcastInventoryUpdated();
-        broadcastService.broadcastAuditLogCreated(parentProduct.getId().toString());
-
-        entityManager.flush();
-        return toResponseDTO(box);
     }
 
     @Transactional
@@ -922,6 +1073,7 @@ public class KujiBoxService {
             if (tier != null) {
                 metadata.put("kuji_box_tier_id", tier.getId().toString());
             }
+            metadata.put("slip_quantity", qty);
             // Mirror the original draw's snapshotted unit value so the daily-payout
             // aggregation subtracts the same amount it originally added — even if the
             // tier's live price was edited between draw and undo.
@@ -945,6 +1097,12 @@ public class KujiBoxService {
                     .build();
             StockMovement saved = stockMovementRepository.save(reverse);
             eventOutboxService.createStockMovementEvent(saved);
+            if (tierId != null) {
+                BigDecimal unitValue = snappedUnitValue != null
+                        ? snappedUnitValue
+                        : resolveUnitValue(tier, tier != null ? tier.getLinkedProduct() : null);
+                addPayout(boxId, tierId, now, -qty, unitValue.multiply(BigDecimal.valueOf(-qty)));
+            }
 
             // Restore tier slip count
             if (tier != null) {
@@ -1687,7 +1845,8 @@ public class KujiBoxService {
     /**
      * Per-day net payout rollup for a box. Slip counts and value totals are netted
      * across KUJI_PRIZE_WON and KUJI_DRAW_REVERSED movements bucketed by calendar day
-     * in the requested timezone. The returned series is always dense over [from, to].
+     * in the requested timezone, read from the hourly payout buckets that draws and
+     * undos maintain. The returned series is always dense over [from, to].
      */
     @Transactional(readOnly = true)
     public KujiDailyPayoutsResponseDTO getDailyPayouts(
@@ -1718,8 +1877,13 @@ public class KujiBoxService {
                     "to (" + resolvedTo + ") must be on or after from (" + resolvedFrom + ")");
         }
 
-        List<Object[]> rows = stockMovementRepository.aggregateKujiDailyPayouts(
-                boxId, resolvedFrom, resolvedTo, zone.getId());
+        // Hourly buckets add up to whole days in any zone whose offset is a whole number
+        // of hours; the few that are not (e.g. Asia/Kolkata) fall back to the ledger.
+        OffsetDateTime start = resolvedFrom.atStartOfDay(zone).toOffsetDateTime();
+        OffsetDateTime end = resolvedTo.plusDays(1).atStartOfDay(zone).toOffsetDateTime();
+        List<Object[]> rows = hourAligned(zone, start, end)
+                ? kujiHourlyPayoutRepository.sumDailyPayouts(boxId, start, end, zone.getId())
+                : stockMovementRepository.aggregateKujiDailyPayouts(boxId, resolvedFrom, resolvedTo, zone.getId());
 
         Map<java.time.LocalDate, KujiDailyPayoutsResponseDTO.DailyPoint> byDate = new HashMap<>();
         for (Object[] row : rows) {
@@ -1754,29 +1918,71 @@ public class KujiBoxService {
                 new KujiDailyPayoutsResponseDTO.Totals(totalValue, totalSlips));
     }
 
+    /**
+     * Recompute a box's payout buckets from the stock_movements ledger, e.g. after a
+     * manual correction to movements.
+     */
+    @Transactional
+    public void rebuildDailyPayouts(UUID boxId) {
+        if (!kujiBoxRepository.existsById(boxId)) {
+            throw new IllegalArgumentException("Box not found: " + boxId);
+        }
+        kujiHourlyPayoutRepository.deleteByBoxId(boxId);
+        int buckets = kujiHourlyPayoutRepository.rebuildFromLedger(boxId);
+        log.info("Rebuilt {} kuji payout buckets for box {}", buckets, boxId);
+    }
+
+    /** Whether every UTC offset {@code zone} uses in [start, end) is a whole number of hours. */
+    static boolean hourAligned(java.time.ZoneId zone, OffsetDateTime start, OffsetDateTime end) {
+        java.time.zone.ZoneRules rules = zone.getRules();
+        if (rules.getOffset(start.toInstant()).getTotalSeconds() % 3600 != 0) {
+            return false;
+        }
+        for (java.time.zone.ZoneOffsetTransition t = rules.nextTransition(start.toInstant());
+             t != null && t.getInstant().isBefore(end.toInstant());
+             t = rules.nextTransition(t.getInstant())) {
+            if (t.getOffsetAfter().getTotalSeconds() % 3600 != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A page of a product's boxes, newest first; pass the {@code openedAt} and {@code id}
+     * of the last box of one page as {@code before} / {@code beforeId} to get the next.
+     * Two statements regardless of how many boxes the product has run: one for the page
+     * of ids, one for those boxes with their product, location and tiers, plus a single
+     * lookup for opener/closer names.
+     */
     @Transactional(readOnly = true)
-    public List<KujiBoxResponseDTO> getBoxHistory(UUID productId) {
-        List<KujiBox> boxes = kujiBoxRepository.findByProductIdOrderByOpenedAtDesc(productId);
-        // Re-fetch each with tiers eagerly
+    public List<KujiBoxResponseDTO> getBoxHistory(UUID productId, OffsetDateTime before, UUID beforeId, int limit) {
+        Pageable page = PageRequest.of(0, Math.max(1, Math.min(limit, MAX_HISTORY_PAGE_SIZE)));
+        List<UUID> ids = before == null
+                ? kujiBoxRepository.findHistoryIds(productId, page)
+                : kujiBoxRepository.findHistoryIdsBefore(productId, before, beforeId, page);
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<KujiBox> boxes = kujiBoxRepository.findHistoryByIds(ids);
+        Map<UUID, String> userNamesById = resolveUserNames(boxes);
         return boxes.stream()
-                .map(b -> kujiBoxRepository.findByIdWithTiers(b.getId()).orElse(b))
-                .map(this::toResponseDTO)
+                .map(b -> toResponseDTO(b, userNamesById))
                 .collect(Collectors.toList());
     }
 
     @Transactional(readOnly = true)
     public List<KujiBoxTierResponseDTO> cloneTiersFromLastClosedBox(UUID productId) {
-        List<KujiBox> boxes = kujiBoxRepository.findByProductIdOrderByOpenedAtDesc(productId);
-        Optional<KujiBox> lastClosed = boxes.stream()
-                .filter(b -> b.getStatus() == KujiBoxStatus.CLOSED)
-                .findFirst();
-        if (lastClosed.isEmpty()) {
+        List<UUID> lastClosedIds = kujiBoxRepository.findLatestIdsByProductIdAndStatus(
+                productId, KujiBoxStatus.CLOSED, PageRequest.of(0, 1));
+        if (lastClosedIds.isEmpty()) {
             return Collections.emptyList();
         }
-
-        KujiBox loaded = kujiBoxRepository.findByIdWithTiers(lastClosed.get().getId())
-                .orElse(lastClosed.get());
-        return loaded.getTiers().stream()
+        Optional<KujiBox> loaded = kujiBoxRepository.findByIdWithTiers(lastClosedIds.get(0));
+        if (loaded.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return loaded.get().getTiers().stream()
                 .sorted(TIER_ORDER)
                 .map(t -> {
                     // Auto-created prize products are one-shot per box. Clear the link
@@ -2451,6 +2657,33 @@ public class KujiBoxService {
     // ===================== DTO mapping =====================
 
     private KujiBoxResponseDTO toResponseDTO(KujiBox box) {
+        return toResponseDTO(box, resolveUserNames(List.of(box)));
+    }
+
+    /**
+     * Opener/closer display names for {@code boxes} in a single query.
+     */
+    private Map<UUID, String> resolveUserNames(Collection<KujiBox> boxes) {
+        Set<UUID> userIds = new HashSet<>();
+        for (KujiBox box : boxes) {
+            if (box.getOpenedBy() != null) userIds.add(box.getOpenedBy());
+            if (box.getClosedBy() != null) userIds.add(box.getClosedBy());
+        }
+        if (userIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<UUID, String> userNamesById = new HashMap<>();
+        for (User u : userRepository.findAllById(userIds)) {
+            userNamesById.put(u.getId(), u.getFullName());
+        }
+        return userNamesById;
+    }
+
+    /**
+     * Map a box whose product, location and tiers are already loaded. Only the machine
+     * display's id is read, which Hibernate answers from the proxy without a query.
+     */
+    private KujiBoxResponseDTO toResponseDTO(KujiBox box, Map<UUID, String> userNamesById) {
         Product product = box.getProduct();
         Location location = box.getLocation();
 
@@ -2491,18 +2724,8 @@ public class KujiBoxService {
                 .mapToInt(t -> t.getActiveCount() != null ? t.getActiveCount() : 0)
                 .sum();
 
-        // Batch openedBy/closedBy resolution into a single query when both are present.
         UUID openedById = box.getOpenedBy();
         UUID closedById = box.getClosedBy();
-        Map<UUID, String> userNamesById = new HashMap<>();
-        if (openedById != null || closedById != null) {
-            Set<UUID> userIds = new HashSet<>();
-            if (openedById != null) userIds.add(openedById);
-            if (closedById != null) userIds.add(closedById);
-            for (User u : userRepository.findAllById(userIds)) {
-                userNamesById.put(u.getId(), u.getFullName());
-            }
-        }
         String openedByName = openedById != null ? userNamesById.get(openedById) : null;
         String closedByName = closedById != null ? userNamesById.get(closedById) : null;
 
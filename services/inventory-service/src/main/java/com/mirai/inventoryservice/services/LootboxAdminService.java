@@ -68,6 +68,9 @@ public class LootboxAdminService {
     private final UserRepository userRepository;
     private final LootboxService lootboxService;
     private final LootboxTierLifecycle tierLifecycle;
+    private final LootboxPrizeSampler prizeSampler;
+    private final LootboxPrizeStock prizeStock;
+    private final LootboxCatalogCache catalogCache;
 
     // ----- Crate (Lootbox) CRUD -----
 
@@ -129,6 +132,7 @@ public class LootboxAdminService {
                 .sortOrder(req.sortOrder() != null ? req.sortOrder() : 0)
                 .build();
         lootboxRepository.save(crate);
+        catalogCache.invalidate();
         return toCrateAdminDto(crate);
     }
 
@@ -154,6 +158,7 @@ public class LootboxAdminService {
         if (req.siteId() != null) crate.setSiteId(req.siteId());
         if (req.sortOrder() != null) crate.setSortOrder(req.sortOrder());
         lootboxRepository.save(crate);
+        catalogCache.invalidate();
         return toCrateAdminDto(crate);
     }
 
@@ -173,6 +178,13 @@ public class LootboxAdminService {
         }
         lootboxTierRepository.deleteAll(tiers);
         lootboxRepository.delete(crate);
+        invalidateCrate(id);
+    }
+
+    /** Drop the crate's cached prize table and the player catalog after an edit. */
+    private void invalidateCrate(UUID crateId) {
+        prizeSampler.invalidate(crateId);
+        catalogCache.invalidate();
     }
 
     private void validateWindow(OffsetDateTime startsAt, OffsetDateTime endsAt) {
@@ -203,6 +215,7 @@ public class LootboxAdminService {
                 .build();
         lootboxTierRepository.save(tier);
         assertCrateProbabilitiesSumIs100(req.lootboxId());
+        invalidateCrate(req.lootboxId());
         return LootboxService.toTierDto(tier, List.of());
     }
 
@@ -223,6 +236,7 @@ public class LootboxAdminService {
         }
         lootboxTierRepository.save(tier);
         assertCrateProbabilitiesSumIs100(crateId);
+        invalidateCrate(crateId);
         List<LootboxPrize> prizes = lootboxPrizeRepository.findActiveByTierId(id);
         return LootboxService.toTierDto(tier, prizes);
     }
@@ -256,6 +270,7 @@ public class LootboxAdminService {
         }
         lootboxTierRepository.flush();
         assertCrateProbabilitiesSumIs100(crateId);
+        invalidateCrate(crateId);
 
         List<LootboxTier> tiers = lootboxTierRepository.findByLootboxIdOrderBySortOrderAscNameAsc(crateId);
         return tiers.stream()
@@ -272,6 +287,7 @@ public class LootboxAdminService {
         // lootbox_plays.prize_id preserves play history via snapshot columns.
         lootboxTierRepository.delete(tier);
         tierLifecycle.rebalanceActiveTiers(crateId);
+        invalidateCrate(crateId);
     }
 
     // ----- Prize CRUD -----
@@ -284,6 +300,8 @@ public class LootboxAdminService {
         // active defaults to true and the tier reactivates below if it was dormant.
         boolean active = req.active() != null ? req.active() : true;
         if (req.quantity() != null && req.quantity() == 0) active = false;
+        int shards = req.stockShards() != null ? req.stockShards() : 1;
+        assertShardableStock(shards, req.quantity());
         LootboxPrize prize = LootboxPrize.builder()
                 .tier(tier)
                 .name(req.name())
@@ -291,9 +309,12 @@ public class LootboxAdminService {
                 .imageUrl(req.imageUrl())
                 .active(active)
                 .quantity(req.quantity())
+                .stockShards(shards)
                 .build();
         lootboxPrizeRepository.save(prize);
+        if (shards > 1) prizeStock.resplit(prize);
         if (prize.getActive()) tierLifecycle.maybeReactivateTier(tier);
+        invalidateCrate(tier.getLootbox().getId());
         return LootboxService.toPrizeDto(prize, tier);
     }
 
@@ -303,6 +324,7 @@ public class LootboxAdminService {
                 .orElseThrow(() -> new EntityNotFoundException("Prize not found: " + id));
         boolean wasActive = prize.getActive();
         UUID oldTierId = prize.getTier().getId();
+        UUID oldCrateId = prize.getTier().getLootbox().getId();
 
         if (req.tierId() != null && !req.tierId().equals(oldTierId)) {
             LootboxTier newTier = lootboxTierRepository.findById(req.tierId())
@@ -314,6 +336,14 @@ public class LootboxAdminService {
         if (req.imageUrl() != null) prize.setImageUrl(req.imageUrl());
         if (req.active() != null) prize.setActive(req.active());
 
+        // Changing the shard count re-lays the current stock, so collect what is left
+        // in the old slices first (the quantity column lags while sharded).
+        int oldShards = prize.getStockShards();
+        if (req.stockShards() != null && req.stockShards() != oldShards) {
+            if (req.quantity() == null) prize.setQuantity(prizeStock.remaining(prize));
+            prize.setStockShards(req.stockShards());
+        }
+
         // Quantity edits: restocking (>0) auto-reactivates a depleted prize; setting to 0
         // retires it. Crossing the 0-boundary in either direction is what triggers the
         // active toggle so admins don't have to flip two switches.
@@ -327,7 +357,11 @@ public class LootboxAdminService {
             }
         }
 
+        assertShardableStock(prize.getStockShards(), prize.getQuantity());
         lootboxPrizeRepository.save(prize);
+        if (prize.getStockShards() != oldShards || (prize.getStockShards() > 1 && req.quantity() != null)) {
+            prizeStock.resplit(prize);
+        }
 
         if (wasActive && (!prize.getActive() || !prize.getTier().getId().equals(oldTierId))) {
             tierLifecycle.maybeDeactivateTier(oldTierId);
@@ -335,6 +369,8 @@ public class LootboxAdminService {
         if (prize.getActive()) {
             tierLifecycle.maybeReactivateTier(prize.getTier());
         }
+        invalidateCrate(oldCrateId);
+        invalidateCrate(prize.getTier().getLootbox().getId());
 
         return LootboxService.toPrizeDto(prize, prize.getTier());
     }
@@ -344,10 +380,19 @@ public class LootboxAdminService {
         LootboxPrize prize = lootboxPrizeRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Prize not found: " + id));
         UUID tierId = prize.getTier().getId();
+        UUID crateId = prize.getTier().getLootbox().getId();
         // Hard-delete: SET NULL on lootbox_plays.prize_id (V45) preserves play history
         // via the prizeNameSnapshot / prizeTierNameSnapshot columns on LootboxPlay.
+        prizeStock.deleteSlices(id);
         lootboxPrizeRepository.delete(prize);
         tierLifecycle.maybeDeactivateTier(tierId);
+        invalidateCrate(crateId);
+    }
+
+    private void assertShardableStock(int shards, Integer quantity) {
+        if (shards > 1 && quantity == null) {
+            throw new LootboxException("Sharded stock needs a limited quantity.");
+        }
     }
 
     private void assertCrateProbabilitiesSumIs100(UUID crateId) {
@@ -0,0 +1,110 @@
+package com.mirai.inventoryservice.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mirai.inventoryservice.dtos.responses.LootboxResponseDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * The built player catalog, shared by every catalog view.
+ *
+ * The catalog only changes when an admin edits a crate, tier or prize, when a prize
+ * sells out, or when a crate's window opens or closes. The first two call
+ * {@link #invalidate}; the last is handled by keeping each build only until the next
+ * window boundary. Remaining quantities of still-stocked prizes are refreshed at most
+ * every {@code lootbox.catalog.cache.ttl-seconds}, which also bounds how long other
+ * replicas serve a catalog this one invalidated.
+ *
+ * Each build carries an ETag over its JSON so unchanged catalogs can be answered 304.
+ */
+@Component
+public class LootboxCatalogCache {
+
+    /** A freshly loaded catalog and the next time a crate opens or closes (null if none). */
+    public record Built(List<LootboxResponseDTO> crates, OffsetDateTime nextBoundary) {}
+
+    public record Catalog(List<LootboxResponseDTO> crates, String etag, OffsetDateTime validUntil) {}
+
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final AtomicReference<Catalog> current = new AtomicReference<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    public LootboxCatalogCache(
+            ObjectMapper objectMapper,
+            @Value("${lootbox.catalog.cache.ttl-seconds:30}") long ttlSeconds) {
+        this.objectMapper = objectMapper;
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+    }
+
+    /**
+     * The cached catalog, or a new one from {@code loader} if there is none or it has
+     * expired. Concurrent misses may each load; the last one stored wins.
+     */
+    public Catalog get(Supplier<Built> loader) {
+        OffsetDateTime now = OffsetDateTime.now();
+        Catalog cached = current.get();
+        if (cached != null && now.isBefore(cached.validUntil())) {
+            return cached;
+        }
+        long seen = generation.get();
+        Built built = loader.get();
+        OffsetDateTime validUntil = now.plus(ttl);
+        if (built.nextBoundary() != null && built.nextBoundary().isBefore(validUntil)) {
+            validUntil = built.nextBoundary();
+        }
+        Catalog fresh = new Catalog(built.crates(), etag(built.crates()), validUntil);
+        current.set(fresh);
+        if (generation.get() != seen) {
+            // Invalidated while loading; what we read may predate the change
+            current.compareAndSet(fresh, null);
+        }
+        return fresh;
+    }
+
+    /**
+     * Drop the catalog now and again once the current transaction commits, so a view
+     * that reloads in between cannot cache the pre-commit state.
+     */
+    public void invalidate() {
+        clear();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    clear();
+                }
+            });
+        }
+    }
+
+    private void clear() {
+        generation.incrementAndGet();
+        current.set(null);
+    }
+
+    private String etag(List<LootboxResponseDTO> crates) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(crates);
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize lootbox catalog", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package com.mirai.inventoryservice.services;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.mirai.inventoryservice.exceptions.LootboxException;
+import com.mirai.inventoryservice.models.lootbox.LootboxPrize;
+import com.mirai.inventoryservice.models.lootbox.LootboxTier;
+import com.mirai.inventoryservice.repositories.LootboxPrizeRepository;
+import com.mirai.inventoryservice.repositories.LootboxTierRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Precomputed prize tables per crate, so a roll costs O(1) and no queries.
+ *
+ * A {@link PrizeTable} is built from the crate's rollable tiers and active prizes and
+ * never changes; edits to tiers or prizes {@link #invalidate} the crate and the next
+ * roll rebuilds it. Stock is not part of the table: limited prizes are still claimed
+ * with an atomic decrement, and one found depleted is reported with {@link #soldOut},
+ * which excludes it from the cached table at once and rebuilds the table in the
+ * background, once, however many rolls hit it. Other replicas pick up edits when their
+ * entry expires ({@code lootbox.sampler.cache.ttl-seconds}).
+ */
+@Component
+public class LootboxPrizeSampler {
+
+    /** What a roll needs to know about a prize, detached from any session. */
+    public record RollablePrize(
+            UUID id,
+            UUID tierId,
+            boolean limited,
+            int stockShards,
+            String name,
+            String description,
+            String imageUrl,
+            String tierName) {}
+
+    private final LootboxTierRepository lootboxTierRepository;
+    private final LootboxPrizeRepository lootboxPrizeRepository;
+    private final LoadingCache<UUID, PrizeTable> tables;
+    private final Executor rebuilds;
+
+    @Autowired
+    public LootboxPrizeSampler(
+            LootboxTierRepository lootboxTierRepository,
+            LootboxPrizeRepository lootboxPrizeRepository,
+            @Value("${lootbox.sampler.cache.ttl-seconds:60}") long ttlSeconds,
+            @Value("${lootbox.sampler.cache.max-size:1000}") long maxSize) {
+        this(lootboxTierRepository, lootboxPrizeRepository, ttlSeconds, maxSize, newRebuildExecutor());
+    }
+
+    /** {@code rebuilds} runs the background rebuilds started by {@link #soldOut}. */
+    LootboxPrizeSampler(
+            LootboxTierRepository lootboxTierRepository,
+            LootboxPrizeRepository lootboxPrizeRepository,
+            long ttlSeconds,
+            long maxSize,
+            Executor rebuilds) {
+        this.lootboxTierRepository = lootboxTierRepository;
+        this.lootboxPrizeRepository = lootboxPrizeRepository;
+        this.rebuilds = rebuilds;
+        this.tables = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .maximumSize(maxSize)
+                .executor(rebuilds)
+                .build(this::load);
+    }
+
+    /**
+     * Single thread private to the sampler, so rebuilds, which query the database, never
+     * occupy the common pool. Rebuilds are shared per crate, so the queue stays short; if
+     * it ever fills, the reporting thread rebuilds itself rather than dropping a refresh.
+     */
+    private static ThreadPoolExecutor newRebuildExecutor() {
+        return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(100),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "lootbox-sampler-rebuild");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (rebuilds instanceof ExecutorService executorService) {
+            executorService.shutdown();
+        }
+    }
+
+    public PrizeTable table(UUID crateId) {
+        return tables.get(crateId);
+    }
+
+    /**
+     * Report that the prize at {@code index} of {@code table} is sold out. Rolls on the
+     * table skip it from now on, and the first report for a prize starts a rebuild of
+     * the crate's table once the current transaction ends. Rolls keep using the current
+     * table until the rebuild replaces it, and a rebuild already running is shared.
+     */
+    public void soldOut(UUID crateId, PrizeTable table, int index) {
+        if (!table.markSoldOut(index)) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    tables.refresh(crateId);
+                }
+            });
+        } else {
+            tables.refresh(crateId);
+        }
+    }
+
+    /**
+     * Drop the crate's table now and again once the current transaction commits, so a
+     * roll that reloads in between cannot cache the pre-commit state.
+     */
+    public void invalidate(UUID crateId) {
+        tables.invalidate(crateId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    tables.invalidate(crateId);
+                }
+            });
+        }
+    }
+
+    private PrizeTable load(UUID crateId) {
+        List<LootboxTier> tiers = lootboxTierRepository.findRollableTiersByLootbox(crateId);
+        Map<UUID, List<LootboxPrize>> prizesByTier = lootboxPrizeRepository
+                .findActiveByLootboxId(crateId).stream()
+                .collect(Collectors.groupingBy(p -> p.getTier().getId()));
+        return PrizeTable.build(tiers, prizesByTier);
+    }
+
+    /**
+     * Vose alias table over a crate's tiers, weighted by probability, with each tier's
+     * prizes stored contiguously and picked uniformly. Prizes are addressed by index so
+     * a roll can exclude depleted ones with a {@link BitSet}.
+     */
+    public static final class PrizeTable {
+
+        /** Alias draws to try before falling back to a scan of the remaining tiers. */
+        private static final int MAX_REJECTIONS = 32;
+
+        private final RollablePrize[] prizes;
+        private final int[] tierStart;
+        private final double[] tierWeight;
+        private final double[] prob;
+        private final int[] alias;
+        private final double totalWeight;
+        /** Prizes reported sold out since the table was built. */
+        private final BitSet soldOut = new BitSet();
+
+        private PrizeTable(RollablePrize[] prizes, int[] tierStart, double[] tierWeight) {
+            this.prizes = prizes;
+            this.tierStart = tierStart;
+            this.tierWeight = tierWeight;
+            double total = 0.0;
+            for (double w : tierWeight) total += w;
+            this.totalWeight = total;
+            int n = tierWeight.length;
+            this.prob = new double[n];
+            this.alias = new int[n];
+            buildAlias();
+        }
+
+        static PrizeTable build(List<LootboxTier> tiers, Map<UUID, List<LootboxPrize>> prizesByTier) {
+            List<RollablePrize> prizes = new ArrayList<>();
+            List<Integer> starts = new ArrayList<>();
+            List<Double> weights = new ArrayList<>();
+            for (LootboxTier tier : tiers) {
+                List<LootboxPrize> tierPrizes = prizesByTier.get(tier.getId());
+                if (tierPrizes == null || tierPrizes.isEmpty()) continue;
+                starts.add(prizes.size());
+                weights.add(tier.getProbabilityPct().doubleValue());
+                for (LootboxPrize p : tierPrizes) {
+                    int shards = p.getStockShards() != null ? p.getStockShards() : 1;
+                    prizes.add(new RollablePrize(p.getId(), tier.getId(), p.getQuantity() != null, shards,
+                            p.getName(), p.getDescription(), p.getImageUrl(), tier.getName()));
+                }
+            }
+            int[] tierStart = new int[starts.size() + 1];
+            for (int i = 0; i < starts.size(); i++) tierStart[i] = starts.get(i);
+            tierStart[starts.size()] = prizes.size();
+            double[] tierWeight = weights.stream().mapToDouble(Double::doubleValue).toArray();
+            return new PrizeTable(prizes.toArray(RollablePrize[]::new), tierStart, tierWeight);
+        }
+
+        private void buildAlias() {
+            int n = tierWeight.length;
+            if (n == 0 || totalWeight <= 0.0) return;
+
+            double[] scaled = new double[n];
+            Deque<Integer> small = new ArrayDeque<>();
+            Deque<Integer> large = new ArrayDeque<>();
+            for (int i = 0; i < n; i++) {
+                scaled[i] = tierWeight[i] * n / totalWeight;
+                (scaled[i] < 1.0 ? small : large).push(i);
+            }
+            while (!small.isEmpty() && !large.isEmpty()) {
+                int s = small.pop();
+                int l = large.pop();
+                prob[s] = scaled[s];
+                alias[s] = l;
+                scaled[l] = (scaled[l] + scaled[s]) - 1.0;
+                (scaled[l] < 1.0 ? small : large).push(l);
+            }
+            // Leftovers are 1.0 up to rounding
+            while (!large.isEmpty()) prob[large.pop()] = 1.0;
+            while (!small.isEmpty()) prob[small.pop()] = 1.0;
+        }
+
+        public int size() {
+            return prizes.length;
+        }
+
+        public RollablePrize prize(int index) {
+            return prizes[index];
+        }
+
+        /** A copy of the prizes reported sold out, to start a roll's exclusions from. */
+        public synchronized BitSet soldOut() {
+            return (BitSet) soldOut.clone();
+        }
+
+        /** Returns false when the prize was already reported. */
+        synchronized boolean markSoldOut(int index) {
+            if (soldOut.get(index)) {
+                return false;
+            }
+            soldOut.set(index);
+            return true;
+        }
+
+        /**
+         * Pick a prize index, skipping those set in {@code excluded}. A tier whose prizes
+         * are all excluded stops taking part, and the others keep their relative weights.
+         *
+         * @throws LootboxException if nothing is left to roll
+         */
+        public int sample(Random random, BitSet excluded) {
+            if (tierWeight.length == 0 || excluded.nextClearBit(0) >= prizes.length) {
+                throw new LootboxException("No prizes are currently available to roll for this crate.");
+            }
+            if (totalWeight > 0.0) {
+                // Rejection keeps the remaining tiers' relative odds exact
+                for (int attempt = 0; attempt < MAX_REJECTIONS; attempt++) {
+                    int column = random.nextInt(tierWeight.length);
+                    int tier = random.nextDouble() < prob[column] ? column : alias[column];
+                    if (!isExhausted(tier, excluded)) {
+                        return samplePrize(tier, random, excluded);
+                    }
+                }
+            }
+            return samplePrize(scanTiers(random, excluded), random, excluded);
+        }
+
+        /** Linear weighted pick over tiers that still have prizes; used once most weight is excluded. */
+        private int scanTiers(Random random, BitSet excluded) {
+            double total = 0.0;
+            for (int t = 0; t < tierWeight.length; t++) {
+                if (!isExhausted(t, excluded)) total += tierWeight[t];
+            }
+            if (total <= 0.0) {
+                throw new LootboxException("Active tier probabilities for this crate sum to zero.");
+            }
+            double pick = random.nextDouble() * total;
+            double cumulative = 0.0;
+            int chosen = -1;
+            for (int t = 0; t < tierWeight.length; t++) {
+                if (isExhausted(t, excluded) || tierWeight[t] <= 0.0) continue;
+                chosen = t;
+                cumulative += tierWeight[t];
+                if (pick < cumulative) break;
+            }
+            return chosen;
+        }
+
+        private boolean isExhausted(int tier, BitSet excluded) {
+            return excluded.nextClearBit(tierStart[tier]) >= tierStart[tier + 1];
+        }
+
+        private int samplePrize(int tier, Random random, BitSet excluded) {
+            int start = tierStart[tier];
+            int end = tierStart[tier + 1];
+            int index = start + random.nextInt(end - start);
+            if (!excluded.get(index)) {
+                return index;
+            }
+            int remaining = (end - start) - excluded.get(start, end).cardinality();
+            int skip = random.nextInt(remaining);
+            int i = excluded.nextClearBit(start);
+            while (skip-- > 0) {
+                i = excluded.nextClearBit(i + 1);
+            }
+            return i;
+        }
+    }
+}
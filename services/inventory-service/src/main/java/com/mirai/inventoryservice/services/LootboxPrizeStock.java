@@ -0,0 +1,125 @@
+package com.mirai.inventoryservice.services;
+
+import com.mirai.inventoryservice.models.lootbox.LootboxPrize;
+import com.mirai.inventoryservice.models.lootbox.LootboxPrizeStockSlice;
+import com.mirai.inventoryservice.repositories.LootboxPrizeRepository;
+import com.mirai.inventoryservice.repositories.LootboxPrizeStockSliceRepository;
+import com.mirai.inventoryservice.services.LootboxPrizeSampler.RollablePrize;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Stock claims for limited prizes.
+ *
+ * By default a prize's stock is the quantity column, claimed with one guarded UPDATE
+ * of the prize row. A prize with {@code stockShards > 1} keeps its stock in that many
+ * {@link LootboxPrizeStockSlice} rows instead: each claim locks a non-empty slice,
+ * starting at a random one and skipping slices other claims are holding, so concurrent
+ * winners of the same hot prize no longer queue on a single row. Only when every slice
+ * is busy does a claim wait, and it only reports sold out once no slice has stock. The prize row is only touched when a slice empties,
+ * to refresh its quantity and retire it once every slice is at zero.
+ */
+@Component
+@RequiredArgsConstructor
+public class LootboxPrizeStock {
+
+    public static final int MAX_SHARDS = 64;
+
+    private final LootboxPrizeRepository lootboxPrizeRepository;
+    private final LootboxPrizeStockSliceRepository sliceRepository;
+
+    /** Outcome of a {@link #claim}. */
+    public enum Claim {
+        /** Sold out or inactive; the caller re-rolls without it. */
+        SOLD_OUT,
+        TAKEN,
+        /** Took the last unit, so the prize is now retired. */
+        TOOK_LAST
+    }
+
+    /**
+     * Take one unit of {@code prize}.
+     */
+    public Claim claim(RollablePrize prize) {
+        if (prize.stockShards() <= 1) {
+            if (lootboxPrizeRepository.decrementQuantity(prize.id()) == 0) return Claim.SOLD_OUT;
+            return isEmpty(prize) ? Claim.TOOK_LAST : Claim.TAKEN;
+        }
+        int shards = prize.stockShards();
+        int start = ThreadLocalRandom.current().nextInt(shards);
+        // The slice a waiting claim queued on can be emptied before it gets the lock, so
+        // try again while the prize still has stock elsewhere
+        for (int attempt = 0; attempt <= shards; attempt++) {
+            List<Object[]> slice = sliceRepository.lockFreeSlice(prize.id(), start, shards);
+            if (slice.isEmpty()) {
+                // Every non-empty slice was busy (or none is left); wait for one
+                slice = sliceRepository.lockAnySlice(prize.id(), start, shards);
+            }
+            if (!slice.isEmpty()) {
+                UUID sliceId = (UUID) slice.get(0)[0];
+                int left = ((Number) slice.get(0)[1]).intValue() - 1;
+                sliceRepository.takeOne(sliceId);
+                if (left == 0 && lootboxPrizeRepository.syncShardedQuantity(prize.id()) == 1 && isEmpty(prize)) {
+                    return Claim.TOOK_LAST;
+                }
+                return Claim.TAKEN;
+            }
+            if (!sliceRepository.hasStock(prize.id())) {
+                break;
+            }
+        }
+        // Covers two claims emptying the last slices at once, each seeing the other's
+        // slice as still stocked when it synced
+        lootboxPrizeRepository.syncShardedQuantity(prize.id());
+        return Claim.SOLD_OUT;
+    }
+
+    /** Whether the prize row's quantity, as just written by this transaction, is zero. */
+    private boolean isEmpty(RollablePrize prize) {
+        Integer quantity = lootboxPrizeRepository.findQuantityById(prize.id());
+        return quantity != null && quantity == 0;
+    }
+
+    /**
+     * Remaining stock of a prize: the slice total when sharded, else its quantity.
+     */
+    public Integer remaining(LootboxPrize prize) {
+        if (prize.getQuantity() == null || prize.getStockShards() <= 1) {
+            return prize.getQuantity();
+        }
+        return (int) sliceRepository.sumRemaining(prize.getId());
+    }
+
+    /**
+     * Lay the prize's quantity out over its current shard count, replacing any existing
+     * slices. Unlimited or single-shard prizes keep no slices.
+     */
+    public void resplit(LootboxPrize prize) {
+        sliceRepository.deleteByPrizeId(prize.getId());
+        Integer quantity = prize.getQuantity();
+        int shards = prize.getStockShards();
+        if (quantity == null || shards <= 1) {
+            return;
+        }
+        List<LootboxPrizeStockSlice> slices = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            // Spread the remainder over the first slices
+            int share = quantity / shards + (i < quantity % shards ? 1 : 0);
+            slices.add(LootboxPrizeStockSlice.builder()
+                    .prizeId(prize.getId())
+                    .sliceNo((short) i)
+                    .remaining(share)
+                    .build());
+        }
+        sliceRepository.saveAll(slices);
+    }
+
+    public void deleteSlices(UUID prizeId) {
+        sliceRepository.deleteByPrizeId(prizeId);
+    }
+}
@@ -21,11 +21,12 @@ import com.mirai.inventoryservice.repositories.LootboxPrizeRepository;
 import com.mirai.inventoryservice.repositories.LootboxRepository;
 import com.mirai.inventoryservice.repositories.LootboxTierRepository;
 import com.mirai.inventoryservice.repositories.ReviewDailyCountRepository;
+import com.mirai.inventoryservice.services.LootboxPrizeSampler.PrizeTable;
+import com.mirai.inventoryservice.services.LootboxPrizeSampler.RollablePrize;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -35,13 +36,11 @@ import java.time.LocalDate;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashSet;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
-import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -57,11 +56,62 @@ public class LootboxService {
     private final LootboxTierRepository lootboxTierRepository;
     private final LootboxPrizeRepository lootboxPrizeRepository;
     private final LootboxTierLifecycle tierLifecycle;
+    private final CoinWalletService coinWalletService;
+    private final LootboxPrizeSampler prizeSampler;
+    private final LootboxPrizeStock prizeStock;
+    private final LootboxCatalogCache catalogCache;
+    private final RecentLootboxPlayFeed recentPlayFeed;
     private final Random lootboxRandom;
 
     @PersistenceContext
     private EntityManager em;
 
+    static final int MAX_HISTORY_PAGE = 200;
+
+    /**
+     * Columns: kind, at, delta, label, ref_id, expired, expires_at, review_count.
+     * Review credits are dated at midnight UTC and expire at midnight UTC of their
+     * expires_at day; their label is built in Java from review_count.
+     */
+    private static final String HISTORY_PAGE_SQL = """
+            SELECT h.kind, h.at, h.delta, h.label, h.ref_id, h.expired, h.expires_at, h.review_count
+            FROM (
+              ( SELECT 'REVIEW_CREDIT' AS kind,
+                       (r.date::timestamp AT TIME ZONE 'UTC') AS at,
+                       r.coins_awarded AS delta,
+                       CAST(NULL AS text) AS label,
+                       r.id AS ref_id,
+                       COALESCE(r.expires_at <= :today, false) AS expired,
+                       (r.expires_at::timestamp AT TIME ZONE 'UTC') AS expires_at,
+                       r.review_count AS review_count
+                FROM review_daily_counts r
+                WHERE r.user_id = :userId %s
+                ORDER BY r.expires_at DESC, r.id DESC
+                LIMIT :lim )
+              UNION ALL
+              ( SELECT 'PLAY', p.played_at, -p.cost,
+                       CONCAT(COALESCE(p.lootbox_name_snapshot, 'Lootbox'), ': ', p.prize_name_snapshot,
+                              ' (', p.prize_tier_name_snapshot, ')'),
+                       p.id, CAST(NULL AS boolean), CAST(NULL AS timestamptz), CAST(NULL AS integer)
+                FROM lootbox_plays p
+                WHERE p.user_id = :userId %s
+                ORDER BY p.played_at DESC, p.id DESC
+                LIMIT :lim )
+              UNION ALL
+              ( SELECT 'ADJUSTMENT', a.created_at, a.delta, a.reason,
+                       a.id, COALESCE(a.expires_at <= :now, false), a.expires_at, CAST(NULL AS integer)
+                FROM coin_adjustments a
+                WHERE a.user_id = :userId %s
+                ORDER BY a.created_at DESC, a.id DESC
+                LIMIT :lim )
+            ) h
+            ORDER BY h.at DESC, h.kind DESC, h.ref_id DESC
+            LIMIT :lim
+            """;
+
+    /** Keyset position in the coin history: the (at, kind, refId) of the last row served. */
+    public record HistoryCursor(OffsetDateTime at, String kind, UUID refId) {}
+
     public record BalanceBreakdown(
             long balance,
             long reviewCredits,
@@ -72,54 +122,12 @@ public class LootboxService {
     public record PlayResult(LootboxPlay play, long newBalance) {}
 
     /**
-     * Balance formula with 90-day expiry support:
-     *
-     *   balance = MAX(0, total_earned - MAX(total_spent, total_expired))
-     *
-     * Why MAX(spent, expired): spending and expiry both consume earnings, but the same
-     * earning can only be consumed once. Whichever is larger dictates how much is gone;
-     * the remainder is still spendable. This makes fresh earnings spendable even after
-     * old coins lapsed unspent — solves the "phantom debt" trap a naive subtraction has.
+     * Current balance from the user's coin_wallets row. See
+     * {@link CoinWalletService#balance(UUID)} for the formula.
      */
     @Transactional(readOnly = true)
     public BalanceBreakdown computeBalance(UUID userId) {
-        // Single round-trip across three tables. Each sub-aggregate is an indexed
-        // scan (ix_review_daily_counts_user_expires, ix_coin_adjustments_user_expires,
-        // ix_lootbox_plays_user_played per V42), so Postgres plans this as 5 cheap
-        // index lookups in one query. Replaces 3 separate roundtrips — the win is
-        // network latency on Supabase, not query work.
-        // Sums coins_awarded (locked in per row at write time) so rate changes never
-        // retroactively re-price already-earned credits.
-        Object[] row = (Object[]) em.createNativeQuery("""
-                SELECT
-                  COALESCE((SELECT SUM(coins_awarded) FROM review_daily_counts
-                            WHERE user_id = :userId), 0) AS total_reviews,
-                  COALESCE((SELECT SUM(coins_awarded) FROM review_daily_counts
-                            WHERE user_id = :userId AND expires_at <= :today), 0) AS expired_reviews,
-                  COALESCE((SELECT SUM(delta) FROM coin_adjustments
-                            WHERE user_id = :userId), 0) AS total_adjustments,
-                  COALESCE((SELECT SUM(delta) FROM coin_adjustments
-                            WHERE user_id = :userId AND expires_at <= :now), 0) AS expired_adjustments,
-                  COALESCE((SELECT SUM(cost) FROM lootbox_plays
-                            WHERE user_id = :userId), 0) AS total_spent
-                """)
-                .setParameter("userId", userId)
-                .setParameter("today", LocalDate.now())
-                .setParameter("now", OffsetDateTime.now())
-                .getSingleResult();
-
-        long totalReviewCredits = ((Number) row[0]).longValue();
-        long expiredReview      = ((Number) row[1]).longValue();
-        long totalAdjustments   = ((Number) row[2]).longValue();
-        long expiredAdjustments = ((Number) row[3]).longValue();
-        long totalSpent         = ((Number) row[4]).longValue();
-
-        long totalEarned  = totalReviewCredits + totalAdjustments;
-        long totalExpired = expiredReview + expiredAdjustments;
-        long raw          = totalEarned - Math.max(totalSpent, totalExpired);
-        long balance      = Math.max(0L, raw);
-
-        return new BalanceBreakdown(balance, totalReviewCredits, totalAdjustments, totalSpent, totalExpired);
+        return coinWalletService.balance(userId);
     }
 
     /**
@@ -156,7 +164,7 @@ public class LootboxService {
             throw new LootboxException("INSUFFICIENT_BALANCE: not enough Pito Coins to play.");
         }
 
-        LootboxPrize prize = rollAndClaimPrize(crate);
+        RollablePrize prize = rollAndClaimPrize(crate);
         // Reference proxy: Hibernate emits user_id on the LootboxPlay INSERT without a
         // SELECT round-trip. Safe because we never call accessors on the proxy.
         User user = em.getReference(User.class, userId);
@@ -166,134 +174,72 @@ public class LootboxService {
                 .lootbox(crate)
                 .lootboxNameSnapshot(crate.getName())
                 .cost(cost)
-                .prize(prize)
-                .prizeNameSnapshot(prize.getName())
-                .prizeDescriptionSnapshot(prize.getDescription())
-                .prizeImageUrlSnapshot(prize.getImageUrl())
-                .prizeTierNameSnapshot(prize.getTier().getName())
+                .prize(em.getReference(LootboxPrize.class, prize.id()))
+                .prizeNameSnapshot(prize.name())
+                .prizeDescriptionSnapshot(prize.description())
+                .prizeImageUrlSnapshot(prize.imageUrl())
+                .prizeTierNameSnapshot(prize.tierName())
                 .status("WON")
                 .idempotencyKey(idempotencyKey)
                 .build();
         lootboxPlayRepository.save(play);
+        recentPlayFeed.recordAfterCommit(play.getId());
 
         return new PlayResult(play, bb.balance() - cost);
     }
 
     /**
-     * Roll-and-claim loop for cap-aware prize selection. Limited prizes (quantity != null)
-     * are claimed via an atomic decrement; if the row was already depleted (returns 0),
-     * we add it to the exclude set and re-roll. Unlimited prizes (quantity == null) are
-     * accepted immediately.
+     * Roll-and-claim loop for cap-aware prize selection. Limited prizes are claimed via an
+     * atomic decrement (see LootboxPrizeStock); if the prize was already depleted, we
+     * exclude it and re-roll from the same cached table. Unlimited prizes are accepted immediately.
      *
-     * If every prize in the crate ends up excluded (the exclude-set fully covers the
-     * rollable pool), rollPrize throws and we auto-close the crate so subsequent players
-     * don't hit the same dead-end. The exception propagates uncharged because the play
-     * row is saved only AFTER this method returns a prize.
+     * If every prize in the crate ends up excluded, the sampler throws and we auto-close
+     * the crate so subsequent players don't hit the same dead-end. The exception
+     * propagates uncharged because the play row is saved only AFTER this method returns
+     * a prize.
      */
-    private LootboxPrize rollAndClaimPrize(Lootbox crate) {
+    private RollablePrize rollAndClaimPrize(Lootbox crate) {
         UUID crateId = crate.getId();
-        // Fetch the rollable pool once up front. Tiers and the per-tier active-prize
-        // lists are reused across retries: a depleted prize only adds an id to the
-        // in-memory exclude set, so we never re-query during the retry loop. The
-        // stale-snapshot tradeoff (admin reactivating prizes mid-play) is acceptable —
+        // The table is a cached snapshot of the rollable pool (see LootboxPrizeSampler);
         // the atomic decrementQuantity remains the source of truth for stock.
-        List<LootboxTier> tiers = lootboxTierRepository.findRollableTiersByLootbox(crateId);
-        Map<UUID, List<LootboxPrize>> prizesByTier = lootboxPrizeRepository
-                .findActiveByLootboxId(crateId).stream()
-                .collect(Collectors.groupingBy(p -> p.getTier().getId()));
-
-        Set<UUID> exclude = new HashSet<>();
+        PrizeTable table = prizeSampler.table(crateId);
+        BitSet exclude = table.soldOut();
         while (true) {
-            LootboxPrize candidate;
+            int index;
             try {
-                candidate = pickPrize(tiers, prizesByTier, exclude);
+                index = table.sample(lootboxRandom, exclude);
             } catch (LootboxException ex) {
                 // Nothing left to award in this crate — close it so the next player sees
                 // "unavailable" up front rather than hitting the same dead-end.
                 crate.setActive(false);
                 lootboxRepository.save(crate);
+                prizeSampler.invalidate(crateId);
+                catalogCache.invalidate();
                 throw ex;
             }
-            if (candidate.getQuantity() == null) {
+            RollablePrize candidate = table.prize(index);
+            if (!candidate.limited()) {
                 return candidate;
             }
-            int rows = lootboxPrizeRepository.decrementQuantity(candidate.getId());
-            if (rows == 1) {
-                // If this took the last copy, the SQL UPDATE also flipped active=false;
-                // poke the tier-lifecycle helper so the tier deactivates + rebalances
-                // when no active prizes remain. The helper is a no-op if any are left.
-                tierLifecycle.maybeDeactivateTier(candidate.getTier().getId());
+            LootboxPrizeStock.Claim claim = prizeStock.claim(candidate);
+            if (claim != LootboxPrizeStock.Claim.SOLD_OUT) {
+                if (claim == LootboxPrizeStock.Claim.TOOK_LAST) {
+                    // The claim also flipped active=false; poke the tier-lifecycle helper
+                    // so the tier deactivates + rebalances when no active prizes remain
+                    // (a no-op if any are left), and let players see the SOLD OUT card.
+                    tierLifecycle.maybeDeactivateTier(candidate.tierId());
+                    prizeSampler.soldOut(crateId, table, index);
+                    catalogCache.invalidate();
+                }
                 return candidate;
             }
             // Lost the race or already depleted — drop it from contention and try again.
-            exclude.add(candidate.getId());
-        }
-    }
-
-    public LootboxPrize rollPrize(UUID crateId) {
-        return rollPrize(crateId, Set.of());
-    }
-
-    /**
-     * Weighted random pick over a crate's active tiers (and active prizes within them).
-     * Probabilities of rollable tiers are normalized to sum to 1.0; empty/inactive tiers
-     * are silently skipped so they don't "eat" rolls.
-     *
-     * `excludePrizeIds` is consulted to skip prizes whose stock was already depleted
-     * during this play's roll loop (see rollAndClaimPrize). A tier becomes unrollable
-     * for this attempt if every one of its active prizes is in the exclude set.
-     */
-    @Transactional(readOnly = true)
-    public LootboxPrize rollPrize(UUID crateId, Set<UUID> excludePrizeIds) {
-        List<LootboxTier> tiers = lootboxTierRepository.findRollableTiersByLootbox(crateId);
-        Map<UUID, List<LootboxPrize>> prizesByTier = lootboxPrizeRepository
-                .findActiveByLootboxId(crateId).stream()
-                .collect(Collectors.groupingBy(p -> p.getTier().getId()));
-        return pickPrize(tiers, prizesByTier, excludePrizeIds);
-    }
-
-    private LootboxPrize pickPrize(
-            List<LootboxTier> tiers,
-            Map<UUID, List<LootboxPrize>> prizesByTier,
-            Set<UUID> excludePrizeIds) {
-        List<LootboxTier> rollable = tiers.stream()
-                .filter(t -> hasRollablePrize(prizesByTier.get(t.getId()), excludePrizeIds))
-                .toList();
-        if (rollable.isEmpty()) {
-            throw new LootboxException("No prizes are currently available to roll for this crate.");
-        }
-
-        double total = rollable.stream()
-                .mapToDouble(t -> t.getProbabilityPct().doubleValue())
-                .sum();
-        if (total <= 0.0) {
-            throw new LootboxException("Active tier probabilities for this crate sum to zero.");
-        }
-
-        double pick = lootboxRandom.nextDouble() * total;
-        double cumulative = 0.0;
-        LootboxTier chosenTier = rollable.get(rollable.size() - 1);
-        for (LootboxTier t : rollable) {
-            cumulative += t.getProbabilityPct().doubleValue();
-            if (pick < cumulative) {
-                chosenTier = t;
-                break;
-            }
-        }
-
-        List<LootboxPrize> prizes = prizesByTier.getOrDefault(chosenTier.getId(), List.of()).stream()
-                .filter(p -> !excludePrizeIds.contains(p.getId()))
-                .toList();
-        if (prizes.isEmpty()) {
-            throw new LootboxException("Selected tier has no active prizes.");
+            // The cached table skips it from now on and is rebuilt once in the background;
+            // the catalog still lists it, so rebuild that for the next player.
+            exclude.set(index);
+            prizeSampler.soldOut(crateId, table, index);
+            catalogCache.invalidate();
         }
-        return prizes.get(lootboxRandom.nextInt(prizes.size()));
-    }
-
-    private boolean hasRollablePrize(List<LootboxPrize> tierPrizes, Set<UUID> excludePrizeIds) {
-        if (tierPrizes == null || tierPrizes.isEmpty()) return false;
-        if (excludePrizeIds.isEmpty()) return true;
-        return tierPrizes.stream().anyMatch(p -> !excludePrizeIds.contains(p.getId()));
     }
 
     /**
@@ -312,13 +258,16 @@ public class LootboxService {
     // ----- Read-side mapping helpers used by both user + admin controllers -----
 
     /**
-     * Player-facing catalog: only crates currently open, with their active tiers + prizes.
+     * Player-facing catalog: only crates currently open, with their active tiers + prizes,
+     * plus the next time a crate opens or closes (when it goes stale on its own). Served
+     * to players through {@link LootboxCatalogCache}.
      */
     @Transactional(readOnly = true)
-    public List<LootboxResponseDTO> getCatalog() {
+    public LootboxCatalogCache.Built loadCatalog() {
         OffsetDateTime now = OffsetDateTime.now();
+        OffsetDateTime nextBoundary = lootboxRepository.findNextWindowBoundary(now);
         List<Lootbox> open = lootboxRepository.findOpen(now);
-        if (open.isEmpty()) return List.of();
+        if (open.isEmpty()) return new LootboxCatalogCache.Built(List.of(), nextBoundary);
 
         // Include depleted (quantity = 0) prizes so the player UI can render "SOLD OUT"
         // cards alongside still-rollable ones.
@@ -328,12 +277,13 @@ public class LootboxService {
 
         Map<UUID, List<LootboxTier>> tiersByCrate = loadTiersByCrate(open);
 
-        return open.stream()
+        List<LootboxResponseDTO> crates = open.stream()
                 .map(crate -> toLootboxDto(
                         crate,
                         tiersByCrate.getOrDefault(crate.getId(), List.of()),
                         prizesByTier))
                 .toList();
+        return new LootboxCatalogCache.Built(crates, nextBoundary);
     }
 
     /**
@@ -394,68 +344,94 @@ public class LootboxService {
                 .toList();
     }
 
+    /**
+     * One page of the user's coin history (review credits, plays and adjustments),
+     * newest first, ordered by (at, kind, refId) descending. Pass the last row's
+     * (at, kind, refId) as {@code after} to fetch the next page; null starts at the
+     * top. Each source is read with its own seek on the (user_id, time) index and
+     * capped at the page size, so a page costs the same however long the history is.
+     */
     @Transactional(readOnly = true)
-    public List<CoinHistoryEntryDTO> getUserHistory(UUID userId) {
-        List<CoinHistoryEntryDTO> entries = new ArrayList<>();
+    public List<CoinHistoryEntryDTO> getUserHistory(UUID userId, HistoryCursor after, int limit) {
+        int cap = Math.max(1, Math.min(limit, MAX_HISTORY_PAGE));
         LocalDate today = LocalDate.now();
         OffsetDateTime now = OffsetDateTime.now();
 
-        for (Object[] row : reviewDailyCountRepository.findDailyCreditsByUser(userId)) {
-            LocalDate date = (LocalDate) row[0];
-            int reviewCount = ((Number) row[1]).intValue();
-            int coinsAwarded = ((Number) row[2]).intValue();
-            LocalDate expiresOn = (LocalDate) row[3];
-            boolean expired = expiresOn != null && !expiresOn.isAfter(today);
-            String reviewsLabel = reviewCount + " review" + (reviewCount == 1 ? "" : "s");
-            // Surface coins separately so the UI can show "3 reviews (+6 coins)" when
-            // a rate change makes per-row coin yield differ from the review count.
-            String label = coinsAwarded == reviewCount
-                    ? reviewsLabel
-                    : reviewsLabel + " (+" + coinsAwarded + " coins)";
-            entries.add(CoinHistoryEntryDTO.builder()
-                    .kind("REVIEW_CREDIT")
-                    .at(date.atStartOfDay().atOffset(ZoneOffset.UTC))
-                    .delta(coinsAwarded)
-                    .label(label)
-                    .expired(expired)
-                    .expiresAt(expiresOn != null
-                            ? expiresOn.atStartOfDay().atOffset(ZoneOffset.UTC)
-                            : null)
-                    .build());
+        String reviewAfter = "";
+        String playAfter = "";
+        String adjustmentAfter = "";
+        if (after != null) {
+            // The plain time bound lets each branch seek its index; the row comparison
+            // then drops rows tied with the cursor that were already served.
+            reviewAfter = """
+                    AND r.expires_at <= :afterExpires
+                    AND ((r.date::timestamp AT TIME ZONE 'UTC'), 'REVIEW_CREDIT', r.id)
+                        < (:afterAt, :afterKind, :afterRef)""";
+            playAfter = """
+                    AND p.played_at <= :afterAt
+                    AND (p.played_at, 'PLAY', p.id) < (:afterAt, :afterKind, :afterRef)""";
+            adjustmentAfter = """
+                    AND a.created_at <= :afterAt
+                    AND (a.created_at, 'ADJUSTMENT', a.id) < (:afterAt, :afterKind, :afterRef)""";
         }
 
-        for (LootboxPlay p : lootboxPlayRepository.findByUserIdOrderByPlayedAtDesc(userId)) {
-            String crateLabel = p.getLootboxNameSnapshot() != null
-                    ? p.getLootboxNameSnapshot() + ": "
-                    : "Lootbox: ";
-            entries.add(CoinHistoryEntryDTO.builder()
-                    .kind("PLAY")
-                    .at(p.getPlayedAt())
-                    .delta(-p.getCost())
-                    .label(crateLabel + p.getPrizeNameSnapshot()
-                            + " (" + p.getPrizeTierNameSnapshot() + ")")
-                    .refId(p.getId())
-                    .build());
+        var query = em.createNativeQuery(HISTORY_PAGE_SQL.formatted(reviewAfter, playAfter, adjustmentAfter))
+                .setParameter("userId", userId)
+                .setParameter("today", today)
+                .setParameter("now", now)
+                .setParameter("lim", cap);
+        if (after != null) {
+            query.setParameter("afterAt", after.at())
+                    .setParameter("afterKind", after.kind())
+                    .setParameter("afterRef", after.refId())
+                    // expires_at is date + 90 days, so this bounds date to the cursor's day
+                    .setParameter("afterExpires",
+                            after.at().withOffsetSameInstant(ZoneOffset.UTC).toLocalDate().plusDays(90));
         }
 
-        for (CoinAdjustment a : coinAdjustmentRepository.findByUserIdOrderByCreatedAtDesc(userId)) {
-            OffsetDateTime expiresOn = a.getExpiresAt();
-            boolean expired = expiresOn != null && !expiresOn.isAfter(now);
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = (List<Object[]>) query.getResultList();
+        List<CoinHistoryEntryDTO> entries = new ArrayList<>(rows.size());
+        for (Object[] r : rows) {
+            String kind = (String) r[0];
+            int delta = ((Number) r[2]).intValue();
+            String label = (String) r[3];
+            if ("REVIEW_CREDIT".equals(kind)) {
+                label = reviewCreditLabel(((Number) r[7]).intValue(), delta);
+            }
             entries.add(CoinHistoryEntryDTO.builder()
-                    .kind("ADJUSTMENT")
-                    .at(a.getCreatedAt())
-                    .delta(a.getDelta())
-                    .label(a.getReason())
-                    .refId(a.getId())
-                    .expired(expired)
-                    .expiresAt(expiresOn)
+                    .kind(kind)
+                    .at(toOffsetDateTime(r[1]))
+                    .delta(delta)
+                    .label(label)
+                    .refId((UUID) r[4])
+                    .expired((Boolean) r[5])
+                    .expiresAt(r[6] != null ? toOffsetDateTime(r[6]) : null)
                     .build());
         }
-
-        entries.sort(Comparator.comparing(CoinHistoryEntryDTO::at).reversed());
         return entries;
     }
 
+    private static String reviewCreditLabel(int reviewCount, int coinsAwarded) {
+        String reviewsLabel = reviewCount + " review" + (reviewCount == 1 ? "" : "s");
+        // Surface coins separately so the UI can show "3 reviews (+6 coins)" when
+        // a rate change makes per-row coin yield differ from the review count.
+        return coinsAwarded == reviewCount
+                ? reviewsLabel
+                : reviewsLabel + " (+" + coinsAwarded + " coins)";
+    }
+
+    private static OffsetDateTime toOffsetDateTime(Object value) {
+        if (value instanceof OffsetDateTime odt) return odt;
+        if (value instanceof java.sql.Timestamp ts) {
+            return ts.toInstant().atOffset(ZoneOffset.UTC);
+        }
+        if (value instanceof java.time.Instant ins) {
+            return ins.atOffset(ZoneOffset.UTC);
+        }
+        throw new IllegalStateException("Unexpected timestamp type: " + value.getClass());
+    }
+
     /**
      * Wallet breakdown for the "expiring soon" UI: groups upcoming expirations within
      * the next 30 days by date and surfaces the earliest expiry. Excludes plays (which
@@ -497,15 +473,10 @@ public class LootboxService {
                 .build();
     }
 
-    @Transactional(readOnly = true)
+    /** Served from {@link RecentLootboxPlayFeed}'s in-memory rings, not the database. */
     public List<RecentLootboxPlayResponseDTO> listRecentPlays(int limit, UUID crateId) {
         int cap = Math.max(1, Math.min(limit, 50));
-        List<LootboxPlay> plays = crateId == null
-                ? lootboxPlayRepository.findRecentPlaysWithAssociations(PageRequest.of(0, cap))
-                : lootboxPlayRepository.findRecentPlaysByCrateWithAssociations(crateId, PageRequest.of(0, cap));
-        return plays.stream()
-                .map(LootboxService::toRecentPlayDto)
-                .toList();
+        return recentPlayFeed.latest(crateId, cap);
     }
 
     public static RecentLootboxPlayResponseDTO toRecentPlayDto(LootboxPlay play) {
@@ -594,6 +565,7 @@ public class LootboxService {
                 .tierColor(tier.getDisplayColor())
                 .active(prize.getActive())
                 .quantity(prize.getQuantity())
+                .stockShards(prize.getStockShards() != null ? prize.getStockShards() : 1)
                 .build();
     }
 
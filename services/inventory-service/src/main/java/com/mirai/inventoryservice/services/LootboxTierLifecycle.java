@@ -27,6 +27,7 @@ public class LootboxTierLifecycle {
 
     private final LootboxTierRepository lootboxTierRepository;
     private final LootboxPrizeRepository lootboxPrizeRepository;
+    private final LootboxPrizeSampler prizeSampler;
 
     /**
      * When an inactive tier gains an active prize, mark it active so it's visible to the
@@ -36,6 +37,7 @@ public class LootboxTierLifecycle {
         if (tier.getActive()) return;
         tier.setActive(true);
         lootboxTierRepository.save(tier);
+        prizeSampler.invalidate(tier.getLootbox().getId());
     }
 
     /**
@@ -51,6 +53,7 @@ public class LootboxTierLifecycle {
         tier.setActive(false);
         tier.setProbabilityPct(BigDecimal.ZERO);
         lootboxTierRepository.save(tier);
+        prizeSampler.invalidate(crateId);
         rebalanceActiveTiers(crateId);
     }
 
@@ -92,5 +95,6 @@ public class LootboxTierLifecycle {
             largest.setProbabilityPct(largest.getProbabilityPct().add(drift));
         }
         lootboxTierRepository.saveAll(active);
+        prizeSampler.invalidate(crateId);
     }
 }
@@ -2,6 +2,7 @@ package com.mirai.inventoryservice.services;
 
 import com.mirai.inventoryservice.dtos.requests.BatchClearDisplaysRequestDTO;
 import com.mirai.inventoryservice.dtos.requests.BatchDisplaySwapRequestDTO;
+import com.mirai.inventoryservice.dtos.requests.DisplayRotationRequestDTO;
 import com.mirai.inventoryservice.dtos.requests.RenewDisplayRequestDTO;
 import com.mirai.inventoryservice.dtos.requests.SetMachineDisplayBatchRequestDTO;
 import com.mirai.inventoryservice.dtos.requests.SetMachineDisplayRequestDTO;
@@ -26,6 +27,7 @@ import com.mirai.inventoryservice.repositories.UserRepository;
 import jakarta.persistence.EntityManager;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -46,6 +48,7 @@ public class MachineDisplayService {
     private final EntityManager entityManager;
     private final AuditLogService auditLogService;
     private final NotificationService notificationService;
+    private final StaleDisplayScanner staleDisplayScanner;
 
     @Value("${machine-display.stale-threshold-days:45}")
     private int staleThresholdDays;
@@ -58,7 +61,8 @@ public class MachineDisplayService {
             LocationRepository locationRepository,
             EntityManager entityManager,
             AuditLogService auditLogService,
-            NotificationService notificationService) {
+            NotificationService notificationService,
+            @Lazy StaleDisplayScanner staleDisplayScanner) {
         this.machineDisplayRepository = machineDisplayRepository;
         this.productRepository = productRepository;
         this.userRepository = userRepository;
@@ -67,6 +71,7 @@ public class MachineDisplayService {
         this.entityManager = entityManager;
         this.auditLogService = auditLogService;
         this.notificationService = notificationService;
+        this.staleDisplayScanner = staleDisplayScanner;
     }
 
     /**
@@ -780,6 +785,242 @@ public class MachineDisplayService {
         return getActiveDisplaysForMachine(request.getLocationType(), request.getMachineId());
     }
 
+    /**
+     * A machine as displays are keyed within a rotation plan.
+     */
+    private record MachineKey(LocationType locationType, UUID machineId) {}
+
+    /**
+     * Floor-wide display rotation: applies every machine's remove / add / swap from the plan
+     * in one transaction. The active displays of every machine involved, the products to add
+     * and the machines' locations are each loaded in one query up front, and the plan is
+     * applied in memory in order, so the query count does not grow with the number of
+     * machines. Ended and new displays are written with one saveAll each, under a single
+     * audit log with one StockMovement per change, followed by one notification.
+     *
+     * Displays to remove or move must be active on the machine the entry names, as of the
+     * entries before it. Returns the active displays of every machine in the plan.
+     */
+    @Transactional
+    public List<MachineDisplayDTO> rotateDisplays(DisplayRotationRequestDTO request) {
+        OffsetDateTime now = OffsetDateTime.now();
+        UUID actorId = request.getActorId();
+        List<BatchDisplaySwapRequestDTO> plan = request.getMachines();
+
+        // Every machine the plan touches, in order of first appearance
+        Set<MachineKey> machines = new LinkedHashSet<>();
+        Set<UUID> productIdsToAdd = new HashSet<>();
+        for (BatchDisplaySwapRequestDTO entry : plan) {
+            machines.add(new MachineKey(entry.getLocationType(), entry.getMachineId()));
+            if (hasTarget(entry)) {
+                machines.add(new MachineKey(entry.getTargetLocationType(), entry.getTargetMachineId()));
+            }
+            if (entry.getProductIdsToAdd() != null) {
+                productIdsToAdd.addAll(entry.getProductIdsToAdd());
+            }
+        }
+
+        // Preload everything the plan can touch: one query each
+        Set<LocationType> locationTypes = machines.stream().map(MachineKey::locationType).collect(Collectors.toSet());
+        Set<UUID> machineIds = machines.stream().map(MachineKey::machineId).collect(Collectors.toSet());
+        Map<MachineKey, List<MachineDisplay>> active = new LinkedHashMap<>();
+        machines.forEach(key -> active.put(key, new ArrayList<>()));
+        for (MachineDisplay display : machineDisplayRepository
+                .findActiveByLocationTypeInAndMachineIdIn(locationTypes, machineIds)) {
+            List<MachineDisplay> onMachine = active.get(new MachineKey(display.getLocationType(), display.getMachineId()));
+            if (onMachine != null) {
+                onMachine.add(display);
+            }
+        }
+        Map<UUID, Product> productsById = productIdsToAdd.isEmpty()
+                ? Collections.emptyMap()
+                : productRepository.findAllById(productIdsToAdd).stream()
+                        .collect(Collectors.toMap(Product::getId, p -> p));
+        Map<UUID, Location> locationsById = locationRepository.findAllById(machineIds).stream()
+                .collect(Collectors.toMap(Location::getId, l -> l));
+
+        Map<MachineKey, List<String>> previousNames = new LinkedHashMap<>();
+        active.forEach((key, displays) -> previousNames.put(key, productNames(displays)));
+
+        List<MachineDisplay> ended = new ArrayList<>();
+        List<MachineDisplay> created = new ArrayList<>();
+        List<DisplayChange> displayChanges = new ArrayList<>();
+        for (BatchDisplaySwapRequestDTO entry : plan) {
+            MachineKey source = new MachineKey(entry.getLocationType(), entry.getMachineId());
+
+            for (UUID displayId : distinct(entry.getDisplayIdsToRemove())) {
+                MachineDisplay display = activeDisplay(active, source, displayId);
+                active.get(source).remove(display);
+                display.setEndedAt(now);
+                ended.add(display);
+                displayChanges.add(new DisplayChange(display.getProduct(), source.locationType(), source.machineId(), null));
+            }
+
+            for (UUID productId : distinct(entry.getProductIdsToAdd())) {
+                Product product = productsById.get(productId);
+                if (product == null) {
+                    throw new IllegalArgumentException("Product not found: " + productId);
+                }
+                // Filter out already displayed products
+                if (isDisplayed(active.get(source), productId)) {
+                    continue;
+                }
+                created.add(startDisplay(active, source, product, locationsById, actorId, now));
+                displayChanges.add(new DisplayChange(product, source.locationType(), null, source.machineId()));
+            }
+
+            if (hasTarget(entry)) {
+                MachineKey target = new MachineKey(entry.getTargetLocationType(), entry.getTargetMachineId());
+                for (UUID displayId : distinct(entry.getDisplayIdsFromTarget())) {
+                    moveDisplay(active, target, source, displayId, locationsById, actorId, now,
+                            ended, created, displayChanges);
+                }
+                for (UUID displayId : distinct(entry.getDisplayIdsToTarget())) {
+                    moveDisplay(active, source, target, displayId, locationsById, actorId, now,
+                            ended, created, displayChanges);
+                }
+            }
+        }
+
+        if (!displayChanges.isEmpty()) {
+            if (!ended.isEmpty()) {
+                machineDisplayRepository.saveAll(ended);
+            }
+            if (!created.isEmpty()) {
+                machineDisplayRepository.saveAll(created);
+            }
+
+            String actorName = resolveActorName(actorId);
+            MachineKey first = machines.iterator().next();
+            String firstCode = machineCode(first, locationsById);
+            List<String> allProductNames = displayChanges.stream()
+                    .map(change -> change.product().getName())
+                    .distinct()
+                    .collect(Collectors.toList());
+            String rotationLabel = "Display rotation across " + machines.size()
+                    + (machines.size() == 1 ? " machine" : " machines");
+
+            AuditLog auditLog = auditLogService.createAuditLog(
+                    actorId,
+                    actorName,
+                    StockMovementReason.DISPLAY_SWAP,
+                    first.machineId(), firstCode,
+                    first.machineId(), firstCode,
+                    displayChanges.size(), 0,
+                    buildProductSummary(allProductNames),
+                    rotationLabel
+            );
+
+            List<StockMovement> movements = displayChanges.stream()
+                    .map(change -> StockMovement.builder()
+                            .auditLog(auditLog)
+                            .item(change.product())
+                            .locationType(change.locationType())
+                            .fromLocationId(change.fromMachineId())
+                            .toLocationId(change.toMachineId())
+                            .previousQuantity(0)
+                            .currentQuantity(0)
+                            .quantityChange(0)  // Display changes don't affect quantity
+                            .reason(StockMovementReason.DISPLAY_SWAP)
+                            .actorId(actorId)
+                            .at(now)
+                            .build())
+                    .collect(Collectors.toList());
+            stockMovementRepository.saveAll(movements);
+
+            List<MachineSnapshot> snapshots = new ArrayList<>();
+            active.forEach((key, displays) -> snapshots.add(new MachineSnapshot(
+                    machineCode(key, locationsById), previousNames.get(key), productNames(displays))));
+            emitDisplayNotification(
+                    NotificationType.DISPLAY_SWAP,
+                    actorId,
+                    actorName,
+                    now,
+                    snapshots,
+                    rotationLabel + ": " + snapshots.stream()
+                            .map(MachineSnapshot::code)
+                            .collect(Collectors.joining(", "))
+            );
+        }
+
+        return toDTOList(active.values().stream().flatMap(List::stream).collect(Collectors.toList()));
+    }
+
+    private static boolean hasTarget(BatchDisplaySwapRequestDTO entry) {
+        return entry.getTargetMachineId() != null && entry.getTargetLocationType() != null;
+    }
+
+    private static List<UUID> distinct(List<UUID> ids) {
+        return ids == null ? List.of() : ids.stream().distinct().collect(Collectors.toList());
+    }
+
+    private static boolean isDisplayed(List<MachineDisplay> displays, UUID productId) {
+        return displays.stream().anyMatch(d -> d.getProduct().getId().equals(productId));
+    }
+
+    private static List<String> productNames(List<MachineDisplay> displays) {
+        return displays.stream()
+                .map(d -> d.getProduct().getName())
+                .collect(Collectors.toList());
+    }
+
+    private static MachineDisplay activeDisplay(Map<MachineKey, List<MachineDisplay>> active, MachineKey machine,
+                                                UUID displayId) {
+        return active.get(machine).stream()
+                .filter(d -> displayId.equals(d.getId()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException(
+                        "Display " + displayId + " is not active on machine " + machine.machineId()));
+    }
+
+    private MachineDisplay startDisplay(Map<MachineKey, List<MachineDisplay>> active, MachineKey machine,
+                                        Product product, Map<UUID, Location> locationsById,
+                                        UUID actorId, OffsetDateTime now) {
+        // Look up location by machineId (UUIDs preserved during migration)
+        Location location = locationsById.get(machine.machineId());
+        if (location == null) {
+            throw new LocationNotFoundException("Location not found: " + machine.machineId());
+        }
+        MachineDisplay display = MachineDisplay.builder()
+                .location(location)
+                .locationType(machine.locationType())
+                .machineId(machine.machineId())
+                .product(product)
+                .startedAt(now)
+                .actorId(actorId)
+                .build();
+        active.get(machine).add(display);
+        return display;
+    }
+
+    /**
+     * Move one display between machines within a rotation: ends it on {@code from} and
+     * starts the same product on {@code to}. Skipped if {@code to} already shows the product.
+     */
+    private void moveDisplay(Map<MachineKey, List<MachineDisplay>> active, MachineKey from, MachineKey to,
+                             UUID displayId, Map<UUID, Location> locationsById, UUID actorId, OffsetDateTime now,
+                             List<MachineDisplay> ended, List<MachineDisplay> created,
+                             List<DisplayChange> displayChanges) {
+        MachineDisplay display = activeDisplay(active, from, displayId);
+        Product product = display.getProduct();
+        if (isDisplayed(active.get(to), product.getId())) {
+            return;
+        }
+        active.get(from).remove(display);
+        display.setEndedAt(now);
+        ended.add(display);
+        created.add(startDisplay(active, to, product, locationsById, actorId, now));
+        displayChanges.add(new DisplayChange(product, from.locationType(), from.machineId(), to.machineId()));
+    }
+
+    private static String machineCode(MachineKey machine, Map<UUID, Location> locationsById) {
+        if (machine.locationType() == LocationType.NOT_ASSIGNED) {
+            return "NA";
+        }
+        Location location = locationsById.get(machine.machineId());
+        return location != null ? location.getLocationCode() : "NA";
+    }
+
     /**
      * Renew display records - ends current displays and creates new ones with fresh startedAt.
      * Used when restocking the same product to reset tracking.
@@ -927,31 +1168,56 @@ public class MachineDisplayService {
     }
 
     /**
-     * Get all stale displays (active longer than threshold)
+     * Get displays active for longer than {@code thresholdDays}, queried directly.
+     * The /stale endpoints read {@link StaleDisplayScanner}'s snapshot instead.
      */
-    public List<MachineDisplayDTO> getStaleDisplays() {
-        OffsetDateTime threshold = OffsetDateTime.now().minusDays(staleThresholdDays);
+    public List<MachineDisplayDTO> getStaleDisplays(int thresholdDays) {
+        OffsetDateTime threshold = OffsetDateTime.now().minusDays(thresholdDays);
         List<MachineDisplay> displays = machineDisplayRepository.findStaleDisplays(threshold);
         return toDTOList(displays);
     }
 
-    /**
-     * Get stale displays for a specific location type
-     */
-    public List<MachineDisplayDTO> getStaleDisplaysByLocationType(LocationType locationType) {
-        OffsetDateTime threshold = OffsetDateTime.now().minusDays(staleThresholdDays);
-        List<MachineDisplay> displays = machineDisplayRepository
-                .findStaleDisplaysByLocationType(locationType, threshold);
-        return toDTOList(displays);
-    }
+    /** Displays stale at a threshold, and how they differ from the ones already reported. */
+    public record StaleDisplayReport(List<MachineDisplayDTO> stale,
+                                     List<MachineDisplayDTO> newlyStale,
+                                     List<MachineDisplayDTO> newlyFresh) {}
 
     /**
-     * Get stale displays with custom threshold
+     * Compare the displays stale at {@code thresholdDays} with the ones marked as
+     * reported (stale_reported_at, V62) and move the marks to match. The marks persist,
+     * so a display that went stale while no instance was running is picked up by the
+     * next scan. Only one instance reports at a time: returns null when another holds
+     * the report lock.
      */
-    public List<MachineDisplayDTO> getStaleDisplays(int thresholdDays) {
-        OffsetDateTime threshold = OffsetDateTime.now().minusDays(thresholdDays);
-        List<MachineDisplay> displays = machineDisplayRepository.findStaleDisplays(threshold);
-        return toDTOList(displays);
+    @Transactional
+    public StaleDisplayReport claimStaleDisplayReport(int thresholdDays) {
+        if (!machineDisplayRepository.tryLockStaleReport()) {
+            return null;
+        }
+        OffsetDateTime now = OffsetDateTime.now();
+        List<MachineDisplay> stale = machineDisplayRepository.findStaleDisplays(now.minusDays(thresholdDays));
+        List<MachineDisplay> reported = machineDisplayRepository.findStaleReported();
+
+        Set<UUID> staleIds = stale.stream().map(MachineDisplay::getId).collect(Collectors.toSet());
+        Set<UUID> reportedIds = reported.stream().map(MachineDisplay::getId).collect(Collectors.toSet());
+        List<UUID> newlyStaleIds = staleIds.stream().filter(id -> !reportedIds.contains(id)).toList();
+        List<MachineDisplay> newlyFresh = reported.stream()
+                .filter(d -> !staleIds.contains(d.getId()))
+                .collect(Collectors.toList());
+
+        if (!newlyStaleIds.isEmpty()) {
+            machineDisplayRepository.markStaleReported(newlyStaleIds, now);
+        }
+        if (!newlyFresh.isEmpty()) {
+            machineDisplayRepository.clearStaleReported(
+                    newlyFresh.stream().map(MachineDisplay::getId).collect(Collectors.toList()));
+        }
+
+        List<MachineDisplayDTO> staleDtos = toDTOList(stale);
+        return new StaleDisplayReport(
+                staleDtos,
+                staleDtos.stream().filter(d -> !reportedIds.contains(d.getId())).collect(Collectors.toList()),
+                toDTOList(newlyFresh));
     }
 
     /**
@@ -971,6 +1237,7 @@ public class MachineDisplayService {
                 .orElseThrow(() -> new IllegalArgumentException("Display history not found: " + displayId));
 
         machineDisplayRepository.delete(display);
+        staleDisplayScanner.invalidateAfterCommit();
     }
 
     // ========= Helper Methods =========
@@ -1173,21 +1440,38 @@ public class MachineDisplayService {
             OffsetDateTime occurredAt,
             List<MachineSnapshot> machines
     ) {
+        String separator = machines.size() > 1 ? " ↔ " : "";
+        String summary = machines.stream()
+                .map(MachineSnapshot::code)
+                .collect(Collectors.joining(separator));
+        emitDisplayNotification(type, actorId, null, occurredAt, machines,
+                "Display " + actionLabel(type) + " on " + (summary.isEmpty() ? "—" : summary));
+    }
+
+    /**
+     * Variant with the message spelled out, and the actor's name when the caller already
+     * has it (null to look it up). Every display change ends here, so this is also where
+     * the stale-display snapshot is marked out of date.
+     */
+    private void emitDisplayNotification(
+            NotificationType type,
+            UUID actorId,
+            String actorName,
+            OffsetDateTime occurredAt,
+            List<MachineSnapshot> machines,
+            String message
+    ) {
+        staleDisplayScanner.invalidateAfterCommit();
         try {
             Map<String, Object> metadata = new HashMap<>();
             metadata.put("occurred_at", occurredAt.toString());
-            metadata.put("actor_name", resolveActorName(actorId));
+            metadata.put("actor_name", actorName != null ? actorName : resolveActorName(actorId));
             metadata.put("machines", machines.stream().map(MachineSnapshot::toMap).collect(Collectors.toList()));
 
-            String separator = machines.size() > 1 ? " ↔ " : "";
-            String summary = machines.stream()
-                    .map(MachineSnapshot::code)
-                    .collect(Collectors.joining(separator));
-
             Notification notif = Notification.builder()
                     .type(type)
                     .severity(NotificationSeverity.INFO)
-                    .message("Display " + actionLabel(type) + " on " + (summary.isEmpty() ? "—" : summary))
+                    .message(message)
                     .metadata(metadata)
                     .via(List.of("slack"))
                     .build();
@@ -0,0 +1,327 @@
+package com.mirai.inventoryservice.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mirai.inventoryservice.dtos.responses.RecentLootboxPlayResponseDTO;
+import com.mirai.inventoryservice.models.lootbox.LootboxPlay;
+import com.mirai.inventoryservice.repositories.LootboxPlayRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The live "recent plays" ticker, served from memory.
+ *
+ * The most recent plays are kept in fixed-size ring buffers, one across all crates and
+ * one per crate, so arcade screens and the admin dashboard can poll without touching
+ * Postgres. The global ring is warmed from the database at startup and a crate's ring
+ * on its first request; after that, each committed play is appended (looked up once,
+ * off the request thread) and pushed to SSE subscribers. A catch-up query every
+ * {@code lootbox.recent-plays.sync-interval-ms} picks up plays committed by other
+ * instances. It pages on the writing transaction id (V61) and only reads plays of
+ * transactions that have finished, so a play that took long to commit is still picked
+ * up; a long-running write transaction holds cross-instance plays back until it ends.
+ * At most {@code lootbox.recent-plays.max-crates}
+ * crate rings are kept, least recently used first out, since the crate id comes from
+ * the request.
+ */
+@Slf4j
+@Component
+public class RecentLootboxPlayFeed {
+
+    private record Subscriber(SseEmitter emitter, UUID crateId) {}
+
+    /** Position of the catch-up: the writing transaction id, then the play id. */
+    private record FeedCursor(long xid, UUID id) {}
+
+    private static final UUID MIN_ID = new UUID(0L, 0L);
+
+    private final LootboxPlayRepository lootboxPlayRepository;
+    private final Executor pushExecutor;
+    private final int capacity;
+    private final long sseTimeoutMs;
+    private final Ring global;
+    private final Cache<UUID, Ring> byCrate;
+    /** Ids in the global ring; admitting a play here is what makes it "new". */
+    private final Set<UUID> seen = ConcurrentHashMap.newKeySet();
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    /** Where the catch-up resumes; only advanced by warm-up and {@link #sync}. */
+    private volatile FeedCursor syncedThrough;
+
+    @Autowired
+    public RecentLootboxPlayFeed(
+            LootboxPlayRepository lootboxPlayRepository,
+            @Value("${lootbox.recent-plays.capacity:50}") int capacity,
+            @Value("${lootbox.recent-plays.sse-timeout-ms:600000}") long sseTimeoutMs,
+            @Value("${lootbox.recent-plays.max-crates:200}") long maxCrates) {
+        this(lootboxPlayRepository, newPushExecutor(), capacity, sseTimeoutMs, maxCrates);
+    }
+
+    RecentLootboxPlayFeed(LootboxPlayRepository lootboxPlayRepository, Executor pushExecutor,
+                          int capacity, long sseTimeoutMs, long maxCrates) {
+        this.lootboxPlayRepository = lootboxPlayRepository;
+        this.pushExecutor = pushExecutor;
+        this.capacity = capacity;
+        this.sseTimeoutMs = sseTimeoutMs;
+        this.global = new Ring(capacity);
+        this.byCrate = Caffeine.newBuilder()
+                .maximumSize(maxCrates)
+                .build();
+    }
+
+    /**
+     * Single thread private to the feed, so looking up a play and writing to slow SSE
+     * clients never holds up a player's request. Drops the oldest queued task when full.
+     */
+    private static ThreadPoolExecutor newPushExecutor() {
+        return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1000),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "recent-plays-push");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.DiscardOldestPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        subscribers.forEach(s -> s.emitter().complete());
+        if (pushExecutor instanceof ExecutorService executorService) {
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * A failure here must not stop the application: the ring stays cold and is warmed by
+     * the first request instead.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() {
+        try {
+            warm(global, null);
+        } catch (RuntimeException e) {
+            log.warn("Could not warm the recent plays feed at startup: {}", e.getMessage());
+        }
+    }
+
+    /** Up to {@code limit} most recent plays, newest first, optionally for one crate. */
+    public List<RecentLootboxPlayResponseDTO> latest(UUID crateId, int limit) {
+        Ring ring = crateId == null ? global : byCrate.get(crateId, id -> new Ring(capacity));
+        if (!ring.warm) {
+            warm(ring, crateId);
+        }
+        return ring.latest(limit);
+    }
+
+    /**
+     * Append {@code playId} once the current transaction commits. The play is loaded
+     * with its user and tier on the feed's own thread.
+     */
+    public void recordAfterCommit(UUID playId) {
+        Runnable load = () -> pushExecutor.execute(() -> {
+            try {
+                lootboxPlayRepository.findByIdWithAssociations(playId).ifPresent(this::record);
+            } catch (RuntimeException e) {
+                log.warn("Could not add play {} to the recent plays feed: {}", playId, e.getMessage());
+            }
+        });
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    load.run();
+                }
+            });
+        } else {
+            load.run();
+        }
+    }
+
+    /**
+     * New subscriber to the live feed, optionally for one crate. Each new play is sent
+     * as a {@code play} event carrying a {@link RecentLootboxPlayResponseDTO}.
+     */
+    public SseEmitter subscribe(UUID crateId) {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, crateId);
+        subscribers.add(subscriber);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        return emitter;
+    }
+
+    /**
+     * Picks up plays committed elsewhere (other instances, or a lost append) after the
+     * last one read. When more than a ring's worth committed since the last run, only
+     * the newest ring's worth is appended.
+     */
+    @Scheduled(fixedDelayString = "${lootbox.recent-plays.sync-interval-ms:5000}",
+            initialDelayString = "${lootbox.recent-plays.sync-interval-ms:5000}")
+    public void sync() {
+        FeedCursor after = syncedThrough;
+        if (after == null) {
+            return;
+        }
+        // Read before the pages: every transaction below it has finished
+        long horizon = lootboxPlayRepository.findFeedHorizon();
+        List<Object[]> newest = List.of();
+        List<Object[]> page;
+        do {
+            page = lootboxPlayRepository.findFeedAfter(after.xid(), after.id(), horizon, capacity);
+            if (!page.isEmpty()) {
+                newest = page;
+                Object[] last = page.get(page.size() - 1);
+                after = new FeedCursor(((Number) last[1]).longValue(), (UUID) last[0]);
+            }
+        } while (page.size() == capacity);
+        if (!newest.isEmpty()) {
+            List<UUID> ids = newest.stream().map(row -> (UUID) row[0]).toList();
+            lootboxPlayRepository.findAllByIdWithAssociations(ids).stream()
+                    .sorted(Comparator.comparingInt(play -> ids.indexOf(play.getId())))
+                    .forEach(this::record);
+        }
+        // Everything below the horizon has been read
+        syncedThrough = horizon > after.xid() ? new FeedCursor(horizon, MIN_ID) : after;
+    }
+
+    /** Keeps idle connections open through proxies and prunes disconnected clients. */
+    @Scheduled(fixedDelayString = "${lootbox.recent-plays.heartbeat-ms:25000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            send(subscriber, SseEmitter.event().comment("keepalive"));
+        }
+    }
+
+    private void warm(Ring ring, UUID crateId) {
+        if (crateId == null && syncedThrough == null) {
+            // Read before the plays, so anything committing in between is caught up
+            syncedThrough = new FeedCursor(lootboxPlayRepository.findFeedHorizon(), MIN_ID);
+        }
+        List<LootboxPlay> plays = crateId == null
+                ? lootboxPlayRepository.findRecentPlaysWithAssociations(PageRequest.of(0, capacity))
+                : lootboxPlayRepository.findRecentPlaysByCrateWithAssociations(crateId, PageRequest.of(0, capacity));
+        for (int i = plays.size() - 1; i >= 0; i--) {
+            LootboxPlay play = plays.get(i);
+            if (ring == global ? seen.add(play.getId()) : !ring.contains(play.getId())) {
+                evict(ring.add(LootboxService.toRecentPlayDto(play)), ring);
+            }
+        }
+        ring.warm = true;
+    }
+
+    private void record(LootboxPlay play) {
+        if (!seen.add(play.getId())) {
+            return;
+        }
+        RecentLootboxPlayResponseDTO dto = LootboxService.toRecentPlayDto(play);
+        UUID crateId = play.getLootbox() != null ? play.getLootbox().getId() : null;
+        evict(global.add(dto), global);
+        if (crateId != null) {
+            // Crates nobody has asked for yet are warmed, and so filled, on first request
+            Ring crateRing = byCrate.getIfPresent(crateId);
+            if (crateRing != null) {
+                crateRing.add(dto);
+            }
+        }
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.crateId() == null || subscriber.crateId().equals(crateId)) {
+                send(subscriber, SseEmitter.event().name("play").data(dto));
+            }
+        }
+    }
+
+    private void evict(RecentLootboxPlayResponseDTO overwritten, Ring ring) {
+        if (ring == global && overwritten != null) {
+            seen.remove(overwritten.getId());
+        }
+    }
+
+    private void send(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        pushExecutor.execute(() -> {
+            try {
+                subscriber.emitter().send(event);
+            } catch (IOException | IllegalStateException e) {
+                subscribers.remove(subscriber);
+                subscriber.emitter().completeWithError(e);
+            }
+        });
+    }
+
+    /**
+     * Fixed-size ring of plays. Writers claim a sequence number and store into its slot;
+     * readers walk back from the newest sequence and skip slots that have since been
+     * overwritten or are not yet filled, so neither side ever blocks.
+     */
+    static final class Ring {
+
+        private record Slot(long seq, RecentLootboxPlayResponseDTO play) {}
+
+        private final AtomicReferenceArray<Slot> slots;
+        private final AtomicLong next = new AtomicLong();
+        volatile boolean warm;
+
+        Ring(int capacity) {
+            this.slots = new AtomicReferenceArray<>(capacity);
+        }
+
+        /** Append a play; returns the one it overwrote, if any. */
+        RecentLootboxPlayResponseDTO add(RecentLootboxPlayResponseDTO play) {
+            long seq = next.getAndIncrement();
+            Slot old = slots.getAndSet((int) (seq % slots.length()), new Slot(seq, play));
+            return old != null ? old.play() : null;
+        }
+
+        boolean contains(UUID playId) {
+            for (int i = 0; i < slots.length(); i++) {
+                Slot slot = slots.get(i);
+                if (slot != null && slot.play().getId().equals(playId)) return true;
+            }
+            return false;
+        }
+
+        /** Newest first by played_at, since warm-up and catch-up can append out of order. */
+        List<RecentLootboxPlayResponseDTO> latest(int limit) {
+            long end = next.get();
+            Map<UUID, RecentLootboxPlayResponseDTO> byId = new LinkedHashMap<>();
+            for (long seq = end - 1; seq >= 0 && seq >= end - slots.length(); seq--) {
+                Slot slot = slots.get((int) (seq % slots.length()));
+                if (slot != null && slot.seq() == seq) {
+                    byId.putIfAbsent(slot.play().getId(), slot.play());
+                }
+            }
+            List<RecentLootboxPlayResponseDTO> plays = new ArrayList<>(byId.values());
+            plays.sort(Comparator.comparing(RecentLootboxPlayResponseDTO::getPlayedAt,
+                    Comparator.nullsLast(Comparator.reverseOrder())));
+            return plays.size() > limit ? plays.subList(0, limit) : plays;
+        }
+    }
+}
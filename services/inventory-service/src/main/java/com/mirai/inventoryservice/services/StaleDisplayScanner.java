@@ -0,0 +1,217 @@
+package com.mirai.inventoryservice.services;
+
+import com.mirai.inventoryservice.dtos.responses.MachineDisplayDTO;
+import com.mirai.inventoryservice.models.audit.Notification;
+import com.mirai.inventoryservice.models.enums.LocationType;
+import com.mirai.inventoryservice.models.enums.NotificationSeverity;
+import com.mirai.inventoryservice.models.enums.NotificationType;
+import com.mirai.inventoryservice.services.MachineDisplayService.StaleDisplayReport;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Stale displays across every machine, from one periodic scan.
+ *
+ * Each scan finds all active displays older than
+ * {@code machine-display.stale-threshold-days} in one query on the active-display
+ * started_at index, and keeps the result as the snapshot the {@code /stale} endpoints
+ * serve. The scan is compared with the displays already reported, which are marked in
+ * the database ({@link MachineDisplayService#claimStaleDisplayReport}), so only displays
+ * that went stale or were rotated out since the last report are reported, in one
+ * aggregated DISPLAY_STALE notification per scan. That holds across restarts, and when
+ * several instances scan at once only the one holding the report lock notifies. A
+ * display change marks the snapshot for a rebuild on the next read; that rebuild does
+ * not notify.
+ */
+@Slf4j
+@Component
+public class StaleDisplayScanner {
+
+    /** Displays listed by name in the notification message; the rest are counted. */
+    private static final int MESSAGE_DISPLAY_LIMIT = 10;
+
+    private record Snapshot(List<MachineDisplayDTO> displays, OffsetDateTime scannedAt) {}
+
+    private final MachineDisplayService machineDisplayService;
+    private final NotificationService notificationService;
+    private final int staleThresholdDays;
+
+    private volatile Snapshot snapshot;
+    private volatile boolean dirty;
+
+    public StaleDisplayScanner(
+            MachineDisplayService machineDisplayService,
+            NotificationService notificationService,
+            @Value("${machine-display.stale-threshold-days:45}") int staleThresholdDays) {
+        this.machineDisplayService = machineDisplayService;
+        this.notificationService = notificationService;
+        this.staleThresholdDays = staleThresholdDays;
+    }
+
+    /**
+     * Runs every 5 minutes by default: rebuilds the snapshot and notifies about displays
+     * that went stale or stopped being stale since they were last reported.
+     */
+    @Scheduled(fixedDelayString = "${machine-display.stale-scan-interval-ms:300000}",
+            initialDelayString = "${machine-display.stale-scan-initial-delay-ms:30000}")
+    public synchronized void scan() {
+        try {
+            // Cleared before the query so a change committing during it marks the result dirty again
+            dirty = false;
+            OffsetDateTime now = OffsetDateTime.now();
+            StaleDisplayReport report = machineDisplayService.claimStaleDisplayReport(staleThresholdDays);
+            if (report == null) {
+                // Another instance is reporting; only refresh this one's snapshot
+                rebuild();
+                return;
+            }
+            Snapshot current = new Snapshot(List.copyOf(report.stale()), now);
+            snapshot = current;
+
+            if (!report.newlyStale().isEmpty() || !report.newlyFresh().isEmpty()) {
+                emitNotification(current, report.newlyStale(), report.newlyFresh());
+            }
+        } catch (Exception e) {
+            log.error("Stale display scan failed", e);
+        }
+    }
+
+    /** Displays stale at the configured threshold, oldest first. */
+    public List<MachineDisplayDTO> getStaleDisplays() {
+        return current().displays();
+    }
+
+    /** Stale displays of one location type, oldest first. */
+    public List<MachineDisplayDTO> getStaleDisplaysByLocationType(LocationType locationType) {
+        return current().displays().stream()
+                .filter(d -> d.getLocationType() == locationType)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Displays active for longer than {@code thresholdDays}. Thresholds at or above the
+     * configured one are a subset of the snapshot; shorter ones are queried directly.
+     */
+    public List<MachineDisplayDTO> getStaleDisplays(int thresholdDays) {
+        if (thresholdDays < staleThresholdDays) {
+            return machineDisplayService.getStaleDisplays(thresholdDays);
+        }
+        OffsetDateTime threshold = OffsetDateTime.now().minusDays(thresholdDays);
+        return current().displays().stream()
+                .filter(d -> d.getStartedAt().isBefore(threshold))
+                .collect(Collectors.toList());
+    }
+
+    /** Rebuild the snapshot on the next read, once the current transaction commits. */
+    public void invalidateAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dirty = true;
+                }
+            });
+        } else {
+            dirty = true;
+        }
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current != null && !dirty) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot == null || dirty) {
+                rebuild();
+            }
+            return snapshot;
+        }
+    }
+
+    private synchronized Snapshot rebuild() {
+        // Cleared before the query so a change committing during it marks the result dirty again
+        dirty = false;
+        OffsetDateTime now = OffsetDateTime.now();
+        Snapshot rebuilt = new Snapshot(List.copyOf(machineDisplayService.getStaleDisplays(staleThresholdDays)), now);
+        snapshot = rebuilt;
+        return rebuilt;
+    }
+
+    /**
+     * One DISPLAY_STALE notification for the whole scan. Failures are logged and the
+     * report marks kept, so the same displays are not reported twice.
+     */
+    private void emitNotification(Snapshot current, List<MachineDisplayDTO> newlyStale,
+                                  List<MachineDisplayDTO> newlyFresh) {
+        try {
+            Map<String, Object> metadata = new HashMap<>();
+            metadata.put("occurred_at", current.scannedAt().toString());
+            metadata.put("threshold", staleThresholdDays);
+            metadata.put("items_count", newlyStale.size());
+            metadata.put("total_stale", current.displays().size());
+            metadata.put("product_names", newlyStale.stream()
+                    .map(MachineDisplayDTO::getProductName)
+                    .distinct()
+                    .collect(Collectors.joining(", ")));
+            metadata.put("newly_stale", newlyStale.stream().map(StaleDisplayScanner::toMap).toList());
+            metadata.put("newly_fresh", newlyFresh.stream().map(StaleDisplayScanner::toMap).toList());
+
+            Notification notif = Notification.builder()
+                    .type(NotificationType.DISPLAY_STALE)
+                    .severity(newlyStale.isEmpty() ? NotificationSeverity.INFO : NotificationSeverity.WARNING)
+                    .message(message(newlyStale, newlyFresh, current.displays().size()))
+                    .metadata(metadata)
+                    .via(List.of("slack"))
+                    .build();
+            notificationService.createNotification(notif);
+        } catch (Exception e) {
+            log.warn("Failed to enqueue stale display notification: {}", e.getMessage());
+        }
+    }
+
+    private String message(List<MachineDisplayDTO> newlyStale, List<MachineDisplayDTO> newlyFresh, int totalStale) {
+        StringBuilder message = new StringBuilder();
+        if (!newlyStale.isEmpty()) {
+            message.append(newlyStale.size())
+                    .append(newlyStale.size() == 1 ? " display has" : " displays have")
+                    .append(" been up for over ").append(staleThresholdDays).append(" days: ")
+                    .append(newlyStale.stream()
+                            .limit(MESSAGE_DISPLAY_LIMIT)
+                            .map(d -> d.getProductName() + " on " + (d.getMachineCode() != null ? d.getMachineCode() : "—")
+                                    + " (" + d.getDaysActive() + "d)")
+                            .collect(Collectors.joining(", ")));
+            if (newlyStale.size() > MESSAGE_DISPLAY_LIMIT) {
+                message.append(" + ").append(newlyStale.size() - MESSAGE_DISPLAY_LIMIT).append(" more");
+            }
+            message.append(". ");
+        }
+        if (!newlyFresh.isEmpty()) {
+            message.append(newlyFresh.size())
+                    .append(newlyFresh.size() == 1 ? " stale display was" : " stale displays were")
+                    .append(" rotated or renewed. ");
+        }
+        return message.append(totalStale).append(" stale in total.").toString();
+    }
+
+    private static Map<String, Object> toMap(MachineDisplayDTO display) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("display_id", display.getId().toString());
+        map.put("code", display.getMachineCode());
+        map.put("location_type", display.getLocationType() != null ? display.getLocationType().name() : null);
+        map.put("product_name", display.getProductName());
+        map.put("sku", display.getProductSku());
+        map.put("days_active", display.getDaysActive());
+        return map;
+    }
+}
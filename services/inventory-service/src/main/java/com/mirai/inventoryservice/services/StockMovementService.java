@@ -319,7 +319,7 @@ public class StockMovementService {
      * Products with zero stock are present in the map with value 0 so callers
      * can mark them inactive without an additional query.
      */
-    private Map<UUID, Integer> sumCurrentTotalsByProductIds(Set<UUID> productIds) {
+    public Map<UUID, Integer> sumCurrentTotalsByProductIds(Set<UUID> productIds) {
         if (productIds == null || productIds.isEmpty()) {
             return Map.of();
         }
@@ -3,19 +3,20 @@ package com.mirai.inventoryservice.services;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mirai.inventoryservice.http.OutboundHttpClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.RestTemplate;
 
 @Service
 public class SupabaseAdminService {
     private static final Logger log = LoggerFactory.getLogger(SupabaseAdminService.class);
 
-    private final RestTemplate restTemplate;
+    private final OutboundHttpClient httpClient;
     private final ObjectMapper objectMapper;
 
     @Value("${supabase.url}")
@@ -27,8 +28,8 @@ public class SupabaseAdminService {
     @Value("${invitation.redirect.url:http://localhost:3000/auth/accept-invite}")
     private String invitationRedirectUrl;
 
-    public SupabaseAdminService() {
-        this.restTemplate = new RestTemplate();
+    public SupabaseAdminService(@Qualifier("supabaseAdminClient") OutboundHttpClient httpClient) {
+        this.httpClient = httpClient;
         this.objectMapper = new ObjectMapper();
     }
 
@@ -80,8 +81,8 @@ public class SupabaseAdminService {
         headers.setBearerAuth(serviceRoleKey);
 
         try {
-            ResponseEntity<String> response = restTemplate.exchange(
-                    url, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+            ResponseEntity<String> response = httpClient.execute("list_users", restTemplate ->
+                    restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class));
 
             JsonNode responseJson = objectMapper.readTree(response.getBody());
             JsonNode users = responseJson.get("users");
@@ -120,7 +121,8 @@ public class SupabaseAdminService {
         headers.setBearerAuth(serviceRoleKey);
 
         try {
-            restTemplate.exchange(url, HttpMethod.DELETE, new HttpEntity<>(headers), String.class);
+            httpClient.execute("delete_user", restTemplate ->
+                    restTemplate.exchange(url, HttpMethod.DELETE, new HttpEntity<>(headers), String.class));
             log.info("Deleted Supabase user: {}", email);
             return true;
         } catch (HttpClientErrorException e) {
@@ -160,16 +162,18 @@ public class SupabaseAdminService {
         if (role != null) userMetadata.put("role", role.toUpperCase());
         body.set("user_metadata", userMetadata);
 
-        HttpEntity<String> request;
+        String json;
         try {
-            request = new HttpEntity<>(objectMapper.writeValueAsString(body), headers);
+            json = objectMapper.writeValueAsString(body);
         } catch (Exception e) {
             log.error("Failed to serialize update request: {}", e.getMessage());
             return false;
         }
 
+        HttpEntity<String> request = new HttpEntity<>(json, headers);
         try {
-            restTemplate.exchange(url, HttpMethod.PUT, request, String.class);
+            httpClient.execute("update_user", restTemplate ->
+                    restTemplate.exchange(url, HttpMethod.PUT, request, String.class));
             log.info("Updated Supabase user metadata for: {}", email);
             return true;
         } catch (HttpClientErrorException e) {
@@ -198,15 +202,17 @@ public class SupabaseAdminService {
         userData.put("role", role.toUpperCase());
         body.set("data", userData);
 
-        HttpEntity<String> request;
+        String json;
         try {
-            request = new HttpEntity<>(objectMapper.writeValueAsString(body), headers);
+            json = objectMapper.writeValueAsString(body);
         } catch (Exception e) {
             throw new RuntimeException("Failed to serialize request", e);
         }
 
+        HttpEntity<String> request = new HttpEntity<>(json, headers);
         try {
-            ResponseEntity<String> response = restTemplate.postForEntity(url, request, String.class);
+            ResponseEntity<String> response = httpClient.execute("generate_link", restTemplate ->
+                    restTemplate.postForEntity(url, request, String.class));
 
             if (!response.getStatusCode().is2xxSuccessful()) {
                 log.error("Failed to generate {} link: {}", type, response.getBody());
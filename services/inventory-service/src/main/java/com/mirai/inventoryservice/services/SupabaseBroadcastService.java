@@ -1,16 +1,38 @@
 package com.mirai.inventoryservice.services;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mirai.inventoryservice.dtos.responses.InventoryChangeDTO;
+import com.mirai.inventoryservice.http.OutboundHttpClient;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Service for broadcasting real-time events to connected frontend clients via Supabase.
@@ -18,6 +40,15 @@ import java.util.List;
  * When the backend makes database changes, call the appropriate broadcast method
  * to notify all connected frontend clients to refresh their data.
  *
+ * Broadcasts are coalesced: calls only record the event in a pending map keyed by
+ * (type, locationType), and {@link #flushPending()} drains that map once per
+ * {@code broadcast.coalesce-window-ms}, sending one message per key with the union of
+ * all affected ids. The flush runs on a scheduler thread of its own, so a long job on
+ * the shared @Scheduled thread cannot hold back the window. The HTTP POSTs run on a
+ * dedicated bounded executor that drops the oldest queued message when full, so a burst
+ * of kuji draws or batch adjusts costs a flat number of Supabase requests and never
+ * occupies the shared async executor.
+ *
  * Usage example:
  * <pre>
  * // After updating inventory
@@ -31,8 +62,17 @@ import java.util.List;
 public class SupabaseBroadcastService {
     private static final Logger log = LoggerFactory.getLogger(SupabaseBroadcastService.class);
 
-    private final RestTemplate restTemplate;
+    private final OutboundHttpClient httpClient;
     private final ObjectMapper objectMapper;
+    private final Executor broadcastExecutor;
+    private final ScheduledExecutorService flushScheduler;
+    private final long coalesceWindowMs;
+
+    /** Pending events for the current coalescing window, keyed by type + locationType. */
+    private final ConcurrentHashMap<String, PendingBroadcast> pending = new ConcurrentHashMap<>();
+
+    /** Committed row-level inventory changes awaiting the next flush. */
+    private final ConcurrentLinkedQueue<InventoryChangeDTO> pendingDeltas = new ConcurrentLinkedQueue<>();
 
     @Value("${supabase.url}")
     private String supabaseUrl;
@@ -46,9 +86,71 @@ public class SupabaseBroadcastService {
     private static final String CHANNEL_NAME = "db-changes";
     private static final String EVENT_NAME = "db_change";
 
-    public SupabaseBroadcastService() {
-        this.restTemplate = new RestTemplate();
-        this.objectMapper = new ObjectMapper();
+    /**
+     * Past this many distinct ids a merged event is sent unscoped; clients refetch the
+     * list anyway, and the payload stays small.
+     */
+    private static final int MAX_IDS_PER_MESSAGE = 100;
+
+    /** Keeps each inventory_delta message well under the Realtime payload limit. */
+    private static final int MAX_CHANGES_PER_MESSAGE = 200;
+
+    @Autowired
+    public SupabaseBroadcastService(
+            @Qualifier("supabaseRealtimeClient") OutboundHttpClient httpClient,
+            @Value("${broadcast.executor.threads:2}") int threads,
+            @Value("${broadcast.executor.queue-capacity:100}") int queueCapacity,
+            @Value("${broadcast.coalesce-window-ms:250}") long coalesceWindowMs) {
+        this(httpClient, new ObjectMapper(), newBroadcastExecutor(threads, queueCapacity),
+                newFlushScheduler(), coalesceWindowMs);
+    }
+
+    SupabaseBroadcastService(OutboundHttpClient httpClient, ObjectMapper objectMapper, Executor broadcastExecutor,
+                             ScheduledExecutorService flushScheduler, long coalesceWindowMs) {
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+        this.broadcastExecutor = broadcastExecutor;
+        this.flushScheduler = flushScheduler;
+        this.coalesceWindowMs = coalesceWindowMs;
+    }
+
+    /**
+     * Bounded pool private to this service. Deliberately not a bean: registering an
+     * Executor would replace Boot's applicationTaskExecutor for every @Async caller.
+     */
+    private static ThreadPoolExecutor newBroadcastExecutor(int threads, int queueCapacity) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "broadcast-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory,
+                new ThreadPoolExecutor.DiscardOldestPolicy());
+    }
+
+    private static ScheduledExecutorService newFlushScheduler() {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "broadcast-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    void start() {
+        flushScheduler.scheduleWithFixedDelay(this::flushQuietly, coalesceWindowMs, coalesceWindowMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flushScheduler.shutdownNow();
+        flushPending();
+        if (broadcastExecutor instanceof ExecutorService executorService) {
+            executorService.shutdown();
+        }
     }
 
     /**
@@ -58,23 +160,13 @@ public class SupabaseBroadcastService {
      * @param locationType the type of location affected (e.g., "RACK", "CABINET")
      * @param itemId optional item ID for targeted updates
      */
-    @Async
     public void broadcastInventoryUpdated(String locationType, String itemId) {
-        ObjectNode payload = objectMapper.createObjectNode();
-        payload.put("type", "inventory_updated");
-        if (locationType != null) {
-            payload.put("locationType", locationType);
-        }
-        if (itemId != null) {
-            payload.put("itemId", itemId);
-        }
-        broadcast(payload);
+        enqueue("inventory_updated", locationType, itemId == null ? null : List.of(itemId));
     }
 
     /**
      * Broadcast that inventory has been updated (without specific location/item).
      */
-    @Async
     public void broadcastInventoryUpdated() {
         broadcastInventoryUpdated(null, null);
     }
@@ -85,20 +177,13 @@ public class SupabaseBroadcastService {
      *
      * @param productIds optional list of affected product IDs
      */
-    @Async
     public void broadcastProductUpdated(List<String> productIds) {
-        ObjectNode payload = objectMapper.createObjectNode();
-        payload.put("type", "product_updated");
-        if (productIds != null && !productIds.isEmpty()) {
-            payload.set("ids", objectMapper.valueToTree(productIds));
-        }
-        broadcast(payload);
+        enqueue("product_updated", null, productIds);
     }
 
     /**
      * Broadcast that a product has been updated (without specific IDs).
      */
-    @Async
     public void broadcastProductUpdated() {
         broadcastProductUpdated(null);
     }
@@ -109,20 +194,13 @@ public class SupabaseBroadcastService {
      *
      * @param shipmentIds optional list of affected shipment IDs
      */
-    @Async
     public void broadcastShipmentUpdated(List<String> shipmentIds) {
-        ObjectNode payload = objectMapper.createObjectNode();
-        payload.put("type", "shipment_updated");
-        if (shipmentIds != null && !shipmentIds.isEmpty()) {
-            payload.set("ids", objectMapper.valueToTree(shipmentIds));
-        }
-        broadcast(payload);
+        enqueue("shipment_updated", null, shipmentIds);
     }
 
     /**
      * Broadcast that a shipment has been updated (without specific IDs).
      */
-    @Async
     public void broadcastShipmentUpdated() {
         broadcastShipmentUpdated(null);
     }
@@ -131,11 +209,8 @@ public class SupabaseBroadcastService {
      * Broadcast that a notification has been created.
      * Call this after creating new notifications.
      */
-    @Async
     public void broadcastNotificationCreated() {
-        ObjectNode payload = objectMapper.createObjectNode();
-        payload.put("type", "notification_created");
-        broadcast(payload);
+        enqueue("notification_created", null, null);
     }
 
     /**
@@ -144,24 +219,156 @@ public class SupabaseBroadcastService {
      *
      * @param itemId optional item ID for targeted updates
      */
-    @Async
     public void broadcastAuditLogCreated(String itemId) {
-        ObjectNode payload = objectMapper.createObjectNode();
-        payload.put("type", "audit_log_created");
-        if (itemId != null) {
-            payload.put("itemId", itemId);
-        }
-        broadcast(payload);
+        enqueue("audit_log_created", null, itemId == null ? null : List.of(itemId));
     }
 
     /**
      * Broadcast that an audit log entry has been created (without specific item).
      */
-    @Async
     public void broadcastAuditLogCreated() {
         broadcastAuditLogCreated(null);
     }
 
+    /**
+     * Broadcast a row-level inventory change so clients can patch cached lists instead
+     * of refetching them. Inside a transaction the change is held until commit, so a
+     * client that catches up via /api/inventory/changes never sees a delta the
+     * database does not have yet.
+     *
+     * @param change the new location quantity and product total, with its movement id as seq
+     */
+    public void broadcastInventoryDelta(InventoryChangeDTO change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    pendingDeltas.add(change);
+                }
+            });
+        } else {
+            pendingDeltas.add(change);
+        }
+    }
+
+    /**
+     * Record an event in the current window. An event without ids widens the merged
+     * message to unscoped, since clients must then refresh everything of that type.
+     */
+    private void enqueue(String type, String locationType, Collection<String> ids) {
+        String key = type + "|" + (locationType == null ? "" : locationType);
+        pending.compute(key, (k, existing) -> {
+            PendingBroadcast merged = existing != null ? existing : new PendingBroadcast(type, locationType);
+            merged.merge(ids);
+            return merged;
+        });
+    }
+
+    private void flushQuietly() {
+        // An exception escaping here would cancel every later flush
+        try {
+            flushPending();
+        } catch (RuntimeException e) {
+            log.warn("Failed to flush pending broadcasts: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Drain the current window and hand one merged message per key to the broadcast
+     * executor. Runs on the flush thread; it never blocks on HTTP.
+     */
+    public void flushPending() {
+        flushDeltas();
+        if (pending.isEmpty()) {
+            return;
+        }
+        for (String key : List.copyOf(pending.keySet())) {
+            PendingBroadcast event = pending.remove(key);
+            if (event != null) {
+                ObjectNode payload = event.toPayload(objectMapper);
+                broadcastExecutor.execute(() -> broadcast(payload));
+            }
+        }
+    }
+
+    private void flushDeltas() {
+        List<InventoryChangeDTO> batch = new ArrayList<>();
+        InventoryChangeDTO change;
+        while ((change = pendingDeltas.poll()) != null) {
+            batch.add(change);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        // Kept in the order the commits completed, which is what a client applying
+        // quantities over each other wants; the catch-up feed corrects any overlap
+        for (int from = 0; from < batch.size(); from += MAX_CHANGES_PER_MESSAGE) {
+            List<InventoryChangeDTO> chunk = batch.subList(from, Math.min(from + MAX_CHANGES_PER_MESSAGE, batch.size()));
+            ObjectNode payload = objectMapper.createObjectNode();
+            payload.put("type", "inventory_delta");
+            payload.put("version", InventoryChangeService.DELTA_VERSION);
+            ArrayNode changes = payload.putArray("changes");
+            for (InventoryChangeDTO c : chunk) {
+                ObjectNode node = changes.addObject();
+                node.put("seq", c.getSeq());
+                node.put("productId", c.getProductId() != null ? c.getProductId().toString() : null);
+                node.put("locationId", c.getLocationId() != null ? c.getLocationId().toString() : null);
+                node.put("locationType", c.getLocationType());
+                node.put("quantity", c.getQuantity());
+                node.put("total", c.getTotal());
+            }
+            broadcastExecutor.execute(() -> broadcast(payload));
+        }
+    }
+
+    /**
+     * Events of one (type, locationType) accumulated within a coalescing window.
+     * Mutated only inside {@code pending.compute}, which serializes access per key.
+     */
+    private static final class PendingBroadcast {
+        private final String type;
+        private final String locationType;
+        private final Set<String> ids = new LinkedHashSet<>();
+        private boolean unscoped;
+
+        PendingBroadcast(String type, String locationType) {
+            this.type = type;
+            this.locationType = locationType;
+        }
+
+        void merge(Collection<String> newIds) {
+            if (unscoped) {
+                return;
+            }
+            if (newIds == null || newIds.isEmpty()) {
+                unscoped = true;
+                ids.clear();
+                return;
+            }
+            ids.addAll(newIds);
+            if (ids.size() > MAX_IDS_PER_MESSAGE) {
+                unscoped = true;
+                ids.clear();
+            }
+        }
+
+        ObjectNode toPayload(ObjectMapper objectMapper) {
+            ObjectNode payload = objectMapper.createObjectNode();
+            payload.put("type", type);
+            if (locationType != null) {
+                payload.put("locationType", locationType);
+            }
+            if (!unscoped && !ids.isEmpty()) {
+                payload.set("ids", objectMapper.valueToTree(ids));
+                // Older clients only look at itemId for targeted inventory/audit refreshes
+                if (ids.size() == 1) {
+                    payload.put("itemId", ids.iterator().next());
+                }
+            }
+            return payload;
+        }
+    }
+
     /**
      * Send a broadcast message to the Supabase realtime channel.
      */
@@ -197,22 +404,24 @@ public class SupabaseBroadcastService {
         message.put("event", EVENT_NAME);
         message.set("payload", payload);
 
-        com.fasterxml.jackson.databind.node.ArrayNode messages = objectMapper.createArrayNode();
+        ArrayNode messages = objectMapper.createArrayNode();
         messages.add(message);
 
         ObjectNode body = objectMapper.createObjectNode();
         body.set("messages", messages);
 
-        HttpEntity<String> request;
+        String json;
         try {
-            request = new HttpEntity<>(objectMapper.writeValueAsString(body), headers);
+            json = objectMapper.writeValueAsString(body);
         } catch (Exception e) {
             log.error("Failed to serialize broadcast payload: {}", e.getMessage());
             return;
         }
 
+        HttpEntity<String> request = new HttpEntity<>(json, headers);
         try {
-            ResponseEntity<String> response = restTemplate.postForEntity(url, request, String.class);
+            ResponseEntity<String> response = httpClient.execute("broadcast",
+                    restTemplate -> restTemplate.postForEntity(url, request, String.class));
 
             if (response.getStatusCode().is2xxSuccessful()) {
                 log.info("Broadcast sent: {}", payload.get("type"));
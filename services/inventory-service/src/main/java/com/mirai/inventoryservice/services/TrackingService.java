@@ -3,21 +3,26 @@ package com.mirai.inventoryservice.services;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mirai.inventoryservice.dtos.easypost.EasyPostTrackerResult;
 import com.mirai.inventoryservice.dtos.requests.TrackingLookupRequestDTO;
 import com.mirai.inventoryservice.dtos.responses.TrackingEventDTO;
 import com.mirai.inventoryservice.dtos.responses.TrackingLookupResponseDTO;
+import com.mirai.inventoryservice.exceptions.OutboundUnavailableException;
 import com.mirai.inventoryservice.exceptions.TrackingException;
+import com.mirai.inventoryservice.http.OutboundHttpClient;
 import com.mirai.inventoryservice.models.enums.CarrierStatus;
 import com.mirai.inventoryservice.models.shipment.Shipment;
 import com.mirai.inventoryservice.repositories.ShipmentRepository;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import java.net.URI;
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
 import java.time.ZonedDateTime;
@@ -29,17 +34,24 @@ import java.util.stream.Collectors;
 public class TrackingService {
 
     private static final String EASYPOST_API_URL = "https://api.easypost.com/v2";
+    /** EasyPost caps list page size at 100, which bounds how many codes one batch call can resolve. */
+    public static final int LIST_PAGE_SIZE = 100;
 
     private final ShipmentRepository shipmentRepository;
-    private final RestTemplate restTemplate;
+    private final OutboundHttpClient easyPostClient;
+    private final EasyPostTrackerCache trackerCache;
     private final ObjectMapper objectMapper;
 
     @Value("${easypost.api.key}")
     private String apiKey;
 
-    public TrackingService(ShipmentRepository shipmentRepository, RestTemplate restTemplate, ObjectMapper objectMapper) {
+    public TrackingService(ShipmentRepository shipmentRepository,
+                           @Qualifier("easyPostClient") OutboundHttpClient easyPostClient,
+                           EasyPostTrackerCache trackerCache,
+                           ObjectMapper objectMapper) {
         this.shipmentRepository = shipmentRepository;
-        this.restTemplate = restTemplate;
+        this.easyPostClient = easyPostClient;
+        this.trackerCache = trackerCache;
         this.objectMapper = objectMapper;
     }
 
@@ -48,13 +60,7 @@ public class TrackingService {
         log.info("Tracking Number: {}", request.trackingNumber());
         log.info("Carrier: {}", request.carrier());
         try {
-            // First try to retrieve existing tracker
-            EasyPostTrackerResponse tracker = getExistingTracker(request.trackingNumber());
-
-            // If no existing tracker found, create one
-            if (tracker == null) {
-                tracker = createTracker(request.trackingNumber(), request.carrier());
-            }
+            EasyPostTrackerResult tracker = resolveTracker(request.trackingNumber(), request.carrier());
 
             // Try to find associated shipment in your system
             Optional<Shipment> shipmentOpt = shipmentRepository
@@ -68,6 +74,8 @@ public class TrackingService {
             log.error("Status: {}", e.getStatusCode());
             log.error("Response: {}", e.getResponseBodyAsString());
             throw new TrackingException("Failed to track package: " + e.getResponseBodyAsString(), e);
+        } catch (OutboundUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             throw new TrackingException("Failed to track package: " + e.getMessage(), e);
         }
@@ -75,13 +83,7 @@ public class TrackingService {
 
     public TrackingLookupResponseDTO getTracking(String trackingNumber) {
         try {
-            // First try to retrieve existing tracker
-            EasyPostTrackerResponse tracker = getExistingTracker(trackingNumber);
-
-            // If no existing tracker found, create one
-            if (tracker == null) {
-                tracker = createTracker(trackingNumber, null);
-            }
+            EasyPostTrackerResult tracker = resolveTracker(trackingNumber, null);
 
             Optional<Shipment> shipmentOpt = shipmentRepository
                 .findFirstByTrackingIdOrderByCreatedAtDesc(trackingNumber);
@@ -90,12 +92,25 @@ public class TrackingService {
 
         } catch (HttpClientErrorException e) {
             throw new TrackingException("Failed to retrieve tracking: " + e.getResponseBodyAsString(), e);
+        } catch (OutboundUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             throw new TrackingException("Failed to retrieve tracking: " + e.getMessage(), e);
         }
     }
 
-    private EasyPostTrackerResponse getExistingTracker(String trackingCode) {
+    /**
+     * Serve the tracker from the in-process cache; on a miss, retrieve the existing
+     * EasyPost tracker or create one if none exists yet.
+     */
+    private EasyPostTrackerResult resolveTracker(String trackingCode, String carrier) {
+        return trackerCache.getOrLoad(trackingCode, () -> {
+            EasyPostTrackerResult existing = getExistingTracker(trackingCode);
+            return existing != null ? existing : createTracker(trackingCode, carrier);
+        });
+    }
+
+    private EasyPostTrackerResult getExistingTracker(String trackingCode) {
         log.info("=== Retrieving Existing EasyPost Tracker ===");
         log.info("Tracking Code: {}", trackingCode);
 
@@ -106,12 +121,13 @@ public class TrackingService {
         HttpEntity<Void> entity = new HttpEntity<>(headers);
 
         try {
-            ResponseEntity<EasyPostTrackerListResponse> response = restTemplate.exchange(
-                EASYPOST_API_URL + "/trackers?tracking_code=" + trackingCode,
-                HttpMethod.GET,
-                entity,
-                EasyPostTrackerListResponse.class
-            );
+            ResponseEntity<EasyPostTrackerListResponse> response = easyPostClient.execute("list_trackers",
+                restTemplate -> restTemplate.exchange(
+                    EASYPOST_API_URL + "/trackers?tracking_code=" + trackingCode,
+                    HttpMethod.GET,
+                    entity,
+                    EasyPostTrackerListResponse.class
+                ));
 
             EasyPostTrackerListResponse body = response.getBody();
             if (body != null && body.getTrackers() != null && !body.getTrackers().isEmpty()) {
@@ -126,7 +142,56 @@ public class TrackingService {
         return null;
     }
 
-    private EasyPostTrackerResponse createTracker(String trackingCode, String carrier) {
+    /**
+     * One page of {@link #fetchTrackerPage}: trackers by code, whether EasyPost has more,
+     * and the last tracker id on the page, which is the cursor for the next one.
+     */
+    public record TrackerPage(Map<String, EasyPostTrackerResult> trackersByCode, boolean hasMore,
+                              String lastTrackerId) {}
+
+    /**
+     * Fetch one page of the existing trackers for a batch of tracking codes in one list
+     * call. Pass the previous page's {@code lastTrackerId} as {@code beforeId} while
+     * {@code hasMore} is set. Codes without a tracker are absent from the result; within
+     * a page, when EasyPost holds more than one tracker for a code the most recent wins.
+     */
+    public TrackerPage fetchTrackerPage(Collection<String> trackingCodes, String beforeId) {
+        if (trackingCodes.isEmpty()) {
+            return new TrackerPage(Map.of(), false, null);
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+        headers.setBasicAuth(apiKey, "");
+        HttpEntity<Void> entity = new HttpEntity<>(headers);
+
+        UriComponentsBuilder builder = UriComponentsBuilder.fromUriString(EASYPOST_API_URL + "/trackers")
+            .queryParam("tracking_codes[]", trackingCodes.toArray())
+            .queryParam("page_size", LIST_PAGE_SIZE);
+        if (beforeId != null) {
+            builder.queryParam("before_id", beforeId);
+        }
+        URI uri = builder.encode().build().toUri();
+
+        ResponseEntity<EasyPostTrackerListResponse> response = easyPostClient.execute("list_trackers_batch",
+            restTemplate -> restTemplate.exchange(uri, HttpMethod.GET, entity, EasyPostTrackerListResponse.class));
+
+        Map<String, EasyPostTrackerResult> byCode = new HashMap<>();
+        EasyPostTrackerListResponse body = response.getBody();
+        if (body == null || body.getTrackers() == null || body.getTrackers().isEmpty()) {
+            return new TrackerPage(byCode, false, null);
+        }
+        // EasyPost lists newest first
+        for (EasyPostTrackerResult tracker : body.getTrackers()) {
+            if (tracker.getTrackingCode() != null) {
+                byCode.putIfAbsent(tracker.getTrackingCode(), tracker);
+            }
+        }
+        String lastTrackerId = body.getTrackers().get(body.getTrackers().size() - 1).getId();
+        return new TrackerPage(byCode, body.isHasMore(), lastTrackerId);
+    }
+
+    private EasyPostTrackerResult createTracker(String trackingCode, String carrier) {
         log.info("=== Creating EasyPost Tracker ===");
         log.info("Tracking Code: {}", trackingCode);
         log.info("Carrier: {}", carrier);
@@ -154,17 +219,18 @@ public class TrackingService {
 
         HttpEntity<String> entity = new HttpEntity<>(requestBody, headers);
 
-        ResponseEntity<EasyPostTrackerResponse> response = restTemplate.exchange(
-            EASYPOST_API_URL + "/trackers",
-            HttpMethod.POST,
-            entity,
-            EasyPostTrackerResponse.class
-        );
+        ResponseEntity<EasyPostTrackerResult> response = easyPostClient.execute("create_tracker",
+            restTemplate -> restTemplate.exchange(
+                EASYPOST_API_URL + "/trackers",
+                HttpMethod.POST,
+                entity,
+                EasyPostTrackerResult.class
+            ));
 
         return response.getBody();
     }
 
-    private TrackingLookupResponseDTO mapToResponseDTO(EasyPostTrackerResponse tracker, Shipment shipment) {
+    private TrackingLookupResponseDTO mapToResponseDTO(EasyPostTrackerResult tracker, Shipment shipment) {
         String status = tracker.getStatus() != null ? tracker.getStatus() : "unknown";
         CarrierStatus carrierStatus = mapToCarrierStatus(status);
 
@@ -211,7 +277,7 @@ public class TrackingService {
         }
     }
 
-    private LocalDate findDeliveryDate(List<EasyPostTrackingDetail> details) {
+    private LocalDate findDeliveryDate(List<EasyPostTrackerResult.EasyPostTrackingDetail> details) {
         if (details == null || details.isEmpty()) {
             return null;
         }
@@ -219,12 +285,12 @@ public class TrackingService {
         return details.stream()
             .filter(d -> "delivered".equalsIgnoreCase(d.getStatus()))
             .findFirst()
-            .map(EasyPostTrackingDetail::getDatetime)
+            .map(EasyPostTrackerResult.EasyPostTrackingDetail::getDatetime)
             .map(this::parseDate)
             .orElse(null);
     }
 
-    private List<TrackingEventDTO> mapTrackingEvents(List<EasyPostTrackingDetail> details) {
+    private List<TrackingEventDTO> mapTrackingEvents(List<EasyPostTrackerResult.EasyPostTrackingDetail> details) {
         if (details == null || details.isEmpty()) {
             return Collections.emptyList();
         }
@@ -255,11 +321,11 @@ public class TrackingService {
         }
     }
 
-    private String formatLocation(EasyPostTrackingDetail detail) {
+    private String formatLocation(EasyPostTrackerResult.EasyPostTrackingDetail detail) {
         List<String> parts = new ArrayList<>();
 
         if (detail.getTrackingLocation() != null) {
-            EasyPostTrackingLocation loc = detail.getTrackingLocation();
+            EasyPostTrackerResult.EasyPostTrackingLocation loc = detail.getTrackingLocation();
             if (loc.getCity() != null) parts.add(loc.getCity());
             if (loc.getState() != null) parts.add(loc.getState());
             if (loc.getCountry() != null) parts.add(loc.getCountry());
@@ -272,46 +338,9 @@ public class TrackingService {
     @Data
     @JsonIgnoreProperties(ignoreUnknown = true)
     static class EasyPostTrackerListResponse {
-        private List<EasyPostTrackerResponse> trackers;
-    }
-
-    @Data
-    @JsonIgnoreProperties(ignoreUnknown = true)
-    static class EasyPostTrackerResponse {
-        private String id;
-
-        @JsonProperty("tracking_code")
-        private String trackingCode;
-
-        private String carrier;
-        private String status;
-
-        @JsonProperty("status_detail")
-        private String statusDetail;
+        private List<EasyPostTrackerResult> trackers;
 
-        @JsonProperty("est_delivery_date")
-        private String estDeliveryDate;
-
-        @JsonProperty("tracking_details")
-        private List<EasyPostTrackingDetail> trackingDetails;
-    }
-
-    @Data
-    @JsonIgnoreProperties(ignoreUnknown = true)
-    static class EasyPostTrackingDetail {
-        private String status;
-        private String message;
-        private String datetime;
-
-        @JsonProperty("tracking_location")
-        private EasyPostTrackingLocation trackingLocation;
-    }
-
-    @Data
-    @JsonIgnoreProperties(ignoreUnknown = true)
-    static class EasyPostTrackingLocation {
-        private String city;
-        private String state;
-        private String country;
+        @JsonProperty("has_more")
+        private boolean hasMore;
     }
 }
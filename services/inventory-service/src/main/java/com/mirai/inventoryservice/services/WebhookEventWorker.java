@@ -0,0 +1,125 @@
+package com.mirai.inventoryservice.services;
+
+import com.mirai.inventoryservice.models.audit.WebhookEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drains queued EasyPost webhook events off the request path.
+ *
+ * Events are claimed in received order and handed to a fixed set of single-threaded
+ * lanes keyed by tracker id. Only a tracker's oldest unfinished event can be claimed,
+ * so its updates are applied in the order they arrived, retries included, while
+ * different trackers proceed in parallel. The number of claimed but unfinished events
+ * is capped so a carrier burst stays in the table, not in memory.
+ *
+ * Safe to run on every instance: claims use SKIP LOCKED, and each claim holds a lease.
+ * Events whose lease ran out, because their instance died or was stopped mid-event,
+ * are requeued by whichever instance notices first.
+ */
+@Slf4j
+@Component
+public class WebhookEventWorker {
+
+    private final EasyPostWebhookService webhookService;
+    private final ExecutorService[] lanes;
+    private final int maxInFlight;
+    private final Duration claimLease;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public WebhookEventWorker(
+            EasyPostWebhookService webhookService,
+            @Value("${webhook.worker.lanes:4}") int laneCount,
+            @Value("${webhook.worker.max-in-flight:200}") int maxInFlight,
+            @Value("${webhook.worker.claim-lease-ms:300000}") long claimLeaseMs) {
+        this.webhookService = webhookService;
+        this.maxInFlight = maxInFlight;
+        this.claimLease = Duration.ofMillis(claimLeaseMs);
+        this.lanes = new ExecutorService[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            String name = "webhook-lane-" + i;
+            lanes[i] = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, name);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /**
+     * Requeue events whose claim lease expired. The lease is sized well above the
+     * time a claimed event can spend queued in a lane plus processing, so events a live
+     * instance is still working on are never taken over.
+     */
+    @Scheduled(fixedDelayString = "${webhook.worker.requeue-interval-ms:60000}")
+    public void requeueExpired() {
+        try {
+            int requeued = webhookService.requeueExpiredClaims(claimLease);
+            if (requeued > 0) {
+                log.info("Requeued {} webhook events whose claim lease expired", requeued);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to requeue expired webhook claims: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${webhook.worker.poll-ms:500}")
+    public void dispatchPending() {
+        int capacity = maxInFlight - inFlight.get();
+        if (capacity <= 0) {
+            return;
+        }
+
+        List<WebhookEvent> claimed = webhookService.claimPendingEvents(capacity);
+        for (WebhookEvent event : claimed) {
+            inFlight.incrementAndGet();
+            UUID eventId = event.getId();
+            laneFor(event.getTrackerId()).execute(() -> process(eventId));
+        }
+    }
+
+    private void process(UUID eventId) {
+        try {
+            webhookService.processQueuedEvent(eventId);
+        } catch (Exception e) {
+            log.warn("Webhook event {} failed: {}", eventId, e.getMessage());
+            try {
+                webhookService.recordProcessingFailure(eventId, e.getMessage());
+            } catch (Exception recordError) {
+                log.error("Could not record failure for webhook event {}: {}", eventId, recordError.getMessage());
+            }
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private ExecutorService laneFor(String trackerId) {
+        return lanes[Math.floorMod(Objects.hashCode(trackerId), lanes.length)];
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+        for (ExecutorService lane : lanes) {
+            lane.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+}
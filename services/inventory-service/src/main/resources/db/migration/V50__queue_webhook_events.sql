@@ -0,0 +1,21 @@
+-- Webhook events are now acknowledged on insert and processed asynchronously.
+-- Existing rows were processed inline, so they start out as PROCESSED.
+ALTER TABLE webhook_events
+    ADD COLUMN tracker_id VARCHAR(255),
+    ADD COLUMN status VARCHAR(20) NOT NULL DEFAULT 'PROCESSED',
+    ADD COLUMN attempts INTEGER NOT NULL DEFAULT 0,
+    ADD COLUMN last_error TEXT,
+    ADD COLUMN received_at TIMESTAMP WITH TIME ZONE;
+
+UPDATE webhook_events SET received_at = processed_at;
+
+ALTER TABLE webhook_events
+    ALTER COLUMN received_at SET NOT NULL,
+    ALTER COLUMN received_at SET DEFAULT clock_timestamp(),
+    ALTER COLUMN status SET DEFAULT 'PENDING',
+    ALTER COLUMN processed_at DROP DEFAULT,
+    ADD CONSTRAINT chk_webhook_events_status
+        CHECK (status IN ('PENDING', 'PROCESSING', 'PROCESSED', 'FAILED'));
+
+-- Worker poll: oldest pending first
+CREATE INDEX idx_webhook_events_pending ON webhook_events(received_at) WHERE status = 'PENDING';
@@ -0,0 +1,21 @@
+-- Stored responses for mutating requests sent with an Idempotency-Key header.
+-- A row is claimed IN_PROGRESS by the replica executing the request (until locked_until)
+-- and holds the response once COMPLETED, until expires_at.
+CREATE TABLE idempotency_keys (
+    id UUID PRIMARY KEY,
+    scope VARCHAR(255) NOT NULL,
+    idempotency_key VARCHAR(255) NOT NULL,
+    request_fingerprint VARCHAR(64) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    response_status INTEGER,
+    response_content_type VARCHAR(255),
+    response_body TEXT,
+    locked_until TIMESTAMP WITH TIME ZONE NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT clock_timestamp(),
+    expires_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    CONSTRAINT uk_idempotency_keys_scope_key UNIQUE (scope, idempotency_key),
+    CONSTRAINT chk_idempotency_keys_status CHECK (status IN ('IN_PROGRESS', 'COMPLETED'))
+);
+
+-- Purge of expired keys
+CREATE INDEX idx_idempotency_keys_expires_at ON idempotency_keys(expires_at);
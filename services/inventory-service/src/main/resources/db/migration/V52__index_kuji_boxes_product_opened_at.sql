@@ -0,0 +1,2 @@
+-- Box history pages over (opened_at, id) per product, newest first
+CREATE INDEX IF NOT EXISTS idx_kuji_boxes_product_opened_at ON kuji_boxes (product_id, opened_at DESC, id DESC);
@@ -0,0 +1,39 @@
+-- Net kuji payouts per box, UTC hour and tier, so the daily payout chart no longer
+-- re-aggregates stock_movements metadata on every request. Hourly buckets let the
+-- service assemble calendar days in the viewer's timezone.
+CREATE TABLE kuji_hourly_payouts (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    box_id UUID NOT NULL REFERENCES kuji_boxes(id) ON DELETE CASCADE,
+    bucket_start TIMESTAMP WITH TIME ZONE NOT NULL,
+    tier_id UUID NOT NULL,
+    slip_count INTEGER NOT NULL DEFAULT 0,
+    value_won DECIMAL(12,2) NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    CONSTRAINT uq_kuji_hourly_payouts_box_bucket_tier UNIQUE (box_id, bucket_start, tier_id)
+);
+
+-- Backfill from the ledger; same valuation as the live draw/undo path
+INSERT INTO kuji_hourly_payouts (box_id, bucket_start, tier_id, slip_count, value_won)
+SELECT x.box_id, x.bucket_start, x.tier_id, SUM(x.slips), SUM(x.slips * x.unit_value)
+FROM (
+    SELECT
+        (sm.metadata->>'kuji_box_id')::uuid AS box_id,
+        date_trunc('hour', sm.at AT TIME ZONE 'UTC') AT TIME ZONE 'UTC' AS bucket_start,
+        COALESCE(sm.metadata->>'kuji_box_tier_id', orig.metadata->>'kuji_box_tier_id')::uuid AS tier_id,
+        CASE WHEN sm.reason = 'KUJI_PRIZE_WON' THEN 1 ELSE -1 END
+            * COALESCE((sm.metadata->>'slip_quantity')::int,
+                       (orig.metadata->>'slip_quantity')::int, 0) AS slips,
+        COALESCE((sm.metadata->>'unit_value')::numeric, t.price, p.msrp, 0) AS unit_value
+    FROM stock_movements sm
+    LEFT JOIN stock_movements orig
+           ON sm.reason = 'KUJI_DRAW_REVERSED'
+          AND orig.id = CAST(NULLIF(sm.metadata->>'reverses_movement_id', 'null') AS bigint)
+    LEFT JOIN kuji_box_tiers t
+           ON t.id = COALESCE(sm.metadata->>'kuji_box_tier_id', orig.metadata->>'kuji_box_tier_id')::uuid
+    LEFT JOIN products p ON p.id = t.linked_product_id
+    WHERE sm.reason IN ('KUJI_PRIZE_WON', 'KUJI_DRAW_REVERSED')
+      AND sm.metadata->>'kuji_box_id' IS NOT NULL
+) x
+JOIN kuji_boxes b ON b.id = x.box_id
+WHERE x.tier_id IS NOT NULL
+GROUP BY x.box_id, x.bucket_start, x.tier_id;
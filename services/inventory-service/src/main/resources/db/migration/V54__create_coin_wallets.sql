@@ -0,0 +1,171 @@
+-- Running coin totals per user, so a balance check reads one row instead of
+-- re-summing review_daily_counts, coin_adjustments and lootbox_plays.
+--
+--   balance = MAX(0, review_credits + adjustments - MAX(spent, expired))
+--
+-- review_credits, adjustments and spent are kept exact by the triggers below, in the
+-- same transaction as the write. Triggers (rather than Java) because review credits
+-- are written by the messaging-service. expired only covers credits that lapsed on or
+-- before reviews_expired_through / adjustments_expired_through; CoinWalletService
+-- rolls later lapses in on a schedule and adds any pending ones at read time, using
+-- next_review_expiry / next_adjustment_expiry to know when a wallet has some.
+CREATE TABLE coin_wallets (
+    user_id                     UUID        PRIMARY KEY REFERENCES users(id) ON DELETE CASCADE,
+    review_credits              BIGINT      NOT NULL DEFAULT 0,
+    adjustments                 BIGINT      NOT NULL DEFAULT 0,
+    spent                       BIGINT      NOT NULL DEFAULT 0,
+    expired                     BIGINT      NOT NULL DEFAULT 0,
+    reviews_expired_through     DATE        NOT NULL DEFAULT DATE '1970-01-01',
+    adjustments_expired_through TIMESTAMPTZ NOT NULL DEFAULT TIMESTAMPTZ '1970-01-01 00:00:00+00',
+    next_review_expiry          DATE,
+    next_adjustment_expiry      TIMESTAMPTZ,
+    updated_at                  TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
+CREATE INDEX ix_coin_wallets_next_review_expiry     ON coin_wallets(next_review_expiry);
+CREATE INDEX ix_coin_wallets_next_adjustment_expiry ON coin_wallets(next_adjustment_expiry);
+
+-- Add (or, with a negative amount, remove) a review credit. A credit that is already
+-- past the sweep watermark counts as expired straight away; anything else may become
+-- the wallet's next expiry. Removals never create a wallet: the row exists from the
+-- insert, and on user deletion it is already being cascaded away.
+CREATE OR REPLACE FUNCTION coin_wallet_add_review_credit(p_user UUID, p_coins BIGINT, p_expires DATE)
+RETURNS VOID AS $$
+BEGIN
+    IF p_coins > 0 THEN
+        INSERT INTO coin_wallets (user_id) VALUES (p_user) ON CONFLICT (user_id) DO NOTHING;
+    END IF;
+    UPDATE coin_wallets w SET
+        review_credits = w.review_credits + p_coins,
+        expired = w.expired + CASE WHEN p_expires <= w.reviews_expired_through THEN p_coins ELSE 0 END,
+        next_review_expiry = CASE WHEN p_expires > w.reviews_expired_through
+                                  THEN LEAST(w.next_review_expiry, p_expires)
+                                  ELSE w.next_review_expiry END,
+        updated_at = NOW()
+    WHERE w.user_id = p_user;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION coin_wallet_add_adjustment(p_user UUID, p_delta BIGINT, p_expires TIMESTAMPTZ, p_removing BOOLEAN)
+RETURNS VOID AS $$
+BEGIN
+    IF NOT p_removing THEN
+        INSERT INTO coin_wallets (user_id) VALUES (p_user) ON CONFLICT (user_id) DO NOTHING;
+    END IF;
+    UPDATE coin_wallets w SET
+        adjustments = w.adjustments + p_delta,
+        expired = w.expired + CASE WHEN p_expires <= w.adjustments_expired_through THEN p_delta ELSE 0 END,
+        next_adjustment_expiry = CASE WHEN p_expires > w.adjustments_expired_through
+                                      THEN LEAST(w.next_adjustment_expiry, p_expires)
+                                      ELSE w.next_adjustment_expiry END,
+        updated_at = NOW()
+    WHERE w.user_id = p_user;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION coin_wallet_add_spent(p_user UUID, p_cost BIGINT)
+RETURNS VOID AS $$
+BEGIN
+    IF p_cost > 0 THEN
+        INSERT INTO coin_wallets (user_id) VALUES (p_user) ON CONFLICT (user_id) DO NOTHING;
+    END IF;
+    UPDATE coin_wallets SET spent = spent + p_cost, updated_at = NOW() WHERE user_id = p_user;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION coin_wallet_on_review_change()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        PERFORM coin_wallet_add_review_credit(OLD.user_id, -OLD.coins_awarded, OLD.expires_at);
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        PERFORM coin_wallet_add_review_credit(NEW.user_id, NEW.coins_awarded, NEW.expires_at);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION coin_wallet_on_adjustment_change()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        PERFORM coin_wallet_add_adjustment(OLD.user_id, -OLD.delta, OLD.expires_at, TRUE);
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        PERFORM coin_wallet_add_adjustment(NEW.user_id, NEW.delta, NEW.expires_at, FALSE);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION coin_wallet_on_play_change()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        PERFORM coin_wallet_add_spent(OLD.user_id, -OLD.cost);
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        PERFORM coin_wallet_add_spent(NEW.user_id, NEW.cost);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Only the columns the totals depend on; redeeming a play or bumping review_count
+-- without coins does not touch the wallet.
+DROP TRIGGER IF EXISTS trigger_coin_wallet_review_change ON review_daily_counts;
+CREATE TRIGGER trigger_coin_wallet_review_change
+    AFTER INSERT OR DELETE OR UPDATE OF user_id, date, coins_awarded ON review_daily_counts
+    FOR EACH ROW
+    EXECUTE FUNCTION coin_wallet_on_review_change();
+
+DROP TRIGGER IF EXISTS trigger_coin_wallet_adjustment_change ON coin_adjustments;
+CREATE TRIGGER trigger_coin_wallet_adjustment_change
+    AFTER INSERT OR DELETE OR UPDATE OF user_id, delta, expires_at ON coin_adjustments
+    FOR EACH ROW
+    EXECUTE FUNCTION coin_wallet_on_adjustment_change();
+
+DROP TRIGGER IF EXISTS trigger_coin_wallet_play_change ON lootbox_plays;
+CREATE TRIGGER trigger_coin_wallet_play_change
+    AFTER INSERT OR DELETE OR UPDATE OF user_id, cost ON lootbox_plays
+    FOR EACH ROW
+    EXECUTE FUNCTION coin_wallet_on_play_change();
+
+-- Backfill from the full formula, swept up to now
+INSERT INTO coin_wallets (user_id, review_credits, adjustments, spent, expired,
+                          reviews_expired_through, adjustments_expired_through,
+                          next_review_expiry, next_adjustment_expiry)
+SELECT u.user_id,
+       COALESCE(r.total, 0), COALESCE(a.total, 0), COALESCE(p.total, 0),
+       COALESCE(r.expired, 0) + COALESCE(a.expired, 0),
+       CURRENT_DATE, NOW(), r.next_expiry, a.next_expiry
+FROM (
+    SELECT user_id FROM review_daily_counts
+    UNION SELECT user_id FROM coin_adjustments
+    UNION SELECT user_id FROM lootbox_plays
+) u
+LEFT JOIN (
+    SELECT user_id, SUM(coins_awarded) AS total,
+           SUM(coins_awarded) FILTER (WHERE expires_at <= CURRENT_DATE) AS expired,
+           MIN(expires_at) FILTER (WHERE expires_at > CURRENT_DATE) AS next_expiry
+    FROM review_daily_counts GROUP BY user_id
+) r ON r.user_id = u.user_id
+LEFT JOIN (
+    SELECT user_id, SUM(delta) AS total,
+           SUM(delta) FILTER (WHERE expires_at <= NOW()) AS expired,
+           MIN(expires_at) FILTER (WHERE expires_at > NOW()) AS next_expiry
+    FROM coin_adjustments GROUP BY user_id
+) a ON a.user_id = u.user_id
+LEFT JOIN (
+    SELECT user_id, SUM(cost) AS total FROM lootbox_plays GROUP BY user_id
+) p ON p.user_id = u.user_id
+ON CONFLICT (user_id) DO UPDATE SET
+    review_credits              = EXCLUDED.review_credits,
+    adjustments                 = EXCLUDED.adjustments,
+    spent                       = EXCLUDED.spent,
+    expired                     = EXCLUDED.expired,
+    reviews_expired_through     = EXCLUDED.reviews_expired_through,
+    adjustments_expired_through = EXCLUDED.adjustments_expired_through,
+    next_review_expiry          = EXCLUDED.next_review_expiry,
+    next_adjustment_expiry      = EXCLUDED.next_adjustment_expiry,
+    updated_at                  = NOW();
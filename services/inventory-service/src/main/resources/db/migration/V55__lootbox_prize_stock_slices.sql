@@ -0,0 +1,15 @@
+-- Optional sharded stock for hot limited prizes. With stock_shards > 1 the remaining
+-- stock lives in that many slice rows and a claim decrements any non-empty slice, so
+-- concurrent winners of the same prize stop queueing on the lootbox_prizes row.
+-- lootbox_prizes.quantity then only refreshes when a slice empties; the prize is sold
+-- out once every slice reaches zero.
+ALTER TABLE lootbox_prizes
+    ADD COLUMN stock_shards SMALLINT NOT NULL DEFAULT 1 CHECK (stock_shards BETWEEN 1 AND 64);
+
+CREATE TABLE lootbox_prize_stock_slices (
+    id        UUID     PRIMARY KEY DEFAULT gen_random_uuid(),
+    prize_id  UUID     NOT NULL REFERENCES lootbox_prizes(id) ON DELETE CASCADE,
+    slice_no  SMALLINT NOT NULL,
+    remaining INTEGER  NOT NULL CHECK (remaining >= 0),
+    CONSTRAINT uq_lootbox_prize_stock_slices_prize_slice UNIQUE (prize_id, slice_no)
+);
@@ -0,0 +1,168 @@
+-- Economy-wide coin aggregates for the admin Coins-tab dashboard, so its KPIs read a
+-- handful of counter rows instead of re-deriving every balance from the ledgers.
+--
+--   coin_wallets.balance  the wallet's balance from its running totals (see V54)
+--   coin_economy_totals   SUM(balance) and COUNT(balance > 0) over all wallets
+--   coin_daily_flows      coins granted (review credits + positive adjustments) and
+--                         spent (play cost) per calendar day
+--
+-- All three are kept by triggers on the same writes that maintain the wallets. The
+-- counters are split into 16 stripes by user so concurrent plays and credits of
+-- different users rarely wait on the same row; readers sum the stripes.
+
+ALTER TABLE coin_wallets
+    ADD COLUMN balance BIGINT
+        GENERATED ALWAYS AS (GREATEST(0, review_credits + adjustments - GREATEST(spent, expired))) STORED;
+CREATE INDEX ix_coin_wallets_balance ON coin_wallets(balance DESC);
+
+CREATE TABLE coin_economy_totals (
+    stripe      SMALLINT PRIMARY KEY CHECK (stripe BETWEEN 0 AND 15),
+    circulation BIGINT   NOT NULL DEFAULT 0,
+    holders     INTEGER  NOT NULL DEFAULT 0
+);
+INSERT INTO coin_economy_totals (stripe) SELECT generate_series(0, 15);
+
+CREATE TABLE coin_daily_flows (
+    day     DATE     NOT NULL,
+    stripe  SMALLINT NOT NULL CHECK (stripe BETWEEN 0 AND 15),
+    granted BIGINT   NOT NULL DEFAULT 0,
+    spent   BIGINT   NOT NULL DEFAULT 0,
+    PRIMARY KEY (day, stripe)
+);
+
+CREATE OR REPLACE FUNCTION coin_stripe(p_user UUID)
+RETURNS SMALLINT AS $$
+    SELECT (hashtext(p_user::text) & 15)::smallint;
+$$ LANGUAGE sql IMMUTABLE;
+
+CREATE OR REPLACE FUNCTION coin_economy_on_wallet_change()
+RETURNS TRIGGER AS $$
+DECLARE
+    v_user        UUID;
+    v_old_balance BIGINT := 0;
+    v_new_balance BIGINT := 0;
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        v_user := OLD.user_id;
+        v_old_balance := OLD.balance;
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        v_user := NEW.user_id;
+        v_new_balance := NEW.balance;
+    END IF;
+    IF v_old_balance <> v_new_balance THEN
+        UPDATE coin_economy_totals SET
+            circulation = circulation + v_new_balance - v_old_balance,
+            holders = holders + (v_new_balance > 0)::int - (v_old_balance > 0)::int
+        WHERE stripe = coin_stripe(v_user);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Add (or, with negative amounts, remove) a day's granted / spent coins
+CREATE OR REPLACE FUNCTION coin_daily_flow_add(p_user UUID, p_day DATE, p_granted BIGINT, p_spent BIGINT)
+RETURNS VOID AS $$
+BEGIN
+    IF p_granted = 0 AND p_spent = 0 THEN
+        RETURN;
+    END IF;
+    INSERT INTO coin_daily_flows (day, stripe, granted, spent)
+    VALUES (p_day, coin_stripe(p_user), p_granted, p_spent)
+    ON CONFLICT (day, stripe) DO UPDATE SET
+        granted = coin_daily_flows.granted + EXCLUDED.granted,
+        spent   = coin_daily_flows.spent + EXCLUDED.spent;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION coin_daily_flow_on_review_change()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        PERFORM coin_daily_flow_add(OLD.user_id, OLD.date, -OLD.coins_awarded, 0);
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        PERFORM coin_daily_flow_add(NEW.user_id, NEW.date, NEW.coins_awarded, 0);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION coin_daily_flow_on_adjustment_change()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        PERFORM coin_daily_flow_add(OLD.user_id, OLD.created_at::date, -GREATEST(OLD.delta, 0), 0);
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        PERFORM coin_daily_flow_add(NEW.user_id, NEW.created_at::date, GREATEST(NEW.delta, 0), 0);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION coin_daily_flow_on_play_change()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        PERFORM coin_daily_flow_add(OLD.user_id, OLD.played_at::date, 0, -OLD.cost);
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        PERFORM coin_daily_flow_add(NEW.user_id, NEW.played_at::date, 0, NEW.cost);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Creating the triggers locks out writes to each table until this migration commits,
+-- so the backfill below neither misses nor double-counts a concurrent write.
+DROP TRIGGER IF EXISTS trigger_coin_economy_wallet_change ON coin_wallets;
+CREATE TRIGGER trigger_coin_economy_wallet_change
+    AFTER INSERT OR DELETE OR UPDATE OF review_credits, adjustments, spent, expired ON coin_wallets
+    FOR EACH ROW
+    EXECUTE FUNCTION coin_economy_on_wallet_change();
+
+DROP TRIGGER IF EXISTS trigger_coin_daily_flow_review_change ON review_daily_counts;
+CREATE TRIGGER trigger_coin_daily_flow_review_change
+    AFTER INSERT OR DELETE OR UPDATE OF user_id, date, coins_awarded ON review_daily_counts
+    FOR EACH ROW
+    EXECUTE FUNCTION coin_daily_flow_on_review_change();
+
+DROP TRIGGER IF EXISTS trigger_coin_daily_flow_adjustment_change ON coin_adjustments;
+CREATE TRIGGER trigger_coin_daily_flow_adjustment_change
+    AFTER INSERT OR DELETE OR UPDATE OF user_id, delta, created_at ON coin_adjustments
+    FOR EACH ROW
+    EXECUTE FUNCTION coin_daily_flow_on_adjustment_change();
+
+DROP TRIGGER IF EXISTS trigger_coin_daily_flow_play_change ON lootbox_plays;
+CREATE TRIGGER trigger_coin_daily_flow_play_change
+    AFTER INSERT OR DELETE OR UPDATE OF user_id, cost, played_at ON lootbox_plays
+    FOR EACH ROW
+    EXECUTE FUNCTION coin_daily_flow_on_play_change();
+
+-- Backfill
+UPDATE coin_economy_totals t SET
+    circulation = s.circulation,
+    holders     = s.holders
+FROM (
+    SELECT coin_stripe(user_id) AS stripe,
+           SUM(balance) AS circulation,
+           COUNT(*) FILTER (WHERE balance > 0) AS holders
+    FROM coin_wallets
+    GROUP BY 1
+) s
+WHERE t.stripe = s.stripe;
+
+INSERT INTO coin_daily_flows (day, stripe, granted, spent)
+SELECT day, stripe, SUM(granted), SUM(spent)
+FROM (
+    SELECT date AS day, coin_stripe(user_id) AS stripe, coins_awarded AS granted, 0 AS spent
+    FROM review_daily_counts WHERE coins_awarded <> 0
+    UNION ALL
+    SELECT created_at::date, coin_stripe(user_id), delta, 0
+    FROM coin_adjustments WHERE delta > 0
+    UNION ALL
+    SELECT played_at::date, coin_stripe(user_id), 0, cost
+    FROM lootbox_plays WHERE cost <> 0
+) ev
+GROUP BY day, stripe;
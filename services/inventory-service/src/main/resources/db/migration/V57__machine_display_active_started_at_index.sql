@@ -0,0 +1,6 @@
+-- The stale-display scan reads every active display older than the threshold, oldest
+-- first, in one query. A partial index over active displays' started_at answers it
+-- without visiting the ended history, which grows with every rotation.
+CREATE INDEX IF NOT EXISTS idx_machine_display_active_started_at
+    ON machine_display (started_at)
+    WHERE ended_at IS NULL;
@@ -0,0 +1,19 @@
+-- Commit-safe cursor for the inventory change feed.
+--
+-- The feed used the stock_movements id as its cursor, but identity ids are handed out
+-- at insert: a row with a lower id can commit after a client has already read a higher
+-- one and is then skipped for good. change_xid records the id of the transaction that
+-- wrote the row. The feed pages on (change_xid, id) and only serves rows whose
+-- transaction is older than the reader's snapshot xmin; every transaction below that
+-- horizon has committed or rolled back, so a row that commits later always sorts after
+-- the cursor. Writers only fill a column default and never wait on each other.
+--
+-- The column is added without a default and the default set afterwards, so the table is
+-- not rewritten: existing rows stay NULL and are not part of the feed.
+ALTER TABLE stock_movements ADD COLUMN IF NOT EXISTS change_xid xid8;
+
+ALTER TABLE stock_movements ALTER COLUMN change_xid SET DEFAULT pg_current_xact_id();
+
+CREATE INDEX IF NOT EXISTS idx_stock_movements_change_xid
+    ON stock_movements (change_xid, id)
+    WHERE change_xid IS NOT NULL;
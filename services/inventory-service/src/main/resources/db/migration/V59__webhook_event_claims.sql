@@ -0,0 +1,18 @@
+-- Webhook claims for several worker instances.
+-- claimed_at starts a lease: only claims older than the lease are requeued, so a
+-- replica's in-flight events are left alone while it is alive. Rows already in
+-- PROCESSING count as claimed when they were received, so they expire normally.
+ALTER TABLE webhook_events ADD COLUMN claimed_at TIMESTAMP WITH TIME ZONE;
+
+UPDATE webhook_events SET claimed_at = received_at WHERE status = 'PROCESSING';
+
+-- A tracker's events are claimed one at a time, oldest unfinished first; the claim
+-- query looks for an earlier unfinished event of the same tracker here.
+CREATE INDEX idx_webhook_events_unfinished_tracker
+    ON webhook_events (tracker_id, received_at)
+    WHERE status IN ('PENDING', 'PROCESSING');
+
+-- Lease expiry scan
+CREATE INDEX idx_webhook_events_processing_claimed_at
+    ON webhook_events (claimed_at)
+    WHERE status = 'PROCESSING';
@@ -0,0 +1,4 @@
+-- Stored responses are replayed byte for byte. A TEXT column forced every body
+-- through a UTF-8 string, which corrupts anything that is not text.
+ALTER TABLE idempotency_keys
+    ALTER COLUMN response_body TYPE BYTEA USING convert_to(response_body, 'UTF8');
@@ -0,0 +1,18 @@
+-- Catch-up cursor for the recent-plays feed.
+--
+-- The catch-up re-read plays by played_at with a fixed overlap, but played_at is taken
+-- when the play is inserted: a play whose transaction commits later than the overlap
+-- is never picked up by other instances. feed_xid records the id of the transaction
+-- that wrote the play, and the catch-up pages on (feed_xid, id) below the reader's
+-- snapshot xmin, the same scheme as stock_movements.change_xid (V58): a play that
+-- commits late still sorts after the cursor, and writers take no lock for it.
+--
+-- Set as a default after the column is added, so existing plays are not rewritten;
+-- they stay NULL and are only served by the warm-up query.
+ALTER TABLE lootbox_plays ADD COLUMN IF NOT EXISTS feed_xid xid8;
+
+ALTER TABLE lootbox_plays ALTER COLUMN feed_xid SET DEFAULT pg_current_xact_id();
+
+CREATE INDEX IF NOT EXISTS idx_lootbox_plays_feed_xid
+    ON lootbox_plays (feed_xid, id)
+    WHERE feed_xid IS NOT NULL;
@@ -0,0 +1,12 @@
+-- Which displays the stale-display scan has already reported.
+--
+-- The scan compared each run with the previous one in memory, so every instance
+-- reported the same crossings and a display that went stale while no instance was
+-- running was never reported. The reported set now lives on the display row: a scan
+-- reports active displays past the threshold that are not marked, and marked displays
+-- that are no longer stale, then updates the marks in the same transaction.
+ALTER TABLE machine_display ADD COLUMN IF NOT EXISTS stale_reported_at TIMESTAMPTZ;
+
+CREATE INDEX IF NOT EXISTS idx_machine_display_stale_reported
+    ON machine_display (id)
+    WHERE stale_reported_at IS NOT NULL;
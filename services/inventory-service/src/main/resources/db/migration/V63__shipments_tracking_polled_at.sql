@@ -0,0 +1,7 @@
+-- When the tracking reconcile last polled EasyPost for a shipment.
+--
+-- Every replica ran the reconcile and polled every open shipment, so API use grew with
+-- the replica count. A run now claims the open shipments not polled within the last
+-- interval, under a transaction-level advisory lock, and stamps them before calling
+-- EasyPost: however many replicas run, each shipment is polled once per interval.
+ALTER TABLE shipments ADD COLUMN IF NOT EXISTS tracking_polled_at TIMESTAMPTZ;
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mirai.inventoryservice.dtos.mappers.UserMapper;
 import com.mirai.inventoryservice.models.audit.User;
 import com.mirai.inventoryservice.models.enums.UserRole;
+import com.mirai.inventoryservice.services.IdempotencyService;
 import com.mirai.inventoryservice.services.InvitationService;
 import com.mirai.inventoryservice.services.UserService;
 import org.junit.jupiter.api.Test;
@@ -43,6 +44,9 @@ class AuthControllerTest {
     @MockBean
     private UserMapper userMapper;
 
+    @MockBean
+    private IdempotencyService idempotencyService;
+
     @Test
     void testValidateToken_Success() throws Exception {
         // Arrange
@@ -0,0 +1,79 @@
+package com.mirai.inventoryservice.auth;
+
+import com.mirai.inventoryservice.http.AdaptiveConcurrencyLimit;
+import com.mirai.inventoryservice.http.AdaptiveConcurrencyLimit.Priority;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class ConcurrencyLimitFilterTest {
+
+    @Test
+    @DisplayName("Should shed with 503 and Retry-After when the limit is reached")
+    void shedsWhenSaturated() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 2, 2, 1.0, 0.5);
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(registry, true, limit, 1);
+        // One analytics request already running takes the whole analytics share
+        assertThat(limit.tryAcquire(Priority.ANALYTICS)).isTrue();
+
+        FilterChain chain = mock(FilterChain.class);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/analytics/summary"), response, chain);
+
+        assertThat(response.getStatus()).isEqualTo(503);
+        assertThat(response.getHeader("Retry-After")).isEqualTo("1");
+        verifyNoInteractions(chain);
+        assertThat(registry.get("http.server.concurrency.shed").tag("priority", "analytics")
+                .counter().count()).isEqualTo(1.0);
+
+        // A write still gets through
+        MockHttpServletResponse writeResponse = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/inventory/batch-adjust"), writeResponse, chain);
+        assertThat(writeResponse.getStatus()).isEqualTo(200);
+        assertThat(limit.getInFlight()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should leave non-API paths alone")
+    void skipsNonApiPaths() throws Exception {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 1, 1, 1.0, 1.0);
+        limit.tryAcquire(Priority.WRITE);
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(new SimpleMeterRegistry(), true, limit, 1);
+        FilterChain chain = mock(FilterChain.class);
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/health"), new MockHttpServletResponse(), chain);
+
+        verify(chain).doFilter(any(), any());
+    }
+
+    @Test
+    @DisplayName("Should let CORS preflights through while saturated")
+    void skipsPreflights() throws Exception {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 1, 1, 1.0, 1.0);
+        limit.tryAcquire(Priority.WRITE);
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(new SimpleMeterRegistry(), true, limit, 1);
+        FilterChain chain = mock(FilterChain.class);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("OPTIONS", "/api/inventory/batch-adjust"), response, chain);
+
+        verify(chain).doFilter(any(), any());
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(limit.getInFlight()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should classify mutating requests as writes")
+    void classifiesPriorities() {
+        assertThat(ConcurrencyLimitFilter.classify("PATCH", "/api/inventory/123")).isEqualTo(Priority.WRITE);
+        assertThat(ConcurrencyLimitFilter.classify("GET", "/api/analytics/summary")).isEqualTo(Priority.ANALYTICS);
+        assertThat(ConcurrencyLimitFilter.classify("GET", "/api/products")).isEqualTo(Priority.READ);
+    }
+}
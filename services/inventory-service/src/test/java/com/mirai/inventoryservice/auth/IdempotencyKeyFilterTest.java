@@ -0,0 +1,339 @@
+package com.mirai.inventoryservice.auth;
+
+import com.mirai.inventoryservice.services.IdempotencyService;
+import com.mirai.inventoryservice.services.IdempotencyService.Claim;
+import com.mirai.inventoryservice.services.IdempotencyService.Outcome;
+import com.mirai.inventoryservice.services.IdempotencyService.StoredResponse;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class IdempotencyKeyFilterTest {
+
+    private final IdempotencyService service = mock(IdempotencyService.class);
+    private final IdempotencyKeyFilter filter = new IdempotencyKeyFilter(service, 2000, 10, 64);
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("Should execute the first request and store its response")
+    void storesFirstResponse() throws Exception {
+        authenticate();
+        Claim acquired = new Claim(Outcome.ACQUIRED, UUID.randomUUID(), null);
+        when(service.claim(eq("person:p1"), eq("k1"), anyString())).thenReturn(acquired);
+        FilterChain chain = (req, res) -> {
+            // The controller can still read the body after it was fingerprinted
+            assertThat(new String(req.getInputStream().readAllBytes(), StandardCharsets.UTF_8))
+                    .isEqualTo("{\"quantity\":3}");
+            ((HttpServletResponse) res).setStatus(201);
+            res.setContentType("application/json");
+            res.getWriter().write("{\"ok\":true}");
+        };
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request("k1"), response, chain);
+
+        assertThat(response.getStatus()).isEqualTo(201);
+        assertThat(response.getContentAsString()).isEqualTo("{\"ok\":true}");
+        ArgumentCaptor<StoredResponse> stored = ArgumentCaptor.forClass(StoredResponse.class);
+        verify(service).complete(eq("person:p1"), eq("k1"), anyString(), eq(acquired), stored.capture());
+        assertThat(stored.getValue().status()).isEqualTo(201);
+        assertThat(stored.getValue().body()).isEqualTo("{\"ok\":true}".getBytes(StandardCharsets.UTF_8));
+        verify(service, never()).release(any());
+    }
+
+    @Test
+    @DisplayName("Should replay a stored response without running the controller")
+    void replaysStoredResponse() throws Exception {
+        authenticate();
+        when(service.claim(eq("person:p1"), eq("k1"), anyString())).thenReturn(
+                new Claim(Outcome.REPLAY, null, new StoredResponse(201, "application/json",
+                        "{\"ok\":true}".getBytes(StandardCharsets.UTF_8))));
+        FilterChain chain = mock(FilterChain.class);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request("k1"), response, chain);
+
+        assertThat(response.getStatus()).isEqualTo(201);
+        assertThat(response.getHeader(IdempotencyKeyFilter.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(response.getContentAsString()).isEqualTo("{\"ok\":true}");
+        verifyNoInteractions(chain);
+    }
+
+    @Test
+    @DisplayName("Should make a concurrent duplicate wait for the original and replay it")
+    void duplicateWaitsForInFlightRequest() throws Exception {
+        Claim acquired = new Claim(Outcome.ACQUIRED, UUID.randomUUID(), null);
+        Claim replay = new Claim(Outcome.REPLAY, null, new StoredResponse(200, "application/json",
+                "{\"n\":1}".getBytes(StandardCharsets.UTF_8)));
+        when(service.claim(eq("person:p1"), eq("k1"), anyString()))
+                .thenReturn(acquired)
+                .thenReturn(Claim.of(Outcome.IN_PROGRESS))
+                .thenReturn(replay);
+
+        CountDownLatch controllerEntered = new CountDownLatch(1);
+        CountDownLatch releaseController = new CountDownLatch(1);
+        FilterChain chain = mock(FilterChain.class);
+        doAnswer(inv -> {
+            controllerEntered.countDown();
+            releaseController.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(chain).doFilter(any(), any());
+
+        CompletableFuture<MockHttpServletResponse> first = CompletableFuture.supplyAsync(() -> run(chain));
+        assertThat(controllerEntered.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<MockHttpServletResponse> second = CompletableFuture.supplyAsync(() -> run(chain));
+        Thread.sleep(50);
+        assertThat(second).isNotDone();
+
+        releaseController.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        MockHttpServletResponse duplicate = second.get(5, TimeUnit.SECONDS);
+
+        verify(chain, times(1)).doFilter(any(), any());
+        assertThat(duplicate.getHeader(IdempotencyKeyFilter.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(duplicate.getContentAsString()).isEqualTo("{\"n\":1}");
+    }
+
+    @Test
+    @DisplayName("Should release the key when the request fails with a server error")
+    void releasesOnServerError() throws Exception {
+        authenticate();
+        Claim acquired = new Claim(Outcome.ACQUIRED, UUID.randomUUID(), null);
+        when(service.claim(eq("person:p1"), eq("k1"), anyString())).thenReturn(acquired);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request("k1"), response, (req, res) -> ((HttpServletResponse) res).setStatus(503));
+
+        assertThat(response.getStatus()).isEqualTo(503);
+        verify(service).release(acquired);
+        verify(service, never()).complete(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should store and replay a binary response byte for byte")
+    void binaryBodiesRoundTrip() throws Exception {
+        authenticate();
+        byte[] png = {(byte) 0x89, 'P', 'N', 'G', (byte) 0xff, 0x00, (byte) 0xc3};
+        Claim acquired = new Claim(Outcome.ACQUIRED, UUID.randomUUID(), null);
+        when(service.claim(eq("person:p1"), eq("k1"), anyString())).thenReturn(acquired);
+
+        filter.doFilter(request("k1"), new MockHttpServletResponse(), (req, res) -> {
+            res.setContentType("image/png");
+            res.getOutputStream().write(png);
+        });
+
+        ArgumentCaptor<StoredResponse> stored = ArgumentCaptor.forClass(StoredResponse.class);
+        verify(service).complete(eq("person:p1"), eq("k1"), anyString(), eq(acquired), stored.capture());
+        assertThat(stored.getValue().body()).isEqualTo(png);
+
+        when(service.claim(eq("person:p1"), eq("k1"), anyString()))
+                .thenReturn(new Claim(Outcome.REPLAY, null, stored.getValue()));
+        MockHttpServletResponse replayed = new MockHttpServletResponse();
+        filter.doFilter(request("k1"), replayed, mock(FilterChain.class));
+        assertThat(replayed.getContentAsByteArray()).isEqualTo(png);
+    }
+
+    @Test
+    @DisplayName("Should store an async handler's response when its async dispatch completes")
+    void storesAsyncResponseOnAsyncDispatch() throws Exception {
+        authenticate();
+        Claim acquired = new Claim(Outcome.ACQUIRED, UUID.randomUUID(), null);
+        when(service.claim(eq("person:p1"), eq("k1"), anyString())).thenReturn(acquired);
+        MockHttpServletRequest request = request("k1");
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, res) -> req.startAsync());
+        verify(service, never()).complete(any(), any(), any(), any(), any());
+        verify(service, never()).release(any());
+
+        // The handler's result is written on the async dispatch
+        request.setAsyncStarted(false);
+        request.setDispatcherType(DispatcherType.ASYNC);
+        filter.doFilter(request, response, (req, res) -> {
+            ((HttpServletResponse) res).setStatus(201);
+            res.getWriter().write("{\"async\":true}");
+        });
+
+        assertThat(response.getContentAsString()).isEqualTo("{\"async\":true}");
+        verify(service).complete(eq("person:p1"), eq("k1"), anyString(), eq(acquired), any());
+        verify(service, never()).release(any());
+    }
+
+    @Test
+    @DisplayName("The cached body can be read through a ReadListener")
+    void cachedBodySupportsReadListener() throws Exception {
+        authenticate();
+        when(service.claim(eq("person:p1"), eq("k1"), anyString()))
+                .thenReturn(new Claim(Outcome.ACQUIRED, UUID.randomUUID(), null));
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        AtomicBoolean allRead = new AtomicBoolean();
+
+        filter.doFilter(request("k1"), new MockHttpServletResponse(), (req, res) -> {
+            ServletInputStream in = req.getInputStream();
+            in.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    while (in.isReady() && !in.isFinished()) {
+                        read.write(in.read());
+                    }
+                }
+
+                @Override
+                public void onAllDataRead() {
+                    allRead.set(true);
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                }
+            });
+        });
+
+        assertThat(read.toString(StandardCharsets.UTF_8)).isEqualTo("{\"quantity\":3}");
+        assertThat(allRead).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should reject a key reused for a different request")
+    void rejectsMismatchedRequest() throws Exception {
+        authenticate();
+        when(service.claim(eq("person:p1"), eq("k1"), anyString())).thenReturn(Claim.of(Outcome.MISMATCH));
+        FilterChain chain = mock(FilterChain.class);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request("k1"), response, chain);
+
+        assertThat(response.getStatus()).isEqualTo(422);
+        verifyNoInteractions(chain);
+    }
+
+    @Test
+    @DisplayName("Should ignore reads, unauthenticated calls and requests without a key")
+    void skipsRequestsItDoesNotCover() throws Exception {
+        FilterChain chain = mock(FilterChain.class);
+
+        filter.doFilter(request("k1"), new MockHttpServletResponse(), chain);
+        authenticate();
+        MockHttpServletRequest get = new MockHttpServletRequest("GET", "/api/inventory");
+        get.addHeader(IdempotencyKeyFilter.HEADER, "k1");
+        filter.doFilter(get, new MockHttpServletResponse(), chain);
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/inventory/batch-adjust"),
+                new MockHttpServletResponse(), chain);
+
+        verify(chain, times(3)).doFilter(any(), any());
+        verifyNoInteractions(service);
+    }
+
+    @Test
+    @DisplayName("Should reject a keyed body over the cap before claiming the key")
+    void rejectsOversizedBody() throws Exception {
+        authenticate();
+        FilterChain chain = mock(FilterChain.class);
+        MockHttpServletRequest declared = request("k1");
+        declared.setContent(new byte[65]);
+        // No Content-Length: the cap still holds while reading
+        MockHttpServletRequest chunked = new MockHttpServletRequest("POST", "/api/inventory/batch-adjust") {
+            @Override
+            public long getContentLengthLong() {
+                return -1;
+            }
+        };
+        chunked.addHeader(IdempotencyKeyFilter.HEADER, "k1");
+        chunked.setContent(new byte[65]);
+
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        filter.doFilter(declared, first, chain);
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        filter.doFilter(chunked, second, chain);
+
+        assertThat(first.getStatus()).isEqualTo(413);
+        assertThat(second.getStatus()).isEqualTo(413);
+        verifyNoInteractions(chain, service);
+    }
+
+    @Test
+    @DisplayName("Should pass multipart uploads through without buffering them")
+    void skipsMultipartBodies() throws Exception {
+        authenticate();
+        FilterChain chain = mock(FilterChain.class);
+        MockHttpServletRequest upload = request("k1");
+        upload.setContentType("multipart/form-data; boundary=x");
+        upload.setContent(new byte[4096]);
+
+        filter.doFilter(upload, new MockHttpServletResponse(), chain);
+
+        verify(chain).doFilter(same(upload), any());
+        verifyNoInteractions(service);
+    }
+
+    @Test
+    @DisplayName("Fingerprint should differ by path and body")
+    void fingerprintCoversPathAndBody() {
+        MockHttpServletRequest a = new MockHttpServletRequest("POST", "/api/inventory/batch-adjust");
+        MockHttpServletRequest b = new MockHttpServletRequest("POST", "/api/inventory/batch-transfer");
+        byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(IdempotencyKeyFilter.fingerprint(a, body)).isEqualTo(IdempotencyKeyFilter.fingerprint(a, body));
+        assertThat(IdempotencyKeyFilter.fingerprint(a, body)).isNotEqualTo(IdempotencyKeyFilter.fingerprint(b, body));
+        assertThat(IdempotencyKeyFilter.fingerprint(a, body))
+                .isNotEqualTo(IdempotencyKeyFilter.fingerprint(a, "{ }".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private MockHttpServletResponse run(FilterChain chain) {
+        authenticate();
+        try {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(request("k1"), response, chain);
+            return response;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private static MockHttpServletRequest request(String key) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/inventory/batch-adjust");
+        request.addHeader(IdempotencyKeyFilter.HEADER, key);
+        request.setContentType("application/json");
+        request.setContent("{\"quantity\":3}".getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    private static void authenticate() {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(Map.of("personId", "p1"), null, List.of()));
+    }
+}
@@ -2,6 +2,7 @@ package com.mirai.inventoryservice.auth;
 
 import com.mirai.inventoryservice.auth.JwtAuthenticationFilter;
 import com.mirai.inventoryservice.auth.JwtService;
+import io.jsonwebtoken.ExpiredJwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -12,11 +13,13 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 
 import java.io.IOException;
+import java.time.Instant;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -55,10 +58,7 @@ class JwtAuthenticationFilterTest {
         String role = "admin";
 
         when(request.getHeader("Authorization")).thenReturn(authHeader);
-        when(jwtService.extractPersonId(token)).thenReturn(personId);
-        when(jwtService.extractName(token)).thenReturn(personName);
-        when(jwtService.extractRole(token)).thenReturn(role);
-        when(jwtService.validateToken(token)).thenReturn(true);
+        when(jwtService.verify(token)).thenReturn(verifiedToken(personId, personName, role));
 
         // When
         jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
@@ -106,10 +106,7 @@ class JwtAuthenticationFilterTest {
         String role = "admin";
 
         when(request.getHeader("Authorization")).thenReturn(authHeader);
-        when(jwtService.extractPersonId(token)).thenReturn(personId);
-        when(jwtService.extractName(token)).thenReturn(personName);
-        when(jwtService.extractRole(token)).thenReturn(role);
-        when(jwtService.validateToken(token)).thenReturn(false);
+        when(jwtService.verify(token)).thenThrow(new ExpiredJwtException(null, null, "expired"));
 
         // When
         jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
@@ -126,7 +123,7 @@ class JwtAuthenticationFilterTest {
         String authHeader = "Bearer " + token;
 
         when(request.getHeader("Authorization")).thenReturn(authHeader);
-        when(jwtService.extractPersonId(token)).thenThrow(new RuntimeException("Invalid token"));
+        when(jwtService.verify(token)).thenThrow(new RuntimeException("Invalid token"));
 
         // When
         jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
@@ -137,7 +134,7 @@ class JwtAuthenticationFilterTest {
     }
 
     @Test
-    void testDoFilterInternal_MissingRole_DoesNotSetAuthentication() throws ServletException, IOException {
+    void testDoFilterInternal_MissingRole_DefaultsToUserRole() throws ServletException, IOException {
         // Given
         String token = "valid.jwt.token";
         String authHeader = "Bearer " + token;
@@ -145,15 +142,30 @@ class JwtAuthenticationFilterTest {
         String personName = "John Doe";
 
         when(request.getHeader("Authorization")).thenReturn(authHeader);
-        when(jwtService.extractPersonId(token)).thenReturn(personId);
-        when(jwtService.extractName(token)).thenReturn(personName);
-        when(jwtService.extractRole(token)).thenReturn(null);
+        when(jwtService.verify(token)).thenReturn(verifiedToken(personId, personName, null));
 
         // When
         jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
 
         // Then
-        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertNotNull(authentication);
+        assertEquals("ROLE_USER", authentication.getAuthorities().iterator().next().getAuthority());
+        verify(filterChain).doFilter(request, response);
+    }
+
+    @Test
+    void testDoFilterInternal_ExistingAuthentication_SkipsVerification() throws ServletException, IOException {
+        // Given
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("someone", null, java.util.List.of()));
+        when(request.getHeader("Authorization")).thenReturn("Bearer valid.jwt.token");
+
+        // When
+        jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
+
+        // Then
+        verify(jwtService, never()).verify(any());
         verify(filterChain).doFilter(request, response);
     }
 
@@ -167,10 +179,7 @@ class JwtAuthenticationFilterTest {
         String role = "user";
 
         when(request.getHeader("Authorization")).thenReturn(authHeader);
-        when(jwtService.extractPersonId(token)).thenReturn(personId);
-        when(jwtService.extractName(token)).thenReturn(personName);
-        when(jwtService.extractRole(token)).thenReturn(role);
-        when(jwtService.validateToken(token)).thenReturn(true);
+        when(jwtService.verify(token)).thenReturn(verifiedToken(personId, personName, role));
 
         // When
         jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
@@ -196,10 +205,7 @@ class JwtAuthenticationFilterTest {
         SecurityContextHolder.setContext(context);
 
         when(request.getHeader("Authorization")).thenReturn(authHeader);
-        when(jwtService.extractPersonId(token)).thenReturn(personId);
-        when(jwtService.extractName(token)).thenReturn(personName);
-        when(jwtService.extractRole(token)).thenReturn(role);
-        when(jwtService.validateToken(token)).thenReturn(true);
+        when(jwtService.verify(token)).thenReturn(verifiedToken(personId, personName, role));
 
         // When
         jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
@@ -208,5 +214,8 @@ class JwtAuthenticationFilterTest {
         // Filter should still process, but we verify it was called
         verify(filterChain).doFilter(request, response);
     }
-}
 
+    private static VerifiedToken verifiedToken(String personId, String name, String role) {
+        return new VerifiedToken(personId, name, null, role, Instant.now().plusSeconds(3600));
+    }
+}
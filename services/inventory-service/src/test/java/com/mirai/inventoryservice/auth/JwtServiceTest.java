@@ -156,6 +156,51 @@ class JwtServiceTest {
     }
 
     // Helper methods to create test tokens
+    @Test
+    void testVerify_ValidToken_ReturnsAllClaimsFromOneParse() {
+        // Given
+        String token = createValidToken("user-123", "John Doe", "admin");
+
+        // When
+        VerifiedToken verified = jwtService.verify(token);
+
+        // Then
+        assertEquals("user-123", verified.personId());
+        assertEquals("John Doe", verified.name());
+        assertEquals("admin", verified.role());
+        assertFalse(verified.isExpired(java.time.Instant.now()));
+    }
+
+    @Test
+    void testVerify_RepeatToken_ServedFromCache() {
+        // Given
+        String token = createValidToken("user-123", "John Doe", "admin");
+        VerifiedToken first = jwtService.verify(token);
+
+        // When - a different secret would fail verification if the token were re-parsed
+        ReflectionTestUtils.setField(jwtService, "signKey",
+                Keys.hmacShaKeyFor("another-secret-key-that-is-long-enough-for-hmac-sha-256-xx".getBytes(StandardCharsets.UTF_8)));
+        VerifiedToken second = jwtService.verify(token);
+
+        // Then
+        assertSame(first, second);
+    }
+
+    @Test
+    void testVerify_ExpiredToken_Throws() {
+        String token = createExpiredToken("user-123", "John Doe", "admin");
+
+        assertThrows(io.jsonwebtoken.ExpiredJwtException.class, () -> jwtService.verify(token));
+    }
+
+    @Test
+    void testVerify_TamperedToken_Throws() {
+        String token = createValidToken("user-123", "John Doe", "admin");
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertThrows(io.jsonwebtoken.JwtException.class, () -> jwtService.verify(tampered));
+    }
+
     private String createValidToken(String personId, String name, String role) {
         Map<String, Object> userMetadata = new HashMap<>();
         userMetadata.put("name", name);
@@ -10,8 +10,11 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.time.Instant;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -170,7 +173,7 @@ class RateLimitingFilterTest {
         }
 
         // Both IPs exhausted their limits
-        assertThat(filter.getTrackedIpCount()).isEqualTo(2);
+        assertThat(filter.getTrackedClientCount()).isEqualTo(2);
     }
 
     @Test
@@ -184,12 +187,12 @@ class RateLimitingFilterTest {
             filter.doFilterInternal(request, response, filterChain);
         }
 
-        assertThat(filter.getTrackedIpCount()).isEqualTo(1);
+        assertThat(filter.getTrackedClientCount()).isEqualTo(1);
 
         // Clear buckets
         filter.clearBuckets();
 
-        assertThat(filter.getTrackedIpCount()).isEqualTo(0);
+        assertThat(filter.getTrackedClientCount()).isEqualTo(0);
     }
 
     @Test
@@ -277,7 +280,7 @@ class RateLimitingFilterTest {
 
         // Should use the X-Forwarded-For IP, not the proxy IP
         verify(filterChain).doFilter(request, response);
-        assertThat(filter.getTrackedIpCount()).isEqualTo(1);
+        assertThat(filter.getTrackedClientCount()).isEqualTo(1);
     }
 
     @Test
@@ -291,4 +294,88 @@ class RateLimitingFilterTest {
 
         verify(filterChain).doFilter(request, response);
     }
+
+    @Test
+    @DisplayName("Should give heavy endpoint tiers their own budget")
+    void shouldLimitTiersIndependently() throws Exception {
+        filter = new RateLimitingFilter(null, new SimpleMeterRegistry(), 5, 2, 1, 100, 10);
+        when(request.getRemoteAddr()).thenReturn("192.168.1.70");
+
+        // Exhaust the analytics tier
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getRequestURI()).thenReturn("/api/analytics/summary");
+        for (int i = 0; i < 3; i++) {
+            filter.doFilterInternal(request, response, filterChain);
+        }
+        verify(response, times(1)).setStatus(429);
+
+        // Normal browsing is unaffected
+        when(request.getRequestURI()).thenReturn("/api/products");
+        for (int i = 0; i < 5; i++) {
+            filter.doFilterInternal(request, response, filterChain);
+        }
+        verify(response, times(1)).setStatus(429);
+        verify(filterChain, times(7)).doFilter(request, response);
+    }
+
+    @Test
+    @DisplayName("Should classify batch writes separately from batch reads")
+    void shouldClassifyTiers() {
+        assertThat(RateLimitingFilter.classify("POST", "/api/inventory/batch-adjust"))
+                .isEqualTo(RateLimitingFilter.Tier.BATCH_WRITE);
+        assertThat(RateLimitingFilter.classify("GET", "/api/inventory/batch-adjust"))
+                .isEqualTo(RateLimitingFilter.Tier.STANDARD);
+        assertThat(RateLimitingFilter.classify("GET", "/api/forecasts/at-risk"))
+                .isEqualTo(RateLimitingFilter.Tier.ANALYTICS);
+        assertThat(RateLimitingFilter.classify("GET", "/api/products"))
+                .isEqualTo(RateLimitingFilter.Tier.STANDARD);
+    }
+
+    @Test
+    @DisplayName("Should key verified users by personId instead of IP")
+    void shouldKeyByPersonIdWhenTokenVerified() throws Exception {
+        JwtService jwtService = mock(JwtService.class);
+        when(jwtService.peekVerified("tok")).thenReturn(
+                new VerifiedToken("user-1", "User", null, "employee", Instant.now().plusSeconds(600)));
+        filter = new RateLimitingFilter(jwtService, new SimpleMeterRegistry(), 3, 3, 3, 100, 10);
+
+        when(request.getRequestURI()).thenReturn("/api/products");
+        when(request.getHeader("Authorization")).thenReturn("Bearer tok");
+        for (int i = 0; i < 4; i++) {
+            filter.doFilterInternal(request, response, filterChain);
+        }
+
+        verify(response).setStatus(429);
+        assertThat(filter.getTrackedClientCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should count allowed and rejected requests per tier")
+    void shouldExposeTierCounters() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        filter = new RateLimitingFilter(null, registry, 1, 1, 1, 100, 10);
+        when(request.getRequestURI()).thenReturn("/api/products");
+        when(request.getRemoteAddr()).thenReturn("192.168.1.90");
+
+        filter.doFilterInternal(request, response, filterChain);
+        filter.doFilterInternal(request, response, filterChain);
+
+        assertThat(registry.get("rate.limit.requests").tags("tier", "standard", "outcome", "allowed")
+                .counter().count()).isEqualTo(1.0);
+        assertThat(registry.get("rate.limit.requests").tags("tier", "standard", "outcome", "rejected")
+                .counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Should keep bucket count bounded under rotating IPs")
+    void shouldBoundTrackedClients() throws Exception {
+        filter = new RateLimitingFilter(null, new SimpleMeterRegistry(), 5, 5, 5, 50, 10);
+        when(request.getRequestURI()).thenReturn("/api/products");
+        for (int i = 0; i < 500; i++) {
+            when(request.getRemoteAddr()).thenReturn("192.168.2." + i);
+            filter.doFilterInternal(request, response, filterChain);
+        }
+
+        assertThat(filter.getTrackedClientCount()).isLessThanOrEqualTo(50);
+    }
 }
@@ -1,6 +1,7 @@
 package com.mirai.inventoryservice.auth;
 
 import com.mirai.inventoryservice.auth.JwtService;
+import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import org.junit.jupiter.api.BeforeEach;
@@ -14,6 +15,7 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -88,10 +90,8 @@ class SecurityConfigTest {
         String token = createValidToken("user-123", "John Doe", "user");
         String bearerToken = "Bearer " + token;
 
-        when(jwtService.extractPersonId(token)).thenReturn("user-123");
-        when(jwtService.extractName(token)).thenReturn("John Doe");
-        when(jwtService.extractRole(token)).thenReturn("user");
-        when(jwtService.validateToken(token)).thenReturn(true);
+        when(jwtService.verify(token)).thenReturn(
+                new VerifiedToken("user-123", "John Doe", null, "user", Instant.now().plusSeconds(3600)));
 
         // When & Then
         mockMvc.perform(get("/api/v1/test")
@@ -105,10 +105,8 @@ class SecurityConfigTest {
         String token = createValidToken("user-123", "John Doe", "user");
         String bearerToken = "Bearer " + token;
 
-        when(jwtService.extractPersonId(token)).thenReturn("user-123");
-        when(jwtService.extractName(token)).thenReturn("John Doe");
-        when(jwtService.extractRole(token)).thenReturn("user");
-        when(jwtService.validateToken(token)).thenReturn(true);
+        when(jwtService.verify(token)).thenReturn(
+                new VerifiedToken("user-123", "John Doe", null, "user", Instant.now().plusSeconds(3600)));
 
         // When & Then
         mockMvc.perform(get("/api/admin/test")
@@ -122,10 +120,8 @@ class SecurityConfigTest {
         String token = createValidToken("admin-123", "Admin User", "admin");
         String bearerToken = "Bearer " + token;
 
-        when(jwtService.extractPersonId(token)).thenReturn("admin-123");
-        when(jwtService.extractName(token)).thenReturn("Admin User");
-        when(jwtService.extractRole(token)).thenReturn("admin");
-        when(jwtService.validateToken(token)).thenReturn(true);
+        when(jwtService.verify(token)).thenReturn(
+                new VerifiedToken("admin-123", "Admin User", null, "admin", Instant.now().plusSeconds(3600)));
 
         // When & Then
         mockMvc.perform(get("/api/admin/test")
@@ -146,10 +142,7 @@ class SecurityConfigTest {
         String token = createExpiredToken("user-123", "John Doe", "user");
         String bearerToken = "Bearer " + token;
 
-        when(jwtService.extractPersonId(token)).thenReturn("user-123");
-        when(jwtService.extractName(token)).thenReturn("John Doe");
-        when(jwtService.extractRole(token)).thenReturn("user");
-        when(jwtService.validateToken(token)).thenReturn(false); // Token is expired
+        when(jwtService.verify(token)).thenThrow(new ExpiredJwtException(null, null, "expired"));
 
         // When & Then
         mockMvc.perform(get("/api/v1/test")
@@ -171,10 +164,8 @@ class SecurityConfigTest {
         String token = createValidToken("user-123", "John Doe", "user");
         String bearerToken = "Bearer " + token;
 
-        when(jwtService.extractPersonId(token)).thenReturn("user-123");
-        when(jwtService.extractName(token)).thenReturn("John Doe");
-        when(jwtService.extractRole(token)).thenReturn("user");
-        when(jwtService.validateToken(token)).thenReturn(true);
+        when(jwtService.verify(token)).thenReturn(
+                new VerifiedToken("user-123", "John Doe", null, "user", Instant.now().plusSeconds(3600)));
 
         // When & Then - dev endpoints should be denied even with valid user auth
         mockMvc.perform(post("/api/dev/seed/all")
@@ -188,10 +179,8 @@ class SecurityConfigTest {
         String token = createValidToken("admin-123", "Admin User", "admin");
         String bearerToken = "Bearer " + token;
 
-        when(jwtService.extractPersonId(token)).thenReturn("admin-123");
-        when(jwtService.extractName(token)).thenReturn("Admin User");
-        when(jwtService.extractRole(token)).thenReturn("admin");
-        when(jwtService.validateToken(token)).thenReturn(true);
+        when(jwtService.verify(token)).thenReturn(
+                new VerifiedToken("admin-123", "Admin User", null, "admin", Instant.now().plusSeconds(3600)));
 
         // When & Then - dev endpoints should be denied even with admin auth (defense in depth)
         mockMvc.perform(post("/api/dev/seed/all")
@@ -205,10 +194,8 @@ class SecurityConfigTest {
         String token = createValidToken("admin-123", "Admin User", "admin");
         String bearerToken = "Bearer " + token;
 
-        when(jwtService.extractPersonId(token)).thenReturn("admin-123");
-        when(jwtService.extractName(token)).thenReturn("Admin User");
-        when(jwtService.extractRole(token)).thenReturn("admin");
-        when(jwtService.validateToken(token)).thenReturn(true);
+        when(jwtService.verify(token)).thenReturn(
+                new VerifiedToken("admin-123", "Admin User", null, "admin", Instant.now().plusSeconds(3600)));
 
         // When & Then - all dev sub-paths should be denied
         mockMvc.perform(post("/api/dev/seed/sales")
@@ -262,10 +249,8 @@ class SecurityConfigTest {
         String token = createValidToken("user-123", "John Doe", "user");
         String bearerToken = "Bearer " + token;
 
-        when(jwtService.extractPersonId(token)).thenReturn("user-123");
-        when(jwtService.extractName(token)).thenReturn("John Doe");
-        when(jwtService.extractRole(token)).thenReturn("user");
-        when(jwtService.validateToken(token)).thenReturn(true);
+        when(jwtService.verify(token)).thenReturn(
+                new VerifiedToken("user-123", "John Doe", null, "user", Instant.now().plusSeconds(3600)));
 
         // When & Then - actuator endpoints should be forbidden for non-admin users
         mockMvc.perform(get("/actuator/info")
@@ -283,10 +268,8 @@ class SecurityConfigTest {
         String token = createValidToken("admin-123", "Admin User", "admin");
         String bearerToken = "Bearer " + token;
 
-        when(jwtService.extractPersonId(token)).thenReturn("admin-123");
-        when(jwtService.extractName(token)).thenReturn("Admin User");
-        when(jwtService.extractRole(token)).thenReturn("admin");
-        when(jwtService.validateToken(token)).thenReturn(true);
+        when(jwtService.verify(token)).thenReturn(
+                new VerifiedToken("admin-123", "Admin User", null, "admin", Instant.now().plusSeconds(3600)));
 
         // When & Then - actuator endpoints should be accessible for admin (not 401/403)
         mockMvc.perform(get("/actuator/info")
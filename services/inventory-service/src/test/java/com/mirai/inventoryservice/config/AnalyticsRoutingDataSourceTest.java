@@ -0,0 +1,160 @@
+package com.mirai.inventoryservice.config;
+
+import com.mirai.inventoryservice.services.AnalyticsService;
+import com.mirai.inventoryservice.services.StockMovementService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class AnalyticsRoutingDataSourceTest {
+
+    private static final String ANALYTICS_TX = AnalyticsService.class.getName() + ".getSalesSummary";
+    private static final String WRITE_TX = StockMovementService.class.getName() + ".recordMovement";
+
+    private DriverManagerDataSource primary;
+    private DriverManagerDataSource analytics;
+    private DataSource routed;
+    private AnalyticsRoutingDataSource routing;
+
+    @BeforeEach
+    void setUp() {
+        primary = h2("routing_primary");
+        analytics = h2("routing_analytics");
+        new JdbcTemplate(primary).execute("CREATE TABLE pool_marker (name VARCHAR(20)); INSERT INTO pool_marker VALUES ('primary')");
+        new JdbcTemplate(analytics).execute("CREATE TABLE pool_marker (name VARCHAR(20)); INSERT INTO pool_marker VALUES ('analytics')");
+
+        routing = new AnalyticsRoutingDataSource(List.of(AnalyticsService.class));
+        routing.setTargetDataSources(Map.of(
+                AnalyticsRoutingDataSource.Route.PRIMARY, primary,
+                AnalyticsRoutingDataSource.Route.ANALYTICS, analytics));
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+        routed = new LazyConnectionDataSourceProxy(routing);
+    }
+
+    @AfterEach
+    void tearDown() {
+        new JdbcTemplate(primary).execute("DROP TABLE pool_marker");
+        new JdbcTemplate(analytics).execute("DROP TABLE pool_marker");
+    }
+
+    @Test
+    @DisplayName("Read-only analytics transaction runs on the analytics pool")
+    void readOnlyAnalyticsTransactionUsesAnalyticsPool() {
+        assertThat(markerInTransaction(ANALYTICS_TX, true)).isEqualTo("analytics");
+    }
+
+    @Test
+    @DisplayName("Analytics method in a read-write transaction stays on the primary pool")
+    void readWriteAnalyticsTransactionUsesPrimary() {
+        assertThat(markerInTransaction(ANALYTICS_TX, false)).isEqualTo("primary");
+    }
+
+    @Test
+    @DisplayName("Read-only transaction of another service stays on the primary pool")
+    void readOnlyOtherServiceUsesPrimary() {
+        assertThat(markerInTransaction(WRITE_TX, true)).isEqualTo("primary");
+    }
+
+    @Test
+    @DisplayName("Access outside a transaction uses the primary pool")
+    void nonTransactionalAccessUsesPrimary() {
+        assertThat(new JdbcTemplate(routed).queryForObject("SELECT name FROM pool_marker", String.class))
+                .isEqualTo("primary");
+    }
+
+    @Test
+    @DisplayName("Route ignores classes that merely share a name prefix")
+    void routeMatchesWholeClassName() {
+        String lookalike = AnalyticsService.class.getName() + "Extras.getAnything";
+
+        assertThat(routing.route(true, true, lookalike)).isEqualTo(AnalyticsRoutingDataSource.Route.PRIMARY);
+        assertThat(routing.route(true, true, null)).isEqualTo(AnalyticsRoutingDataSource.Route.PRIMARY);
+        assertThat(routing.route(false, true, ANALYTICS_TX)).isEqualTo(AnalyticsRoutingDataSource.Route.PRIMARY);
+    }
+
+    @Test
+    @DisplayName("Analytics connections start their transaction with the statement timeout")
+    void analyticsConnectionGetsTransactionLocalTimeout() throws SQLException {
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        DataSource analyticsPool = mock(DataSource.class);
+        when(analyticsPool.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        AnalyticsRoutingDataSource timed = routingWithTimeout(analyticsPool, 1000);
+
+        inTransaction(ANALYTICS_TX, true, () -> assertThat(timed.getConnection()).isSameAs(connection));
+
+        InOrder order = inOrder(connection, statement);
+        order.verify(connection).setAutoCommit(false);
+        order.verify(statement).execute("SET LOCAL statement_timeout = 1000");
+    }
+
+    @Test
+    @DisplayName("Primary connections get no statement timeout")
+    void primaryConnectionIsLeftAlone() throws SQLException {
+        AnalyticsRoutingDataSource timed = routingWithTimeout(mock(DataSource.class), 1000);
+
+        inTransaction(WRITE_TX, false, () -> {
+            try (Connection connection = timed.getConnection()) {
+                assertThat(connection.getAutoCommit()).isTrue();
+            }
+        });
+    }
+
+    private AnalyticsRoutingDataSource routingWithTimeout(DataSource analyticsPool, long timeoutMs) {
+        AnalyticsRoutingDataSource timed = new AnalyticsRoutingDataSource(List.of(AnalyticsService.class), timeoutMs);
+        timed.setTargetDataSources(Map.of(
+                AnalyticsRoutingDataSource.Route.PRIMARY, primary,
+                AnalyticsRoutingDataSource.Route.ANALYTICS, analyticsPool));
+        timed.setDefaultTargetDataSource(primary);
+        timed.afterPropertiesSet();
+        return timed;
+    }
+
+    /** Binds the transaction state the router reads, as a transaction manager would. */
+    private static void inTransaction(String name, boolean readOnly, SqlAction action) throws SQLException {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+        TransactionSynchronizationManager.setCurrentTransactionName(name);
+        try {
+            action.run();
+        } finally {
+            TransactionSynchronizationManager.clear();
+        }
+    }
+
+    private interface SqlAction {
+        void run() throws SQLException;
+    }
+
+    private String markerInTransaction(String name, boolean readOnly) {
+        TransactionTemplate tx = new TransactionTemplate(new DataSourceTransactionManager(routed));
+        tx.setName(name);
+        tx.setReadOnly(readOnly);
+        return tx.execute(status ->
+                new JdbcTemplate(routed).queryForObject("SELECT name FROM pool_marker", String.class));
+    }
+
+    private static DriverManagerDataSource h2(String db) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + db + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+}
@@ -0,0 +1,84 @@
+package com.mirai.inventoryservice.config;
+
+import com.mirai.inventoryservice.services.AnalyticsService;
+import com.mirai.inventoryservice.services.StockMovementService;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The pool routing only works with
+ * {@code hibernate.connection.handling_mode=DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION}:
+ * each transaction must fetch its connection after the transaction is bound, and give it
+ * back when it ends. Both pools point at the same H2 database here, so the pools' active
+ * connection counts show which one a transaction used.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ConnectionHandlingTest {
+
+    private static final String ANALYTICS_TX = AnalyticsService.class.getName() + ".getSalesSummary";
+    private static final String WRITE_TX = StockMovementService.class.getName() + ".recordMovement";
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier("primaryPool")
+    private HikariDataSource primaryPool;
+
+    @Autowired
+    @Qualifier("analyticsPool")
+    private HikariDataSource analyticsPool;
+
+    @Test
+    @DisplayName("A JPA read-only analytics transaction runs on the analytics pool")
+    void analyticsTransactionUsesAnalyticsPool() {
+        assertThat(activeConnectionsIn(ANALYTICS_TX, true)).containsExactly(0, 1);
+    }
+
+    @Test
+    @DisplayName("With open-in-view, a write after an analytics read in the same request goes back to the primary pool")
+    void openInViewDoesNotHoldTheAnalyticsConnection() {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(entityManager));
+        try {
+            assertThat(activeConnectionsIn(ANALYTICS_TX, true)).containsExactly(0, 1);
+            assertThat(activeConnectionsIn(WRITE_TX, false)).containsExactly(1, 0);
+        } finally {
+            TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+            entityManager.close();
+        }
+    }
+
+    /** Active connections of {primary, analytics} while the transaction runs a query. */
+    private int[] activeConnectionsIn(String transactionName, boolean readOnly) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setName(transactionName);
+        tx.setReadOnly(readOnly);
+        return tx.execute(status -> {
+            EntityManagerHolder holder =
+                    (EntityManagerHolder) TransactionSynchronizationManager.getResource(entityManagerFactory);
+            holder.getEntityManager().createNativeQuery("SELECT 1").getSingleResult();
+            return new int[] {
+                    primaryPool.getHikariPoolMXBean().getActiveConnections(),
+                    analyticsPool.getHikariPoolMXBean().getActiveConnections()
+            };
+        });
+    }
+}
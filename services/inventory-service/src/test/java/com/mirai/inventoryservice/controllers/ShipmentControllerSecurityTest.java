@@ -2,6 +2,7 @@ package com.mirai.inventoryservice.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mirai.inventoryservice.auth.JwtService;
+import com.mirai.inventoryservice.auth.VerifiedToken;
 import com.mirai.inventoryservice.auth.RateLimitingFilter;
 import com.mirai.inventoryservice.dtos.requests.ShipmentItemRequestDTO;
 import com.mirai.inventoryservice.dtos.requests.ShipmentRequestDTO;
@@ -24,6 +25,7 @@ import org.springframework.test.web.servlet.MvcResult;
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.time.Instant;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -346,10 +348,8 @@ class ShipmentControllerSecurityTest {
     // Helper methods
 
     private void setupMockJwtService(String token, String personId, String name, String role) {
-        when(jwtService.extractPersonId(token)).thenReturn(personId);
-        when(jwtService.extractName(token)).thenReturn(name);
-        when(jwtService.extractRole(token)).thenReturn(role);
-        when(jwtService.validateToken(token)).thenReturn(true);
+        when(jwtService.verify(token)).thenReturn(
+                new VerifiedToken(personId, name, null, role, Instant.now().plusSeconds(3600)));
     }
 
     private String createValidToken(String personId, String name, String role) {
@@ -0,0 +1,87 @@
+package com.mirai.inventoryservice.http;
+
+import com.mirai.inventoryservice.http.AdaptiveConcurrencyLimit.Priority;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimitTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    @DisplayName("Lower priorities are shed first and writes keep the remaining headroom")
+    void prioritySharesOfTheLimit() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 2, 50, 0.8, 0.5);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(limit.tryAcquire(Priority.ANALYTICS)).isTrue();
+        }
+        assertThat(limit.tryAcquire(Priority.ANALYTICS)).isFalse();
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(limit.tryAcquire(Priority.READ)).isTrue();
+        }
+        assertThat(limit.tryAcquire(Priority.READ)).isFalse();
+
+        assertThat(limit.tryAcquire(Priority.WRITE)).isTrue();
+        assertThat(limit.tryAcquire(Priority.WRITE)).isTrue();
+        assertThat(limit.tryAcquire(Priority.WRITE)).isFalse();
+        assertThat(limit.getInFlight()).isEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("Limit grows while latency holds steady under load")
+    void growsAtStableLatency() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 2, 50, 0.8, 0.5);
+
+        for (int i = 0; i < 50; i++) {
+            limit.onSample(20 * MS, limit.getLimit());
+        }
+
+        assertThat(limit.getLimit()).isGreaterThan(10);
+    }
+
+    @Test
+    @DisplayName("Limit shrinks when latency climbs above the baseline")
+    void shrinksWhenRequestsQueue() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(40, 2, 50, 0.8, 0.5);
+        for (int i = 0; i < 20; i++) {
+            limit.onSample(20 * MS, limit.getLimit());
+        }
+        int before = limit.getLimit();
+
+        for (int i = 0; i < 20; i++) {
+            limit.onSample(200 * MS, limit.getLimit());
+        }
+
+        assertThat(limit.getLimit()).isLessThan(before);
+        assertThat(limit.getLimit()).isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Samples from a mostly idle service do not move the limit")
+    void ignoresAppLimitedSamples() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 2, 50, 0.8, 0.5);
+        limit.onSample(20 * MS, 1);
+
+        for (int i = 0; i < 20; i++) {
+            limit.onSample(500 * MS, 1);
+        }
+
+        assertThat(limit.getLimit()).isEqualTo(20);
+    }
+
+    @Test
+    @DisplayName("Release frees the permit")
+    void releaseFreesPermit() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 1, 1, 1.0, 1.0);
+        assertThat(limit.tryAcquire(Priority.WRITE)).isTrue();
+        assertThat(limit.tryAcquire(Priority.WRITE)).isFalse();
+
+        limit.release(5 * MS);
+
+        assertThat(limit.tryAcquire(Priority.WRITE)).isTrue();
+    }
+}
@@ -0,0 +1,173 @@
+package com.mirai.inventoryservice.http;
+
+import com.mirai.inventoryservice.exceptions.OutboundUnavailableException;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Exercises OutboundHttpClient against a local stub server: read timeouts, the
+ * concurrency bulkhead, circuit breaking and per-target metrics.
+ */
+class OutboundHttpClientTest {
+
+    private HttpServer server;
+    private String baseUrl;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/ok", exchange -> respond(exchange, 200, "ok"));
+        server.createContext("/missing", exchange -> respond(exchange, 404, "nope"));
+        server.createContext("/broken", exchange -> respond(exchange, 500, "boom"));
+        server.createContext("/slow", exchange -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, 200, "late");
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        server.stop(0);
+    }
+
+    private void respond(com.sun.net.httpserver.HttpExchange exchange, int status, String body) throws IOException {
+        hits.incrementAndGet();
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+
+    private OutboundHttpClient client(Duration readTimeout, int maxConcurrent, int failureThreshold) {
+        OutboundHttpSettings settings = new OutboundHttpSettings(
+                Duration.ofSeconds(1), readTimeout, maxConcurrent, Duration.ZERO,
+                failureThreshold, Duration.ofMinutes(1));
+        return new OutboundHttpClient("stub", settings, meterRegistry);
+    }
+
+    private String get(OutboundHttpClient client, String path) {
+        return client.execute("get", rt -> rt.getForObject(baseUrl + path, String.class));
+    }
+
+    @Test
+    @DisplayName("Successful calls are timed per target and outcome")
+    void recordsLatencyForSuccessfulCalls() {
+        OutboundHttpClient client = client(Duration.ofSeconds(2), 2, 3);
+
+        assertThat(get(client, "/ok")).isEqualTo("ok");
+
+        assertThat(meterRegistry.get("outbound.http.requests")
+                .tag("target", "stub").tag("outcome", "success").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("A slow upstream is cut off at the read timeout")
+    void readTimeoutBoundsSlowUpstream() {
+        OutboundHttpClient client = client(Duration.ofMillis(200), 2, 3);
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> get(client, "/slow")).isInstanceOf(ResourceAccessException.class);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertThat(elapsedMillis).isLessThan(2000);
+        assertThat(meterRegistry.get("outbound.http.requests")
+                .tag("outcome", "error").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Calls beyond the bulkhead fail fast without reaching the upstream")
+    void bulkheadRejectsExcessConcurrency() throws Exception {
+        OutboundHttpClient client = client(Duration.ofSeconds(5), 1, 3);
+
+        CompletableFuture<String> inFlight = CompletableFuture.supplyAsync(() -> get(client, "/slow"));
+        // Wait until the first call holds the only slot
+        long deadline = System.currentTimeMillis() + 2000;
+        while (meterRegistry.get("outbound.http.in_flight").gauge().value() < 1
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertThatThrownBy(() -> get(client, "/ok")).isInstanceOf(OutboundUnavailableException.class);
+        assertThat(meterRegistry.get("outbound.http.rejected")
+                .tag("reason", "bulkhead_full").counter().count()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(inFlight.get(5, TimeUnit.SECONDS)).isEqualTo("late");
+        assertThat(get(client, "/ok")).isEqualTo("ok");
+    }
+
+    @Test
+    @DisplayName("Consecutive server errors open the circuit and later calls fail fast")
+    void circuitOpensAfterConsecutiveFailures() {
+        OutboundHttpClient client = client(Duration.ofSeconds(2), 2, 2);
+
+        assertThatThrownBy(() -> get(client, "/broken")).isNotInstanceOf(OutboundUnavailableException.class);
+        assertThatThrownBy(() -> get(client, "/broken")).isNotInstanceOf(OutboundUnavailableException.class);
+        int hitsBefore = hits.get();
+
+        assertThatThrownBy(() -> get(client, "/ok")).isInstanceOf(OutboundUnavailableException.class);
+        assertThat(hits.get()).isEqualTo(hitsBefore);
+        assertThat(client.getCircuitState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    @DisplayName("Client errors do not count against the circuit")
+    void clientErrorsKeepCircuitClosed() {
+        OutboundHttpClient client = client(Duration.ofSeconds(2), 2, 1);
+
+        assertThatThrownBy(() -> get(client, "/missing")).isInstanceOf(HttpClientErrorException.class);
+
+        assertThat(client.getCircuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(get(client, "/ok")).isEqualTo("ok");
+    }
+
+    @Test
+    @DisplayName("A HALF_OPEN trial that throws an Error still settles the circuit")
+    void trialErrorDoesNotWedgeHalfOpen() {
+        OutboundHttpSettings settings = new OutboundHttpSettings(
+                Duration.ofSeconds(1), Duration.ofSeconds(2), 2, Duration.ZERO, 1, Duration.ZERO);
+        OutboundHttpClient client = new OutboundHttpClient("stub", settings, meterRegistry);
+        assertThatThrownBy(() -> get(client, "/broken")).isNotInstanceOf(OutboundUnavailableException.class);
+        assertThat(client.getCircuitState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        // The trial call dies with an Error rather than an exception
+        assertThatThrownBy(() -> client.execute("get", rt -> {
+            throw new StackOverflowError();
+        })).isInstanceOf(StackOverflowError.class);
+
+        assertThat(client.getCircuitState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(get(client, "/ok")).isEqualTo("ok");
+        assertThat(client.getCircuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+}
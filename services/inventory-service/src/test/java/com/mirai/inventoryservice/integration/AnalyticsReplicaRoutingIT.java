@@ -0,0 +1,139 @@
+package com.mirai.inventoryservice.integration;
+
+import com.mirai.inventoryservice.config.DataSourceConfig;
+import com.mirai.inventoryservice.services.AnalyticsService;
+import com.mirai.inventoryservice.services.StockMovementService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs the analytics pool against a second PostgreSQL container standing in for a read
+ * replica. Each database carries a marker row so a query shows which one it reached.
+ */
+@SpringBootTest
+@ActiveProfiles("integration")
+@Testcontainers
+class AnalyticsReplicaRoutingIT {
+
+    @Container
+    static final PostgreSQLContainer<?> primary =
+            new PostgreSQLContainer<>(DockerImageName.parse("postgres:16-alpine"))
+                    .withDatabaseName("mirai_test")
+                    .withUsername("test")
+                    .withPassword("test");
+
+    @Container
+    static final PostgreSQLContainer<?> replica =
+            new PostgreSQLContainer<>(DockerImageName.parse("postgres:16-alpine"))
+                    .withDatabaseName("mirai_replica")
+                    .withUsername("reader")
+                    .withPassword("reader");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", primary::getJdbcUrl);
+        registry.add("spring.datasource.username", primary::getUsername);
+        registry.add("spring.datasource.password", primary::getPassword);
+        registry.add("analytics.datasource.url", replica::getJdbcUrl);
+        registry.add("analytics.datasource.username", replica::getUsername);
+        registry.add("analytics.datasource.password", replica::getPassword);
+        registry.add("analytics.datasource.statement-timeout-ms", () -> "1000");
+        registry.add("spring.kafka.bootstrap-servers", () -> "");
+    }
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    @Qualifier("analyticsPool")
+    private HikariDataSource analyticsPool;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void markDatabases() {
+        mark(primary, "primary");
+        mark(replica, "replica");
+    }
+
+    @Test
+    @DisplayName("Read-only analytics transactions read from the replica")
+    void analyticsReadsHitReplica() {
+        assertThat(markerIn(AnalyticsService.class.getName() + ".getSalesSummary", true))
+                .isEqualTo("replica");
+    }
+
+    @Test
+    @DisplayName("Stock movement transactions stay on the primary")
+    void writesStayOnPrimary() {
+        assertThat(markerIn(StockMovementService.class.getName() + ".recordMovement", false))
+                .isEqualTo("primary");
+    }
+
+    @Test
+    @DisplayName("Analytics transactions run under their own statement timeout")
+    void analyticsStatementTimeout() {
+        assertThat(analyticsPool.getPoolName()).isEqualTo(DataSourceConfig.ANALYTICS_POOL);
+        assertThatThrownBy(() -> sleepIn(AnalyticsService.class.getName() + ".getSalesSummary", true))
+                .hasMessageContaining("statement timeout");
+        sleepIn(StockMovementService.class.getName() + ".recordMovement", false);
+    }
+
+    @Test
+    @DisplayName("The timeout is local to the transaction and does not stay on the connection")
+    void analyticsStatementTimeoutIsTransactionLocal() {
+        markerIn(AnalyticsService.class.getName() + ".getSalesSummary", true);
+
+        // Pooled connections returned by analytics transactions keep no timeout
+        new JdbcTemplate(analyticsPool).execute("SELECT pg_sleep(2)");
+    }
+
+    private void sleepIn(String transactionName, boolean readOnly) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setName(transactionName);
+        tx.setReadOnly(readOnly);
+        tx.executeWithoutResult(status -> new JdbcTemplate(dataSource).execute("SELECT pg_sleep(2)"));
+    }
+
+    private String markerIn(String transactionName, boolean readOnly) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setName(transactionName);
+        tx.setReadOnly(readOnly);
+        return tx.execute(status ->
+                new JdbcTemplate(dataSource).queryForObject("SELECT name FROM pool_marker", String.class));
+    }
+
+    private static void mark(PostgreSQLContainer<?> db, String name) {
+        HikariDataSource direct = new HikariDataSource();
+        direct.setJdbcUrl(db.getJdbcUrl());
+        direct.setUsername(db.getUsername());
+        direct.setPassword(db.getPassword());
+        try (direct) {
+            JdbcTemplate jdbc = new JdbcTemplate(direct);
+            jdbc.execute("CREATE TABLE IF NOT EXISTS pool_marker (name VARCHAR(20))");
+            jdbc.execute("TRUNCATE pool_marker");
+            jdbc.update("INSERT INTO pool_marker VALUES (?)", name);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.mirai.inventoryservice.integration;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Applies the coin ledger migrations (V54 wallets, V56 economy aggregates) to the
+ * integration schema.
+ *
+ * The integration profile lets Hibernate create the schema, so the wallet triggers,
+ * the generated balance and expires_at columns and the economy counter tables do not
+ * exist there. Tests that read them call {@link #install} first; it runs the real
+ * migration files, so the tests exercise the SQL that ships.
+ */
+public final class CoinLedgerSchema {
+
+    private static final String[] MIGRATIONS = {
+            "db/migration/V54__create_coin_wallets.sql",
+            "db/migration/V56__coin_economy_aggregates.sql",
+    };
+
+    private CoinLedgerSchema() {
+    }
+
+    /**
+     * Install the migrations unless they already are. Inside a test transaction the
+     * install is rolled back with it.
+     */
+    public static synchronized void install(JdbcTemplate jdbcTemplate) {
+        Boolean installed = jdbcTemplate.queryForObject(
+                "SELECT to_regclass('coin_economy_totals') IS NOT NULL", Boolean.class);
+        if (Boolean.TRUE.equals(installed)) {
+            return;
+        }
+
+        // Columns V42 defines that Hibernate creates as plain nullable columns, and the
+        // entity-generated coin_wallets table, which V54 creates itself
+        jdbcTemplate.execute("""
+                ALTER TABLE review_daily_counts DROP COLUMN IF EXISTS expires_at;
+                ALTER TABLE review_daily_counts
+                    ADD COLUMN expires_at DATE
+                        GENERATED ALWAYS AS ((date + INTERVAL '90 days')::date) STORED;
+                UPDATE coin_adjustments SET expires_at = created_at + INTERVAL '90 days'
+                    WHERE expires_at IS NULL;
+                ALTER TABLE coin_adjustments
+                    ALTER COLUMN expires_at SET DEFAULT (NOW() + INTERVAL '90 days'),
+                    ALTER COLUMN expires_at SET NOT NULL;
+                DROP TABLE IF EXISTS coin_wallets CASCADE""");
+        for (String migration : MIGRATIONS) {
+            jdbcTemplate.execute(read(migration));
+        }
+    }
+
+    private static String read(String path) {
+        try {
+            return new ClassPathResource(path).getContentAsString(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
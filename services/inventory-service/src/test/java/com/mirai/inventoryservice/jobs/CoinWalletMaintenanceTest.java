@@ -0,0 +1,64 @@
+package com.mirai.inventoryservice.jobs;
+
+import com.mirai.inventoryservice.repositories.CoinWalletRepository;
+import com.mirai.inventoryservice.services.CoinWalletService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CoinWalletMaintenanceTest {
+
+    @Mock
+    private CoinWalletRepository coinWalletRepository;
+    @Mock
+    private CoinWalletService coinWalletService;
+
+    private final UUID a = new UUID(0L, 1L);
+    private final UUID b = new UUID(0L, 2L);
+    private final UUID c = new UUID(0L, 3L);
+
+    @Test
+    void sweepsOneWalletAtATimeFollowingTheKeyset() {
+        when(coinWalletRepository.findDueForSweep(any(), any(), eq(new UUID(0L, 0L)), eq(2)))
+                .thenReturn(List.of(a, b));
+        when(coinWalletRepository.findDueForSweep(any(), any(), eq(b), eq(2)))
+                .thenReturn(List.of(c));
+
+        maintenance(2).sweepExpired();
+
+        InOrder inOrder = inOrder(coinWalletService);
+        inOrder.verify(coinWalletService).sweepWallet(eq(a), any(), any());
+        inOrder.verify(coinWalletService).sweepWallet(eq(b), any(), any());
+        inOrder.verify(coinWalletService).sweepWallet(eq(c), any(), any());
+        verifyNoMoreInteractions(coinWalletService);
+    }
+
+    @Test
+    void reconcileSweepsFirstThenRebuildsEachDriftedWallet() {
+        when(coinWalletRepository.findDueForSweep(any(), any(), any(), anyInt())).thenReturn(List.of(a));
+        when(coinWalletRepository.findDriftedUserIds(any(), any())).thenReturn(List.of(b, c));
+
+        maintenance(50).reconcile();
+
+        InOrder inOrder = inOrder(coinWalletRepository, coinWalletService);
+        inOrder.verify(coinWalletService).sweepWallet(eq(a), any(), any());
+        inOrder.verify(coinWalletRepository).findDriftedUserIds(any(), any());
+        inOrder.verify(coinWalletService).rebuildWallet(eq(b), any(), any());
+        inOrder.verify(coinWalletService).rebuildWallet(eq(c), any(), any());
+        verifyNoMoreInteractions(coinWalletService);
+    }
+
+    private CoinWalletMaintenance maintenance(int batchSize) {
+        return new CoinWalletMaintenance(coinWalletRepository, coinWalletService, batchSize);
+    }
+}
@@ -0,0 +1,64 @@
+package com.mirai.inventoryservice.jobs;
+
+import com.mirai.inventoryservice.services.IdempotencyService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyLeaseHeartbeatTest {
+
+    @Mock
+    private IdempotencyService idempotencyService;
+
+    private final CountDownLatch releaseScheduler = new CountDownLatch(1);
+    private ThreadPoolTaskScheduler scheduler;
+    private IdempotencyLeaseHeartbeat heartbeat;
+
+    @AfterEach
+    void tearDown() {
+        releaseScheduler.countDown();
+        if (heartbeat != null) {
+            heartbeat.shutdown();
+        }
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    void renewsWhileTheSharedSchedulerIsBusy() {
+        // Boot's default scheduler: one thread, here held by a long-running job
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.initialize();
+        scheduler.execute(() -> {
+            try {
+                releaseScheduler.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        heartbeat = new IdempotencyLeaseHeartbeat(idempotencyService, 20);
+        heartbeat.start();
+
+        verify(idempotencyService, timeout(2000).atLeast(3)).renewLeases();
+    }
+
+    @Test
+    void keepsRenewingAfterAFailure() {
+        doThrow(new IllegalStateException("connection reset")).doNothing().when(idempotencyService).renewLeases();
+
+        heartbeat = new IdempotencyLeaseHeartbeat(idempotencyService, 20);
+        heartbeat.start();
+
+        verify(idempotencyService, timeout(2000).atLeast(2)).renewLeases();
+    }
+}
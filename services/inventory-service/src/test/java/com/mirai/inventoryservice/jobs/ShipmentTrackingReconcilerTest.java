@@ -0,0 +1,192 @@
+package com.mirai.inventoryservice.jobs;
+
+import com.mirai.inventoryservice.dtos.easypost.EasyPostTrackerResult;
+import com.mirai.inventoryservice.repositories.projections.TrackedShipmentView;
+import com.mirai.inventoryservice.services.EasyPostWebhookService;
+import com.mirai.inventoryservice.services.TrackingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ShipmentTrackingReconcilerTest {
+
+    @Mock
+    private TrackingService trackingService;
+    @Mock
+    private EasyPostWebhookService webhookService;
+
+    private final ExecutorService fetchPool = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void tearDown() {
+        fetchPool.shutdownNow();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void resolvesCodesInBatchesAndAppliesOnceForTheRun() {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        UUID c = UUID.randomUUID();
+        when(webhookService.claimShipmentsToPoll(any())).thenReturn(List.of(
+                view(a, "1Z1"), view(b, "1Z2"), view(c, "1Z3")));
+
+        EasyPostTrackerResult t1 = tracker("1Z1", "delivered");
+        EasyPostTrackerResult t3 = tracker("1Z3", "in_transit");
+        when(trackingService.fetchTrackerPage(any(), isNull())).thenAnswer(inv -> {
+            Collection<String> codes = inv.getArgument(0);
+            return page(codes.contains("1Z1") ? Map.of("1Z1", t1) : Map.of("1Z3", t3), false);
+        });
+        when(webhookService.applyPolledTrackers(any())).thenReturn(2);
+
+        reconciler(2).runOnce();
+
+        verify(trackingService, times(2)).fetchTrackerPage(any(), isNull());
+        ArgumentCaptor<Map<UUID, EasyPostTrackerResult>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(webhookService, times(1)).applyPolledTrackers(captor.capture());
+        Map<UUID, EasyPostTrackerResult> applied = captor.getValue();
+        assertEquals(2, applied.size());
+        assertSame(t1, applied.get(a));
+        assertSame(t3, applied.get(c));
+    }
+
+    @Test
+    void failedBatchIsSkippedAndOthersStillApply() {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        when(webhookService.claimShipmentsToPoll(any())).thenReturn(List.of(view(a, "1Z1"), view(b, "1Z2")));
+        EasyPostTrackerResult t2 = tracker("1Z2", "delivered");
+        when(trackingService.fetchTrackerPage(any(), isNull())).thenAnswer(inv -> {
+            Collection<String> codes = inv.getArgument(0);
+            if (codes.contains("1Z1")) {
+                throw new IllegalStateException("timeout");
+            }
+            return page(Map.of("1Z2", t2), false);
+        });
+
+        reconciler(1).runOnce();
+
+        verify(webhookService).applyPolledTrackers(Map.of(b, t2));
+    }
+
+    @Test
+    void followsHasMoreUntilTheLastPage() {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        when(webhookService.claimShipmentsToPoll(any())).thenReturn(List.of(view(a, "1Z1"), view(b, "1Z2")));
+        EasyPostTrackerResult newest = tracker("1Z1", "delivered");
+        EasyPostTrackerResult older = tracker("1Z1", "in_transit");
+        EasyPostTrackerResult t2 = tracker("1Z2", "out_for_delivery");
+        when(trackingService.fetchTrackerPage(any(), isNull()))
+                .thenReturn(new TrackingService.TrackerPage(Map.of("1Z1", newest), true, "trk_page1"));
+        when(trackingService.fetchTrackerPage(any(), eq("trk_page1")))
+                .thenReturn(new TrackingService.TrackerPage(Map.of("1Z1", older, "1Z2", t2), false, "trk_page2"));
+
+        reconciler(50).runOnce();
+
+        verify(trackingService, times(2)).fetchTrackerPage(any(), any());
+        // The first page is newest, so its tracker for 1Z1 wins
+        verify(webhookService).applyPolledTrackers(Map.of(a, newest, b, t2));
+    }
+
+    @Test
+    void nothingClaimedMakesNoCalls() {
+        // Another instance holds the claim, or every shipment was polled within the interval
+        when(webhookService.claimShipmentsToPoll(Duration.ofMillis(900_000))).thenReturn(List.of());
+
+        reconciler(50).runOnce();
+
+        verifyNoInteractions(trackingService);
+        verify(webhookService, never()).applyPolledTrackers(any());
+    }
+
+    @Test
+    void reconcileOnlyHandsTheRunOff() {
+        List<Runnable> handedOff = new ArrayList<>();
+        ShipmentTrackingReconciler reconciler = new ShipmentTrackingReconciler(
+                trackingService, webhookService, true, 900_000, 50, 100, handedOff::add, fetchPool);
+
+        reconciler.reconcile();
+
+        assertEquals(1, handedOff.size());
+        verifyNoInteractions(webhookService, trackingService);
+    }
+
+    @Test
+    void runDueWhileTheLastIsStillGoingIsSkipped() throws InterruptedException {
+        CountDownLatch claimed = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(webhookService.claimShipmentsToPoll(any())).thenAnswer(inv -> {
+            claimed.countDown();
+            release.await();
+            return List.of();
+        });
+        ShipmentTrackingReconciler reconciler = new ShipmentTrackingReconciler(
+                trackingService, webhookService, true, 900_000, 50, 2, 100);
+        try {
+            reconciler.reconcile();
+            assertTrue(claimed.await(2, TimeUnit.SECONDS));
+            reconciler.reconcile();
+            release.countDown();
+        } finally {
+            release.countDown();
+            reconciler.shutdown();
+        }
+
+        verify(webhookService, times(1)).claimShipmentsToPoll(any());
+    }
+
+    private ShipmentTrackingReconciler reconciler(int batchSize) {
+        return new ShipmentTrackingReconciler(
+                trackingService, webhookService, true, 900_000, batchSize, 100, Runnable::run, fetchPool);
+    }
+
+    private static TrackingService.TrackerPage page(Map<String, EasyPostTrackerResult> trackers, boolean hasMore) {
+        return new TrackingService.TrackerPage(trackers, hasMore, "trk_last");
+    }
+
+    private static TrackedShipmentView view(UUID id, String trackingId) {
+        return new TrackedShipmentView() {
+            @Override
+            public UUID getId() {
+                return id;
+            }
+
+            @Override
+            public String getTrackingId() {
+                return trackingId;
+            }
+        };
+    }
+
+    private static EasyPostTrackerResult tracker(String code, String status) {
+        EasyPostTrackerResult tracker = new EasyPostTrackerResult();
+        tracker.setId("trk_" + code);
+        tracker.setTrackingCode(code);
+        tracker.setStatus(status);
+        return tracker;
+    }
+}
@@ -1,9 +1,11 @@
 package com.mirai.inventoryservice.services;
 
 import com.mirai.inventoryservice.dtos.responses.AdminCoinActivityDTO;
+import com.mirai.inventoryservice.dtos.responses.CoinDailyFlowDTO;
 import com.mirai.inventoryservice.dtos.responses.CoinStatsResponseDTO;
 import com.mirai.inventoryservice.dtos.responses.PlayerCoinRowDTO;
 import com.mirai.inventoryservice.integration.BaseKafkaIntegrationTest;
+import com.mirai.inventoryservice.integration.CoinLedgerSchema;
 import com.mirai.inventoryservice.models.audit.User;
 import com.mirai.inventoryservice.models.enums.UserRole;
 import com.mirai.inventoryservice.models.lootbox.CoinAdjustment;
@@ -15,9 +17,11 @@ import com.mirai.inventoryservice.repositories.ReviewDailyCountRepository;
 import com.mirai.inventoryservice.repositories.UserRepository;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
@@ -31,6 +35,8 @@ import static org.assertj.core.api.Assertions.assertThat;
  * Real-Postgres integration tests for the admin Coins-tab dashboard. The native
  * SQL uses Postgres-only features (GREATEST, FILTER, DISTINCT ON, ::timestamptz)
  * so H2 won't catch regressions — these run against the Testcontainers Postgres.
+ * The KPIs and chart read counters kept by the V54/V56 triggers, which the
+ * Hibernate-created test schema lacks, so each test applies those migrations first.
  */
 @Transactional
 class CoinAdminDashboardServiceIT extends BaseKafkaIntegrationTest {
@@ -40,10 +46,16 @@ class CoinAdminDashboardServiceIT extends BaseKafkaIntegrationTest {
     @Autowired private CoinAdjustmentRepository coinAdjustmentRepository;
     @Autowired private LootboxPlayRepository lootboxPlayRepository;
     @Autowired private ReviewDailyCountRepository reviewDailyCountRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
 
     @PersistenceContext
     private EntityManager em;
 
+    @BeforeEach
+    void installCoinLedger() {
+        CoinLedgerSchema.install(jdbcTemplate);
+    }
+
     @Test
     @DisplayName("stats: circulation sums per-user balances, holders counts > 0, granted7d covers admin + review")
     void statsAggregate() {
@@ -145,6 +157,28 @@ class CoinAdminDashboardServiceIT extends BaseKafkaIntegrationTest {
         assertThat(feed).noneMatch(r -> "REVIEW_CREDIT".equals(r.kind()));
     }
 
+    @Test
+    @DisplayName("flows: one row per day, oldest first, granted and spent on the day they happened")
+    void dailyFlows() {
+        User admin = persistUser("Admin", "admin-flows@test.com", UserRole.ADMIN);
+        User u     = persistUser("Flow User", "flows@test.com", UserRole.EMPLOYEE);
+
+        adjust(u, admin, 10, "grant");
+        adjust(u, admin, -4, "claw back");
+        play(u, 3);
+        reviewCredit(u, LocalDate.now().minusDays(2), 6);
+
+        em.flush();
+        em.clear();
+
+        List<CoinDailyFlowDTO> flows = dashboardService.getDailyFlows(3);
+
+        assertThat(flows).extracting(CoinDailyFlowDTO::day).containsExactly(
+                LocalDate.now().minusDays(2), LocalDate.now().minusDays(1), LocalDate.now());
+        assertThat(flows).extracting(CoinDailyFlowDTO::granted).containsExactly(6L, 0L, 10L);
+        assertThat(flows).extracting(CoinDailyFlowDTO::spent).containsExactly(0L, 0L, 3L);
+    }
+
     @Test
     @DisplayName("activity: limit caps the result size")
     void activityLimitHonored() {
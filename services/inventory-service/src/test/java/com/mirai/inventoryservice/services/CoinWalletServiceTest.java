@@ -0,0 +1,111 @@
+package com.mirai.inventoryservice.services;
+
+import com.mirai.inventoryservice.models.lootbox.CoinWallet;
+import com.mirai.inventoryservice.repositories.CoinWalletRepository;
+import com.mirai.inventoryservice.services.LootboxService.BalanceBreakdown;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CoinWalletServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 5, 10);
+    private static final OffsetDateTime NOW = OffsetDateTime.of(2026, 5, 10, 12, 0, 0, 0, ZoneOffset.UTC);
+
+    @Mock
+    private CoinWalletRepository coinWalletRepository;
+
+    @InjectMocks
+    private CoinWalletService service;
+
+    private final UUID userId = UUID.randomUUID();
+
+    @Test
+    @DisplayName("A user without a wallet has a zero balance")
+    void missingWalletIsZero() {
+        when(coinWalletRepository.findById(userId)).thenReturn(Optional.empty());
+
+        BalanceBreakdown bb = service.balance(userId, TODAY, NOW);
+
+        assertThat(bb).isEqualTo(new BalanceBreakdown(0, 0, 0, 0, 0));
+    }
+
+    @Test
+    @DisplayName("A swept wallet is answered from the single row")
+    void sweptWalletReadsOneRow() {
+        when(coinWalletRepository.findById(userId)).thenReturn(Optional.of(wallet(
+                100, 20, 30, 0, TODAY.plusDays(5), NOW.plusDays(10))));
+
+        BalanceBreakdown bb = service.balance(userId, TODAY, NOW);
+
+        assertThat(bb).isEqualTo(new BalanceBreakdown(90, 100, 20, 30, 0));
+        verify(coinWalletRepository, never()).sumLapsedSince(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Credits that lapsed since the last sweep are counted as expired")
+    void addsCreditsLapsedSinceSweep() {
+        CoinWallet wallet = wallet(100, 0, 10, 0, TODAY, null);
+        when(coinWalletRepository.findById(userId)).thenReturn(Optional.of(wallet));
+        when(coinWalletRepository.sumLapsedSince(eq(userId), eq(wallet.getReviewsExpiredThrough()), eq(TODAY),
+                eq(wallet.getAdjustmentsExpiredThrough()), eq(NOW)))
+                .thenReturn(List.<Object[]>of(new Object[]{60L, 0L}));
+
+        BalanceBreakdown bb = service.balance(userId, TODAY, NOW);
+
+        assertThat(bb.totalExpired()).isEqualTo(60);
+        assertThat(bb.balance()).isEqualTo(40);
+    }
+
+    @Test
+    @DisplayName("Spending and expiry consume the same earnings once")
+    void formulaTakesLargerOfSpentAndExpired() {
+        // Earn 100, 80 lapse unspent, then earn 50 more: only the 80 is gone
+        assertThat(CoinWalletService.toBreakdown(150, 0, 0, 80).balance()).isEqualTo(70);
+        assertThat(CoinWalletService.toBreakdown(150, 0, 120, 80).balance()).isEqualTo(30);
+        assertThat(CoinWalletService.toBreakdown(50, -10, 60, 0).balance()).isZero();
+    }
+
+    @Test
+    @DisplayName("A rebuild locks the wallet before recomputing it")
+    void rebuildLocksThenRebuilds() {
+        service.rebuildWallet(userId, TODAY, NOW);
+
+        var inOrder = inOrder(coinWalletRepository);
+        inOrder.verify(coinWalletRepository).findByIdForUpdate(userId);
+        inOrder.verify(coinWalletRepository).rebuild(userId, TODAY, NOW);
+        verifyNoMoreInteractions(coinWalletRepository);
+    }
+
+    private CoinWallet wallet(long reviewCredits, long adjustments, long spent, long expired,
+                              LocalDate nextReviewExpiry, OffsetDateTime nextAdjustmentExpiry) {
+        return CoinWallet.builder()
+                .userId(userId)
+                .reviewCredits(reviewCredits)
+                .adjustments(adjustments)
+                .spent(spent)
+                .expired(expired)
+                .reviewsExpiredThrough(TODAY.minusDays(1))
+                .adjustmentsExpiredThrough(NOW.minusHours(1))
+                .nextReviewExpiry(nextReviewExpiry)
+                .nextAdjustmentExpiry(nextAdjustmentExpiry)
+                .updatedAt(NOW.minusHours(1))
+                .build();
+    }
+}
@@ -4,12 +4,15 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mirai.inventoryservice.dtos.easypost.EasyPostTrackerResult;
 import com.mirai.inventoryservice.dtos.easypost.EasyPostWebhookPayload;
 import com.mirai.inventoryservice.models.audit.Notification;
+import com.mirai.inventoryservice.models.audit.WebhookEvent;
 import com.mirai.inventoryservice.models.enums.CarrierStatus;
 import com.mirai.inventoryservice.models.enums.NotificationType;
 import com.mirai.inventoryservice.models.enums.ShipmentStatus;
+import com.mirai.inventoryservice.models.enums.WebhookEventStatus;
 import com.mirai.inventoryservice.models.shipment.Shipment;
 import com.mirai.inventoryservice.repositories.ShipmentRepository;
 import com.mirai.inventoryservice.repositories.WebhookEventRepository;
+import com.mirai.inventoryservice.repositories.projections.TrackedShipmentView;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -18,11 +21,16 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -37,6 +45,8 @@ class EasyPostWebhookServiceTest {
     @Mock
     private SupabaseBroadcastService broadcastService;
     @Mock
+    private EasyPostTrackerCache trackerCache;
+    @Mock
     private ObjectMapper objectMapper;
 
     @InjectMocks
@@ -63,7 +73,6 @@ class EasyPostWebhookServiceTest {
         payload.setDescription("tracker.updated");
         payload.setResult(tracker);
 
-        when(webhookEventRepository.existsByEventIdAndSource("evt_1", "easypost")).thenReturn(false);
         when(shipmentRepository.findByEasypostTrackerId("trk_1")).thenReturn(Optional.of(shipment));
 
         service.processWebhook(payload);
@@ -76,6 +85,7 @@ class EasyPostWebhookServiceTest {
                 "Inventory status must not change from a carrier-side event");
         assertEquals(CarrierStatus.DELIVERED, saved.getCarrierStatus());
         assertNotNull(saved.getCarrierDeliveredAt(), "carrier_delivered_at must be populated");
+        verify(trackerCache).put(tracker);
     }
 
     @Test
@@ -88,7 +98,6 @@ class EasyPostWebhookServiceTest {
         payload.setDescription("tracker.updated");
         payload.setResult(tracker);
 
-        when(webhookEventRepository.existsByEventIdAndSource("evt_1", "easypost")).thenReturn(false);
         when(shipmentRepository.findByEasypostTrackerId("trk_1")).thenReturn(Optional.of(shipment));
 
         service.processWebhook(payload);
@@ -109,7 +118,6 @@ class EasyPostWebhookServiceTest {
         payload.setDescription("tracker.updated");
         payload.setResult(tracker);
 
-        when(webhookEventRepository.existsByEventIdAndSource("evt_2", "easypost")).thenReturn(false);
         when(shipmentRepository.findByEasypostTrackerId("trk_1")).thenReturn(Optional.of(shipment));
 
         service.processWebhook(payload);
@@ -137,7 +145,6 @@ class EasyPostWebhookServiceTest {
         payload.setDescription("tracker.updated");
         payload.setResult(tracker);
 
-        when(webhookEventRepository.existsByEventIdAndSource("evt_3", "easypost")).thenReturn(false);
         when(shipmentRepository.findByEasypostTrackerId("trk_1")).thenReturn(Optional.of(shipment));
 
         service.processWebhook(payload);
@@ -148,4 +155,120 @@ class EasyPostWebhookServiceTest {
                 "Inventory status must remain RECEIVED");
         assertEquals(CarrierStatus.DELIVERED, captor.getValue().getCarrierStatus());
     }
+
+    @Test
+    void enqueueStoresRawPayloadKeyedByTrackerAndReportsRedelivery() {
+        EasyPostTrackerResult tracker = new EasyPostTrackerResult();
+        tracker.setId("trk_1");
+        EasyPostWebhookPayload payload = new EasyPostWebhookPayload();
+        payload.setId("evt_4");
+        payload.setDescription("tracker.updated");
+        payload.setResult(tracker);
+
+        when(webhookEventRepository.insertIfAbsent("evt_4", "tracker.updated", "easypost", "{raw}", "trk_1"))
+                .thenReturn(1, 0);
+
+        assertTrue(service.enqueue(payload, "{raw}"));
+        assertFalse(service.enqueue(payload, "{raw}"), "Redelivery must be dropped by the insert");
+        verifyNoInteractions(shipmentRepository, notificationService, broadcastService);
+    }
+
+    @Test
+    void failedEventIsRequeuedUntilAttemptsExhausted() {
+        UUID id = UUID.randomUUID();
+        WebhookEvent event = WebhookEvent.builder()
+                .id(id)
+                .eventId("evt_5")
+                .eventType("tracker.updated")
+                .status(WebhookEventStatus.PROCESSING)
+                .attempts(3)
+                .claimedAt(OffsetDateTime.now())
+                .build();
+        when(webhookEventRepository.findById(id)).thenReturn(Optional.of(event));
+
+        service.recordProcessingFailure(id, "boom");
+        assertEquals(WebhookEventStatus.PENDING, event.getStatus());
+        assertNull(event.getClaimedAt());
+
+        service.recordProcessingFailure(id, "boom");
+        assertEquals(WebhookEventStatus.FAILED, event.getStatus());
+        assertEquals(5, event.getAttempts());
+    }
+
+    @Test
+    void claimMovesOnlyTheLockedRowsToProcessing() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        when(webhookEventRepository.lockClaimableIds(10)).thenReturn(List.of(first, second));
+        List<WebhookEvent> loaded = List.of(
+                WebhookEvent.builder().id(first).status(WebhookEventStatus.PROCESSING).build(),
+                WebhookEvent.builder().id(second).status(WebhookEventStatus.PROCESSING).build());
+        when(webhookEventRepository.findByIdInOrderByReceivedAtAsc(List.of(first, second))).thenReturn(loaded);
+
+        List<WebhookEvent> claimed = service.claimPendingEvents(10);
+
+        assertEquals(loaded, claimed);
+        verify(webhookEventRepository).claim(eq(List.of(first, second)), any());
+    }
+
+    @Test
+    void claimWithNothingClaimableWritesNothing() {
+        when(webhookEventRepository.lockClaimableIds(10)).thenReturn(List.of());
+
+        assertTrue(service.claimPendingEvents(10).isEmpty());
+        verify(webhookEventRepository, never()).claim(any(), any());
+    }
+
+    @Test
+    void polledTrackersRaiseOneNotificationPerOutcomeAndOneBroadcast() {
+        Shipment second = Shipment.builder()
+                .id(UUID.randomUUID())
+                .shipmentNumber("SHIP-002")
+                .status(ShipmentStatus.PENDING)
+                .build();
+        EasyPostTrackerResult delivered = new EasyPostTrackerResult();
+        delivered.setId("trk_1");
+        delivered.setTrackingCode("1Z1");
+        delivered.setStatus("delivered");
+        EasyPostTrackerResult alsoDelivered = new EasyPostTrackerResult();
+        alsoDelivered.setId("trk_2");
+        alsoDelivered.setTrackingCode("1Z2");
+        alsoDelivered.setStatus("delivered");
+
+        when(shipmentRepository.findAllById(any())).thenReturn(List.of(shipment, second));
+
+        int changed = service.applyPolledTrackers(Map.of(
+                shipment.getId(), delivered,
+                second.getId(), alsoDelivered));
+
+        assertEquals(2, changed);
+        ArgumentCaptor<Notification> notif = ArgumentCaptor.forClass(Notification.class);
+        verify(notificationService, times(1)).createNotification(notif.capture());
+        assertEquals(NotificationType.PACKAGE_ARRIVED, notif.getValue().getType());
+        assertEquals(2, notif.getValue().getMetadata().get("count"));
+        verify(broadcastService, times(1)).broadcastShipmentUpdated(any());
+        verify(shipmentRepository).saveAll(any());
+    }
+
+    @Test
+    void claimWithoutTheLockReturnsNothing() {
+        when(shipmentRepository.tryLockTrackingReconcile()).thenReturn(false);
+
+        assertTrue(service.claimShipmentsToPoll(Duration.ofMinutes(15)).isEmpty());
+
+        verify(shipmentRepository, never()).findOpenTrackedShipmentsDue(any());
+        verify(shipmentRepository, never()).markTrackingPolled(any(), any());
+    }
+
+    @Test
+    void claimMarksTheDueShipmentsPolled() {
+        TrackedShipmentView due = mock(TrackedShipmentView.class);
+        when(due.getId()).thenReturn(shipment.getId());
+        when(shipmentRepository.tryLockTrackingReconcile()).thenReturn(true);
+        when(shipmentRepository.findOpenTrackedShipmentsDue(any())).thenReturn(List.of(due));
+
+        assertEquals(List.of(due), service.claimShipmentsToPoll(Duration.ofMinutes(15)));
+
+        verify(shipmentRepository).markTrackingPolled(eq(List.of(shipment.getId())), any());
+    }
 }
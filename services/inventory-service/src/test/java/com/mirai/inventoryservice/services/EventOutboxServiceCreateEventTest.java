@@ -1,5 +1,6 @@
 package com.mirai.inventoryservice.services;
 
+import com.mirai.inventoryservice.dtos.responses.InventoryChangeDTO;
 import com.mirai.inventoryservice.kafka.KafkaProducer;
 import com.mirai.inventoryservice.models.Product;
 import com.mirai.inventoryservice.models.audit.EventOutbox;
@@ -45,6 +46,9 @@ class EventOutboxServiceCreateEventTest {
     @Mock
     private StockMovementService stockMovementService;
 
+    @Mock
+    private SupabaseBroadcastService broadcastService;
+
     @Captor
     private ArgumentCaptor<EventOutbox> outboxCaptor;
 
@@ -56,7 +60,8 @@ class EventOutboxServiceCreateEventTest {
                 eventOutboxRepository,
                 kafkaProducer,
                 stockMovementService,
-                eventDeadLetterRepository
+                eventDeadLetterRepository,
+                broadcastService
         );
         ReflectionTestUtils.setField(eventOutboxService, "inventoryChangesTopic", "inventory-changes");
     }
@@ -203,6 +208,31 @@ class EventOutboxServiceCreateEventTest {
         verify(eventOutboxRepository).save(any());
     }
 
+    @Test
+    @DisplayName("broadcasts a row-level delta for the withdrawn side of a transfer leg")
+    void createStockMovementEvent_broadcastsInventoryDelta() {
+        // Given — a withdrawal leg carries both location ids
+        UUID fromLocationId = UUID.randomUUID();
+        StockMovement movement = buildMovement(12L);
+        movement.setQuantityChange(-5);
+        movement.setFromLocationId(fromLocationId);
+        when(stockMovementService.resolveLocationCode(any(), any())).thenReturn("B1");
+        when(stockMovementService.calculateTotalInventory(any())).thenReturn(40);
+        when(eventOutboxRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        // When
+        eventOutboxService.createStockMovementEvent(movement);
+
+        // Then
+        ArgumentCaptor<InventoryChangeDTO> deltaCaptor = ArgumentCaptor.forClass(InventoryChangeDTO.class);
+        verify(broadcastService).broadcastInventoryDelta(deltaCaptor.capture());
+        InventoryChangeDTO delta = deltaCaptor.getValue();
+        assertThat(delta.getSeq()).isEqualTo(12L);
+        assertThat(delta.getLocationId()).isEqualTo(fromLocationId);
+        assertThat(delta.getQuantity()).isEqualTo(15);
+        assertThat(delta.getTotal()).isEqualTo(40);
+    }
+
     private StockMovement buildMovement(Long id) {
         UUID productId = UUID.randomUUID();
         Product product = Product.builder()
@@ -42,6 +42,9 @@ class EventOutboxServiceDeadLetterTest {
     @Mock
     private StockMovementService stockMovementService;
 
+    @Mock
+    private SupabaseBroadcastService broadcastService;
+
     @Captor
     private ArgumentCaptor<EventDeadLetter> deadLetterCaptor;
 
@@ -53,7 +56,8 @@ class EventOutboxServiceDeadLetterTest {
                 eventOutboxRepository,
                 kafkaProducer,
                 stockMovementService,
-                eventDeadLetterRepository
+                eventDeadLetterRepository,
+                broadcastService
         );
         ReflectionTestUtils.setField(eventOutboxService, "inventoryChangesTopic", "inventory-changes");
     }
@@ -0,0 +1,162 @@
+package com.mirai.inventoryservice.services;
+
+import com.mirai.inventoryservice.models.audit.IdempotencyRecord;
+import com.mirai.inventoryservice.models.enums.IdempotencyStatus;
+import com.mirai.inventoryservice.repositories.IdempotencyRecordRepository;
+import com.mirai.inventoryservice.services.IdempotencyService.Claim;
+import com.mirai.inventoryservice.services.IdempotencyService.Outcome;
+import com.mirai.inventoryservice.services.IdempotencyService.StoredResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+    private static final String SCOPE = "person:p1";
+    private static final String KEY = "k1";
+    private static final String FINGERPRINT = "abc";
+
+    @Mock
+    private IdempotencyRecordRepository repository;
+
+    private IdempotencyService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new IdempotencyService(repository, 24, 120, 10, 100);
+    }
+
+    @Test
+    @DisplayName("Should acquire a new key")
+    void acquiresNewKey() {
+        when(repository.insertIfAbsent(any(), eq(SCOPE), eq(KEY), eq(FINGERPRINT), any(), any())).thenReturn(1);
+
+        Claim claim = service.claim(SCOPE, KEY, FINGERPRINT);
+
+        assertThat(claim.outcome()).isEqualTo(Outcome.ACQUIRED);
+        assertThat(claim.recordId()).isNotNull();
+        verify(repository, never()).findByScopeAndIdempotencyKey(any(), any());
+    }
+
+    @Test
+    @DisplayName("Should replay a completed key from the database, then from the local cache")
+    void replaysCompletedKey() {
+        when(repository.insertIfAbsent(any(), any(), any(), any(), any(), any())).thenReturn(0);
+        when(repository.findByScopeAndIdempotencyKey(SCOPE, KEY)).thenReturn(Optional.of(
+                record(IdempotencyStatus.COMPLETED, FINGERPRINT, OffsetDateTime.now().plusMinutes(1))));
+
+        Claim first = service.claim(SCOPE, KEY, FINGERPRINT);
+        Claim second = service.claim(SCOPE, KEY, FINGERPRINT);
+
+        assertThat(first.outcome()).isEqualTo(Outcome.REPLAY);
+        assertThat(first.response().body()).isEqualTo("{\"ok\":true}".getBytes(StandardCharsets.UTF_8));
+        assertThat(second.outcome()).isEqualTo(Outcome.REPLAY);
+        verify(repository, times(1)).findByScopeAndIdempotencyKey(SCOPE, KEY);
+    }
+
+    @Test
+    @DisplayName("Should report a key still being executed elsewhere as in progress")
+    void reportsInProgress() {
+        when(repository.insertIfAbsent(any(), any(), any(), any(), any(), any())).thenReturn(0);
+        when(repository.findByScopeAndIdempotencyKey(SCOPE, KEY)).thenReturn(Optional.of(
+                record(IdempotencyStatus.IN_PROGRESS, FINGERPRINT, OffsetDateTime.now().plusMinutes(1))));
+
+        assertThat(service.claim(SCOPE, KEY, FINGERPRINT).outcome()).isEqualTo(Outcome.IN_PROGRESS);
+    }
+
+    @Test
+    @DisplayName("Should take over a key whose owner's lease expired")
+    void takesOverAbandonedKey() {
+        IdempotencyRecord stale = record(IdempotencyStatus.IN_PROGRESS, FINGERPRINT, OffsetDateTime.now().minusSeconds(1));
+        when(repository.insertIfAbsent(any(), any(), any(), any(), any(), any())).thenReturn(0);
+        when(repository.findByScopeAndIdempotencyKey(SCOPE, KEY)).thenReturn(Optional.of(stale));
+        when(repository.takeOver(eq(stale.getId()), eq(FINGERPRINT), any(), any(), any())).thenReturn(1);
+
+        Claim claim = service.claim(SCOPE, KEY, FINGERPRINT);
+
+        assertThat(claim.outcome()).isEqualTo(Outcome.ACQUIRED);
+        assertThat(claim.recordId()).isEqualTo(stale.getId());
+    }
+
+    @Test
+    @DisplayName("Should reject a key reused with a different request")
+    void rejectsDifferentRequest() {
+        when(repository.insertIfAbsent(any(), any(), any(), any(), any(), any())).thenReturn(0);
+        when(repository.findByScopeAndIdempotencyKey(SCOPE, KEY)).thenReturn(Optional.of(
+                record(IdempotencyStatus.COMPLETED, "other", OffsetDateTime.now().plusMinutes(1))));
+
+        assertThat(service.claim(SCOPE, KEY, FINGERPRINT).outcome()).isEqualTo(Outcome.MISMATCH);
+    }
+
+    @Test
+    @DisplayName("Completed responses should be replayed from the cache without a database round-trip")
+    void completeCachesResponse() {
+        Claim claim = new Claim(Outcome.ACQUIRED, UUID.randomUUID(), null);
+        when(repository.complete(eq(claim.recordId()), eq(201), anyString(), any(), any())).thenReturn(1);
+
+        service.complete(SCOPE, KEY, FINGERPRINT, claim, new StoredResponse(201, "application/json", "{}".getBytes(StandardCharsets.UTF_8)));
+        Claim replay = service.claim(SCOPE, KEY, FINGERPRINT);
+
+        assertThat(replay.outcome()).isEqualTo(Outcome.REPLAY);
+        assertThat(replay.response().status()).isEqualTo(201);
+        verify(repository, never()).insertIfAbsent(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should not cache a response whose key was taken over")
+    void completeAfterTakeoverIsDropped() {
+        Claim claim = new Claim(Outcome.ACQUIRED, UUID.randomUUID(), null);
+        when(repository.complete(any(), anyInt(), any(), any(), any())).thenReturn(0);
+        when(repository.insertIfAbsent(any(), any(), any(), any(), any(), any())).thenReturn(1);
+
+        service.complete(SCOPE, KEY, FINGERPRINT, claim, new StoredResponse(200, null, new byte[0]));
+
+        assertThat(service.claim(SCOPE, KEY, FINGERPRINT).outcome()).isEqualTo(Outcome.ACQUIRED);
+    }
+
+    @Test
+    @DisplayName("Keys still executing here are renewed until their response is stored")
+    void heartbeatRenewsOwnedKeys() {
+        when(repository.insertIfAbsent(any(), any(), any(), any(), any(), any())).thenReturn(1);
+        Claim claim = service.claim(SCOPE, KEY, FINGERPRINT);
+
+        service.renewLeases();
+        verify(repository).renewLeases(eq(List.of(claim.recordId())), any());
+
+        service.complete(SCOPE, KEY, FINGERPRINT, claim, new StoredResponse(200, null, new byte[0]));
+        service.renewLeases();
+        verify(repository, times(1)).renewLeases(any(), any());
+    }
+
+    private static IdempotencyRecord record(IdempotencyStatus status, String fingerprint, OffsetDateTime lockedUntil) {
+        return IdempotencyRecord.builder()
+                .id(UUID.randomUUID())
+                .scope(SCOPE)
+                .idempotencyKey(KEY)
+                .requestFingerprint(fingerprint)
+                .status(status)
+                .responseStatus(status == IdempotencyStatus.COMPLETED ? 200 : null)
+                .responseContentType("application/json")
+                .responseBody(status == IdempotencyStatus.COMPLETED ? "{\"ok\":true}".getBytes(StandardCharsets.UTF_8) : null)
+                .lockedUntil(lockedUntil)
+                .expiresAt(OffsetDateTime.now().plusHours(24))
+                .build();
+    }
+}
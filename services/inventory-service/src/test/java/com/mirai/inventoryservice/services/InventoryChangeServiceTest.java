@@ -0,0 +1,87 @@
+package com.mirai.inventoryservice.services;
+
+import com.mirai.inventoryservice.dtos.responses.InventoryChangesResponseDTO;
+import com.mirai.inventoryservice.repositories.InventoryTotalsRepository;
+import com.mirai.inventoryservice.repositories.StockMovementRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InventoryChangeServiceTest {
+
+    @Mock
+    private StockMovementRepository stockMovementRepository;
+    @Mock
+    private InventoryTotalsRepository inventoryTotalsRepository;
+    @InjectMocks
+    private InventoryChangeService service;
+
+    private final UUID productId = UUID.randomUUID();
+    private final UUID locationId = UUID.randomUUID();
+
+    @Test
+    void withoutCursorReturnsTheHorizonOnly() {
+        when(stockMovementRepository.findChangeHorizon()).thenReturn(900L);
+
+        InventoryChangesResponseDTO response = service.getChangesAfter(null, 100);
+
+        assertThat(response.getCursor()).isEqualTo("900.0");
+        assertThat(response.getChanges()).isEmpty();
+        verify(stockMovementRepository, never()).findChangesAfter(anyLong(), anyLong(), anyLong(), anyInt());
+    }
+
+    @Test
+    void completePageResumesFromTheHorizon() {
+        when(stockMovementRepository.findChangeHorizon()).thenReturn(905L);
+        when(stockMovementRepository.findChangesAfter(900L, 0L, 905L, 3)).thenReturn(List.<Object[]>of(row(41L, 902L, 6)));
+        when(inventoryTotalsRepository.findStockTotalsMap(any())).thenReturn(Map.of(productId, 30));
+
+        InventoryChangesResponseDTO response = service.getChangesAfter("900.0", 2);
+
+        assertThat(response.isTruncated()).isFalse();
+        assertThat(response.getCursor()).isEqualTo("905.0");
+        assertThat(response.getChanges()).singleElement().satisfies(change -> {
+            assertThat(change.getSeq()).isEqualTo(41L);
+            assertThat(change.getLocationId()).isEqualTo(locationId);
+            assertThat(change.getQuantity()).isEqualTo(6);
+            assertThat(change.getTotal()).isEqualTo(30);
+        });
+    }
+
+    @Test
+    void truncatedPageResumesAfterItsLastRow() {
+        when(stockMovementRepository.findChangeHorizon()).thenReturn(905L);
+        when(stockMovementRepository.findChangesAfter(900L, 0L, 905L, 2))
+                .thenReturn(List.<Object[]>of(row(44L, 901L, 1), row(40L, 903L, 2)));
+
+        InventoryChangesResponseDTO response = service.getChangesAfter("900.0", 1);
+
+        assertThat(response.isTruncated()).isTrue();
+        assertThat(response.getCursor()).isEqualTo("901.44");
+        assertThat(response.getChanges()).extracting(c -> c.getSeq()).containsExactly(44L);
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThatThrownBy(() -> service.getChangesAfter("12", 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private Object[] row(long id, long xid, int quantity) {
+        return new Object[] {id, xid, productId, "RACK", locationId, quantity, OffsetDateTime.now()};
+    }
+}
@@ -1,8 +1,10 @@
 package com.mirai.inventoryservice.services;
 
 import com.mirai.inventoryservice.dtos.requests.kuji.AddSlipRequestDTO;
+import com.mirai.inventoryservice.dtos.requests.kuji.BulkRecordDrawRequestDTO;
 import com.mirai.inventoryservice.dtos.requests.kuji.RecordDrawRequestDTO;
 import com.mirai.inventoryservice.dtos.requests.kuji.TransferInMoreRequestDTO;
+import com.mirai.inventoryservice.dtos.responses.kuji.KujiBoxResponseDTO;
 import com.mirai.inventoryservice.dtos.responses.kuji.KujiDailyPayoutsResponseDTO;
 import com.mirai.inventoryservice.exceptions.InsufficientInventoryException;
 import com.mirai.inventoryservice.models.Product;
@@ -19,6 +21,7 @@ import com.mirai.inventoryservice.models.storage.StorageLocation;
 import com.mirai.inventoryservice.repositories.AuditLogRepository;
 import com.mirai.inventoryservice.repositories.KujiBoxRepository;
 import com.mirai.inventoryservice.repositories.KujiBoxTierRepository;
+import com.mirai.inventoryservice.repositories.KujiHourlyPayoutRepository;
 import com.mirai.inventoryservice.repositories.LocationInventoryRepository;
 import com.mirai.inventoryservice.repositories.LocationRepository;
 import com.mirai.inventoryservice.repositories.MachineDisplayRepository;
@@ -35,6 +38,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 
+import java.time.OffsetDateTime;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -44,6 +48,7 @@ import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -68,6 +73,7 @@ class KujiBoxServiceTest {
     @Mock private UserRepository userRepository;
     @Mock private NotificationService notificationService;
     @Mock private SupabaseBroadcastService broadcastService;
+    @Mock private KujiHourlyPayoutRepository kujiHourlyPayoutRepository;
     @Mock private EventOutboxService eventOutboxService;
     @Mock private StockMovementService stockMovementService;
     @Mock private EntityManager entityManager;
@@ -104,6 +110,7 @@ class KujiBoxServiceTest {
                 machineDisplayRepository,
                 auditLogRepository,
                 stockMovementRepository,
+                kujiHourlyPayoutRepository,
                 userRepository,
                 notificationService,
                 broadcastService,
@@ -183,6 +190,22 @@ class KujiBoxServiceTest {
             return log;
         });
         when(stockMovementRepository.save(any(StockMovement.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(stockMovementRepository.saveAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // recordDraw resolves tiers from the loaded box and writes counts with a guarded
+        // update; the stub applies it to the tier as the refresh would
+        box.getTiers().add(tier);
+        when(kujiBoxTierRepository.drawSlips(eq(tierId), eq(boxId), anyInt()))
+                .thenAnswer(invocation -> draw(tier, invocation.getArgument(2)));
+    }
+
+    private static int draw(KujiBoxTier tier, int quantity) {
+        if (tier.getActiveCount() < quantity) {
+            return 0;
+        }
+        tier.setActiveCount(tier.getActiveCount() - quantity);
+        tier.setDrawnCount((tier.getDrawnCount() == null ? 0 : tier.getDrawnCount()) + quantity);
+        return 1;
     }
 
     private TransferInMoreRequestDTO request() {
@@ -375,6 +398,148 @@ class KujiBoxServiceTest {
                 "drawnCount must increment by drawn quantity");
     }
 
+    @Test
+    void recordDraw_updatesEachTierOnceWithoutPessimisticLock() {
+        tier.setDrawnCount(0);
+        RecordDrawRequestDTO req = RecordDrawRequestDTO.builder()
+                .actorId(actorId)
+                .draws(List.of(
+                        RecordDrawRequestDTO.DrawLine.builder().tierId(tierId).quantity(1).build(),
+                        RecordDrawRequestDTO.DrawLine.builder().tierId(tierId).quantity(2).build()))
+                .build();
+
+        service.recordDraw(boxId, req);
+
+        verify(kujiBoxTierRepository).drawSlips(tierId, boxId, 3);
+        verify(entityManager).refresh(tier);
+        verify(kujiBoxTierRepository, never()).findByIdForUpdate(any());
+        verify(kujiBoxTierRepository, never()).save(any());
+        verify(stockMovementRepository, never()).save(any());
+        assertEquals(INITIAL_SLIP_COUNT - 3, tier.getActiveCount());
+        assertEquals(3, tier.getDrawnCount());
+    }
+
+    @Test
+    void recordDraw_rejectsWhenGuardedUpdateLosesRace() {
+        // Loaded snapshot says 5 slips, but a concurrent draw took them before our update
+        when(kujiBoxTierRepository.drawSlips(eq(tierId), eq(boxId), anyInt())).thenReturn(0);
+        RecordDrawRequestDTO req = RecordDrawRequestDTO.builder()
+                .actorId(actorId)
+                .draws(List.of(RecordDrawRequestDTO.DrawLine.builder()
+                        .tierId(tierId).quantity(2).build()))
+                .build();
+
+        IllegalStateException ex = assertThrows(IllegalStateException.class,
+                () -> service.recordDraw(boxId, req));
+        assertTrue(ex.getMessage().contains("no longer has 2 slips"));
+        verify(notificationService, never()).createNotification(any());
+    }
+
+    @Test
+    void recordDraws_appliesEveryBoxInOneBatchAndBroadcastsOnce() {
+        KujiBox otherBox = otherOpenBox();
+        KujiBoxTier otherTier = otherBox.getTiers().get(0);
+        when(kujiBoxRepository.findAllByIdWithTiers(any())).thenReturn(List.of(otherBox, box));
+        when(kujiBoxTierRepository.drawSlips(otherTier.getId(), otherBox.getId(), 2))
+                .thenAnswer(invocation -> draw(otherTier, 2));
+
+        List<KujiBoxResponseDTO> result = service.recordDraws(BulkRecordDrawRequestDTO.builder()
+                .actorId(actorId)
+                .boxes(List.of(boxDraws(boxId, tierId, 1), boxDraws(otherBox.getId(), otherTier.getId(), 2)))
+                .build());
+
+        assertEquals(List.of(boxId, otherBox.getId()), result.stream().map(KujiBoxResponseDTO::getId).toList());
+        assertEquals(INITIAL_SLIP_COUNT - 1, tier.getActiveCount());
+        assertEquals(2, otherTier.getActiveCount());
+        verify(stockMovementRepository, times(1)).saveAll(any());
+        verify(auditLogRepository, times(2)).save(any(AuditLog.class));
+        verify(notificationService, times(2)).createNotification(any());
+        verify(broadcastService, times(1)).broadcastInventoryUpdated();
+        verify(broadcastService, times(1)).broadcastAuditLogCreated();
+        verify(kujiBoxRepository, never()).findByIdWithTiers(any());
+    }
+
+    @Test
+    void recordDraws_rejectsWholeRequestBeforeWritingWhenAnyBoxIsShort() {
+        KujiBox otherBox = otherOpenBox();
+        KujiBoxTier otherTier = otherBox.getTiers().get(0);
+        when(kujiBoxRepository.findAllByIdWithTiers(any())).thenReturn(List.of(box, otherBox));
+
+        BulkRecordDrawRequestDTO req = BulkRecordDrawRequestDTO.builder()
+                .actorId(actorId)
+                .boxes(List.of(boxDraws(boxId, tierId, 1), boxDraws(otherBox.getId(), otherTier.getId(), 10)))
+                .build();
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> service.recordDraws(req));
+        assertTrue(ex.getMessage().startsWith("Box 'Box 2': Tier 'Tier Z' has only 4"));
+        verify(auditLogRepository, never()).save(any());
+        verify(stockMovementRepository, never()).saveAll(any());
+        verify(kujiBoxTierRepository, never()).drawSlips(any(), any(), anyInt());
+    }
+
+    @Test
+    void recordDraws_rejectsDuplicateBoxEntries() {
+        BulkRecordDrawRequestDTO req = BulkRecordDrawRequestDTO.builder()
+                .actorId(actorId)
+                .boxes(List.of(boxDraws(boxId, tierId, 1), boxDraws(boxId, tierId, 1)))
+                .build();
+
+        assertThrows(IllegalArgumentException.class, () -> service.recordDraws(req));
+        verify(kujiBoxRepository, never()).findAllByIdWithTiers(any());
+    }
+
+    @Test
+    void getBoxHistory_loadsPageInTwoQueriesAndResolvesNamesOnce() {
+        KujiBox older = otherOpenBox();
+        older.setStatus(KujiBoxStatus.CLOSED);
+        older.setOpenedBy(actorId);
+        older.setClosedBy(UUID.randomUUID());
+        box.setOpenedBy(actorId);
+        OffsetDateTime before = OffsetDateTime.now();
+        UUID beforeId = UUID.randomUUID();
+        when(kujiBoxRepository.findHistoryIdsBefore(eq(productId), eq(before), eq(beforeId), any()))
+                .thenReturn(List.of(boxId, older.getId()));
+        when(kujiBoxRepository.findHistoryByIds(List.of(boxId, older.getId()))).thenReturn(List.of(box, older));
+
+        List<KujiBoxResponseDTO> history = service.getBoxHistory(productId, before, beforeId, 1000);
+
+        assertEquals(List.of(boxId, older.getId()), history.stream().map(KujiBoxResponseDTO::getId).toList());
+        ArgumentCaptor<org.springframework.data.domain.Pageable> page =
+                ArgumentCaptor.forClass(org.springframework.data.domain.Pageable.class);
+        verify(kujiBoxRepository).findHistoryIdsBefore(eq(productId), eq(before), eq(beforeId), page.capture());
+        assertEquals(200, page.getValue().getPageSize(), "page size is capped");
+        verify(kujiBoxRepository, never()).findByIdWithTiers(any());
+        verify(userRepository, times(1)).findAllById(any());
+    }
+
+    private KujiBox otherOpenBox() {
+        Product parent = new Product();
+        parent.setId(UUID.randomUUID());
+        parent.setName("Other Kuji");
+        KujiBox other = KujiBox.builder()
+                .id(UUID.randomUUID())
+                .product(parent)
+                .location(boxLocation)
+                .label("Box 2")
+                .status(KujiBoxStatus.OPEN)
+                .build();
+        other.getTiers().add(KujiBoxTier.builder()
+                .id(UUID.randomUUID())
+                .box(other)
+                .label("Tier Z")
+                .activeCount(4)
+                .drawnCount(0)
+                .build());
+        return other;
+    }
+
+    private static BulkRecordDrawRequestDTO.BoxDraws boxDraws(UUID boxId, UUID tierId, int quantity) {
+        return BulkRecordDrawRequestDTO.BoxDraws.builder()
+                .boxId(boxId)
+                .draws(List.of(RecordDrawRequestDTO.DrawLine.builder().tierId(tierId).quantity(quantity).build()))
+                .build();
+    }
+
     @Test
     void undoDraw_decrementsDrawnCountAndClampsAtZero() {
         // Set up: one prior draw of 2 slips already recorded.
@@ -416,6 +581,7 @@ class KujiBoxServiceTest {
                 "activeCount must be restored to pre-draw value");
         assertEquals(0, tier.getDrawnCount(),
                 "drawnCount must decrement and clamp at 0");
+        verify(kujiHourlyPayoutRepository).addPayout(any(), eq(boxId), any(), eq(tierId), eq(-2), any());
     }
 
     // ===================== daily-payouts =====================
@@ -578,8 +744,13 @@ class KujiBoxServiceTest {
 
     private StockMovement captureSavedMovementByReason(StockMovementReason reason) {
         ArgumentCaptor<StockMovement> captor = ArgumentCaptor.forClass(StockMovement.class);
-        verify(stockMovementRepository, atLeastOnce()).save(captor.capture());
-        return captor.getAllValues().stream()
+        verify(stockMovementRepository, atLeast(0)).save(captor.capture());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<StockMovement>> batches = ArgumentCaptor.forClass(List.class);
+        verify(stockMovementRepository, atLeast(0)).saveAll(batches.capture());
+        List<StockMovement> all = new java.util.ArrayList<>(captor.getAllValues());
+        batches.getAllValues().forEach(all::addAll);
+        return all.stream()
                 .filter(m -> m.getReason() == reason)
                 .findFirst()
                 .orElseThrow(() -> new AssertionError("No saved StockMovement with reason " + reason));
@@ -590,7 +761,7 @@ class KujiBoxServiceTest {
         box.setOpenedAt(java.time.OffsetDateTime.now().minusDays(2));
         when(kujiBoxRepository.findById(boxId)).thenReturn(Optional.of(box));
 
-        // Only one row from the aggregator: 5 slips at $10 yesterday.
+        // Only one row from the rollup: 5 slips at $10 yesterday.
         java.time.LocalDate today = java.time.LocalDate.now(java.time.ZoneId.of("UTC"));
         java.time.LocalDate yesterday = today.minusDays(1);
         Object[] row = new Object[] {
@@ -600,13 +771,15 @@ class KujiBoxServiceTest {
         };
         List<Object[]> rows = new java.util.ArrayList<>();
         rows.add(row);
-        when(stockMovementRepository.aggregateKujiDailyPayouts(
+        when(kujiHourlyPayoutRepository.sumDailyPayouts(
                 eq(boxId), any(), any(), eq("UTC")))
                 .thenReturn(rows);
 
         KujiDailyPayoutsResponseDTO resp = service.getDailyPayouts(
                 boxId, today.minusDays(2), today, "UTC");
 
+        verify(stockMovementRepository, never()).aggregateKujiDailyPayouts(any(), any(), any(), any());
+
         assertEquals(3, resp.series().size(), "Series must be dense over [from, to]");
         assertEquals(0, resp.series().get(0).slipCount());
         assertEquals(5, resp.series().get(1).slipCount());
@@ -614,4 +787,49 @@ class KujiBoxServiceTest {
         assertEquals(0, new java.math.BigDecimal("50.00").compareTo(resp.total().valueWon()));
         assertEquals(5, resp.total().slipCount());
     }
+
+    @Test
+    void getDailyPayouts_fallsBackToLedgerForHalfHourZones() {
+        box.setOpenedAt(java.time.OffsetDateTime.now().minusDays(1));
+        when(kujiBoxRepository.findById(boxId)).thenReturn(Optional.of(box));
+        when(stockMovementRepository.aggregateKujiDailyPayouts(eq(boxId), any(), any(), eq("Asia/Kolkata")))
+                .thenReturn(Collections.emptyList());
+
+        service.getDailyPayouts(boxId, null, null, "Asia/Kolkata");
+
+        verify(kujiHourlyPayoutRepository, never()).sumDailyPayouts(any(), any(), any(), any());
+    }
+
+    @Test
+    void hourAligned_checksEveryOffsetInRange() {
+        OffsetDateTime start = OffsetDateTime.parse("2024-01-01T00:00:00Z");
+        OffsetDateTime end = OffsetDateTime.parse("2025-01-01T00:00:00Z");
+
+        assertTrue(KujiBoxService.hourAligned(java.time.ZoneId.of("America/Los_Angeles"), start, end));
+        assertTrue(KujiBoxService.hourAligned(java.time.ZoneId.of("UTC"), start, end));
+        assertFalse(KujiBoxService.hourAligned(java.time.ZoneId.of("Asia/Kolkata"), start, end));
+        // Lord Howe shifts by 30 minutes for daylight saving
+        assertFalse(KujiBoxService.hourAligned(java.time.ZoneId.of("Australia/Lord_Howe"), start, end));
+    }
+
+    @Test
+    void recordDraw_addsSlipsAndValueToHourlyPayoutBucket() {
+        tier.setPrice(new java.math.BigDecimal("12.50"));
+        RecordDrawRequestDTO req = RecordDrawRequestDTO.builder()
+                .actorId(actorId)
+                .draws(List.of(
+                        RecordDrawRequestDTO.DrawLine.builder().tierId(tierId).quantity(1).build(),
+                        RecordDrawRequestDTO.DrawLine.builder().tierId(tierId).quantity(2).build()))
+                .build();
+
+        service.recordDraw(boxId, req);
+
+        ArgumentCaptor<OffsetDateTime> bucket = ArgumentCaptor.forClass(OffsetDateTime.class);
+        ArgumentCaptor<java.math.BigDecimal> value = ArgumentCaptor.forClass(java.math.BigDecimal.class);
+        verify(kujiHourlyPayoutRepository).addPayout(any(), eq(boxId), bucket.capture(), eq(tierId), eq(3), value.capture());
+        assertEquals(0, new java.math.BigDecimal("37.50").compareTo(value.getValue()));
+        assertEquals(java.time.ZoneOffset.UTC, bucket.getValue().getOffset());
+        assertEquals(0, bucket.getValue().getMinute());
+        assertEquals(0, bucket.getValue().getSecond());
+    }
 }
@@ -0,0 +1,211 @@
+package com.mirai.inventoryservice.services;
+
+import com.mirai.inventoryservice.dtos.requests.kuji.RecordDrawRequestDTO;
+import com.mirai.inventoryservice.dtos.responses.kuji.KujiBoxResponseDTO;
+import com.mirai.inventoryservice.dtos.responses.kuji.KujiBoxTierResponseDTO;
+import com.mirai.inventoryservice.integration.BaseKafkaIntegrationTest;
+import com.mirai.inventoryservice.models.Category;
+import com.mirai.inventoryservice.models.Product;
+import com.mirai.inventoryservice.models.Site;
+import com.mirai.inventoryservice.models.enums.KujiBoxStatus;
+import com.mirai.inventoryservice.models.enums.KujiType;
+import com.mirai.inventoryservice.models.kuji.KujiBox;
+import com.mirai.inventoryservice.models.kuji.KujiBoxTier;
+import com.mirai.inventoryservice.models.storage.Location;
+import com.mirai.inventoryservice.models.storage.StorageLocation;
+import com.mirai.inventoryservice.repositories.CategoryRepository;
+import com.mirai.inventoryservice.repositories.KujiBoxRepository;
+import com.mirai.inventoryservice.repositories.KujiBoxTierRepository;
+import com.mirai.inventoryservice.repositories.KujiHourlyPayoutRepository;
+import com.mirai.inventoryservice.repositories.LocationRepository;
+import com.mirai.inventoryservice.repositories.ProductRepository;
+import com.mirai.inventoryservice.repositories.SiteRepository;
+import com.mirai.inventoryservice.repositories.StockMovementRepository;
+import com.mirai.inventoryservice.repositories.StorageLocationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Kuji draws against real Postgres: the guarded tier update is a native statement, so
+ * only a real database shows that it writes the counts, that the response reflects
+ * them, and that concurrent clerks can never draw more slips than the tier holds.
+ */
+class KujiDrawIT extends BaseKafkaIntegrationTest {
+
+    private static final int SLIPS = 3;
+
+    @Autowired private KujiBoxService kujiBoxService;
+    @Autowired private KujiBoxRepository kujiBoxRepository;
+    @Autowired private KujiBoxTierRepository kujiBoxTierRepository;
+    @Autowired private KujiHourlyPayoutRepository kujiHourlyPayoutRepository;
+    @Autowired private StockMovementRepository stockMovementRepository;
+    @Autowired private CategoryRepository categoryRepository;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private SiteRepository siteRepository;
+    @Autowired private StorageLocationRepository storageLocationRepository;
+    @Autowired private LocationRepository locationRepository;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    private UUID boxId;
+    private UUID tierId;
+
+    @BeforeEach
+    void openBox() {
+        String suffix = UUID.randomUUID().toString().substring(0, 6);
+
+        Category category = new Category();
+        category.setName("Kuji " + suffix);
+        category = categoryRepository.save(category);
+
+        Product product = new Product();
+        product.setName("Kuji Set " + suffix);
+        product.setSku("KUJI-IT-" + suffix);
+        product.setCategory(category);
+        product.setKujiType(KujiType.CUSTOM);
+        product = productRepository.save(product);
+
+        Site site = siteRepository.findByCode("MAIN")
+                .orElseGet(() -> siteRepository.save(Site.builder()
+                        .code("MAIN")
+                        .name("Main Warehouse")
+                        .build()));
+        StorageLocation storage = storageLocationRepository
+                .findByCodeAndSite_Code("BOX_BINS", "MAIN")
+                .orElseGet(() -> storageLocationRepository.save(StorageLocation.builder()
+                        .site(site)
+                        .code("BOX_BINS")
+                        .name("Box Bins")
+                        .hasDisplay(false)
+                        .isDisplayOnly(false)
+                        .displayOrder(1)
+                        .build()));
+        Location location = locationRepository.save(Location.builder()
+                .storageLocation(storage)
+                .locationCode("K99-" + suffix)
+                .build());
+
+        KujiBox box = KujiBox.builder()
+                .product(product)
+                .location(location)
+                .label("Box " + suffix)
+                .build();
+        KujiBoxTier tier = KujiBoxTier.builder()
+                .box(box)
+                .label("Tier A")
+                .letter("A")
+                .activeCount(SLIPS)
+                .price(new BigDecimal("12.50"))
+                .build();
+        box.getTiers().add(tier);
+        box = kujiBoxRepository.save(box);
+        boxId = box.getId();
+        tierId = box.getTiers().get(0).getId();
+    }
+
+    @Test
+    @DisplayName("A draw writes the tier counts and returns them in the response")
+    void drawWritesAndReturnsCounts() {
+        KujiBoxResponseDTO response = kujiBoxService.recordDraw(boxId, draw(2));
+
+        KujiBoxTierResponseDTO tier = response.getTiers().get(0);
+        assertThat(tier.getActiveCount()).isEqualTo(SLIPS - 2);
+        KujiBoxTier stored = kujiBoxTierRepository.findById(tierId).orElseThrow();
+        assertThat(stored.getActiveCount()).isEqualTo(SLIPS - 2);
+        assertThat(stored.getDrawnCount()).isEqualTo(2);
+        assertThat(kujiHourlyPayoutRepository.findAll())
+                .filteredOn(p -> p.getTierId().equals(tierId))
+                .singleElement()
+                .satisfies(p -> {
+                    assertThat(p.getSlipCount()).isEqualTo(2);
+                    assertThat(p.getValueWon()).isEqualByComparingTo("25.00");
+                });
+    }
+
+    @Test
+    @DisplayName("A draw for more slips than remain is rejected without writing anything")
+    void shortDrawWritesNothing() {
+        // Another clerk has already drawn most of the tier
+        long movementsBefore = stockMovementRepository.count();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                assertThat(kujiBoxTierRepository.drawSlips(tierId, boxId, SLIPS - 1)).isEqualTo(1));
+
+        assertThatThrownBy(() -> kujiBoxService.recordDraw(boxId, draw(2)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(kujiBoxTierRepository.findById(tierId).orElseThrow().getActiveCount()).isEqualTo(1);
+        assertThat(stockMovementRepository.count()).isEqualTo(movementsBefore);
+    }
+
+    @Test
+    @DisplayName("The guard also rejects a draw once the box has been closed")
+    void closedBoxRejectsGuardedDraw() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            KujiBox box = kujiBoxRepository.findById(boxId).orElseThrow();
+            box.setStatus(KujiBoxStatus.CLOSED);
+        });
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                assertThat(kujiBoxTierRepository.drawSlips(tierId, boxId, 1)).isZero());
+    }
+
+    @Test
+    @DisplayName("Concurrent draws never take more slips than the tier holds")
+    void concurrentDrawsNeverOverdraw() throws Exception {
+        int clerks = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(clerks);
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < clerks; i++) {
+                results.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        start.await(10, TimeUnit.SECONDS);
+                        kujiBoxService.recordDraw(boxId, draw(1));
+                        return true;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    } catch (RuntimeException e) {
+                        return false;
+                    }
+                }, pool));
+            }
+            start.countDown();
+            CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).get(60, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        long succeeded = results.stream().filter(CompletableFuture::join).count();
+        assertThat(succeeded).isEqualTo(SLIPS);
+        KujiBoxTier stored = kujiBoxTierRepository.findById(tierId).orElseThrow();
+        assertThat(stored.getActiveCount()).isZero();
+        assertThat(stored.getDrawnCount()).isEqualTo(SLIPS);
+    }
+
+    private RecordDrawRequestDTO draw(int quantity) {
+        return RecordDrawRequestDTO.builder()
+                .actorId(UUID.randomUUID())
+                .draws(List.of(RecordDrawRequestDTO.DrawLine.builder()
+                        .tierId(tierId)
+                        .quantity(quantity)
+                        .build()))
+                .build();
+    }
+}
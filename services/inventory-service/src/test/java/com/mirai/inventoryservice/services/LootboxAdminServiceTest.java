@@ -53,6 +53,9 @@ class LootboxAdminServiceTest {
     @Mock private CoinAdjustmentRepository coinAdjustmentRepository;
     @Mock private UserRepository userRepository;
     @Mock private LootboxService lootboxService;
+    @Mock private LootboxPrizeSampler prizeSampler;
+    @Mock private LootboxPrizeStock prizeStock;
+    @Mock private LootboxCatalogCache catalogCache;
 
     // Use a real tier-lifecycle helper backed by the mocked repos so the side effects
     // it produces (tier active toggle + rebalance) are observable in assertions.
@@ -67,11 +70,11 @@ class LootboxAdminServiceTest {
 
     @BeforeEach
     void setUp() {
-        tierLifecycle = new LootboxTierLifecycle(lootboxTierRepository, lootboxPrizeRepository);
+        tierLifecycle = new LootboxTierLifecycle(lootboxTierRepository, lootboxPrizeRepository, prizeSampler);
         adminService = new LootboxAdminService(
                 lootboxRepository, lootboxTierRepository, lootboxPrizeRepository,
                 lootboxPlayRepository, coinAdjustmentRepository, userRepository,
-                lootboxService, tierLifecycle);
+                lootboxService, tierLifecycle, prizeSampler, prizeStock, catalogCache);
 
         crate = Lootbox.builder()
                 .id(UUID.randomUUID())
@@ -158,7 +161,7 @@ class LootboxAdminServiceTest {
         when(lootboxTierRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
 
         adminService.updatePrize(prize.getId(), new UpsertPrizeRequestDTO(
-                common.getId(), "Pito Sticker", null, null, true, null));
+                common.getId(), "Pito Sticker", null, null, true, null, null));
 
         assertTrue(common.getActive(), "Reactivating the only prize should reactivate its tier");
         // Probability stays at 0 — admin still has to redistribute weight.
@@ -321,7 +324,7 @@ class LootboxAdminServiceTest {
         when(lootboxPrizeRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
 
         var dto = adminService.createPrize(new UpsertPrizeRequestDTO(
-                rare.getId(), "Coffee Voucher", null, null, true, 0));
+                rare.getId(), "Coffee Voucher", null, null, true, 0, null));
 
         assertEquals(0, dto.quantity());
         assertEquals(false, dto.active(), "quantity=0 at create time should pre-deplete the prize");
@@ -334,12 +337,35 @@ class LootboxAdminServiceTest {
         when(lootboxPrizeRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
 
         var dto = adminService.createPrize(new UpsertPrizeRequestDTO(
-                rare.getId(), "Limited Voucher", null, null, true, 5));
+                rare.getId(), "Limited Voucher", null, null, true, 5, null));
 
         assertEquals(5, dto.quantity());
         assertTrue(dto.active());
     }
 
+    @Test
+    @DisplayName("createPrize with stock shards lays the quantity out across slices")
+    void createPrizeShardedResplitsStock() {
+        when(lootboxTierRepository.findById(rare.getId())).thenReturn(Optional.of(rare));
+        when(lootboxPrizeRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        var dto = adminService.createPrize(new UpsertPrizeRequestDTO(
+                rare.getId(), "Promo Figure", null, null, true, 500, 8));
+
+        assertEquals(8, dto.stockShards());
+        verify(prizeStock).resplit(any(LootboxPrize.class));
+    }
+
+    @Test
+    @DisplayName("createPrize rejects stock shards on an unlimited prize")
+    void createPrizeShardedNeedsQuantity() {
+        when(lootboxTierRepository.findById(rare.getId())).thenReturn(Optional.of(rare));
+
+        LootboxException ex = assertThrows(LootboxException.class, () -> adminService.createPrize(
+                new UpsertPrizeRequestDTO(rare.getId(), "Sticker", null, null, true, null, 4)));
+        assertTrue(ex.getMessage().contains("limited quantity"));
+    }
+
     @Test
     @DisplayName("updatePrize: setting quantity to 0 retires a depleted prize and deactivates its tier")
     void updatePrizeQuantityZeroRetiresAndDeactivatesTier() {
@@ -359,7 +385,7 @@ class LootboxAdminServiceTest {
                 .thenReturn(List.of(common, rare, epic, legendary));
 
         adminService.updatePrize(prize.getId(), new UpsertPrizeRequestDTO(
-                rare.getId(), "Coffee Voucher", null, null, null, 0));
+                rare.getId(), "Coffee Voucher", null, null, null, 0, null));
 
         assertEquals(0, prize.getQuantity());
         assertEquals(false, prize.getActive(), "quantity=0 should auto-retire the prize");
@@ -381,7 +407,7 @@ class LootboxAdminServiceTest {
         when(lootboxTierRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
 
         adminService.updatePrize(prize.getId(), new UpsertPrizeRequestDTO(
-                common.getId(), "Sticker", null, null, null, 3));
+                common.getId(), "Sticker", null, null, null, 3, null));
 
         assertEquals(3, prize.getQuantity());
         assertTrue(prize.getActive(), "Restocking should auto-reactivate the prize");
@@ -402,7 +428,7 @@ class LootboxAdminServiceTest {
         when(lootboxPrizeRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
 
         adminService.updatePrize(prize.getId(), new UpsertPrizeRequestDTO(
-                rare.getId(), "Voucher", null, null, null, 2));
+                rare.getId(), "Voucher", null, null, null, 2, null));
 
         assertEquals(2, prize.getQuantity());
         assertTrue(prize.getActive(), "Lowering to a positive quantity should not retire the prize");
@@ -0,0 +1,96 @@
+package com.mirai.inventoryservice.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.mirai.inventoryservice.dtos.responses.LootboxResponseDTO;
+import com.mirai.inventoryservice.services.LootboxCatalogCache.Built;
+import com.mirai.inventoryservice.services.LootboxCatalogCache.Catalog;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LootboxCatalogCacheTest {
+
+    private final LootboxCatalogCache cache =
+            new LootboxCatalogCache(new ObjectMapper().registerModule(new JavaTimeModule()), 60);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    @DisplayName("The catalog is built once and reused until invalidated")
+    void cachesUntilInvalidated() {
+        Supplier<Built> loader = loader(List.of(crate("Spring crate")), null);
+
+        Catalog first = cache.get(loader);
+        assertThat(cache.get(loader)).isSameAs(first);
+        cache.invalidate();
+        assertThat(cache.get(loader)).isNotSameAs(first);
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("A catalog is not kept past the next crate open/close time")
+    void expiresAtWindowBoundary() {
+        Supplier<Built> loader = loader(List.of(crate("Spring crate")), OffsetDateTime.now().minusSeconds(1));
+
+        cache.get(loader);
+        cache.get(loader);
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("A load that races an invalidation is served once but not cached")
+    void loadRacingInvalidationIsDropped() {
+        List<LootboxResponseDTO> crates = List.of(crate("Spring crate"));
+        Supplier<Built> racing = () -> {
+            loads.incrementAndGet();
+            cache.invalidate();
+            return new Built(crates, null);
+        };
+
+        cache.get(racing);
+        cache.get(loader(crates, null));
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("The ETag follows the catalog's content, not the build")
+    void etagTracksContent() {
+        LootboxResponseDTO spring = crate("Spring crate");
+
+        String first = cache.get(loader(List.of(spring), null)).etag();
+        cache.invalidate();
+        String same = cache.get(loader(List.of(spring), null)).etag();
+        cache.invalidate();
+        String changed = cache.get(loader(List.of(spring, crate("Summer crate")), null)).etag();
+
+        assertThat(same).isEqualTo(first);
+        assertThat(changed).isNotEqualTo(first);
+        assertThat(first).startsWith("\"").endsWith("\"");
+    }
+
+    private Supplier<Built> loader(List<LootboxResponseDTO> crates, OffsetDateTime nextBoundary) {
+        return () -> {
+            loads.incrementAndGet();
+            return new Built(crates, nextBoundary);
+        };
+    }
+
+    private static LootboxResponseDTO crate(String name) {
+        return LootboxResponseDTO.builder()
+                .id(UUID.randomUUID())
+                .name(name)
+                .cost(1)
+                .tiers(List.of())
+                .build();
+    }
+}
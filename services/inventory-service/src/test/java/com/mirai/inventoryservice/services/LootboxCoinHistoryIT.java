@@ -0,0 +1,148 @@
+package com.mirai.inventoryservice.services;
+
+import com.mirai.inventoryservice.dtos.responses.CoinHistoryEntryDTO;
+import com.mirai.inventoryservice.integration.BaseKafkaIntegrationTest;
+import com.mirai.inventoryservice.models.audit.User;
+import com.mirai.inventoryservice.models.enums.UserRole;
+import com.mirai.inventoryservice.models.lootbox.CoinAdjustment;
+import com.mirai.inventoryservice.models.lootbox.LootboxPlay;
+import com.mirai.inventoryservice.models.review.ReviewDailyCount;
+import com.mirai.inventoryservice.repositories.CoinAdjustmentRepository;
+import com.mirai.inventoryservice.repositories.LootboxPlayRepository;
+import com.mirai.inventoryservice.repositories.ReviewDailyCountRepository;
+import com.mirai.inventoryservice.repositories.UserRepository;
+import com.mirai.inventoryservice.services.LootboxService.HistoryCursor;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Real-Postgres integration tests for the keyset-paged coin history timeline (UNION ALL
+ * over three ledgers with row-value cursors, which H2 does not evaluate the same way).
+ */
+@Transactional
+class LootboxCoinHistoryIT extends BaseKafkaIntegrationTest {
+
+    @Autowired private LootboxService lootboxService;
+    @Autowired private UserRepository userRepository;
+    @Autowired private CoinAdjustmentRepository coinAdjustmentRepository;
+    @Autowired private LootboxPlayRepository lootboxPlayRepository;
+    @Autowired private ReviewDailyCountRepository reviewDailyCountRepository;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Test
+    @DisplayName("Paging with the last row as cursor walks the whole merged timeline once, newest first")
+    void pagesThroughMergedTimeline() {
+        User admin = persistUser("Admin", "admin-hist@test.com", UserRole.ADMIN);
+        User u = persistUser("History User", "hist@test.com", UserRole.EMPLOYEE);
+        OffsetDateTime tie = OffsetDateTime.now().truncatedTo(ChronoUnit.SECONDS).minusHours(1);
+
+        reviewCredit(u, LocalDate.now().minusDays(3), 4);
+        adjust(u, admin, 10, "grant", tie);
+        adjust(u, admin, 5, "bonus", tie);
+        play(u, 2, tie);
+        play(u, 3, tie.plusMinutes(5));
+        em.flush();
+        em.clear();
+
+        List<CoinHistoryEntryDTO> all = new ArrayList<>();
+        HistoryCursor after = null;
+        while (true) {
+            List<CoinHistoryEntryDTO> page = lootboxService.getUserHistory(u.getId(), after, 2);
+            if (page.isEmpty()) break;
+            assertThat(page.size()).isLessThanOrEqualTo(2);
+            all.addAll(page);
+            CoinHistoryEntryDTO last = page.get(page.size() - 1);
+            after = new HistoryCursor(last.at(), last.kind(), last.refId());
+        }
+
+        assertThat(all).hasSize(5);
+        assertThat(all).extracting(CoinHistoryEntryDTO::refId).doesNotHaveDuplicates();
+        assertThat(all.get(0).delta()).isEqualTo(-3);
+        // Rows at the same instant are split by kind: PLAY before ADJUSTMENT
+        assertThat(all.subList(1, 4)).extracting(CoinHistoryEntryDTO::kind)
+                .containsExactly("PLAY", "ADJUSTMENT", "ADJUSTMENT");
+        assertThat(all.get(4).kind()).isEqualTo("REVIEW_CREDIT");
+        assertThat(all.get(4).label()).isEqualTo("4 reviews");
+    }
+
+    @Test
+    @DisplayName("Expired flags are computed in SQL for review credits and adjustments, null for plays")
+    void expiredFlags() {
+        User admin = persistUser("Admin", "admin-exp@test.com", UserRole.ADMIN);
+        User u = persistUser("Expiry User", "exp@test.com", UserRole.EMPLOYEE);
+
+        reviewCredit(u, LocalDate.now().minusDays(120), 2);
+        reviewCredit(u, LocalDate.now().minusDays(1), 1);
+        play(u, 1, OffsetDateTime.now());
+        em.flush();
+        em.clear();
+
+        List<CoinHistoryEntryDTO> page = lootboxService.getUserHistory(u.getId(), null, 50);
+
+        assertThat(page).extracting(CoinHistoryEntryDTO::kind)
+                .containsExactly("PLAY", "REVIEW_CREDIT", "REVIEW_CREDIT");
+        assertThat(page.get(0).expired()).isNull();
+        assertThat(page.get(1).expired()).isFalse();
+        assertThat(page.get(2).expired()).isTrue();
+        assertThat(page.get(2).expiresAt()).isNotNull();
+    }
+
+    // ----- helpers -----
+
+    private User persistUser(String name, String email, UserRole role) {
+        return userRepository.saveAndFlush(User.builder().fullName(name).email(email).role(role).build());
+    }
+
+    private void adjust(User user, User admin, int delta, String reason, OffsetDateTime at) {
+        CoinAdjustment a = coinAdjustmentRepository.saveAndFlush(CoinAdjustment.builder()
+                .user(user)
+                .delta(delta)
+                .reason(reason)
+                .grantedBy(admin)
+                .build());
+        em.createNativeQuery("UPDATE coin_adjustments SET created_at = :ts WHERE id = :id")
+                .setParameter("ts", at)
+                .setParameter("id", a.getId())
+                .executeUpdate();
+    }
+
+    private void play(User user, int cost, OffsetDateTime at) {
+        LootboxPlay p = lootboxPlayRepository.saveAndFlush(LootboxPlay.builder()
+                .user(user)
+                .lootboxNameSnapshot("TestCrate")
+                .cost(cost)
+                .prizeNameSnapshot("Prize")
+                .prizeTierNameSnapshot("Common")
+                .status("WON")
+                .idempotencyKey(UUID.randomUUID().toString())
+                .build());
+        em.createNativeQuery("UPDATE lootbox_plays SET played_at = :ts WHERE id = :id")
+                .setParameter("ts", at)
+                .setParameter("id", p.getId())
+                .executeUpdate();
+    }
+
+    private void reviewCredit(User user, LocalDate date, int coins) {
+        reviewDailyCountRepository.saveAndFlush(ReviewDailyCount.builder()
+                .user(user)
+                .date(date)
+                .reviewCount(coins)
+                .coinsAwarded(coins)
+                .build());
+    }
+}
@@ -0,0 +1,405 @@
+package com.mirai.inventoryservice.services;
+
+import com.mirai.inventoryservice.exceptions.LootboxException;
+import com.mirai.inventoryservice.integration.BaseKafkaIntegrationTest;
+import com.mirai.inventoryservice.integration.CoinLedgerSchema;
+import com.mirai.inventoryservice.models.audit.User;
+import com.mirai.inventoryservice.models.enums.UserRole;
+import com.mirai.inventoryservice.models.lootbox.CoinAdjustment;
+import com.mirai.inventoryservice.models.lootbox.Lootbox;
+import com.mirai.inventoryservice.models.lootbox.LootboxPrize;
+import com.mirai.inventoryservice.models.lootbox.LootboxTier;
+import com.mirai.inventoryservice.repositories.CoinAdjustmentRepository;
+import com.mirai.inventoryservice.repositories.LootboxPrizeRepository;
+import com.mirai.inventoryservice.repositories.LootboxRepository;
+import com.mirai.inventoryservice.repositories.LootboxTierRepository;
+import com.mirai.inventoryservice.repositories.UserRepository;
+import com.mirai.inventoryservice.services.LootboxPrizeSampler.RollablePrize;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Concurrency stress and throughput benchmark for {@link LootboxService#play} against
+ * real Postgres (advisory locks, guarded stock updates and SKIP LOCKED slices all
+ * behave differently, or not at all, in H2).
+ *
+ * Each shape seeds a crate and a set of players funded through coin adjustments, then
+ * lets virtual users play until every wallet is empty. Wallets are kept by the real
+ * V54/V56 triggers. Several sessions per player contend on that player's advisory
+ * lock; a limited prize makes them contend on its stock. Each run logs plays/sec,
+ * p50/p99 play latency, re-rolls after losing a limited prize and time spent waiting
+ * on locks, and checks that no wallet went negative and no cap was exceeded.
+ *
+ * Scale with {@code -Dlootbox.bench.scale=N} (multiplies every player's budget).
+ */
+@Slf4j
+class LootboxPlayBenchmarkIT extends BaseKafkaIntegrationTest {
+
+    private static final int SCALE = Integer.getInteger("lootbox.bench.scale", 1);
+    private static final long LOCK_SAMPLE_MS = 5;
+    private static final int CLAIM_CAP = 300 * SCALE;
+    private static final int CLAIM_PLAYERS = 16;
+    private static final int CLAIM_SHARDS = 16;
+    private static final long CLAIM_HOLD_MS = 5;
+
+    /**
+     * One benchmark configuration. {@code cap} > 0 adds a limited prize of that quantity,
+     * split over {@code shards} stock slices, next to the unlimited prize in the first tier.
+     */
+    record Shape(String name, int players, int sessionsPerPlayer, int budget, int cost,
+                 int tiers, int cap, int shards) {
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    static Stream<Shape> shapes() {
+        return Stream.of(
+                new Shape("spread", 16, 1, 40, 1, 4, 0, 1),
+                new Shape("hot-cap", 16, 1, 40, 1, 1, 50, 1),
+                new Shape("hot-cap-sharded", 16, 1, 40, 1, 1, 50, 16),
+                new Shape("shared-wallets", 4, 4, 160, 2, 2, 50, 1));
+    }
+
+    @Autowired private LootboxService lootboxService;
+    @Autowired private LootboxRepository lootboxRepository;
+    @Autowired private LootboxTierRepository lootboxTierRepository;
+    @Autowired private LootboxPrizeRepository lootboxPrizeRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private CoinAdjustmentRepository coinAdjustmentRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    @MockitoSpyBean private LootboxPrizeStock prizeStock;
+
+    private final AtomicInteger rerolls = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        CoinLedgerSchema.install(jdbcTemplate);
+
+        rerolls.set(0);
+        doAnswer(invocation -> {
+            Object claim = invocation.callRealMethod();
+            if (claim == LootboxPrizeStock.Claim.SOLD_OUT) rerolls.incrementAndGet();
+            return claim;
+        }).when(prizeStock).claim(any());
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("shapes")
+    @DisplayName("Concurrent players never overspend a wallet or over-award a capped prize")
+    void benchmark(Shape shape) throws Exception {
+        int budget = shape.budget() * SCALE;
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Lootbox crate = tx.execute(status -> createCrate(shape));
+        List<UUID> players = tx.execute(status -> createPlayers(shape, budget));
+
+        ConcurrentLinkedQueue<Long> latenciesNanos = new ConcurrentLinkedQueue<>();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        int sessions = shape.players() * shape.sessionsPerPlayer();
+        ExecutorService pool = Executors.newFixedThreadPool(sessions);
+        List<Future<?>> futures = new ArrayList<>();
+        for (UUID player : players) {
+            for (int s = 0; s < shape.sessionsPerPlayer(); s++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    while (true) {
+                        long began = System.nanoTime();
+                        try {
+                            lootboxService.play(player, crate.getId(), UUID.randomUUID().toString());
+                        } catch (LootboxException e) {
+                            // Out of coins (or the crate closed): this session is done
+                            rejected.incrementAndGet();
+                            return null;
+                        }
+                        latenciesNanos.add(System.nanoTime() - began);
+                    }
+                }));
+            }
+        }
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong advisoryWaitMs = new AtomicLong();
+        AtomicLong rowWaitMs = new AtomicLong();
+        Thread sampler = new Thread(() -> sampleLockWaits(running, advisoryWaitMs, rowWaitMs), "bench-lock-sampler");
+
+        long began = System.nanoTime();
+        sampler.start();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.MINUTES);
+        }
+        double seconds = (System.nanoTime() - began) / 1e9;
+        running.set(false);
+        sampler.join();
+        pool.shutdown();
+
+        long[] latencies = latenciesNanos.stream().mapToLong(Long::longValue).sorted().toArray();
+        log.info("[lootbox-bench] {} sessions={} plays={} rejected={}",
+                shape, sessions, latencies.length, rejected.get());
+        log.info("[lootbox-bench] {} {} plays/s  p50={}ms  p99={}ms  rerolls={}  lock wait: advisory~{}ms row~{}ms",
+                shape, String.format("%.1f", latencies.length / seconds),
+                String.format("%.2f", millis(percentile(latencies, 50))),
+                String.format("%.2f", millis(percentile(latencies, 99))),
+                rerolls.get(), advisoryWaitMs.get(), rowWaitMs.get());
+
+        assertWalletsBalanced(players, budget, shape.cost());
+        assertThat(latencies.length).isEqualTo(shape.players() * (budget / shape.cost()));
+        if (shape.cap() > 0) {
+            assertCapHeld(crate.getId(), shape.cap());
+        }
+    }
+
+    /**
+     * Stock claims alone, without the rest of a play: many players claim one hot prize to
+     * exhaustion, each holding the stock lock for {@link #CLAIM_HOLD_MS} as a play would,
+     * once on a single stock row and once over {@link #CLAIM_SHARDS} slices. Logs the
+     * claim rate of each and their ratio.
+     */
+    @Test
+    @DisplayName("Stock claim throughput, single row vs sharded")
+    void stockClaimThroughput() throws Exception {
+        double single = claimRate(1);
+        double sharded = claimRate(CLAIM_SHARDS);
+        log.info("[lootbox-bench] stock-claims single={} claims/s  {} shards={} claims/s  ratio={}x",
+                String.format("%.1f", single), CLAIM_SHARDS, String.format("%.1f", sharded),
+                String.format("%.2f", sharded / single));
+    }
+
+    // ----- invariants -----
+
+    /** Every player spent down to less than one play's cost, and never past zero. */
+    private void assertWalletsBalanced(List<UUID> players, int budget, int cost) {
+        for (UUID player : players) {
+            Map<String, Object> row = jdbcTemplate.queryForMap("""
+                    SELECT w.spent,
+                           (SELECT COALESCE(SUM(p.cost), 0) FROM lootbox_plays p WHERE p.user_id = w.user_id) AS played
+                    FROM coin_wallets w WHERE w.user_id = ?""", player);
+            long spent = ((Number) row.get("spent")).longValue();
+            long played = ((Number) row.get("played")).longValue();
+            assertThat(spent).isEqualTo(played);
+            assertThat(budget - spent).isBetween(0L, (long) cost - 1);
+            assertThat(lootboxService.computeBalance(player).balance()).isEqualTo(budget - spent);
+        }
+    }
+
+    /** Awards of each limited prize plus what is left add up to exactly its cap. */
+    private void assertCapHeld(UUID crateId, int cap) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList("""
+                SELECT pr.id,
+                       pr.quantity,
+                       pr.stock_shards,
+                       (SELECT COUNT(*) FROM lootbox_plays pl WHERE pl.prize_id = pr.id) AS awarded,
+                       (SELECT COALESCE(SUM(s.remaining), 0) FROM lootbox_prize_stock_slices s
+                        WHERE s.prize_id = pr.id) AS sliced
+                FROM lootbox_prizes pr
+                JOIN lootbox_tiers t ON t.id = pr.tier_id
+                WHERE t.lootbox_id = ? AND pr.quantity IS NOT NULL""", crateId);
+        assertThat(rows).isNotEmpty();
+        for (Map<String, Object> row : rows) {
+            long awarded = ((Number) row.get("awarded")).longValue();
+            int shards = ((Number) row.get("stock_shards")).intValue();
+            long left = shards > 1
+                    ? ((Number) row.get("sliced")).longValue()
+                    : ((Number) row.get("quantity")).longValue();
+            assertThat(awarded).isLessThanOrEqualTo(cap);
+            assertThat(left).isGreaterThanOrEqualTo(0);
+            assertThat(awarded + left).isEqualTo(cap);
+        }
+    }
+
+    // ----- measurement -----
+
+    /** Claims a fresh prize of {@link #CLAIM_CAP} to exhaustion; returns claims per second. */
+    private double claimRate(int shards) throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        LootboxPrize prize = tx.execute(status -> createClaimPrize(shards));
+        RollablePrize rollable = new RollablePrize(prize.getId(), prize.getTier().getId(), true, shards,
+                prize.getName(), null, null, "Promo");
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(CLAIM_PLAYERS);
+        List<Future<?>> players = new ArrayList<>();
+        for (int i = 0; i < CLAIM_PLAYERS; i++) {
+            players.add(pool.submit(() -> {
+                start.await();
+                while (Boolean.TRUE.equals(tx.execute(status -> {
+                    if (prizeStock.claim(rollable) == LootboxPrizeStock.Claim.SOLD_OUT) return false;
+                    try {
+                        Thread.sleep(CLAIM_HOLD_MS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return true;
+                }))) {
+                    // keep claiming until sold out
+                }
+                return null;
+            }));
+        }
+
+        long began = System.nanoTime();
+        start.countDown();
+        try {
+            for (Future<?> player : players) {
+                player.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return CLAIM_CAP / ((System.nanoTime() - began) / 1e9);
+    }
+
+    /**
+     * Approximates lock wait by sampling how many backends are blocked on a lock every
+     * {@link #LOCK_SAMPLE_MS}: each blocked backend seen counts for one interval.
+     * Advisory waits are players queueing on their own wallet; the rest are row locks.
+     */
+    private void sampleLockWaits(AtomicBoolean running, AtomicLong advisoryWaitMs, AtomicLong rowWaitMs) {
+        while (running.get()) {
+            Map<String, Object> waiting = jdbcTemplate.queryForMap("""
+                    SELECT COUNT(*) FILTER (WHERE wait_event = 'advisory') AS advisory,
+                           COUNT(*) FILTER (WHERE wait_event <> 'advisory') AS row_locks
+                    FROM pg_stat_activity
+                    WHERE datname = current_database() AND wait_event_type = 'Lock'""");
+            advisoryWaitMs.addAndGet(((Number) waiting.get("advisory")).longValue() * LOCK_SAMPLE_MS);
+            rowWaitMs.addAndGet(((Number) waiting.get("row_locks")).longValue() * LOCK_SAMPLE_MS);
+            try {
+                Thread.sleep(LOCK_SAMPLE_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static long percentile(long[] sorted, int pct) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.ceil(pct / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    // ----- fixtures -----
+
+    private Lootbox createCrate(Shape shape) {
+        Lootbox crate = lootboxRepository.save(Lootbox.builder()
+                .name("Bench " + shape.name() + " " + UUID.randomUUID())
+                .cost(shape.cost())
+                .build());
+        BigDecimal[] probabilities = splitHundred(shape.tiers());
+        for (int t = 0; t < shape.tiers(); t++) {
+            LootboxTier tier = lootboxTierRepository.save(LootboxTier.builder()
+                    .lootbox(crate)
+                    .name("Tier " + t)
+                    .probabilityPct(probabilities[t])
+                    .sortOrder(t)
+                    .build());
+            lootboxPrizeRepository.save(LootboxPrize.builder()
+                    .tier(tier)
+                    .name("Sticker " + t)
+                    .build());
+            if (t == 0 && shape.cap() > 0) {
+                LootboxPrize limited = lootboxPrizeRepository.save(LootboxPrize.builder()
+                        .tier(tier)
+                        .name("Hot figure")
+                        .quantity(shape.cap())
+                        .stockShards(shape.shards())
+                        .build());
+                prizeStock.resplit(limited);
+            }
+        }
+        return crate;
+    }
+
+    private LootboxPrize createClaimPrize(int shards) {
+        Lootbox crate = lootboxRepository.save(Lootbox.builder()
+                .name("Bench claims " + shards + " " + UUID.randomUUID())
+                .build());
+        LootboxTier tier = lootboxTierRepository.save(LootboxTier.builder()
+                .lootbox(crate)
+                .name("Promo")
+                .probabilityPct(new BigDecimal("100.00"))
+                .build());
+        LootboxPrize prize = lootboxPrizeRepository.save(LootboxPrize.builder()
+                .tier(tier)
+                .name("Hot figure")
+                .quantity(CLAIM_CAP)
+                .stockShards(shards)
+                .build());
+        prizeStock.resplit(prize);
+        return prize;
+    }
+
+    /** {@code tiers} probabilities summing to exactly 100.00. */
+    private static BigDecimal[] splitHundred(int tiers) {
+        BigDecimal[] split = new BigDecimal[tiers];
+        BigDecimal each = new BigDecimal("100.00").divide(BigDecimal.valueOf(tiers), 2, RoundingMode.DOWN);
+        Arrays.fill(split, each);
+        split[0] = each.add(new BigDecimal("100.00").subtract(each.multiply(BigDecimal.valueOf(tiers))));
+        return split;
+    }
+
+    /** Players funded with {@code budget} coins, granted as an admin coin adjustment. */
+    private List<UUID> createPlayers(Shape shape, int budget) {
+        User admin = userRepository.save(User.builder()
+                .fullName("Bench Admin")
+                .email("bench-admin-" + UUID.randomUUID() + "@test.com")
+                .role(UserRole.ADMIN)
+                .build());
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < shape.players(); i++) {
+            User user = userRepository.save(User.builder()
+                    .fullName("Bench " + i)
+                    .email("bench-" + UUID.randomUUID() + "@test.com")
+                    .role(UserRole.EMPLOYEE)
+                    .build());
+            coinAdjustmentRepository.save(CoinAdjustment.builder()
+                    .user(user)
+                    .delta(budget)
+                    .reason("bench funding")
+                    .grantedBy(admin)
+                    .build());
+            ids.add(user.getId());
+        }
+        coinAdjustmentRepository.flush();
+        return ids;
+    }
+}
@@ -0,0 +1,226 @@
+package com.mirai.inventoryservice.services;
+
+import com.mirai.inventoryservice.exceptions.LootboxException;
+import com.mirai.inventoryservice.models.lootbox.Lootbox;
+import com.mirai.inventoryservice.models.lootbox.LootboxPrize;
+import com.mirai.inventoryservice.models.lootbox.LootboxTier;
+import com.mirai.inventoryservice.repositories.LootboxPrizeRepository;
+import com.mirai.inventoryservice.repositories.LootboxTierRepository;
+import com.mirai.inventoryservice.services.LootboxPrizeSampler.PrizeTable;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LootboxPrizeSamplerTest {
+
+    private static final int ROLLS = 200_000;
+
+    @Mock private LootboxTierRepository lootboxTierRepository;
+    @Mock private LootboxPrizeRepository lootboxPrizeRepository;
+
+    private final Lootbox crate = Lootbox.builder().id(UUID.randomUUID()).name("Crate").build();
+    private final LootboxTier common = tier("Common", "70");
+    private final LootboxTier rare = tier("Rare", "20");
+    private final LootboxTier epic = tier("Epic", "10");
+    private final LootboxPrize sticker = prize(common, null);
+    private final LootboxPrize keychain = prize(common, 5);
+    private final LootboxPrize plush = prize(rare, 3);
+    private final LootboxPrize figure = prize(epic, 1);
+
+    @Test
+    @DisplayName("Tiers are rolled in proportion to their probabilities")
+    void rollsTiersByWeight() {
+        PrizeTable table = table();
+        Random random = new Random(42);
+        int[] byTier = new int[3];
+        for (int i = 0; i < ROLLS; i++) {
+            byTier[tierIndex(table.prize(table.sample(random, new BitSet())).tierId())]++;
+        }
+
+        assertThat(byTier[0] / (double) ROLLS).isCloseTo(0.70, within(0.01));
+        assertThat(byTier[1] / (double) ROLLS).isCloseTo(0.20, within(0.01));
+        assertThat(byTier[2] / (double) ROLLS).isCloseTo(0.10, within(0.01));
+    }
+
+    @Test
+    @DisplayName("Excluding a tier's only prize leaves the other tiers at their relative odds")
+    void exhaustedTierDropsOut() {
+        PrizeTable table = table();
+        BitSet excluded = new BitSet();
+        excluded.set(indexOf(table, plush.getId()));
+        Random random = new Random(7);
+        int epicRolls = 0;
+        for (int i = 0; i < ROLLS; i++) {
+            var rolled = table.prize(table.sample(random, excluded));
+            assertThat(rolled.id()).isNotEqualTo(plush.getId());
+            if (rolled.tierId().equals(epic.getId())) epicRolls++;
+        }
+
+        assertThat(epicRolls / (double) ROLLS).isCloseTo(10.0 / 80.0, within(0.01));
+    }
+
+    @Test
+    @DisplayName("An excluded prize is never picked while its tier still has others")
+    void excludedPrizeSkippedWithinTier() {
+        PrizeTable table = table();
+        BitSet excluded = new BitSet();
+        excluded.set(indexOf(table, keychain.getId()));
+        excluded.set(indexOf(table, plush.getId()));
+        excluded.set(indexOf(table, figure.getId()));
+        Random random = new Random(1);
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(table.prize(table.sample(random, excluded)).id()).isEqualTo(sticker.getId());
+        }
+    }
+
+    @Test
+    @DisplayName("Nothing left to roll once every prize is excluded")
+    void throwsWhenEverythingExcluded() {
+        PrizeTable table = table();
+        BitSet excluded = new BitSet();
+        excluded.set(0, table.size());
+
+        LootboxException ex = assertThrows(LootboxException.class,
+                () -> table.sample(new Random(), excluded));
+        assertThat(ex.getMessage()).contains("No prizes are currently available");
+    }
+
+    @Test
+    @DisplayName("Remaining tiers that all weigh zero cannot be rolled")
+    void throwsWhenRemainingWeightIsZero() {
+        LootboxTier dormant = tier("Dormant", "0");
+        LootboxPrize pin = prize(dormant, null);
+        PrizeTable table = PrizeTable.build(List.of(dormant), Map.of(dormant.getId(), List.of(pin)));
+
+        LootboxException ex = assertThrows(LootboxException.class,
+                () -> table.sample(new Random(), new BitSet()));
+        assertThat(ex.getMessage()).contains("sum to zero");
+    }
+
+    @Test
+    @DisplayName("Tables are loaded once per crate until invalidated")
+    void cachesUntilInvalidated() {
+        LootboxPrizeSampler sampler = new LootboxPrizeSampler(lootboxTierRepository, lootboxPrizeRepository, 60, 10);
+        when(lootboxTierRepository.findRollableTiersByLootbox(crate.getId())).thenReturn(List.of(common, rare, epic));
+        when(lootboxPrizeRepository.findActiveByLootboxId(crate.getId()))
+                .thenReturn(List.of(sticker, keychain, plush, figure));
+
+        PrizeTable first = sampler.table(crate.getId());
+        assertThat(sampler.table(crate.getId())).isSameAs(first);
+        sampler.invalidate(crate.getId());
+        assertThat(sampler.table(crate.getId())).isNotSameAs(first);
+
+        verify(lootboxTierRepository, times(2)).findRollableTiersByLootbox(crate.getId());
+        verify(lootboxPrizeRepository, times(2)).findActiveByLootboxId(crate.getId());
+    }
+
+    @Test
+    @DisplayName("Background rebuilds run on the sampler's own thread")
+    void rebuildsOnItsOwnThread() {
+        LootboxPrizeSampler sampler = new LootboxPrizeSampler(lootboxTierRepository, lootboxPrizeRepository, 60, 10);
+        List<String> loadedOn = new CopyOnWriteArrayList<>();
+        when(lootboxTierRepository.findRollableTiersByLootbox(crate.getId())).thenReturn(List.of(common, rare, epic));
+        when(lootboxPrizeRepository.findActiveByLootboxId(crate.getId())).thenAnswer(inv -> {
+            loadedOn.add(Thread.currentThread().getName());
+            return List.of(sticker, keychain, plush, figure);
+        });
+        try {
+            PrizeTable first = sampler.table(crate.getId());
+            sampler.soldOut(crate.getId(), first, indexOf(first, figure.getId()));
+
+            verify(lootboxPrizeRepository, timeout(2000).times(2)).findActiveByLootboxId(crate.getId());
+            assertThat(loadedOn.get(1)).isEqualTo("lootbox-sampler-rebuild");
+        } finally {
+            sampler.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("A sold-out prize is skipped at once and the table is rebuilt once in the background")
+    void soldOutRebuildsOnce() {
+        List<Runnable> rebuilds = new ArrayList<>();
+        LootboxPrizeSampler sampler = new LootboxPrizeSampler(
+                lootboxTierRepository, lootboxPrizeRepository, 60, 10, rebuilds::add);
+        when(lootboxTierRepository.findRollableTiersByLootbox(crate.getId())).thenReturn(List.of(common, rare, epic));
+        when(lootboxPrizeRepository.findActiveByLootboxId(crate.getId()))
+                .thenReturn(List.of(sticker, keychain, plush, figure))
+                .thenReturn(List.of(sticker, keychain, plush));
+        PrizeTable first = sampler.table(crate.getId());
+        int figureIndex = indexOf(first, figure.getId());
+
+        // Every roll that loses the race reports it, and a second prize sells out while
+        // the rebuild is still pending: both share the one rebuild
+        for (int i = 0; i < 5; i++) {
+            sampler.soldOut(crate.getId(), first, figureIndex);
+        }
+        sampler.soldOut(crate.getId(), first, indexOf(first, plush.getId()));
+        assertThat(first.soldOut().get(figureIndex)).isTrue();
+        assertThat(sampler.table(crate.getId())).isSameAs(first);
+        verify(lootboxPrizeRepository, times(1)).findActiveByLootboxId(crate.getId());
+
+        List.copyOf(rebuilds).forEach(Runnable::run);
+        PrizeTable rebuilt = sampler.table(crate.getId());
+        assertThat(rebuilt).isNotSameAs(first);
+        assertThat(rebuilt.size()).isEqualTo(3);
+        assertThat(rebuilt.soldOut().isEmpty()).isTrue();
+        verify(lootboxPrizeRepository, times(2)).findActiveByLootboxId(crate.getId());
+    }
+
+    private PrizeTable table() {
+        return PrizeTable.build(List.of(common, rare, epic), Map.of(
+                common.getId(), List.of(sticker, keychain),
+                rare.getId(), List.of(plush),
+                epic.getId(), List.of(figure)));
+    }
+
+    private int tierIndex(UUID tierId) {
+        if (tierId.equals(common.getId())) return 0;
+        if (tierId.equals(rare.getId())) return 1;
+        return 2;
+    }
+
+    private static int indexOf(PrizeTable table, UUID prizeId) {
+        for (int i = 0; i < table.size(); i++) {
+            if (table.prize(i).id().equals(prizeId)) return i;
+        }
+        throw new IllegalArgumentException("Prize not in table: " + prizeId);
+    }
+
+    private LootboxTier tier(String name, String probability) {
+        return LootboxTier.builder()
+                .id(UUID.randomUUID())
+                .lootbox(crate)
+                .name(name)
+                .probabilityPct(new BigDecimal(probability))
+                .active(true)
+                .build();
+    }
+
+    private static LootboxPrize prize(LootboxTier tier, Integer quantity) {
+        return LootboxPrize.builder()
+                .id(UUID.randomUUID())
+                .tier(tier)
+                .name(tier.getName() + " prize")
+                .quantity(quantity)
+                .active(true)
+                .build();
+    }
+}
@@ -0,0 +1,137 @@
+package com.mirai.inventoryservice.services;
+
+import com.mirai.inventoryservice.integration.BaseKafkaIntegrationTest;
+import com.mirai.inventoryservice.models.lootbox.Lootbox;
+import com.mirai.inventoryservice.models.lootbox.LootboxPrize;
+import com.mirai.inventoryservice.models.lootbox.LootboxTier;
+import com.mirai.inventoryservice.repositories.LootboxPrizeRepository;
+import com.mirai.inventoryservice.repositories.LootboxPrizeStockSliceRepository;
+import com.mirai.inventoryservice.repositories.LootboxRepository;
+import com.mirai.inventoryservice.repositories.LootboxTierRepository;
+import com.mirai.inventoryservice.services.LootboxPrizeSampler.RollablePrize;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Concurrency stress test for sharded prize stock against real Postgres (SKIP LOCKED
+ * is not available in H2).
+ *
+ * Many players race to claim one hot limited prize, each holding its lock for a moment
+ * as the rest of a play would. Whatever the shard count, exactly the cap is awarded,
+ * nobody is told the prize is sold out while stock is left, and the prize ends up
+ * retired. Throughput by shard count is measured by {@link LootboxPlayBenchmarkIT}.
+ */
+class LootboxPrizeStockShardingIT extends BaseKafkaIntegrationTest {
+
+    private static final int CAP = 300;
+    private static final int PLAYERS = 16;
+    private static final long HOLD_MS = 5;
+
+    @Autowired private LootboxPrizeStock prizeStock;
+    @Autowired private LootboxRepository lootboxRepository;
+    @Autowired private LootboxTierRepository lootboxTierRepository;
+    @Autowired private LootboxPrizeRepository lootboxPrizeRepository;
+    @Autowired private LootboxPrizeStockSliceRepository sliceRepository;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    @ParameterizedTest(name = "{0} shards")
+    @ValueSource(ints = {1, 4, 16})
+    @DisplayName("Exactly the cap is awarded and sold out is only reported once the stock is gone")
+    void awardsExactlyTheCap(int shards) throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        LootboxPrize prize = tx.execute(status -> createPrize(shards));
+        RollablePrize rollable = new RollablePrize(prize.getId(), prize.getTier().getId(), true, shards,
+                prize.getName(), null, null, "Promo");
+
+        AtomicInteger awarded = new AtomicInteger();
+        AtomicInteger soldOutWithStockLeft = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(PLAYERS);
+        List<Future<?>> players = new ArrayList<>();
+        for (int i = 0; i < PLAYERS; i++) {
+            players.add(pool.submit(() -> {
+                start.await();
+                while (true) {
+                    Boolean won = tx.execute(status -> {
+                        if (prizeStock.claim(rollable) == LootboxPrizeStock.Claim.SOLD_OUT) return false;
+                        sleep();
+                        return true;
+                    });
+                    if (!Boolean.TRUE.equals(won)) {
+                        // Nothing rolls back here, so committed stock can only have been
+                        // left behind by a false sold out
+                        if (remaining(prize.getId(), shards) > 0) soldOutWithStockLeft.incrementAndGet();
+                        return null;
+                    }
+                    awarded.incrementAndGet();
+                }
+            }));
+        }
+
+        start.countDown();
+        try {
+            for (Future<?> player : players) {
+                player.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        LootboxPrize after = lootboxPrizeRepository.findById(prize.getId()).orElseThrow();
+        assertThat(awarded.get()).isEqualTo(CAP);
+        assertThat(soldOutWithStockLeft.get()).isZero();
+        assertThat(after.getQuantity()).isZero();
+        assertThat(after.getActive()).isFalse();
+        if (shards > 1) {
+            assertThat(sliceRepository.sumRemaining(prize.getId())).isZero();
+        }
+    }
+
+    private long remaining(UUID prizeId, int shards) {
+        return shards > 1
+                ? sliceRepository.sumRemaining(prizeId)
+                : lootboxPrizeRepository.findById(prizeId).orElseThrow().getQuantity();
+    }
+
+    private LootboxPrize createPrize(int shards) {
+        Lootbox crate = lootboxRepository.save(Lootbox.builder().name("Promo crate " + shards).build());
+        LootboxTier tier = lootboxTierRepository.save(LootboxTier.builder()
+                .lootbox(crate)
+                .name("Promo")
+                .probabilityPct(new BigDecimal("100.00"))
+                .build());
+        LootboxPrize prize = lootboxPrizeRepository.save(LootboxPrize.builder()
+                .tier(tier)
+                .name("Hot figure")
+                .quantity(CAP)
+                .stockShards(shards)
+                .build());
+        prizeStock.resplit(prize);
+        return prize;
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(HOLD_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.mirai.inventoryservice.services;
+
+import com.mirai.inventoryservice.models.lootbox.LootboxPrize;
+import com.mirai.inventoryservice.models.lootbox.LootboxPrizeStockSlice;
+import com.mirai.inventoryservice.repositories.LootboxPrizeRepository;
+import com.mirai.inventoryservice.repositories.LootboxPrizeStockSliceRepository;
+import com.mirai.inventoryservice.services.LootboxPrizeSampler.RollablePrize;
+import com.mirai.inventoryservice.services.LootboxPrizeStock.Claim;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LootboxPrizeStockTest {
+
+    @Mock private LootboxPrizeRepository lootboxPrizeRepository;
+    @Mock private LootboxPrizeStockSliceRepository sliceRepository;
+
+    @InjectMocks private LootboxPrizeStock prizeStock;
+
+    private final UUID prizeId = UUID.randomUUID();
+
+    @Test
+    @DisplayName("Unsharded prizes are claimed on the prize row")
+    void unshardedClaimsPrizeRow() {
+        when(lootboxPrizeRepository.decrementQuantity(prizeId)).thenReturn(1);
+        when(lootboxPrizeRepository.findQuantityById(prizeId)).thenReturn(2);
+
+        assertThat(prizeStock.claim(rollable(1))).isEqualTo(Claim.TAKEN);
+        verifyNoInteractions(sliceRepository);
+    }
+
+    @Test
+    @DisplayName("Taking the last unit of an unsharded prize is reported as such")
+    void unshardedLastUnit() {
+        when(lootboxPrizeRepository.decrementQuantity(prizeId)).thenReturn(1);
+        when(lootboxPrizeRepository.findQuantityById(prizeId)).thenReturn(0);
+
+        assertThat(prizeStock.claim(rollable(1))).isEqualTo(Claim.TOOK_LAST);
+    }
+
+    @Test
+    @DisplayName("A depleted unsharded prize is sold out without reading it back")
+    void unshardedSoldOut() {
+        when(lootboxPrizeRepository.decrementQuantity(prizeId)).thenReturn(0);
+
+        assertThat(prizeStock.claim(rollable(1))).isEqualTo(Claim.SOLD_OUT);
+        verify(lootboxPrizeRepository, never()).findQuantityById(any());
+    }
+
+    @Test
+    @DisplayName("Sharded claims take a free slice and leave the prize row alone")
+    void shardedClaimsFreeSlice() {
+        UUID sliceId = UUID.randomUUID();
+        when(sliceRepository.lockFreeSlice(eq(prizeId), anyInt(), eq(8))).thenReturn(slice(sliceId, 4));
+
+        assertThat(prizeStock.claim(rollable(8))).isEqualTo(Claim.TAKEN);
+        verify(sliceRepository).takeOne(sliceId);
+        verify(sliceRepository, never()).lockAnySlice(any(), anyInt(), anyInt());
+        verifyNoInteractions(lootboxPrizeRepository);
+    }
+
+    @Test
+    @DisplayName("When every slice is busy the claim waits for one instead of giving up")
+    void busySlicesFallBackToWaiting() {
+        UUID sliceId = UUID.randomUUID();
+        when(sliceRepository.lockFreeSlice(eq(prizeId), anyInt(), eq(4))).thenReturn(List.of());
+        when(sliceRepository.lockAnySlice(eq(prizeId), anyInt(), eq(4))).thenReturn(slice(sliceId, 2));
+
+        assertThat(prizeStock.claim(rollable(4))).isEqualTo(Claim.TAKEN);
+        verify(sliceRepository).takeOne(sliceId);
+        verifyNoInteractions(lootboxPrizeRepository);
+    }
+
+    @Test
+    @DisplayName("A slice emptied while the claim waited for it is not reported as sold out")
+    void emptiedWaitedSliceRetries() {
+        UUID sliceId = UUID.randomUUID();
+        when(sliceRepository.lockFreeSlice(eq(prizeId), anyInt(), eq(4)))
+                .thenReturn(List.of())
+                .thenReturn(slice(sliceId, 3));
+        when(sliceRepository.lockAnySlice(eq(prizeId), anyInt(), eq(4))).thenReturn(List.of());
+        when(sliceRepository.hasStock(prizeId)).thenReturn(true);
+
+        assertThat(prizeStock.claim(rollable(4))).isEqualTo(Claim.TAKEN);
+        verify(sliceRepository).takeOne(sliceId);
+        verifyNoInteractions(lootboxPrizeRepository);
+    }
+
+    @Test
+    @DisplayName("Emptying a slice refreshes the prize row, which retires it at zero")
+    void emptiedSliceSyncsPrize() {
+        when(sliceRepository.lockFreeSlice(eq(prizeId), anyInt(), eq(4)))
+                .thenReturn(slice(UUID.randomUUID(), 1));
+        when(lootboxPrizeRepository.syncShardedQuantity(prizeId)).thenReturn(1);
+        when(lootboxPrizeRepository.findQuantityById(prizeId)).thenReturn(5, 0);
+
+        assertThat(prizeStock.claim(rollable(4))).isEqualTo(Claim.TAKEN);
+        assertThat(prizeStock.claim(rollable(4))).isEqualTo(Claim.TOOK_LAST);
+    }
+
+    @Test
+    @DisplayName("No stock in any slice reports sold out and makes sure the prize is retired")
+    void soldOutSyncsAndFails() {
+        when(sliceRepository.lockFreeSlice(eq(prizeId), anyInt(), eq(4))).thenReturn(List.of());
+        when(sliceRepository.lockAnySlice(eq(prizeId), anyInt(), eq(4))).thenReturn(List.of());
+        when(sliceRepository.hasStock(prizeId)).thenReturn(false);
+
+        assertThat(prizeStock.claim(rollable(4))).isEqualTo(Claim.SOLD_OUT);
+        verify(sliceRepository, never()).takeOne(any());
+        verify(lootboxPrizeRepository).syncShardedQuantity(prizeId);
+    }
+
+    @Test
+    @DisplayName("Resplitting spreads the quantity evenly with the remainder on the first slices")
+    @SuppressWarnings("unchecked")
+    void resplitSpreadsQuantity() {
+        LootboxPrize prize = LootboxPrize.builder().id(prizeId).name("Figure").quantity(10).stockShards(3).build();
+
+        prizeStock.resplit(prize);
+
+        ArgumentCaptor<List<LootboxPrizeStockSlice>> slices = ArgumentCaptor.forClass(List.class);
+        verify(sliceRepository).deleteByPrizeId(prizeId);
+        verify(sliceRepository).saveAll(slices.capture());
+        assertThat(slices.getValue()).extracting(LootboxPrizeStockSlice::getRemaining).containsExactly(4, 3, 3);
+    }
+
+    private static List<Object[]> slice(UUID id, int remaining) {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{id, remaining});
+        return rows;
+    }
+
+    private RollablePrize rollable(int shards) {
+        return new RollablePrize(prizeId, UUID.randomUUID(), true, shards, "Figure", null, null, "Epic");
+    }
+}
@@ -2,6 +2,7 @@ package com.mirai.inventoryservice.services;
 
 import com.mirai.inventoryservice.dtos.requests.BatchClearDisplaysRequestDTO;
 import com.mirai.inventoryservice.dtos.requests.BatchDisplaySwapRequestDTO;
+import com.mirai.inventoryservice.dtos.requests.DisplayRotationRequestDTO;
 import com.mirai.inventoryservice.models.MachineDisplay;
 import com.mirai.inventoryservice.models.Product;
 import com.mirai.inventoryservice.models.audit.AuditLog;
@@ -56,6 +57,7 @@ class MachineDisplayServiceBatchQueryGuardTest {
     @Mock private EntityManager entityManager;
     @Mock private AuditLogService auditLogService;
     @Mock private NotificationService notificationService;
+    @Mock private StaleDisplayScanner staleDisplayScanner;
 
     private MachineDisplayService service;
     private UUID actorId;
@@ -66,7 +68,7 @@ class MachineDisplayServiceBatchQueryGuardTest {
         service = new MachineDisplayService(
                 machineDisplayRepository, productRepository, userRepository,
                 stockMovementRepository, locationRepository, entityManager,
-                auditLogService, notificationService);
+                auditLogService, notificationService, staleDisplayScanner);
 
         actorId = UUID.randomUUID();
         machineId = UUID.randomUUID();
@@ -205,4 +207,51 @@ class MachineDisplayServiceBatchQueryGuardTest {
         verify(machineDisplayRepository, times(1)).findAllByIdInWithProduct(any());
         verify(machineDisplayRepository, never()).findByIdWithProduct(any());
     }
+
+    @Test
+    void rotateDisplays_fortyMachines_boundedQueriesAndSingleAuditAndNotification() {
+        int n = 40;
+        List<Location> locations = new ArrayList<>();
+        List<MachineDisplay> displays = new ArrayList<>();
+        List<Product> incoming = new ArrayList<>();
+        List<BatchDisplaySwapRequestDTO> plan = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            Location loc = new Location();
+            loc.setId(UUID.randomUUID());
+            loc.setLocationCode("M" + i);
+            locations.add(loc);
+            MachineDisplay current = display(product("Old" + i));
+            current.setMachineId(loc.getId());
+            displays.add(current);
+            Product next = product("New" + i);
+            incoming.add(next);
+            plan.add(BatchDisplaySwapRequestDTO.builder()
+                    .locationType(LocationType.SINGLE_CLAW_MACHINE)
+                    .machineId(loc.getId())
+                    .displayIdsToRemove(List.of(current.getId()))
+                    .productIdsToAdd(List.of(next.getId()))
+                    .build());
+        }
+        when(machineDisplayRepository.findActiveByLocationTypeInAndMachineIdIn(any(), any()))
+                .thenReturn(new ArrayList<>(displays));
+        when(productRepository.findAllById(any())).thenReturn(incoming);
+        when(locationRepository.findAllById(any())).thenReturn(locations);
+
+        service.rotateDisplays(DisplayRotationRequestDTO.builder().machines(plan).actorId(actorId).build());
+
+        // One preload each, whatever the machine count
+        verify(machineDisplayRepository, times(1)).findActiveByLocationTypeInAndMachineIdIn(any(), any());
+        verify(productRepository, times(1)).findAllById(any());
+        verify(machineDisplayRepository, never()).findActiveByLocationTypeAndMachineId(any(), any());
+        verify(machineDisplayRepository, never()).findAllByIdInWithProduct(any());
+        verify(productRepository, never()).findById(any());
+        verify(locationRepository, never()).findById(any());
+        // Ended + created, one saveAll each
+        verify(machineDisplayRepository, never()).save(any(MachineDisplay.class));
+        verify(machineDisplayRepository, times(2)).saveAll(any());
+        verify(stockMovementRepository, times(1)).saveAll(any());
+        verify(auditLogService, times(1)).createAuditLog(
+                any(), any(), any(), any(), any(), any(), any(), anyInt(), anyInt(), any(), any());
+        verify(notificationService, times(1)).createNotification(any());
+    }
 }
@@ -1,6 +1,7 @@
 package com.mirai.inventoryservice.services;
 
 import com.mirai.inventoryservice.dtos.requests.BatchDisplaySwapRequestDTO;
+import com.mirai.inventoryservice.dtos.requests.DisplayRotationRequestDTO;
 import com.mirai.inventoryservice.dtos.requests.RenewDisplayRequestDTO;
 import com.mirai.inventoryservice.dtos.requests.SetMachineDisplayRequestDTO;
 import com.mirai.inventoryservice.models.MachineDisplay;
@@ -55,6 +56,7 @@ class MachineDisplayServiceNotificationTest {
     @Mock private EntityManager entityManager;
     @Mock private AuditLogService auditLogService;
     @Mock private NotificationService notificationService;
+    @Mock private StaleDisplayScanner staleDisplayScanner;
 
     private MachineDisplayService service;
 
@@ -72,7 +74,8 @@ class MachineDisplayServiceNotificationTest {
                 locationRepository,
                 entityManager,
                 auditLogService,
-                notificationService);
+                notificationService,
+                staleDisplayScanner);
 
         actorId = UUID.randomUUID();
         machineId = UUID.randomUUID();
@@ -301,4 +304,80 @@ class MachineDisplayServiceNotificationTest {
                 any(), any(), any(), any(),
                 anyInt(), anyInt(), any(), any());
     }
+
+    @Test
+    void rotateDisplays_emitsOneNotificationCoveringEveryMachine() {
+        Product p1 = product("Sonny V1");
+        Product p2 = product("Sonny V2");
+        Product p3 = product("Sonny V3");
+        MachineDisplay sourceDisplayP1 = display(machineId, p1);
+        MachineDisplay targetDisplayP2 = display(targetMachineId, p2);
+
+        Location loc = new Location();
+        loc.setId(machineId);
+        loc.setLocationCode("R2");
+        Location targetLoc = new Location();
+        targetLoc.setId(targetMachineId);
+        targetLoc.setLocationCode("S5");
+        when(machineDisplayRepository.findActiveByLocationTypeInAndMachineIdIn(any(), any()))
+                .thenReturn(List.of(sourceDisplayP1, targetDisplayP2));
+        when(productRepository.findAllById(any())).thenReturn(List.of(p3));
+        when(locationRepository.findAllById(any())).thenReturn(List.of(loc, targetLoc));
+        when(machineDisplayRepository.saveAll(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        DisplayRotationRequestDTO req = DisplayRotationRequestDTO.builder()
+                .machines(List.of(
+                        // R2 sends p1 to S5
+                        BatchDisplaySwapRequestDTO.builder()
+                                .locationType(LocationType.SINGLE_CLAW_MACHINE)
+                                .machineId(machineId)
+                                .targetLocationType(LocationType.SINGLE_CLAW_MACHINE)
+                                .targetMachineId(targetMachineId)
+                                .displayIdsToTarget(List.of(sourceDisplayP1.getId()))
+                                .build(),
+                        // S5 drops p2 and gets p3
+                        BatchDisplaySwapRequestDTO.builder()
+                                .locationType(LocationType.SINGLE_CLAW_MACHINE)
+                                .machineId(targetMachineId)
+                                .displayIdsToRemove(List.of(targetDisplayP2.getId()))
+                                .productIdsToAdd(List.of(p3.getId()))
+                                .build()))
+                .actorId(actorId)
+                .build();
+        service.rotateDisplays(req);
+
+        ArgumentCaptor<Notification> captor = ArgumentCaptor.forClass(Notification.class);
+        verify(notificationService, times(1)).createNotification(captor.capture());
+        Notification notif = captor.getValue();
+        assertEquals(NotificationType.DISPLAY_SWAP, notif.getType());
+        assertTrue(notif.getMessage().startsWith("Display rotation across 2 machines"));
+
+        List<Map<String, Object>> machines = machinesIn(notif);
+        assertEquals(2, machines.size());
+        assertEquals("R2", machines.get(0).get("code"));
+        assertEquals(List.of("Sonny V1"), machines.get(0).get("previously"));
+        assertEquals(List.of(), machines.get(0).get("currently"));
+        assertEquals("S5", machines.get(1).get("code"));
+        assertEquals(List.of("Sonny V2"), machines.get(1).get("previously"));
+        assertEquals(List.of("Sonny V1", "Sonny V3"), machines.get(1).get("currently"));
+    }
+
+    @Test
+    void rotateDisplays_displayNotOnNamedMachine_isRejected() {
+        MachineDisplay elsewhere = display(targetMachineId, product("Sonny V1"));
+        when(machineDisplayRepository.findActiveByLocationTypeInAndMachineIdIn(any(), any()))
+                .thenReturn(List.of(elsewhere));
+
+        DisplayRotationRequestDTO req = DisplayRotationRequestDTO.builder()
+                .machines(List.of(BatchDisplaySwapRequestDTO.builder()
+                        .locationType(LocationType.SINGLE_CLAW_MACHINE)
+                        .machineId(machineId)
+                        .displayIdsToRemove(List.of(elsewhere.getId()))
+                        .build()))
+                .actorId(actorId)
+                .build();
+
+        assertThrows(IllegalArgumentException.class, () -> service.rotateDisplays(req));
+        verify(notificationService, never()).createNotification(any());
+    }
 }
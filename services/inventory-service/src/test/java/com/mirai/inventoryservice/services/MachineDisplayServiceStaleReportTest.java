@@ -0,0 +1,115 @@
+package com.mirai.inventoryservice.services;
+
+import com.mirai.inventoryservice.dtos.responses.MachineDisplayDTO;
+import com.mirai.inventoryservice.models.MachineDisplay;
+import com.mirai.inventoryservice.models.Product;
+import com.mirai.inventoryservice.models.enums.LocationType;
+import com.mirai.inventoryservice.repositories.LocationRepository;
+import com.mirai.inventoryservice.repositories.MachineDisplayRepository;
+import com.mirai.inventoryservice.repositories.ProductRepository;
+import com.mirai.inventoryservice.repositories.StockMovementRepository;
+import com.mirai.inventoryservice.repositories.UserRepository;
+import com.mirai.inventoryservice.services.MachineDisplayService.StaleDisplayReport;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * The stale-display report is diffed against the marks persisted on the displays, so
+ * it survives restarts and is taken by one instance at a time.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class MachineDisplayServiceStaleReportTest {
+
+    @Mock private MachineDisplayRepository machineDisplayRepository;
+    @Mock private ProductRepository productRepository;
+    @Mock private UserRepository userRepository;
+    @Mock private StockMovementRepository stockMovementRepository;
+    @Mock private LocationRepository locationRepository;
+    @Mock private EntityManager entityManager;
+    @Mock private AuditLogService auditLogService;
+    @Mock private NotificationService notificationService;
+    @Mock private StaleDisplayScanner staleDisplayScanner;
+
+    private MachineDisplayService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new MachineDisplayService(
+                machineDisplayRepository, productRepository, userRepository,
+                stockMovementRepository, locationRepository, entityManager,
+                auditLogService, notificationService, staleDisplayScanner);
+        when(machineDisplayRepository.tryLockStaleReport()).thenReturn(true);
+    }
+
+    @Test
+    void reportsAndMarksOnlyTheDifferenceFromTheLastReport() {
+        MachineDisplay stillStale = display(60);
+        MachineDisplay wentStaleWhileDown = display(50);
+        MachineDisplay rotatedOut = display(70);
+        when(machineDisplayRepository.findStaleDisplays(any())).thenReturn(List.of(stillStale, wentStaleWhileDown));
+        when(machineDisplayRepository.findStaleReported()).thenReturn(List.of(stillStale, rotatedOut));
+
+        StaleDisplayReport report = service.claimStaleDisplayReport(45);
+
+        assertThat(report.stale()).extracting(MachineDisplayDTO::getId)
+                .containsExactly(stillStale.getId(), wentStaleWhileDown.getId());
+        assertThat(report.newlyStale()).extracting(MachineDisplayDTO::getId)
+                .containsExactly(wentStaleWhileDown.getId());
+        assertThat(report.newlyFresh()).extracting(MachineDisplayDTO::getId)
+                .containsExactly(rotatedOut.getId());
+        verify(machineDisplayRepository).markStaleReported(eq(List.of(wentStaleWhileDown.getId())), any());
+        verify(machineDisplayRepository).clearStaleReported(List.of(rotatedOut.getId()));
+    }
+
+    @Test
+    void nothingIsMarkedWhenNothingChanged() {
+        MachineDisplay stale = display(60);
+        when(machineDisplayRepository.findStaleDisplays(any())).thenReturn(List.of(stale));
+        when(machineDisplayRepository.findStaleReported()).thenReturn(List.of(stale));
+
+        StaleDisplayReport report = service.claimStaleDisplayReport(45);
+
+        assertThat(report.newlyStale()).isEmpty();
+        assertThat(report.newlyFresh()).isEmpty();
+        verify(machineDisplayRepository, never()).markStaleReported(any(), any());
+        verify(machineDisplayRepository, never()).clearStaleReported(any());
+    }
+
+    @Test
+    void anotherInstanceHoldingTheLockGetsNoReport() {
+        when(machineDisplayRepository.tryLockStaleReport()).thenReturn(false);
+
+        assertThat(service.claimStaleDisplayReport(45)).isNull();
+        verify(machineDisplayRepository, never()).findStaleDisplays(any());
+        verify(machineDisplayRepository, never()).markStaleReported(any(), any());
+    }
+
+    private static MachineDisplay display(int daysAgo) {
+        Product product = new Product();
+        product.setId(UUID.randomUUID());
+        product.setName("Plush " + daysAgo);
+        return MachineDisplay.builder()
+                .id(UUID.randomUUID())
+                .machineId(UUID.randomUUID())
+                .locationType(LocationType.SINGLE_CLAW_MACHINE)
+                .product(product)
+                .startedAt(OffsetDateTime.now().minusDays(daysAgo))
+                .build();
+    }
+}
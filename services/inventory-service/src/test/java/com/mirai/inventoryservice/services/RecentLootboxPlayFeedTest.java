@@ -0,0 +1,194 @@
+package com.mirai.inventoryservice.services;
+
+import com.mirai.inventoryservice.dtos.responses.RecentLootboxPlayResponseDTO;
+import com.mirai.inventoryservice.models.audit.User;
+import com.mirai.inventoryservice.models.lootbox.Lootbox;
+import com.mirai.inventoryservice.models.lootbox.LootboxPlay;
+import com.mirai.inventoryservice.models.lootbox.LootboxPrize;
+import com.mirai.inventoryservice.models.lootbox.LootboxTier;
+import com.mirai.inventoryservice.repositories.LootboxPlayRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RecentLootboxPlayFeedTest {
+
+    private static final int CAPACITY = 3;
+    private static final UUID MIN_ID = new UUID(0L, 0L);
+
+    @Mock private LootboxPlayRepository lootboxPlayRepository;
+
+    private RecentLootboxPlayFeed feed;
+
+    private final Lootbox crateA = Lootbox.builder().id(UUID.randomUUID()).name("A").build();
+    private final Lootbox crateB = Lootbox.builder().id(UUID.randomUUID()).name("B").build();
+    private final OffsetDateTime t0 = OffsetDateTime.now().minusMinutes(10);
+
+    @BeforeEach
+    void setUp() {
+        feed = new RecentLootboxPlayFeed(lootboxPlayRepository, Runnable::run, CAPACITY, 60_000, 10);
+    }
+
+    @Test
+    @DisplayName("Warmed from the database, then served from memory newest first")
+    void warmsOnceThenServesFromMemory() {
+        LootboxPlay older = play(crateA, 1, "Ann Lee");
+        LootboxPlay newer = play(crateB, 2, "Bo");
+        when(lootboxPlayRepository.findRecentPlaysWithAssociations(any())).thenReturn(List.of(newer, older));
+
+        feed.warm();
+        List<RecentLootboxPlayResponseDTO> first = feed.latest(null, 10);
+        feed.latest(null, 10);
+
+        assertThat(first).extracting(RecentLootboxPlayResponseDTO::getId).containsExactly(newer.getId(), older.getId());
+        assertThat(first.get(1).getUserDisplay()).isEqualTo("Ann L.");
+        verify(lootboxPlayRepository, times(1)).findRecentPlaysWithAssociations(any());
+    }
+
+    @Test
+    @DisplayName("A failed warm-up at startup leaves the ring to be warmed by the first request")
+    void failedStartupWarmRetriesOnFirstRequest() {
+        LootboxPlay play = play(crateA, 1, "Ann");
+        when(lootboxPlayRepository.findFeedHorizon())
+                .thenThrow(new IllegalStateException("database unavailable"))
+                .thenReturn(100L);
+        when(lootboxPlayRepository.findRecentPlaysWithAssociations(any())).thenReturn(List.of(play));
+
+        feed.warm();
+
+        assertThat(feed.latest(null, 10)).extracting(RecentLootboxPlayResponseDTO::getId).containsExactly(play.getId());
+    }
+
+    @Test
+    @DisplayName("Committed plays are appended once and the ring keeps only the newest")
+    void appendsAndWraps() {
+        when(lootboxPlayRepository.findRecentPlaysWithAssociations(any())).thenReturn(List.of());
+        when(lootboxPlayRepository.findFeedHorizon()).thenReturn(100L, 101L);
+        feed.warm();
+
+        LootboxPlay[] plays = new LootboxPlay[5];
+        for (int i = 0; i < plays.length; i++) {
+            plays[i] = play(crateA, i, "Player " + i);
+            when(lootboxPlayRepository.findByIdWithAssociations(plays[i].getId())).thenReturn(Optional.of(plays[i]));
+            feed.recordAfterCommit(plays[i].getId());
+        }
+        // The catch-up query returning an already-known play must not duplicate it
+        when(lootboxPlayRepository.findFeedAfter(100L, MIN_ID, 101L, CAPACITY)).thenReturn(rows(100L, plays[4]));
+        when(lootboxPlayRepository.findAllByIdWithAssociations(List.of(plays[4].getId()))).thenReturn(List.of(plays[4]));
+        feed.sync();
+
+        assertThat(feed.latest(null, 10)).extracting(RecentLootboxPlayResponseDTO::getId)
+                .containsExactly(plays[4].getId(), plays[3].getId(), plays[2].getId());
+    }
+
+    @Test
+    @DisplayName("Catch-up waits for older transactions, so a play that committed late is not missed")
+    void catchUpWaitsForTheHorizon() {
+        when(lootboxPlayRepository.findRecentPlaysWithAssociations(any())).thenReturn(List.of());
+        // Transaction 102 is still open on the first run, 104 has already committed
+        when(lootboxPlayRepository.findFeedHorizon()).thenReturn(100L, 102L, 106L);
+        feed.warm();
+
+        LootboxPlay late = play(crateA, 1, "Ann");
+        LootboxPlay early = play(crateB, 2, "Bo");
+        when(lootboxPlayRepository.findFeedAfter(100L, MIN_ID, 102L, CAPACITY)).thenReturn(List.of());
+        feed.sync();
+        assertThat(feed.latest(null, 10)).isEmpty();
+
+        List<Object[]> both = new ArrayList<>(rows(102L, late));
+        both.addAll(rows(104L, early));
+        when(lootboxPlayRepository.findFeedAfter(102L, MIN_ID, 106L, CAPACITY)).thenReturn(both);
+        when(lootboxPlayRepository.findAllByIdWithAssociations(List.of(late.getId(), early.getId())))
+                .thenReturn(List.of(early, late));
+        feed.sync();
+
+        assertThat(feed.latest(null, 10)).extracting(RecentLootboxPlayResponseDTO::getId)
+                .containsExactly(early.getId(), late.getId());
+    }
+
+    @Test
+    @DisplayName("A catch-up that is more than a ring behind keeps paging and appends only the newest")
+    void catchUpSkipsToNewestRing() {
+        when(lootboxPlayRepository.findRecentPlaysWithAssociations(any())).thenReturn(List.of());
+        when(lootboxPlayRepository.findFeedHorizon()).thenReturn(100L, 110L, 110L);
+        feed.warm();
+
+        LootboxPlay[] plays = new LootboxPlay[5];
+        for (int i = 0; i < plays.length; i++) {
+            plays[i] = play(crateA, i, "Player " + i);
+        }
+        List<Object[]> first = rows(101L, plays[0], plays[1], plays[2]);
+        when(lootboxPlayRepository.findFeedAfter(100L, MIN_ID, 110L, CAPACITY)).thenReturn(first);
+        when(lootboxPlayRepository.findFeedAfter(101L, plays[2].getId(), 110L, CAPACITY))
+                .thenReturn(rows(102L, plays[3], plays[4]));
+        when(lootboxPlayRepository.findAllByIdWithAssociations(List.of(plays[3].getId(), plays[4].getId())))
+                .thenReturn(List.of(plays[3], plays[4]));
+        feed.sync();
+        feed.sync();
+
+        assertThat(feed.latest(null, 10)).extracting(RecentLootboxPlayResponseDTO::getId)
+                .containsExactly(plays[4].getId(), plays[3].getId());
+        verify(lootboxPlayRepository, times(1)).findFeedAfter(100L, MIN_ID, 110L, CAPACITY);
+        verify(lootboxPlayRepository, times(1)).findFeedAfter(101L, plays[2].getId(), 110L, CAPACITY);
+        verify(lootboxPlayRepository, times(1)).findFeedAfter(110L, MIN_ID, 110L, CAPACITY);
+        verify(lootboxPlayRepository, times(1)).findAllByIdWithAssociations(any());
+    }
+
+    @Test
+    @DisplayName("A crate's ring is warmed on first request and then only receives that crate's plays")
+    void perCrateRing() {
+        LootboxPlay seeded = play(crateA, 0, "Ann");
+        when(lootboxPlayRepository.findRecentPlaysByCrateWithAssociations(eq(crateA.getId()), any()))
+                .thenReturn(List.of(seeded));
+        assertThat(feed.latest(crateA.getId(), 10)).hasSize(1);
+
+        LootboxPlay forA = play(crateA, 1, "Ann");
+        LootboxPlay forB = play(crateB, 2, "Bo");
+        when(lootboxPlayRepository.findByIdWithAssociations(forA.getId())).thenReturn(Optional.of(forA));
+        when(lootboxPlayRepository.findByIdWithAssociations(forB.getId())).thenReturn(Optional.of(forB));
+        feed.recordAfterCommit(forA.getId());
+        feed.recordAfterCommit(forB.getId());
+
+        assertThat(feed.latest(crateA.getId(), 10)).extracting(RecentLootboxPlayResponseDTO::getId)
+                .containsExactly(forA.getId(), seeded.getId());
+        verify(lootboxPlayRepository, times(1)).findRecentPlaysByCrateWithAssociations(eq(crateA.getId()), any());
+    }
+
+    /** Feed rows of plays written by one transaction, in id order like the query. */
+    private static List<Object[]> rows(long xid, LootboxPlay... plays) {
+        List<Object[]> rows = new ArrayList<>();
+        for (LootboxPlay play : plays) {
+            rows.add(new Object[] {play.getId(), xid});
+        }
+        return rows;
+    }
+
+    private LootboxPlay play(Lootbox crate, int minutes, String userName) {
+        LootboxTier tier = LootboxTier.builder().id(UUID.randomUUID()).lootbox(crate).name("Common").build();
+        return LootboxPlay.builder()
+                .id(UUID.randomUUID())
+                .user(User.builder().id(UUID.randomUUID()).fullName(userName).build())
+                .lootbox(crate)
+                .prize(LootboxPrize.builder().id(UUID.randomUUID()).tier(tier).name("Pin").build())
+                .prizeNameSnapshot("Pin")
+                .prizeTierNameSnapshot("Common")
+                .cost(1)
+                .playedAt(t0.plusMinutes(minutes))
+                .build();
+    }
+}
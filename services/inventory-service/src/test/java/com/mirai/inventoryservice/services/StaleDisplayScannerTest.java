@@ -0,0 +1,132 @@
+package com.mirai.inventoryservice.services;
+
+import com.mirai.inventoryservice.dtos.responses.MachineDisplayDTO;
+import com.mirai.inventoryservice.models.audit.Notification;
+import com.mirai.inventoryservice.models.enums.LocationType;
+import com.mirai.inventoryservice.models.enums.NotificationSeverity;
+import com.mirai.inventoryservice.models.enums.NotificationType;
+import com.mirai.inventoryservice.services.MachineDisplayService.StaleDisplayReport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StaleDisplayScannerTest {
+
+    private static final int THRESHOLD_DAYS = 45;
+
+    @Mock private MachineDisplayService machineDisplayService;
+    @Mock private NotificationService notificationService;
+
+    private StaleDisplayScanner scanner;
+
+    @BeforeEach
+    void setUp() {
+        scanner = new StaleDisplayScanner(machineDisplayService, notificationService, THRESHOLD_DAYS);
+    }
+
+    @Test
+    @DisplayName("Only displays that changed since they were last reported are notified, in one notification")
+    void notifiesOnlyTheDiff() {
+        MachineDisplayDTO a = display("Plush A", "R1", LocationType.SINGLE_CLAW_MACHINE, 60);
+        MachineDisplayDTO b = display("Plush B", "R2", LocationType.SINGLE_CLAW_MACHINE, 50);
+        MachineDisplayDTO c = display("Figure C", "D4", LocationType.DOUBLE_CLAW_MACHINE, 46);
+        when(machineDisplayService.claimStaleDisplayReport(THRESHOLD_DAYS))
+                .thenReturn(new StaleDisplayReport(List.of(a, b), List.of(), List.of()))
+                .thenReturn(new StaleDisplayReport(List.of(a, c), List.of(c), List.of(b)));
+
+        // Nothing changed since the last report
+        scanner.scan();
+        verifyNoInteractions(notificationService);
+
+        // b rotated out, c went stale
+        scanner.scan();
+        ArgumentCaptor<Notification> captor = ArgumentCaptor.forClass(Notification.class);
+        verify(notificationService, times(1)).createNotification(captor.capture());
+        Notification n = captor.getValue();
+        assertThat(n.getType()).isEqualTo(NotificationType.DISPLAY_STALE);
+        assertThat(n.getSeverity()).isEqualTo(NotificationSeverity.WARNING);
+        assertThat(n.getMessage()).contains("Figure C on D4").contains("1 stale display was rotated");
+        assertThat(ids(n, "newly_stale")).containsExactly(c.getId().toString());
+        assertThat(ids(n, "newly_fresh")).containsExactly(b.getId().toString());
+        assertThat(n.getMetadata().get("total_stale")).isEqualTo(2);
+        assertThat(scanner.getStaleDisplays()).containsExactly(a, c);
+    }
+
+    @Test
+    @DisplayName("While another instance holds the report lock, only the snapshot is refreshed")
+    void otherInstanceReports() {
+        MachineDisplayDTO a = display("Plush A", "R1", LocationType.SINGLE_CLAW_MACHINE, 60);
+        when(machineDisplayService.claimStaleDisplayReport(THRESHOLD_DAYS)).thenReturn(null);
+        when(machineDisplayService.getStaleDisplays(THRESHOLD_DAYS)).thenReturn(List.of(a));
+
+        scanner.scan();
+
+        assertThat(scanner.getStaleDisplays()).containsExactly(a);
+        verify(machineDisplayService, times(1)).getStaleDisplays(THRESHOLD_DAYS);
+        verifyNoInteractions(notificationService);
+    }
+
+    @Test
+    @DisplayName("Reads are served from the snapshot until a display change commits")
+    void servesSnapshotUntilInvalidated() {
+        MachineDisplayDTO a = display("Plush A", "R1", LocationType.SINGLE_CLAW_MACHINE, 60);
+        MachineDisplayDTO c = display("Figure C", "D4", LocationType.DOUBLE_CLAW_MACHINE, 46);
+        when(machineDisplayService.getStaleDisplays(THRESHOLD_DAYS))
+                .thenReturn(List.of(a, c))
+                .thenReturn(List.of(c));
+
+        assertThat(scanner.getStaleDisplays()).containsExactly(a, c);
+        assertThat(scanner.getStaleDisplaysByLocationType(LocationType.DOUBLE_CLAW_MACHINE)).containsExactly(c);
+        assertThat(scanner.getStaleDisplays(55)).containsExactly(a);
+        verify(machineDisplayService, times(1)).getStaleDisplays(THRESHOLD_DAYS);
+
+        scanner.invalidateAfterCommit();
+        assertThat(scanner.getStaleDisplays()).containsExactly(c);
+        verify(machineDisplayService, times(2)).getStaleDisplays(THRESHOLD_DAYS);
+        verify(notificationService, never()).createNotification(any());
+    }
+
+    @Test
+    @DisplayName("A threshold below the configured one is queried directly")
+    void shorterThresholdQueriesDirectly() {
+        when(machineDisplayService.getStaleDisplays(10)).thenReturn(List.of());
+
+        assertThat(scanner.getStaleDisplays(10)).isEmpty();
+        verify(machineDisplayService, never()).getStaleDisplays(THRESHOLD_DAYS);
+    }
+
+    private static MachineDisplayDTO display(String product, String code, LocationType type, int daysAgo) {
+        return MachineDisplayDTO.builder()
+                .id(UUID.randomUUID())
+                .locationType(type)
+                .machineId(UUID.randomUUID())
+                .machineCode(code)
+                .productId(UUID.randomUUID())
+                .productName(product)
+                .startedAt(OffsetDateTime.now().minusDays(daysAgo))
+                .daysActive((long) daysAgo)
+                .stale(true)
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> ids(Notification n, String key) {
+        return ((List<Map<String, Object>>) n.getMetadata().get(key)).stream()
+                .map(m -> m.get("display_id"))
+                .toList();
+    }
+}
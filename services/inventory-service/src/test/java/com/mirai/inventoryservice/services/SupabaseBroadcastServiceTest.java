@@ -0,0 +1,214 @@
+package com.mirai.inventoryservice.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mirai.inventoryservice.dtos.responses.InventoryChangeDTO;
+import com.mirai.inventoryservice.http.OutboundHttpClient;
+import com.mirai.inventoryservice.http.OutboundHttpSettings;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Coalescing behaviour of SupabaseBroadcastService. The executor runs inline so each
+ * flush is observable as RestTemplate calls.
+ */
+@ExtendWith(MockitoExtension.class)
+class SupabaseBroadcastServiceTest {
+
+    @Mock
+    private RestTemplate restTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private SupabaseBroadcastService service;
+    private final CountDownLatch releaseScheduler = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        OutboundHttpClient httpClient = new OutboundHttpClient("supabase-realtime", restTemplate,
+                new OutboundHttpSettings(Duration.ofSeconds(1), Duration.ofSeconds(1), 4, Duration.ZERO, 5, Duration.ofSeconds(30)),
+                new SimpleMeterRegistry());
+        service = new SupabaseBroadcastService(httpClient, objectMapper, Runnable::run,
+                Executors.newSingleThreadScheduledExecutor(), 20);
+        ReflectionTestUtils.setField(service, "supabaseUrl", "http://localhost:54321");
+        ReflectionTestUtils.setField(service, "anonKey", "anon");
+        ReflectionTestUtils.setField(service, "serviceRoleKey", "service");
+        lenient().when(restTemplate.postForEntity(anyString(), any(), eq(String.class)))
+                .thenReturn(ResponseEntity.ok("ok"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        releaseScheduler.countDown();
+        service.shutdown();
+    }
+
+    @Test
+    @DisplayName("The window is flushed on its own thread while the shared scheduler is busy")
+    void flushesWhileTheSharedSchedulerIsBusy() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.initialize();
+        try {
+            scheduler.execute(() -> {
+                try {
+                    releaseScheduler.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            service.start();
+
+            service.broadcastInventoryUpdated("RACK", "p1");
+
+            verify(restTemplate, timeout(2000)).postForEntity(anyString(), any(), eq(String.class));
+        } finally {
+            releaseScheduler.countDown();
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Nothing is sent until the window is flushed")
+    void broadcastsAreDeferredUntilFlush() {
+        service.broadcastInventoryUpdated("RACK", "p1");
+
+        verifyNoInteractions(restTemplate);
+    }
+
+    @Test
+    @DisplayName("Events of the same type merge into one message with unioned ids")
+    void sameTypeEventsMergeIds() throws Exception {
+        service.broadcastAuditLogCreated("p1");
+        service.broadcastAuditLogCreated("p2");
+        service.broadcastAuditLogCreated("p1");
+        service.broadcastProductUpdated(List.of("p2", "p3"));
+
+        service.flushPending();
+
+        Map<String, JsonNode> byType = sentPayloads(2).stream()
+                .collect(Collectors.toMap(p -> p.get("type").asText(), p -> p));
+        assertThat(ids(byType.get("audit_log_created"))).containsExactly("p1", "p2");
+        assertThat(byType.get("audit_log_created").has("itemId")).isFalse();
+        assertThat(ids(byType.get("product_updated"))).containsExactly("p2", "p3");
+    }
+
+    @Test
+    @DisplayName("Single-id merges keep itemId for older clients")
+    void singleIdKeepsItemId() throws Exception {
+        service.broadcastInventoryUpdated("RACK", "p1");
+        service.broadcastInventoryUpdated("RACK", "p1");
+
+        service.flushPending();
+
+        JsonNode payload = sentPayloads(1).get(0);
+        assertThat(payload.get("locationType").asText()).isEqualTo("RACK");
+        assertThat(payload.get("itemId").asText()).isEqualTo("p1");
+    }
+
+    @Test
+    @DisplayName("An unscoped event widens the merged message")
+    void unscopedEventWidensMerge() throws Exception {
+        service.broadcastProductUpdated(List.of("p1"));
+        service.broadcastProductUpdated();
+        service.broadcastProductUpdated(List.of("p2"));
+
+        service.flushPending();
+
+        JsonNode payload = sentPayloads(1).get(0);
+        assertThat(payload.has("ids")).isFalse();
+        assertThat(payload.has("itemId")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Different location types are sent separately")
+    void locationTypesAreNotMerged() throws Exception {
+        service.broadcastInventoryUpdated("RACK", "p1");
+        service.broadcastInventoryUpdated("CABINET", "p1");
+
+        service.flushPending();
+
+        assertThat(sentPayloads(2)).extracting(p -> p.get("locationType").asText())
+                .containsExactlyInAnyOrder("RACK", "CABINET");
+    }
+
+    @Test
+    @DisplayName("A flush drains the window so the next flush sends nothing")
+    void flushDrainsWindow() {
+        service.broadcastNotificationCreated();
+        service.flushPending();
+        service.flushPending();
+
+        verify(restTemplate, times(1)).postForEntity(anyString(), any(), eq(String.class));
+    }
+
+    @Test
+    @DisplayName("Inventory deltas are sent in one message in the order they committed")
+    void inventoryDeltasAreBatchedInCommitOrder() throws Exception {
+        UUID productId = UUID.randomUUID();
+        // Movement 7 was inserted later but committed first
+        service.broadcastInventoryDelta(delta(7L, productId, 3, 10));
+        service.broadcastInventoryDelta(delta(5L, productId, 4, 11));
+
+        service.flushPending();
+
+        JsonNode payload = sentPayloads(1).get(0);
+        assertThat(payload.get("type").asText()).isEqualTo("inventory_delta");
+        assertThat(payload.get("version").asInt()).isEqualTo(InventoryChangeService.DELTA_VERSION);
+        assertThat(payload.get("changes")).extracting(c -> c.get("seq").asLong()).containsExactly(7L, 5L);
+        assertThat(payload.get("changes").get(0).get("total").asInt()).isEqualTo(10);
+    }
+
+    private static InventoryChangeDTO delta(long seq, UUID productId, int quantity, int total) {
+        return InventoryChangeDTO.builder()
+                .seq(seq)
+                .productId(productId)
+                .locationId(UUID.randomUUID())
+                .locationType("RACK")
+                .quantity(quantity)
+                .total(total)
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<JsonNode> sentPayloads(int expected) throws Exception {
+        ArgumentCaptor<HttpEntity<String>> captor = ArgumentCaptor.forClass(HttpEntity.class);
+        verify(restTemplate, times(expected)).postForEntity(anyString(), captor.capture(), eq(String.class));
+        List<JsonNode> payloads = new ArrayList<>();
+        for (HttpEntity<String> entity : captor.getAllValues()) {
+            payloads.add(objectMapper.readTree(entity.getBody()).get("messages").get(0).get("payload"));
+        }
+        return payloads;
+    }
+
+    private static List<String> ids(JsonNode payload) {
+        List<String> ids = new ArrayList<>();
+        payload.get("ids").forEach(id -> ids.add(id.asText()));
+        return ids;
+    }
+}
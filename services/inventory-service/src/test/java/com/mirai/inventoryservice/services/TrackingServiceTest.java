@@ -0,0 +1,89 @@
+package com.mirai.inventoryservice.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mirai.inventoryservice.config.CacheConfig;
+import com.mirai.inventoryservice.dtos.easypost.EasyPostTrackerResult;
+import com.mirai.inventoryservice.dtos.requests.TrackingLookupRequestDTO;
+import com.mirai.inventoryservice.dtos.responses.TrackingLookupResponseDTO;
+import com.mirai.inventoryservice.http.OutboundHttpClient;
+import com.mirai.inventoryservice.models.enums.CarrierStatus;
+import com.mirai.inventoryservice.repositories.ShipmentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TrackingServiceTest {
+
+    @Mock
+    private ShipmentRepository shipmentRepository;
+    @Mock
+    private OutboundHttpClient easyPostClient;
+
+    private EasyPostTrackerCache trackerCache;
+    private TrackingService service;
+
+    @BeforeEach
+    void setUp() {
+        SimpleCacheManager cacheManager = (SimpleCacheManager) new CacheConfig().cacheManager(10, 100);
+        cacheManager.afterPropertiesSet();
+        trackerCache = new EasyPostTrackerCache(cacheManager);
+        service = new TrackingService(shipmentRepository, easyPostClient, trackerCache, new ObjectMapper());
+        ReflectionTestUtils.setField(service, "apiKey", "test-key");
+    }
+
+    @Test
+    void repeatLookupIsServedFromCache() {
+        EasyPostTrackerResult tracker = tracker("1Z999", "in_transit");
+        when(easyPostClient.execute(eq("list_trackers"), any())).thenReturn(ResponseEntity.ok(listOf(tracker)));
+        when(shipmentRepository.findFirstByTrackingIdOrderByCreatedAtDesc(anyString())).thenReturn(Optional.empty());
+
+        TrackingLookupResponseDTO first = service.lookupTracking(new TrackingLookupRequestDTO("1Z999", null));
+        TrackingLookupResponseDTO second = service.getTracking("1Z999");
+
+        assertEquals(CarrierStatus.IN_TRANSIT, first.carrierStatus());
+        assertEquals(first.status(), second.status());
+        verify(easyPostClient, times(1)).execute(anyString(), any());
+    }
+
+    @Test
+    void webhookUpdateReplacesCachedTracker() {
+        when(easyPostClient.execute(eq("list_trackers"), any()))
+                .thenReturn(ResponseEntity.ok(listOf(tracker("1Z999", "in_transit"))));
+        when(shipmentRepository.findFirstByTrackingIdOrderByCreatedAtDesc(anyString())).thenReturn(Optional.empty());
+        service.getTracking("1Z999");
+
+        trackerCache.put(tracker("1Z999", "delivered"));
+
+        assertEquals(CarrierStatus.DELIVERED, service.getTracking("1Z999").carrierStatus());
+        verify(easyPostClient, times(1)).execute(anyString(), any());
+    }
+
+    private static EasyPostTrackerResult tracker(String code, String status) {
+        EasyPostTrackerResult tracker = new EasyPostTrackerResult();
+        tracker.setId("trk_" + code);
+        tracker.setTrackingCode(code);
+        tracker.setStatus(status);
+        return tracker;
+    }
+
+    private static TrackingService.EasyPostTrackerListResponse listOf(EasyPostTrackerResult tracker) {
+        TrackingService.EasyPostTrackerListResponse response = new TrackingService.EasyPostTrackerListResponse();
+        response.setTrackers(List.of(tracker));
+        return response;
+    }
+}
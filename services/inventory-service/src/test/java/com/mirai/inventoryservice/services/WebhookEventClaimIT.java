@@ -0,0 +1,125 @@
+package com.mirai.inventoryservice.services;
+
+import com.mirai.inventoryservice.integration.BaseKafkaIntegrationTest;
+import com.mirai.inventoryservice.models.audit.WebhookEvent;
+import com.mirai.inventoryservice.models.enums.WebhookEventStatus;
+import com.mirai.inventoryservice.repositories.WebhookEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Webhook claims against real Postgres (SKIP LOCKED and row-value comparisons are not
+ * available in H2): instances claim disjoint rows, a tracker's events are claimed one
+ * at a time in received order, retries included, and only expired claims are requeued.
+ */
+class WebhookEventClaimIT extends BaseKafkaIntegrationTest {
+
+    @Autowired private EasyPostWebhookService webhookService;
+    @Autowired private WebhookEventRepository webhookEventRepository;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    private UUID first;
+    private UUID second;
+    private UUID other;
+
+    @BeforeEach
+    void queueEvents() {
+        webhookEventRepository.deleteAll();
+        first = insert("evt_1", "trk_1");
+        second = insert("evt_2", "trk_1");
+        other = insert("evt_3", "trk_2");
+    }
+
+    @Test
+    @DisplayName("Only each tracker's oldest unfinished event is claimable, and a retry stays ahead")
+    void trackerEventsAreClaimedOneAtATimeInOrder() {
+        assertThat(ids(webhookService.claimPendingEvents(10))).containsExactly(first, other);
+        assertThat(webhookService.claimPendingEvents(10)).isEmpty();
+
+        // A failed event goes back to PENDING but keeps its place ahead of evt_2
+        webhookService.recordProcessingFailure(first, "boom");
+        assertThat(ids(webhookService.claimPendingEvents(10))).containsExactly(first);
+
+        markProcessed(first);
+        assertThat(ids(webhookService.claimPendingEvents(10))).containsExactly(second);
+    }
+
+    @Test
+    @DisplayName("A claim skips rows another instance has locked instead of taking them too")
+    void concurrentClaimsAreDisjoint() throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<List<UUID>> otherInstance = CompletableFuture.supplyAsync(() -> tx.execute(status -> {
+            List<UUID> ids = webhookEventRepository.lockClaimableIds(1);
+            locked.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return ids;
+        }));
+        assertThat(locked.await(10, TimeUnit.SECONDS)).isTrue();
+
+        // evt_1 is locked elsewhere, and evt_2 must wait behind it
+        assertThat(ids(webhookService.claimPendingEvents(10))).containsExactly(other);
+
+        release.countDown();
+        assertThat(otherInstance.get(10, TimeUnit.SECONDS)).containsExactly(first);
+    }
+
+    @Test
+    @DisplayName("Only claims older than the lease are requeued")
+    void liveClaimsAreNotRequeued() {
+        webhookService.claimPendingEvents(10);
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> webhookEventRepository.findById(other).ifPresent(event -> {
+            event.setClaimedAt(OffsetDateTime.now().minusMinutes(10));
+            webhookEventRepository.save(event);
+        }));
+
+        assertThat(webhookService.requeueExpiredClaims(Duration.ofMinutes(5))).isEqualTo(1);
+        assertThat(status(first)).isEqualTo(WebhookEventStatus.PROCESSING);
+        assertThat(status(other)).isEqualTo(WebhookEventStatus.PENDING);
+    }
+
+    private UUID insert(String eventId, String trackerId) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> webhookEventRepository.insertIfAbsent(
+                eventId, "tracker.updated", "easypost", "{}", trackerId));
+        return webhookEventRepository.findAll().stream()
+                .filter(e -> e.getEventId().equals(eventId))
+                .findFirst().orElseThrow().getId();
+    }
+
+    private void markProcessed(UUID id) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> webhookEventRepository.findById(id).ifPresent(event -> {
+            event.setStatus(WebhookEventStatus.PROCESSED);
+            webhookEventRepository.save(event);
+        }));
+    }
+
+    private WebhookEventStatus status(UUID id) {
+        return webhookEventRepository.findById(id).orElseThrow().getStatus();
+    }
+
+    private static List<UUID> ids(List<WebhookEvent> events) {
+        return events.stream().map(WebhookEvent::getId).toList();
+    }
+}
@@ -0,0 +1,72 @@
+package com.mirai.inventoryservice.services;
+
+import com.mirai.inventoryservice.models.audit.WebhookEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WebhookEventWorkerTest {
+
+    @Mock
+    private EasyPostWebhookService webhookService;
+
+    @Test
+    void eventsForOneTrackerAreProcessedInClaimOrder() throws InterruptedException {
+        WebhookEvent first = event("trk_1");
+        WebhookEvent second = event("trk_2");
+        WebhookEvent third = event("trk_1");
+        when(webhookService.claimPendingEvents(200)).thenReturn(List.of(first, second, third));
+
+        WebhookEventWorker worker = new WebhookEventWorker(webhookService, 4, 200, 300_000);
+        worker.dispatchPending();
+        worker.shutdown();
+
+        InOrder order = inOrder(webhookService);
+        order.verify(webhookService).processQueuedEvent(first.getId());
+        order.verify(webhookService).processQueuedEvent(third.getId());
+        verify(webhookService).processQueuedEvent(second.getId());
+        assertEquals(0, worker.getInFlight());
+    }
+
+    @Test
+    void processingFailureIsRecordedForRetry() throws InterruptedException {
+        WebhookEvent event = event("trk_1");
+        when(webhookService.claimPendingEvents(anyInt())).thenReturn(List.of(event));
+        doThrow(new IllegalStateException("db down")).when(webhookService).processQueuedEvent(event.getId());
+
+        WebhookEventWorker worker = new WebhookEventWorker(webhookService, 2, 10, 300_000);
+        worker.dispatchPending();
+        worker.shutdown();
+
+        verify(webhookService).recordProcessingFailure(event.getId(), "db down");
+        assertEquals(0, worker.getInFlight());
+    }
+
+    @Test
+    void onlyClaimsOlderThanTheLeaseAreRequeued() {
+        WebhookEventWorker worker = new WebhookEventWorker(webhookService, 1, 10, 300_000);
+        worker.requeueExpired();
+
+        verify(webhookService).requeueExpiredClaims(Duration.ofMinutes(5));
+    }
+
+    private static WebhookEvent event(String trackerId) {
+        return WebhookEvent.builder()
+                .id(UUID.randomUUID())
+                .eventId("evt_" + UUID.randomUUID())
+                .eventType("tracker.updated")
+                .trackerId(trackerId)
+                .build();
+    }
+}